@@ -15,12 +15,13 @@
  */
 package com.impetus.client.cassandra;
 
-import java.lang.reflect.Field;
 import java.nio.ByteBuffer;
 import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -28,6 +29,7 @@ import java.util.Queue;
 import java.util.Set;
 
 import javax.persistence.PersistenceException;
+import javax.persistence.metamodel.Attribute;
 
 import org.apache.cassandra.db.marshal.BytesType;
 import org.apache.cassandra.thrift.Cassandra;
@@ -35,12 +37,14 @@ import org.apache.cassandra.thrift.CfDef;
 import org.apache.cassandra.thrift.Column;
 import org.apache.cassandra.thrift.ColumnDef;
 import org.apache.cassandra.thrift.ColumnOrSuperColumn;
+import org.apache.cassandra.thrift.ColumnParent;
 import org.apache.cassandra.thrift.ColumnPath;
 import org.apache.cassandra.thrift.ConsistencyLevel;
 import org.apache.cassandra.thrift.CounterColumn;
 import org.apache.cassandra.thrift.CounterSuperColumn;
 import org.apache.cassandra.thrift.CqlResult;
 import org.apache.cassandra.thrift.CqlRow;
+import org.apache.cassandra.thrift.Deletion;
 import org.apache.cassandra.thrift.IndexClause;
 import org.apache.cassandra.thrift.IndexType;
 import org.apache.cassandra.thrift.InvalidRequestException;
@@ -49,6 +53,7 @@ import org.apache.cassandra.thrift.KsDef;
 import org.apache.cassandra.thrift.Mutation;
 import org.apache.cassandra.thrift.NotFoundException;
 import org.apache.cassandra.thrift.SchemaDisagreementException;
+import org.apache.cassandra.thrift.SlicePredicate;
 import org.apache.cassandra.thrift.SuperColumn;
 import org.apache.cassandra.thrift.TimedOutException;
 import org.apache.cassandra.thrift.UnavailableException;
@@ -59,6 +64,7 @@ import org.apache.thrift.TException;
 import org.scale7.cassandra.pelops.Bytes;
 import org.scale7.cassandra.pelops.ColumnOrSuperColumnHelper;
 import org.scale7.cassandra.pelops.Pelops;
+import org.scale7.cassandra.pelops.Selector;
 import org.scale7.cassandra.pelops.pool.IThriftPool.IPooledConnection;
 
 import com.impetus.client.cassandra.common.CassandraConstants;
@@ -84,7 +90,10 @@ import com.impetus.kundera.metadata.model.EntityMetadata;
 import com.impetus.kundera.metadata.model.KunderaMetadata;
 import com.impetus.kundera.metadata.model.MetamodelImpl;
 import com.impetus.kundera.metadata.model.PersistenceUnitMetadata;
+import com.impetus.kundera.metadata.model.attributes.AbstractAttribute;
+import com.impetus.kundera.persistence.api.BatchWriter;
 import com.impetus.kundera.persistence.api.Batcher;
+import com.impetus.kundera.persistence.batch.NodeBatcher;
 import com.impetus.kundera.property.PropertyAccessException;
 import com.impetus.kundera.property.PropertyAccessorFactory;
 import com.impetus.kundera.property.PropertyAccessorHelper;
@@ -101,6 +110,9 @@ public abstract class CassandraClientBase extends ClientBase implements ClientPr
 
     /** log for this class. */
     private static Log log = LogFactory.getLog(CassandraClientBase.class);
+
+    /** Rows fetched per page and mutated per call by bulk delete/update. */
+    private static final int BULK_MUTATION_SIZE = 1000;
     
     private String cqlVersion = CassandraConstants.CQL_VERSION_2_0;
 
@@ -109,20 +121,20 @@ public abstract class CassandraClientBase extends ClientBase implements ClientPr
     /** The closed. */
     private boolean closed = false;
     
-    /** list of nodes for batch processing. */
-    private List<Node> nodes = new ArrayList<Node>();
+    /** batches nodes into mutation maps, null if batch size is not defined. */
+    private NodeBatcher<Map<ByteBuffer, Map<String, List<Mutation>>>> batcher;
 
-    /** batch size */
-    private int batchSize;
-    
     /**
      *  constructor using fields. 
      */
     protected CassandraClientBase(String persistenceUnit)
     {
         PersistenceUnitMetadata puMetadata = KunderaMetadataManager.getPersistenceUnitMetadata(persistenceUnit);
-        batchSize = puMetadata.getBatchSize();
-
+        if (puMetadata.getBatchSize() > 0)
+        {
+            batcher = new NodeBatcher<Map<ByteBuffer, Map<String, List<Mutation>>>>(persistenceUnit,
+                    new MutationBatchWriter(persistenceUnit));
+        }
     }
 
     /**
@@ -686,7 +698,7 @@ public abstract class CassandraClientBase extends ClientBase implements ClientPr
                 int i = 0;
                 for (Bytes b : primaryKeys)
                 {
-                    rowIds[i] = PropertyAccessorHelper.getObject(b, (Field) m.getIdAttribute().getJavaMember());
+                    rowIds[i] = PropertyAccessorHelper.getObject(b, m.getIdAttribute());
                     i++;
                 }
                 entities.addAll(findAll(m.getEntityClazz(), rowIds));
@@ -800,8 +812,10 @@ public abstract class CassandraClientBase extends ClientBase implements ClientPr
 
     public void close()
     {
-        nodes.clear();
-        nodes = null;
+        if (batcher != null)
+        {
+            batcher.clear();
+        }
         closed = true;
     }
 
@@ -845,108 +859,400 @@ public abstract class CassandraClientBase extends ClientBase implements ClientPr
 
     protected abstract void delete(Object entity, Object pKey);
 
-
-
-    /* (non-Javadoc)
-     * @see com.impetus.kundera.persistence.api.Batcher#addBatch(com.impetus.kundera.graph.Node)
+    /**
+     * Deletes all rows matching given index clauses, without loading them.
+     * Matching row keys are fetched page wise and removed with batch
+     * mutations of bounded size.
+     * 
+     * @param ixClause
+     *            index clauses
+     * @param m
+     *            entity metadata
+     * @return number of deleted rows
      */
-    public void addBatch(Node node)
+    public int deleteByQuery(List<IndexClause> ixClause, EntityMetadata m)
     {
-
-        if (node != null)
-        {
-            nodes.add(node);
-        }
-
-        onBatchLimit();
+        return mutateByQuery(ixClause, m, null);
     }
 
-    /* (non-Javadoc)
-     * @see com.impetus.kundera.persistence.api.Batcher#getBatchSize()
+    /**
+     * Writes given column values on all rows matching given index clauses,
+     * without loading them.
+     * 
+     * @param ixClause
+     *            index clauses
+     * @param m
+     *            entity metadata
+     * @param updatedColumns
+     *            map of column name and new value
+     * @return number of updated rows
      */
-    public int getBatchSize()
+    public int updateByQuery(List<IndexClause> ixClause, EntityMetadata m, Map<String, Object> updatedColumns)
     {
-        return batchSize;
+        return mutateByQuery(ixClause, m, updatedColumns);
     }
 
-    
-    /*
-     * (non-Javadoc)
+    /**
+     * Deletes matching rows, if updated columns are null. Else writes updated
+     * columns on them, deleting columns updated to null.
      * 
-     * @see com.impetus.kundera.persistence.api.Batcher#executeBatch()
+     * @param ixClause
+     *            index clauses
+     * @param m
+     *            entity metadata
+     * @param updatedColumns
+     *            map of column name and new value, or null for delete
+     * @return number of mutated rows
      */
-    public int executeBatch()
+    private int mutateByQuery(List<IndexClause> ixClause, EntityMetadata m, Map<String, Object> updatedColumns)
     {
-        String persistenceUnit = null;
         IPooledConnection conn = null;
-
-        Map<ByteBuffer, Map<String, List<Mutation>>> mutationMap = new HashMap<ByteBuffer, Map<String, List<Mutation>>>();
-
         try
         {
-            for (Node node : nodes)
+            conn = PelopsUtils.getCassandraConnection(m.getPersistenceUnit());
+            Cassandra.Client cassandra_client = conn.getAPI();
+            cassandra_client.set_keyspace(m.getSchema());
+
+            Set<ByteBuffer> rowKeys = new HashSet<ByteBuffer>();
+            for (IndexClause ix : ixClause)
+            {
+                rowKeys.addAll(getRowKeys(cassandra_client, ix, m));
+            }
+
+            if (rowKeys.isEmpty())
             {
-                if (node.isDirty())
+                return 0;
+            }
+
+            long timestamp = System.currentTimeMillis();
+            List<Mutation> mutations = new ArrayList<Mutation>();
+            if (updatedColumns == null)
+            {
+                Deletion deletion = new Deletion();
+                deletion.setTimestamp(timestamp);
+                mutations.add(new Mutation().setDeletion(deletion));
+            }
+            else
+            {
+                for (Map.Entry<String, Object> updatedColumn : updatedColumns.entrySet())
                 {
-                    Object entity = node.getData();
-                    Object id = node.getEntityId();
-                    EntityMetadata metadata = KunderaMetadataManager.getEntityMetadata(node.getDataClass());
-                    persistenceUnit = metadata.getPersistenceUnit();
-                    isUpdate = node.isUpdate();
-
-                    // delete can not be executed in batch
-                    if (node.isInState(RemovedState.class))
+                    Object value = updatedColumn.getValue();
+                    byte[] name = PropertyAccessorFactory.STRING.toBytes(updatedColumn.getKey());
+                    if (value == null)
                     {
-                        delete(entity, id);
+                        // column updated to null is deleted, not written empty.
+                        Deletion deletion = new Deletion();
+                        deletion.setTimestamp(timestamp);
+                        deletion.setPredicate(new SlicePredicate().setColumn_names(Collections
+                                .singletonList(ByteBuffer.wrap(name))));
+                        mutations.add(new Mutation().setDeletion(deletion));
                     }
                     else
                     {
-                        List<RelationHolder> relationHolders = getRelationHolders(node);
-                        mutationMap = prepareMutation(metadata, entity, id, relationHolders, mutationMap);
-                        indexNode(node, metadata);
+                        Column column = new Column();
+                        column.setName(name);
+                        column.setValue(CassandraUtilities.toBytes(value, value.getClass()).getBytes());
+                        column.setTimestamp(timestamp);
+                        mutations.add(new Mutation().setColumn_or_supercolumn(new ColumnOrSuperColumn()
+                                .setColumn(column)));
                     }
                 }
             }
 
-            // Write Mutation map to database
-            
+            // mutate rows in bounded batches, not all of them in one request.
+            Map<ByteBuffer, Map<String, List<Mutation>>> mutationMap = new HashMap<ByteBuffer, Map<String, List<Mutation>>>();
+            for (ByteBuffer rowKey : rowKeys)
+            {
+                Map<String, List<Mutation>> columnFamilyValues = new HashMap<String, List<Mutation>>(1);
+                columnFamilyValues.put(m.getTableName(), mutations);
+                mutationMap.put(rowKey, columnFamilyValues);
+                if (mutationMap.size() == BULK_MUTATION_SIZE)
+                {
+                    cassandra_client.batch_mutate(mutationMap, getConsistencyLevel());
+                    mutationMap.clear();
+                }
+            }
             if (!mutationMap.isEmpty())
             {
-                conn = PelopsUtils.getCassandraConnection(persistenceUnit);
-                PersistenceUnitMetadata puMetadata = KunderaMetadata.INSTANCE.getApplicationMetadata()
-                        .getPersistenceUnitMetadata(persistenceUnit);
-                Cassandra.Client cassandra_client = conn.getAPI();
-                cassandra_client.set_keyspace(puMetadata.getProperty(PersistenceProperties.KUNDERA_KEYSPACE));
-
-                cassandra_client.batch_mutate(mutationMap, consistencyLevel);
+                cassandra_client.batch_mutate(mutationMap, getConsistencyLevel());
             }
+
+            return rowKeys.size();
         }
         catch (InvalidRequestException e)
         {
-            log.error("Error while persisting record. Details: " + e.getMessage());
+            log.error("Error while executing bulk delete/update. Details: " + e.getMessage());
             throw new KunderaException(e);
         }
         catch (TException e)
         {
-            log.error("Error while persisting record. Details: " + e.getMessage());
+            log.error("Error while executing bulk delete/update. Details: " + e.getMessage());
             throw new KunderaException(e);
         }
         catch (UnavailableException e)
         {
-            log.error("Error while persisting record. Details: " + e.getMessage());
+            log.error("Error while executing bulk delete/update. Details: " + e.getMessage());
             throw new KunderaException(e);
         }
         catch (TimedOutException e)
         {
-            log.error("Error while persisting record. Details: " + e.getMessage());
+            log.error("Error while executing bulk delete/update. Details: " + e.getMessage());
             throw new KunderaException(e);
         }
         finally
         {
             PelopsUtils.releaseConnection(conn);
         }
+    }
+
+    /**
+     * Returns keys of all rows matching given index clause, fetched page wise
+     * with single column per row.
+     * 
+     * @param cassandra_client
+     *            cassandra client
+     * @param ix
+     *            index clause
+     * @param m
+     *            entity metadata
+     * @return row keys
+     */
+    private List<ByteBuffer> getRowKeys(Cassandra.Client cassandra_client, IndexClause ix, EntityMetadata m)
+            throws InvalidRequestException, UnavailableException, TimedOutException, TException
+    {
+        SlicePredicate slicePredicate = Selector.newColumnsPredicateAll(false, 1);
+        ColumnParent columnParent = new ColumnParent(m.getTableName());
+        int pageSize = BULK_MUTATION_SIZE;
+
+        List<ByteBuffer> rowKeys = new ArrayList<ByteBuffer>();
+        ByteBuffer startKey = ByteBufferUtil.EMPTY_BYTE_BUFFER;
+        while (true)
+        {
+            IndexClause page = new IndexClause(ix.getExpressions(), startKey, pageSize);
+            List<KeySlice> keySlices = cassandra_client.get_indexed_slices(columnParent, page, slicePredicate,
+                    getConsistencyLevel());
+            for (KeySlice keySlice : keySlices)
+            {
+                ByteBuffer rowKey = ByteBuffer.wrap(keySlice.getKey());
+                // start key is inclusive, skip it on subsequent pages.
+                if (!keySlice.getColumns().isEmpty() && !rowKey.equals(startKey))
+                {
+                    rowKeys.add(rowKey);
+                }
+            }
+            if (keySlices.size() < pageSize)
+            {
+                break;
+            }
+            startKey = ByteBuffer.wrap(keySlices.get(keySlices.size() - 1).getKey());
+        }
+        return rowKeys;
+    }
+
 
-        return mutationMap.size();
+
+    /* (non-Javadoc)
+     * @see com.impetus.kundera.persistence.api.Batcher#addBatch(com.impetus.kundera.graph.Node)
+     */
+    public void addBatch(Node node)
+    {
+        if (batcher != null)
+        {
+            batcher.add(node);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see com.impetus.kundera.persistence.api.Batcher#getBatchSize()
+     */
+    public int getBatchSize()
+    {
+        return batcher != null ? batcher.getBatchSize() : 0;
+    }
+
+    
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.persistence.api.Batcher#executeBatch()
+     */
+    public int executeBatch()
+    {
+        return batcher != null ? batcher.flush() : 0;
+    }
+
+    /**
+     * Removes deleted entity from Lucene index, if applicable. Invoked for
+     * entities deleted in batch.
+     * 
+     * @param metadata
+     *            entity metadata.
+     * @param entity
+     *            deleted entity.
+     * @param pKey
+     *            entity id.
+     */
+    protected void unindexNode(EntityMetadata metadata, Object entity, Object pKey)
+    {
+        getIndexManager().remove(metadata, entity, pKey.toString());
+    }
+
+    /**
+     * Encodes batched nodes into a mutation map, which is written in a single
+     * batch_mutate. Row deletions of column and super column families are
+     * batched too, counter rows are deleted right away.
+     */
+    private class MutationBatchWriter implements BatchWriter<Map<ByteBuffer, Map<String, List<Mutation>>>>
+    {
+        private final String persistenceUnit;
+
+        private MutationBatchWriter(String persistenceUnit)
+        {
+            this.persistenceUnit = persistenceUnit;
+        }
+
+        @Override
+        public Map<ByteBuffer, Map<String, List<Mutation>>> newBatch()
+        {
+            return new HashMap<ByteBuffer, Map<String, List<Mutation>>>();
+        }
+
+        @Override
+        public long encode(Map<ByteBuffer, Map<String, List<Mutation>>> mutationMap, Node node)
+        {
+            Object entity = node.getData();
+            Object id = node.getEntityId();
+            EntityMetadata metadata = KunderaMetadataManager.getEntityMetadata(node.getDataClass());
+            ByteBuffer rowKey = CassandraUtilities.toBytes(id.toString(), String.class).getBytes();
+
+            if (node.isInState(RemovedState.class))
+            {
+                if (metadata.isCounterColumnType())
+                {
+                    delete(entity, id);
+                    return 0;
+                }
+
+                Deletion deletion = new Deletion();
+                deletion.setTimestamp(System.currentTimeMillis());
+                Map<String, List<Mutation>> columnFamilyValues = mutationMap.get(rowKey);
+                if (columnFamilyValues == null)
+                {
+                    columnFamilyValues = new HashMap<String, List<Mutation>>();
+                    mutationMap.put(rowKey, columnFamilyValues);
+                }
+                List<Mutation> mutations = new ArrayList<Mutation>(1);
+                mutations.add(new Mutation().setDeletion(deletion));
+                columnFamilyValues.put(metadata.getTableName(), mutations);
+
+                unindexNode(metadata, entity, id);
+                return rowKey.remaining();
+            }
+
+            isUpdate = node.isUpdate();
+            List<RelationHolder> relationHolders = getRelationHolders(node);
+            prepareMutation(metadata, entity, id, relationHolders, mutationMap);
+            indexNode(node, metadata);
+            return rowKey.remaining() + estimateSize(mutationMap.get(rowKey));
+        }
+
+        @Override
+        public void execute(Map<ByteBuffer, Map<String, List<Mutation>>> mutationMap)
+        {
+            if (mutationMap.isEmpty())
+            {
+                return;
+            }
+
+            IPooledConnection conn = null;
+            try
+            {
+                conn = PelopsUtils.getCassandraConnection(persistenceUnit);
+                PersistenceUnitMetadata puMetadata = KunderaMetadata.INSTANCE.getApplicationMetadata()
+                        .getPersistenceUnitMetadata(persistenceUnit);
+                Cassandra.Client cassandra_client = conn.getAPI();
+                cassandra_client.set_keyspace(puMetadata.getProperty(PersistenceProperties.KUNDERA_KEYSPACE));
+
+                cassandra_client.batch_mutate(mutationMap, consistencyLevel);
+            }
+            catch (InvalidRequestException e)
+            {
+                log.error("Error while persisting record. Details: " + e.getMessage());
+                throw new KunderaException(e);
+            }
+            catch (TException e)
+            {
+                log.error("Error while persisting record. Details: " + e.getMessage());
+                throw new KunderaException(e);
+            }
+            catch (UnavailableException e)
+            {
+                log.error("Error while persisting record. Details: " + e.getMessage());
+                throw new KunderaException(e);
+            }
+            catch (TimedOutException e)
+            {
+                log.error("Error while persisting record. Details: " + e.getMessage());
+                throw new KunderaException(e);
+            }
+            finally
+            {
+                PelopsUtils.releaseConnection(conn);
+            }
+        }
+
+        /**
+         * Estimates size of column names and values of given mutations.
+         */
+        private long estimateSize(Map<String, List<Mutation>> columnFamilyValues)
+        {
+            long size = 0;
+            if (columnFamilyValues != null)
+            {
+                for (List<Mutation> mutations : columnFamilyValues.values())
+                {
+                    for (Mutation mutation : mutations)
+                    {
+                        ColumnOrSuperColumn cosc = mutation.getColumn_or_supercolumn();
+                        if (cosc == null)
+                        {
+                            continue;
+                        }
+                        if (cosc.isSetColumn())
+                        {
+                            size += estimateSize(cosc.getColumn());
+                        }
+                        else if (cosc.isSetSuper_column())
+                        {
+                            size += cosc.getSuper_column().bufferForName().remaining();
+                            for (Column column : cosc.getSuper_column().getColumns())
+                            {
+                                size += estimateSize(column);
+                            }
+                        }
+                        else if (cosc.isSetCounter_column())
+                        {
+                            size += cosc.getCounter_column().bufferForName().remaining() + 8;
+                        }
+                        else if (cosc.isSetCounter_super_column())
+                        {
+                            size += cosc.getCounter_super_column().bufferForName().remaining();
+                            for (CounterColumn column : cosc.getCounter_super_column().getColumns())
+                            {
+                                size += column.bufferForName().remaining() + 8;
+                            }
+                        }
+                    }
+                }
+            }
+            return size;
+        }
+
+        private long estimateSize(Column column)
+        {
+            return column.bufferForName().remaining()
+                    + (column.isSetValue() ? column.bufferForValue().remaining() : 0);
+        }
     }
 
     /**
@@ -985,7 +1291,7 @@ public abstract class CassandraClientBase extends ClientBase implements ClientPr
 
         addRelationsToThriftRow(entityMetadata, tf, relationHolders);
 
-        byte[] rowKey = PropertyAccessorHelper.get(entity, (Field) entityMetadata.getIdAttribute().getJavaMember());
+        byte[] rowKey = PropertyAccessorHelper.get(entity, entityMetadata.getIdAttribute());
         String columnFamily = entityMetadata.getTableName();
         // Create Insertion List
         List<Mutation> insertion_list = new ArrayList<Mutation>();
@@ -1049,26 +1355,130 @@ public abstract class CassandraClientBase extends ClientBase implements ClientPr
         }
 
         // Create Mutation Map
-        Map<String, List<Mutation>> columnFamilyValues = new HashMap<String, List<Mutation>>();
-        columnFamilyValues.put(columnFamily, insertion_list);
         Bytes b = CassandraUtilities.toBytes(tf.getId(), tf.getId().getClass());
-        mutationMap.put(b.getBytes(), columnFamilyValues);
+        Map<String, List<Mutation>> columnFamilyValues = mutationMap.get(b.getBytes());
+        if (columnFamilyValues == null)
+        {
+            columnFamilyValues = new HashMap<String, List<Mutation>>();
+            mutationMap.put(b.getBytes(), columnFamilyValues);
+        }
+        columnFamilyValues.put(columnFamily, insertion_list);
 
         return mutationMap;
     }
 
-
     /**
-     * Check on batch limit.
+     * Emits mutations for changed columns only, in a single batch_mutate.
+     * Columns set to null are deleted. Super column and counter column
+     * families, and collection columns, are written completely.
      */
-    private void onBatchLimit()
+    @Override
+    protected boolean onUpdate(EntityMetadata entityMetadata, Object entity, Object id,
+            List<Attribute> changedAttributes)
     {
-        if(batchSize > 0 && batchSize == nodes.size())
+        if (entityMetadata.getType().isSuperColumnFamilyMetadata() || entityMetadata.isCounterColumnType())
         {
-            executeBatch();
-            nodes.clear();
+            return false;
         }
+
+        Set<String> changedColumns = new HashSet<String>(changedAttributes.size());
+        for (Attribute attribute : changedAttributes)
+        {
+            if (attribute.isCollection())
+            {
+                return false;
+            }
+            changedColumns.add(((AbstractAttribute) attribute).getJPAColumnName());
+        }
+
+        if (!isOpen())
+        {
+            throw new PersistenceException("Client is closed.");
+        }
+
+        ThriftRow tf = null;
+        try
+        {
+            tf = getDataHandler().toThriftRow(entity, id, entityMetadata, entityMetadata.getTableName());
+        }
+        catch (Exception e)
+        {
+            log.error("Error during persisting record, Details:" + e.getMessage());
+            throw new KunderaException(e);
+        }
+
+        List<Mutation> mutations = new ArrayList<Mutation>(changedColumns.size());
+        long timestamp = 0;
+        for (Column column : tf.getColumns())
+        {
+            String columnName = PropertyAccessorFactory.STRING.fromBytes(String.class, column.getName());
+            if (changedColumns.remove(columnName))
+            {
+                mutations.add(new Mutation().setColumn_or_supercolumn(new ColumnOrSuperColumn().setColumn(column)));
+                timestamp = column.getTimestamp();
+            }
+        }
+
+        // remaining ones are nulled out.
+        if (!changedColumns.isEmpty())
+        {
+            SlicePredicate predicate = new SlicePredicate();
+            for (String columnName : changedColumns)
+            {
+                predicate.addToColumn_names(ByteBuffer.wrap(PropertyAccessorFactory.STRING.toBytes(columnName)));
+            }
+            Deletion deletion = new Deletion();
+            deletion.setTimestamp(timestamp != 0 ? timestamp : System.currentTimeMillis());
+            deletion.setPredicate(predicate);
+            mutations.add(new Mutation().setDeletion(deletion));
+        }
+
+        if (mutations.isEmpty())
+        {
+            return true;
+        }
+
+        Map<String, List<Mutation>> columnFamilyValues = new HashMap<String, List<Mutation>>(1);
+        columnFamilyValues.put(entityMetadata.getTableName(), mutations);
+        Map<ByteBuffer, Map<String, List<Mutation>>> mutationMap = new HashMap<ByteBuffer, Map<String, List<Mutation>>>(
+                1);
+        mutationMap.put(CassandraUtilities.toBytes(tf.getId(), tf.getId().getClass()).getBytes(), columnFamilyValues);
+
+        IPooledConnection conn = null;
+        try
+        {
+            conn = PelopsUtils.getCassandraConnection(entityMetadata.getPersistenceUnit());
+            Cassandra.Client cassandra_client = conn.getAPI();
+            cassandra_client.set_keyspace(entityMetadata.getSchema());
+            cassandra_client.batch_mutate(mutationMap, getConsistencyLevel());
+        }
+        catch (InvalidRequestException e)
+        {
+            log.error("Error while updating record. Details: " + e.getMessage());
+            throw new KunderaException(e);
+        }
+        catch (TException e)
+        {
+            log.error("Error while updating record. Details: " + e.getMessage());
+            throw new KunderaException(e);
+        }
+        catch (UnavailableException e)
+        {
+            log.error("Error while updating record. Details: " + e.getMessage());
+            throw new KunderaException(e);
+        }
+        catch (TimedOutException e)
+        {
+            log.error("Error while updating record. Details: " + e.getMessage());
+            throw new KunderaException(e);
+        }
+        finally
+        {
+            PelopsUtils.releaseConnection(conn);
+        }
+        return true;
     }
+
     
     @Override
     public void populateClientProperties(Client client, Map<String, Object> properties)
@@ -364,7 +364,7 @@ public abstract class CassandraDataHandlerBase
 
         // byte[] value = PropertyAccessorHelper.get(e,
         // m.getIdColumn().getField());
-        byte[] value = PropertyAccessorHelper.get(e, (Field) m.getIdAttribute().getJavaMember());
+        byte[] value = PropertyAccessorHelper.get(e, m.getIdAttribute());
 
         MetamodelImpl metaModel = (MetamodelImpl) KunderaMetadata.INSTANCE.getApplicationMetadata().getMetamodel(
                 m.getPersistenceUnit());
@@ -377,8 +377,7 @@ public abstract class CassandraDataHandlerBase
         {
             EmbeddableType embeddedColumn = embeddables.get(key);
 
-            Object embeddedObject = PropertyAccessorHelper.getObject(e, (Field) entityType.getAttribute(key)
-                    .getJavaMember());
+            Object embeddedObject = PropertyAccessorHelper.getObject(e, entityType.getAttribute(key));
             if (embeddedObject == null)
             {
                 continue;
@@ -948,12 +947,12 @@ public abstract class CassandraDataHandlerBase
                     {
                         if (thriftColumnValue.getClass().isAssignableFrom(String.class))
                         {
-                            PropertyAccessorHelper.set(entity, (Field) attribute.getJavaMember(),
+                            PropertyAccessorHelper.set(entity, attribute,
                                     (String) thriftColumnValue);
                         }
                         else
                         {
-                            PropertyAccessorHelper.set(entity, (Field) attribute.getJavaMember(),
+                            PropertyAccessorHelper.set(entity, attribute,
                                     (byte[]) thriftColumnValue);
                         }
                     }
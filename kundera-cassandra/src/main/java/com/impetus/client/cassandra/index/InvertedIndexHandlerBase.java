@@ -190,7 +190,7 @@ public abstract class InvertedIndexHandlerBase
                 EmbeddableType embeddedColumn = embeddables.get(fieldName);
                 Attribute embeddedAttribute = entityType.getAttribute(fieldName);
 //                Object embeddedObject = PropertyAccessorHelper.getObject(entity, embeddedColumn.getField());
-                Object embeddedObject = PropertyAccessorHelper.getObject(entity, (Field) embeddedAttribute.getJavaMember());
+                Object embeddedObject = PropertyAccessorHelper.getObject(entity, embeddedAttribute);
                 
                 if (embeddedObject != null)
                 {
@@ -206,7 +206,7 @@ public abstract class InvertedIndexHandlerBase
                                 Attribute attrib = iter.next();
                                 String rowKey = embeddedAttribute.getName()
                                         + Constants.INDEX_TABLE_ROW_KEY_DELIMITER + attrib.getName();
-                                byte[] columnName = PropertyAccessorHelper.get(obj, (Field) attrib.getJavaMember());
+                                byte[] columnName = PropertyAccessorHelper.get(obj, attrib);
                                 if (columnName != null)
                                 {
                                     deleteColumn(indexColumnFamily, rowKey, columnName, metadata.getPersistenceUnit(),
@@ -226,7 +226,7 @@ public abstract class InvertedIndexHandlerBase
                             Attribute attrib = iter.next();
                             String rowKey = embeddedAttribute.getName()
                                     + Constants.INDEX_TABLE_ROW_KEY_DELIMITER + attrib.getName();
-                            byte[] columnName = PropertyAccessorHelper.get(embeddedObject, (Field) attrib.getJavaMember());
+                            byte[] columnName = PropertyAccessorHelper.get(embeddedObject, attrib);
                             if (columnName != null)
                             {
                                 deleteColumn(indexColumnFamily, rowKey, columnName, metadata.getPersistenceUnit(),
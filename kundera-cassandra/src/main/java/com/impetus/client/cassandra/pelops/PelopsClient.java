@@ -473,6 +473,18 @@ public class PelopsClient extends CassandraClientBase implements Client<CassQuer
         invertedIndexHandler.write(node, entityMetadata, getPersistenceUnit(), getConsistencyLevel(), dataHandler);
     }
 
+    /**
+     * Removes a batch deleted entity from Lucene and inverted index
+     */
+    @Override
+    protected void unindexNode(EntityMetadata metadata, Object entity, Object pKey)
+    {
+        super.unindexNode(metadata, entity, pKey);
+
+        // Delete from Inverted Index if applicable
+        invertedIndexHandler.delete(entity, metadata, getConsistencyLevel());
+    }
+
     /**
      * Load super columns.
      * 
@@ -181,8 +181,7 @@ public class CassQuery extends QueryImpl implements Query
         }
         else if (kunderaQuery.isDeleteUpdate())
         {
-            List result = getResultList();
-            return result != null ? result.size() : 0;
+            return executeDeleteOrUpdate();
             // throw new
             // QueryHandlerException("executeUpdate() is currently supported for native queries only");
         }
@@ -190,6 +189,58 @@ public class CassQuery extends QueryImpl implements Query
         return 0;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.query.QueryImpl#onBulkDelete(com.impetus.kundera
+     * .metadata.model.EntityMetadata, com.impetus.kundera.client.Client)
+     */
+    @Override
+    protected int onBulkDelete(EntityMetadata m, Client client)
+    {
+        List<IndexClause> ixClause = getBulkIndexClause(m);
+        return ixClause != null ? ((CassandraClientBase) client).deleteByQuery(ixClause, m) : -1;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.query.QueryImpl#onBulkUpdate(com.impetus.kundera
+     * .metadata.model.EntityMetadata, com.impetus.kundera.client.Client,
+     * java.util.Map)
+     */
+    @Override
+    protected int onBulkUpdate(EntityMetadata m, Client client, Map<String, Object> updatedColumns)
+    {
+        List<IndexClause> ixClause = getBulkIndexClause(m);
+        return ixClause != null ? ((CassandraClientBase) client).updateByQuery(ixClause, m, updatedColumns) : -1;
+    }
+
+    /**
+     * Returns index clauses for bulk delete/update, or null if query can not
+     * be executed over secondary indexes (e.g. row key, super column or
+     * counter column family and inverted index).
+     * 
+     * @param m
+     *            the m
+     * @return index clauses or null
+     */
+    private List<IndexClause> getBulkIndexClause(EntityMetadata m)
+    {
+        if (m.getType().isSuperColumnFamilyMetadata() || m.isCounterColumnType()
+                || CassandraIndexHelper.isInvertedIndexingApplicable(m))
+        {
+            return null;
+        }
+
+        Map<Boolean, List<IndexClause>> ixClause = prepareIndexClause(m);
+        boolean isRowKeyQuery = ixClause.keySet().iterator().next();
+        List<IndexClause> clauses = ixClause.get(isRowKeyQuery);
+        return !isRowKeyQuery && !clauses.isEmpty() ? clauses : null;
+    }
+
     /**
      * Prepare index clause.
      * 
@@ -26,6 +26,7 @@ import java.util.Queue;
 import java.util.Set;
 
 import javax.persistence.PersistenceException;
+import javax.persistence.metamodel.Attribute;
 
 import org.apache.cassandra.thrift.Cassandra;
 import org.apache.cassandra.thrift.Column;
@@ -171,6 +172,17 @@ public class ThriftClient extends CassandraClientBase implements Client<CassQuer
 
     }
 
+    /**
+     * Row key is written as string, same as in
+     * {@link #onPersist(EntityMetadata, Object, Object, List)}.
+     */
+    @Override
+    protected boolean onUpdate(EntityMetadata entityMetadata, Object entity, Object id,
+            List<Attribute> changedAttributes)
+    {
+        return super.onUpdate(entityMetadata, entity, id.toString(), changedAttributes);
+    }
+
     /**
      * Persists a Join table record set into database
      */
@@ -271,6 +283,18 @@ public class ThriftClient extends CassandraClientBase implements Client<CassQuer
 
     }
 
+    /**
+     * Removes a batch deleted entity from Lucene and inverted index
+     */
+    @Override
+    protected void unindexNode(EntityMetadata metadata, Object entity, Object pKey)
+    {
+        super.unindexNode(metadata, entity, pKey);
+
+        // Delete from Inverted Index if applicable
+        invertedIndexHandler.delete(entity, metadata, getConsistencyLevel());
+    }
+
     /**
      * Finds an entity from database
      */
@@ -25,6 +25,7 @@ import java.util.Map;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
+import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 
 import junit.framework.Assert;
@@ -309,6 +310,37 @@ public class PersonCassandraTest extends BaseTest
         }
     }
     
+    /**
+     * On bulk update and delete, executed as one datastore operation.
+     */
+    @Test
+    public void onBulkUpdateAndDeleteCassandra() throws Exception
+    {
+        CassandraCli.cassandraSetUp();
+        loadData();
+        Object p1 = prepareData("1", 10);
+        Object p2 = prepareData("2", 20);
+        Object p3 = prepareData("3", 15);
+        em.persist(p1);
+        em.persist(p2);
+        em.persist(p3);
+
+        Query q = em.createQuery("Update PersonCassandra p SET p.personName = newvivek where p.age = 10");
+        Assert.assertEquals(1, q.executeUpdate());
+
+        // managed instances are evicted, updated record is read back.
+        PersonCassandra p = em.find(PersonCassandra.class, "1");
+        Assert.assertNotNull(p);
+        Assert.assertEquals("newvivek", p.getPersonName());
+        Assert.assertEquals("vivek", em.find(PersonCassandra.class, "2").getPersonName());
+
+        q = em.createQuery("Delete from PersonCassandra p where p.personName = vivek");
+        Assert.assertEquals(2, q.executeUpdate());
+        Assert.assertNull(em.find(PersonCassandra.class, "2"));
+        Assert.assertNull(em.find(PersonCassandra.class, "3"));
+        Assert.assertNotNull(em.find(PersonCassandra.class, "1"));
+    }
+
     /**
      * Tear down.
      * 
@@ -70,6 +70,47 @@ public interface PersistenceProperties
      */
     public static final String KUNDERA_INDEX_HOME_DIR = "index.home.dir";
 
+    /**
+     * Milliseconds between commits of Lucene index to disk, 1000 by default.
+     * Searches see writes before they are committed. 0 commits on close only.
+     */
+    public static final String KUNDERA_INDEX_COMMIT_INTERVAL = "kundera.index.commit.interval";
+
+    /**
+     * Lucene directory of index: "ram", the default, holds index in memory
+     * and copies commits to index home dir; "mmap", "nio" or "fs" write index
+     * home dir directly, "fs" letting Lucene choose for platform.
+     */
+    public static final String KUNDERA_INDEX_DIRECTORY = "kundera.index.directory";
+
+    /** Whether Lucene index is committed whenever a client flushes. */
+    public static final String KUNDERA_INDEX_COMMIT_ON_FLUSH = "kundera.index.commit.on.flush";
+
+    /** Merge factor of Lucene index, 1000 by default. */
+    public static final String KUNDERA_INDEX_MERGE_FACTOR = "kundera.index.merge.factor";
+
+    /** Maximum number of documents of a merged Lucene segment. */
+    public static final String KUNDERA_INDEX_MERGE_MAX_DOCS = "kundera.index.merge.max.docs";
+
+    /** Megabytes of documents buffered by Lucene writer, 32 by default. */
+    public static final String KUNDERA_INDEX_RAM_BUFFER_MB = "kundera.index.ram.buffer.mb";
+
+    /**
+     * Partitioning of Lucene index: "none", the default, keeps one index in
+     * index home dir; "entity" keeps an index per entity class in a sub
+     * directory of it, searched in parallel when a query spans entities.
+     */
+    public static final String KUNDERA_INDEX_PARTITION = "kundera.index.partition";
+
+    /**
+     * Number of partitions of each entity, by hash of id, 1 by default.
+     * Changing it requires index to be rebuilt.
+     */
+    public static final String KUNDERA_INDEX_PARTITION_SHARDS = "kundera.index.partition.shards";
+
+    /** Threads searching index segments in parallel, processors by default. */
+    public static final String KUNDERA_INDEX_SEARCH_THREADS = "kundera.index.search.threads";
+
     /** Option to create schema. */
     public static final String KUNDERA_DDL_AUTO_PREPARE = "kundera.ddl.auto.prepare";
 
@@ -81,4 +122,87 @@ public interface PersistenceProperties
     public static final String KUNDERA_PASSWORD = "kundera.password";
     
     public static final String KUNDERA_BATCH_SIZE = "kundera.batch.size";
+
+    /**
+     * Estimated number of bytes which triggers a batch write. Like batch size
+     * and linger, may be overridden per entity by suffixing entity class name,
+     * e.g. kundera.batch.bytes.Person
+     */
+    public static final String KUNDERA_BATCH_BYTES = "kundera.batch.bytes";
+
+    /**
+     * Maximum time in milliseconds a batched entity waits for batch to fill
+     * up. Checked whenever an entity is batched, and on commit.
+     */
+    public static final String KUNDERA_BATCH_LINGER = "kundera.batch.linger";
+
+    /** Maximum number of parsed queries cached per entity manager factory. */
+    public static final String KUNDERA_QUERY_PLAN_CACHE_SIZE = "kundera.query.plan.cache.size";
+
+    /**
+     * Query hint, if "true" results of query are cached until a table it
+     * reads is written. May be set through Query#setHint or on a named query.
+     */
+    public static final String KUNDERA_QUERY_CACHE = "kundera.query.cache";
+
+    /**
+     * Maximum number of query results cached per entity manager factory. If
+     * not set, results are cached only if a named query carries
+     * {@link #KUNDERA_QUERY_CACHE} hint.
+     */
+    public static final String KUNDERA_QUERY_CACHE_SIZE = "kundera.query.cache.size";
+
+    /**
+     * Whether AUTO flush outside transaction writes behind, i.e. returns
+     * before entity is written. flush, commit, close and queries wait for
+     * queued writes.
+     */
+    public static final String KUNDERA_WRITE_BEHIND = "kundera.write.behind";
+
+    /** Maximum number of queued entities per entity manager. */
+    public static final String KUNDERA_WRITE_BEHIND_QUEUE_SIZE = "kundera.write.behind.queue.size";
+
+    /** Number of queued entities which triggers a background flush. */
+    public static final String KUNDERA_WRITE_BEHIND_BATCH_SIZE = "kundera.write.behind.batch.size";
+
+    /** Maximum time in milliseconds an entity waits in queue. */
+    public static final String KUNDERA_WRITE_BEHIND_MAX_LATENCY = "kundera.write.behind.max.latency";
+
+    /** {@link com.impetus.kundera.persistence.api.WriteBehindListener} class. */
+    public static final String KUNDERA_WRITE_BEHIND_LISTENER_CLASS = "kundera.write.behind.listener.class";
+
+    /**
+     * Number of threads flushing entities of different datastores in
+     * parallel, per entity manager factory. 1, the default, flushes serially.
+     */
+    public static final String KUNDERA_FLUSH_PARALLELISM = "kundera.flush.parallelism";
+
+    /**
+     * Maximum number of entities held in persistence context of an entity
+     * manager. Once exceeded, least recently used entities which are not
+     * changed are evicted, i.e. detached. Unbounded by default.
+     */
+    public static final String KUNDERA_PERSISTENCE_CONTEXT_MAX_SIZE = "kundera.persistence.context.max.size";
+
+    /**
+     * Maximum estimated bytes of entities held in persistence context of an
+     * entity manager, evicting as for max size. Unbounded by default.
+     */
+    public static final String KUNDERA_PERSISTENCE_CONTEXT_MAX_BYTES = "kundera.persistence.context.max.bytes";
+
+    /**
+     * {@link com.impetus.kundera.property.ObjectSerializer} class which
+     * serializes fields without a dedicated accessor, e.g.
+     * com.impetus.kundera.property.serializer.CompactSerializer. Java
+     * serialization by default. Values written by any serializer stay
+     * readable after changing it. Shared by all persistence units, those open
+     * at the same time may not configure different ones.
+     */
+    public static final String KUNDERA_OBJECT_SERIALIZER = "kundera.object.serializer";
+
+    /**
+     * Serialized size in bytes from which such fields are compressed. Not
+     * compressed by default. Shared by all persistence units, like serializer.
+     */
+    public static final String KUNDERA_OBJECT_SERIALIZER_COMPRESSION_THRESHOLD = "kundera.object.serializer.compression.threshold";
 }
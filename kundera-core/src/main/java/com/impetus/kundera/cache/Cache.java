@@ -50,4 +50,27 @@ public interface Cache extends javax.persistence.Cache
      */
     void put(Object key, Object value);
 
+    /**
+     * Get an entity from region of given entity class.
+     * 
+     * @param entityClass
+     *            the entity class
+     * @param primaryKey
+     *            the primary key
+     * @return the object
+     */
+    Object get(Class<?> entityClass, Object primaryKey);
+
+    /**
+     * Add an entity to region of given entity class.
+     * 
+     * @param entityClass
+     *            the entity class
+     * @param primaryKey
+     *            the primary key
+     * @param value
+     *            the value
+     */
+    void put(Class<?> entityClass, Object primaryKey, Object value);
+
 }
@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Region configuration of a cache provider, read from a properties resource
+ * named by <code>kundera.cache.config.resource</code> or from a map. A
+ * property suffixed with a region name, i.e. entity class name, applies to
+ * that region only, e.g. <code>max.bytes.com.example.Person</code> overrides
+ * <code>max.bytes</code>.
+ */
+public class CacheProperties
+{
+    /** the log used by this class. */
+    private static Log log = LogFactory.getLog(CacheProperties.class);
+
+    private final Properties properties;
+
+    private CacheProperties(Properties properties)
+    {
+        this.properties = properties;
+    }
+
+    /**
+     * Loads configuration from given classpath resource. Missing resource
+     * leaves all properties to their defaults.
+     * 
+     * @param resourceName
+     *            resource name, may be null.
+     * @return configuration
+     * @throws CacheException
+     *             if resource could not be read.
+     */
+    public static CacheProperties load(String resourceName)
+    {
+        Properties properties = new Properties();
+        if (resourceName == null || resourceName.length() == 0)
+        {
+            return new CacheProperties(properties);
+        }
+
+        InputStream in = CacheProperties.class.getResourceAsStream(resourceName.startsWith("/") ? resourceName
+                : "/" + resourceName);
+        if (in == null)
+        {
+            log.warn("A configurationResourceName was set to " + resourceName
+                    + " but the resource could not be loaded from the classpath. Using defaults.");
+            return new CacheProperties(properties);
+        }
+
+        try
+        {
+            properties.load(in);
+        }
+        catch (IOException e)
+        {
+            throw new CacheException("Could not read " + resourceName, e);
+        }
+        finally
+        {
+            try
+            {
+                in.close();
+            }
+            catch (IOException e)
+            {
+                log.warn("Could not close " + resourceName + ", Caused by: " + e.getMessage());
+            }
+        }
+        return new CacheProperties(properties);
+    }
+
+    /**
+     * Builds configuration out of given map.
+     * 
+     * @param map
+     *            properties, may be null.
+     * @return configuration
+     */
+    public static CacheProperties fromMap(Map<?, ?> map)
+    {
+        Properties properties = new Properties();
+        if (map != null)
+        {
+            for (Map.Entry<?, ?> entry : map.entrySet())
+            {
+                if (entry.getKey() != null && entry.getValue() != null)
+                {
+                    properties.setProperty(entry.getKey().toString(), entry.getValue().toString());
+                }
+            }
+        }
+        return new CacheProperties(properties);
+    }
+
+    /**
+     * Returns region specific value of given property, or its general value.
+     * 
+     * @param property
+     *            property name
+     * @param region
+     *            region name
+     * @return value, or null if not set
+     */
+    public String getProperty(String property, String region)
+    {
+        String value = properties.getProperty(property + "." + region);
+        if (value == null)
+        {
+            value = properties.getProperty(property);
+        }
+        return value != null ? value.trim() : null;
+    }
+
+    /**
+     * Returns region specific value of given numeric property.
+     * 
+     * @param property
+     *            property name
+     * @param region
+     *            region name
+     * @param defaultValue
+     *            value if not set
+     * @return value
+     * @throws CacheException
+     *             if value is not a number.
+     */
+    public long getLongProperty(String property, String region, long defaultValue)
+    {
+        String value = getProperty(property, region);
+        try
+        {
+            return value != null ? Long.parseLong(value) : defaultValue;
+        }
+        catch (NumberFormatException e)
+        {
+            throw new CacheException("Invalid value " + value + " of " + property + " for region " + region, e);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.cache;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.impetus.kundera.persistence.batch.Histogram;
+
+/**
+ * Second level cache statistics of a persistence unit, kept per entity
+ * region: hits, misses and latency of loads from database on a miss.
+ * 
+ * @see Region
+ */
+public class CacheStatistics
+{
+    private static final ConcurrentMap<String, CacheStatistics> statistics = new ConcurrentHashMap<String, CacheStatistics>();
+
+    /** Regions by name, i.e. entity class name. */
+    private final ConcurrentMap<String, Region> regions = new ConcurrentHashMap<String, Region>();
+
+    /**
+     * Returns statistics of given persistence unit.
+     * 
+     * @param persistenceUnit
+     *            persistence unit.
+     * @return cache statistics.
+     */
+    public static CacheStatistics getStatistics(String persistenceUnit)
+    {
+        CacheStatistics puStatistics = statistics.get(persistenceUnit);
+        if (puStatistics == null)
+        {
+            CacheStatistics newStatistics = new CacheStatistics();
+            puStatistics = statistics.putIfAbsent(persistenceUnit, newStatistics);
+            if (puStatistics == null)
+            {
+                puStatistics = newStatistics;
+            }
+        }
+        return puStatistics;
+    }
+
+    /**
+     * Returns statistics of given region, creating them if required.
+     * 
+     * @param name
+     *            region name.
+     * @return region statistics.
+     */
+    public Region getRegion(String name)
+    {
+        Region region = regions.get(name);
+        if (region == null)
+        {
+            Region newRegion = new Region();
+            region = regions.putIfAbsent(name, newRegion);
+            if (region == null)
+            {
+                region = newRegion;
+            }
+        }
+        return region;
+    }
+
+    /**
+     * @return statistics of all regions, by region name.
+     */
+    public Map<String, Region> getRegions()
+    {
+        return Collections.unmodifiableMap(regions);
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append("CacheStatistics ");
+        builder.append(regions);
+        return builder.toString();
+    }
+
+    /**
+     * Statistics of one entity region.
+     */
+    public static class Region
+    {
+        private final AtomicLong hitCount = new AtomicLong();
+
+        private final AtomicLong missCount = new AtomicLong();
+
+        private final AtomicLong evictCount = new AtomicLong();
+
+        private final Histogram loadLatencies = new Histogram();
+
+        public void hit()
+        {
+            hitCount.incrementAndGet();
+        }
+
+        public void miss()
+        {
+            missCount.incrementAndGet();
+        }
+
+        public void evicted()
+        {
+            evictCount.incrementAndGet();
+        }
+
+        /**
+         * @param latency
+         *            time taken to load entity from database, in
+         *            microseconds.
+         */
+        public void loaded(long latency)
+        {
+            loadLatencies.record(latency);
+        }
+
+        /**
+         * @return number of lookups served from cache.
+         */
+        public long getHitCount()
+        {
+            return hitCount.get();
+        }
+
+        /**
+         * @return number of lookups not found in cache.
+         */
+        public long getMissCount()
+        {
+            return missCount.get();
+        }
+
+        /**
+         * @return number of entries invalidated on write.
+         */
+        public long getEvictCount()
+        {
+            return evictCount.get();
+        }
+
+        /**
+         * @return hits per lookup, 0 if nothing was looked up.
+         */
+        public double getHitRatio()
+        {
+            long hits = getHitCount();
+            long lookups = hits + getMissCount();
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+
+        /**
+         * @return histogram of load latency on a miss, in microseconds.
+         */
+        public Histogram getLoadLatencies()
+        {
+            return loadLatencies;
+        }
+
+        @Override
+        public String toString()
+        {
+            StringBuilder builder = new StringBuilder();
+            builder.append("[hits=");
+            builder.append(getHitCount());
+            builder.append(", misses=");
+            builder.append(getMissCount());
+            builder.append(", evicted=");
+            builder.append(getEvictCount());
+            builder.append(", hitRatio=");
+            builder.append(getHitRatio());
+            builder.append(", loadLatencies=");
+            builder.append(loadLatencies);
+            builder.append("]");
+            return builder.toString();
+        }
+    }
+}
@@ -63,6 +63,29 @@ public class NonOperationalCache implements Cache, javax.persistence.Cache
         return null;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.cache.Cache#get(java.lang.Class,
+     * java.lang.Object)
+     */
+    @Override
+    public Object get(Class<?> entityClass, Object primaryKey)
+    {
+        return null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.cache.Cache#put(java.lang.Class,
+     * java.lang.Object, java.lang.Object)
+     */
+    @Override
+    public void put(Class<?> entityClass, Object primaryKey, Object value)
+    {
+    }
+
     /*
      * (non-Javadoc)
      * 
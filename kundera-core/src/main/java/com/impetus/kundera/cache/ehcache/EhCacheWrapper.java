@@ -15,14 +15,20 @@
  ******************************************************************************/
 package com.impetus.kundera.cache.ehcache;
 
-import net.sf.ehcache.Element;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-import org.apache.commons.lang.NotImplementedException;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
 
 import com.impetus.kundera.cache.Cache;
 
 /**
- * Cache implementation using Ehcache.
+ * Cache implementation using Ehcache. Entities are held in one region per
+ * entity class, an ehcache named after entity class, configured in ehcache
+ * configuration or created from its default cache. Untyped entries put through
+ * {@link #put(Object, Object)} are held in backing cache itself.
  * 
  * @author animesh.kumar
  */
@@ -32,6 +38,9 @@ public class EhCacheWrapper implements Cache
     /** The ehcache. */
     private net.sf.ehcache.Cache ehcache;
 
+    /** Entity regions, by entity class name. */
+    private ConcurrentMap<String, Ehcache> regions = new ConcurrentHashMap<String, Ehcache>();
+
     /**
      * Instantiates a new eh cache wrapper.
      * 
@@ -72,6 +81,32 @@ public class EhCacheWrapper implements Cache
         ehcache.put(new Element(key, value));
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.cache.Cache#get(java.lang.Class,
+     * java.lang.Object)
+     */
+    @Override
+    public Object get(Class<?> entityClass, Object primaryKey)
+    {
+        Ehcache region = getRegion(entityClass, false);
+        Element element = region == null ? null : region.get(primaryKey);
+        return element == null ? null : element.getObjectValue();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.cache.Cache#put(java.lang.Class,
+     * java.lang.Object, java.lang.Object)
+     */
+    @Override
+    public void put(Class<?> entityClass, Object primaryKey, Object value)
+    {
+        getRegion(entityClass, true).put(new Element(primaryKey, value));
+    }
+
     /* @see com.impetus.kundera.cache.Cache#size() */
     /*
      * (non-Javadoc)
@@ -81,7 +116,12 @@ public class EhCacheWrapper implements Cache
     @Override
     public int size()
     {
-        return ehcache.getSize();
+        int size = ehcache.getSize();
+        for (Ehcache region : regions.values())
+        {
+            size += region.getSize();
+        }
+        return size;
     }
 
     /*
@@ -92,7 +132,8 @@ public class EhCacheWrapper implements Cache
     @Override
     public boolean contains(Class arg0, Object arg1)
     {
-        return (ehcache.get(arg1) != null);
+        Ehcache region = getRegion(arg0, false);
+        return (region != null && region.get(arg1) != null) || (ehcache.get(arg1) != null);
     }
 
     /*
@@ -103,8 +144,11 @@ public class EhCacheWrapper implements Cache
     @Override
     public void evict(Class arg0)
     {
-        // TODO Can we use Class with ehcache
-        throw new NotImplementedException("TODO");
+        Ehcache region = getRegion(arg0, false);
+        if (region != null)
+        {
+            region.removeAll();
+        }
     }
 
     /*
@@ -115,7 +159,11 @@ public class EhCacheWrapper implements Cache
     @Override
     public void evict(Class arg0, Object arg1)
     {
-        // TODO Can we use Class with ehcache
+        Ehcache region = getRegion(arg0, false);
+        if (region != null)
+        {
+            region.remove(arg1);
+        }
         ehcache.remove(arg1);
     }
 
@@ -128,6 +176,36 @@ public class EhCacheWrapper implements Cache
     public void evictAll()
     {
         ehcache.removeAll();
+        for (Ehcache region : regions.values())
+        {
+            region.removeAll();
+        }
+    }
+
+    /**
+     * Returns region of given entity class.
+     * 
+     * @param entityClass
+     *            the entity class
+     * @param create
+     *            whether to create region, if not yet there
+     * @return the region, null if not there and not to be created
+     */
+    private Ehcache getRegion(Class<?> entityClass, boolean create)
+    {
+        String name = entityClass.getName();
+        Ehcache region = regions.get(name);
+        if (region == null)
+        {
+            // Configured region, or one out of default cache configuration.
+            CacheManager manager = ehcache.getCacheManager();
+            region = create ? manager.addCacheIfAbsent(name) : manager.getEhcache(name);
+            if (region != null)
+            {
+                regions.putIfAbsent(name, region);
+            }
+        }
+        return region;
     }
 
 }
@@ -0,0 +1,433 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.cache.offheap;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.impetus.kundera.cache.CacheException;
+import com.impetus.kundera.property.PropertyAccessor;
+import com.impetus.kundera.property.PropertyAccessorFactory;
+
+/**
+ * Binary encoding of cached values of one class. Values of a class known to
+ * {@link PropertyAccessorFactory}, e.g. String or Long, are encoded by its
+ * {@link PropertyAccessor}. Any other value, typically an entity, is encoded
+ * field by field: primitives and their wrappers and enums in fixed size, other
+ * fields length prefixed through their {@link PropertyAccessor}, i.e.
+ * serialized if nothing better is known. Primitives are decoded straight from
+ * off-heap buffer into a new instance.
+ * 
+ * Encoding carries no field names, {@link #getSchema()} identifies fields it
+ * was built for.
+ */
+final class EntryCodec
+{
+    private static final ConcurrentMap<Class<?>, EntryCodec> codecs = new ConcurrentHashMap<Class<?>, EntryCodec>();
+
+    private static final ConcurrentMap<Integer, EntryCodec> codecsBySchema = new ConcurrentHashMap<Integer, EntryCodec>();
+
+    private static final byte BOOLEAN = 0;
+
+    private static final byte BYTE = 1;
+
+    private static final byte SHORT = 2;
+
+    private static final byte CHAR = 3;
+
+    private static final byte INT = 4;
+
+    private static final byte LONG = 5;
+
+    private static final byte FLOAT = 6;
+
+    private static final byte DOUBLE = 7;
+
+    private static final byte ENUM = 8;
+
+    private static final byte OTHER = 9;
+
+    private final Class<?> type;
+
+    /** Accessor of whole value, null if encoded field by field. */
+    private final PropertyAccessor<?> valueAccessor;
+
+    private final Constructor<?> constructor;
+
+    private final Field[] fields;
+
+    private final byte[] kinds;
+
+    /** Whether field may be null, i.e. is not primitive. */
+    private final boolean[] nullable;
+
+    private final PropertyAccessor<?>[] accessors;
+
+    private final int schema;
+
+    private EntryCodec(Class<?> type)
+    {
+        this.type = type;
+        PropertyAccessor<?> accessor = PropertyAccessorFactory.map.get(type);
+        if (accessor != null || type.isEnum())
+        {
+            this.valueAccessor = accessor;
+            this.constructor = null;
+            this.fields = new Field[0];
+            this.kinds = new byte[0];
+            this.nullable = new boolean[0];
+            this.accessors = new PropertyAccessor<?>[0];
+            this.schema = type.getName().hashCode();
+            return;
+        }
+
+        List<Field> fieldList = new ArrayList<Field>();
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass())
+        {
+            for (Field field : c.getDeclaredFields())
+            {
+                if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers()))
+                {
+                    field.setAccessible(true);
+                    fieldList.add(field);
+                }
+            }
+        }
+
+        this.valueAccessor = null;
+        this.constructor = getConstructor(type);
+        this.fields = fieldList.toArray(new Field[fieldList.size()]);
+        this.kinds = new byte[fields.length];
+        this.nullable = new boolean[fields.length];
+        this.accessors = new PropertyAccessor<?>[fields.length];
+
+        int hash = type.getName().hashCode();
+        for (int i = 0; i < fields.length; i++)
+        {
+            Class<?> fieldType = fields[i].getType();
+            kinds[i] = kindOf(fieldType);
+            nullable[i] = !fieldType.isPrimitive();
+            if (kinds[i] == OTHER)
+            {
+                accessors[i] = PropertyAccessorFactory.map.get(fieldType) != null ? PropertyAccessorFactory.map
+                        .get(fieldType) : PropertyAccessorFactory.map.get(Object.class);
+            }
+            hash = 31 * hash + fields[i].getName().hashCode();
+            hash = 31 * hash + fieldType.getName().hashCode();
+            if (fieldType.isEnum())
+            {
+                for (Object constant : fieldType.getEnumConstants())
+                {
+                    hash = 31 * hash + constant.toString().hashCode();
+                }
+            }
+        }
+        this.schema = hash;
+    }
+
+    /**
+     * Returns codec of given class.
+     * 
+     * @param type
+     *            value class
+     * @return the codec
+     */
+    static EntryCodec getCodec(Class<?> type)
+    {
+        EntryCodec codec = codecs.get(type);
+        if (codec == null)
+        {
+            codec = new EntryCodec(type);
+            codecs.putIfAbsent(type, codec);
+            codecsBySchema.putIfAbsent(codec.getSchema(), codec);
+        }
+        return codec;
+    }
+
+    /**
+     * Returns codec of given schema, if already in use.
+     * 
+     * @param schema
+     *            schema of an encoded value
+     * @return the codec, or null
+     */
+    static EntryCodec getCodec(int schema)
+    {
+        return codecsBySchema.get(schema);
+    }
+
+    /**
+     * @return identifier of fields this codec encodes.
+     */
+    int getSchema()
+    {
+        return schema;
+    }
+
+    /**
+     * @return true, if values can be decoded, i.e. their class has a no-arg
+     *         constructor.
+     */
+    boolean isDecodable()
+    {
+        return valueAccessor != null || type.isEnum() || constructor != null;
+    }
+
+    /**
+     * Encodes given value.
+     * 
+     * @param value
+     *            value of this codec's class
+     * @return encoded value
+     */
+    byte[] encode(Object value)
+    {
+        if (type.isEnum())
+        {
+            return new byte[] { (byte) (((Enum<?>) value).ordinal() >>> 8), (byte) ((Enum<?>) value).ordinal() };
+        }
+        else if (valueAccessor != null)
+        {
+            return valueAccessor.toBytes(value);
+        }
+
+        try
+        {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 * fields.length + 16);
+            DataOutputStream out = new DataOutputStream(bytes);
+            for (int i = 0; i < fields.length; i++)
+            {
+                Object fieldValue = fields[i].get(value);
+                if (nullable[i] && kinds[i] != OTHER)
+                {
+                    out.writeBoolean(fieldValue != null);
+                    if (fieldValue == null)
+                    {
+                        continue;
+                    }
+                }
+                switch (kinds[i])
+                {
+                case BOOLEAN:
+                    out.writeBoolean((Boolean) fieldValue);
+                    break;
+                case BYTE:
+                    out.writeByte((Byte) fieldValue);
+                    break;
+                case SHORT:
+                    out.writeShort((Short) fieldValue);
+                    break;
+                case CHAR:
+                    out.writeChar((Character) fieldValue);
+                    break;
+                case INT:
+                    out.writeInt((Integer) fieldValue);
+                    break;
+                case LONG:
+                    out.writeLong((Long) fieldValue);
+                    break;
+                case FLOAT:
+                    out.writeFloat((Float) fieldValue);
+                    break;
+                case DOUBLE:
+                    out.writeDouble((Double) fieldValue);
+                    break;
+                case ENUM:
+                    out.writeShort(((Enum<?>) fieldValue).ordinal());
+                    break;
+                default:
+                    byte[] b = fieldValue != null ? accessors[i].toBytes(fieldValue) : null;
+                    out.writeInt(b != null ? b.length : -1);
+                    if (b != null)
+                    {
+                        out.write(b);
+                    }
+                }
+            }
+            out.close();
+            return bytes.toByteArray();
+        }
+        catch (IllegalAccessException e)
+        {
+            throw new CacheException(e);
+        }
+        catch (IOException e)
+        {
+            throw new CacheException(e);
+        }
+    }
+
+    /**
+     * Decodes a new value out of given buffer.
+     * 
+     * @param buffer
+     *            buffer, not modified.
+     * @param offset
+     *            offset of encoded value
+     * @param length
+     *            length of encoded value
+     * @return the value
+     */
+    Object decode(ByteBuffer buffer, int offset, int length)
+    {
+        if (type.isEnum())
+        {
+            return type.getEnumConstants()[buffer.getShort(offset) & 0xffff];
+        }
+        else if (valueAccessor != null)
+        {
+            return valueAccessor.fromBytes(type, getBytes(buffer, offset, length));
+        }
+
+        try
+        {
+            Object value = constructor.newInstance();
+            int pos = offset;
+            for (int i = 0; i < fields.length; i++)
+            {
+                Field field = fields[i];
+                if (nullable[i] && kinds[i] != OTHER && buffer.get(pos++) == 0)
+                {
+                    continue;
+                }
+                switch (kinds[i])
+                {
+                case BOOLEAN:
+                    field.set(value, buffer.get(pos++) != 0);
+                    break;
+                case BYTE:
+                    field.set(value, buffer.get(pos++));
+                    break;
+                case SHORT:
+                    field.set(value, buffer.getShort(pos));
+                    pos += 2;
+                    break;
+                case CHAR:
+                    field.set(value, buffer.getChar(pos));
+                    pos += 2;
+                    break;
+                case INT:
+                    field.set(value, buffer.getInt(pos));
+                    pos += 4;
+                    break;
+                case LONG:
+                    field.set(value, buffer.getLong(pos));
+                    pos += 8;
+                    break;
+                case FLOAT:
+                    field.set(value, buffer.getFloat(pos));
+                    pos += 4;
+                    break;
+                case DOUBLE:
+                    field.set(value, buffer.getDouble(pos));
+                    pos += 8;
+                    break;
+                case ENUM:
+                    field.set(value, field.getType().getEnumConstants()[buffer.getShort(pos) & 0xffff]);
+                    pos += 2;
+                    break;
+                default:
+                    int fieldLength = buffer.getInt(pos);
+                    pos += 4;
+                    if (fieldLength >= 0)
+                    {
+                        field.set(value, accessors[i].fromBytes(field.getType(), getBytes(buffer, pos, fieldLength)));
+                        pos += fieldLength;
+                    }
+                }
+            }
+            return value;
+        }
+        catch (Exception e)
+        {
+            throw new CacheException("Could not decode cached " + type.getName(), e);
+        }
+    }
+
+    private static byte[] getBytes(ByteBuffer buffer, int offset, int length)
+    {
+        byte[] bytes = new byte[length];
+        ByteBuffer source = buffer.duplicate();
+        source.position(offset);
+        source.get(bytes);
+        return bytes;
+    }
+
+    private static byte kindOf(Class<?> fieldType)
+    {
+        if (fieldType == boolean.class || fieldType == Boolean.class)
+        {
+            return BOOLEAN;
+        }
+        else if (fieldType == byte.class || fieldType == Byte.class)
+        {
+            return BYTE;
+        }
+        else if (fieldType == short.class || fieldType == Short.class)
+        {
+            return SHORT;
+        }
+        else if (fieldType == char.class || fieldType == Character.class)
+        {
+            return CHAR;
+        }
+        else if (fieldType == int.class || fieldType == Integer.class)
+        {
+            return INT;
+        }
+        else if (fieldType == long.class || fieldType == Long.class)
+        {
+            return LONG;
+        }
+        else if (fieldType == float.class || fieldType == Float.class)
+        {
+            return FLOAT;
+        }
+        else if (fieldType == double.class || fieldType == Double.class)
+        {
+            return DOUBLE;
+        }
+        else if (fieldType.isEnum())
+        {
+            return ENUM;
+        }
+        return OTHER;
+    }
+
+    private static Constructor<?> getConstructor(Class<?> type)
+    {
+        try
+        {
+            Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor;
+        }
+        catch (NoSuchMethodException e)
+        {
+            // not cacheable off heap.
+            return null;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.cache.offheap;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.impetus.kundera.cache.Cache;
+
+/**
+ * Cache implementation holding entities off heap, in one
+ * {@link OffHeapRegion} per entity class, named after entity class. Untyped
+ * entries put through {@link #put(Object, Object)} are held in a region named
+ * after cache. Every read decodes a new instance.
+ * 
+ * @see OffHeapCacheProvider
+ */
+public class OffHeapCache implements Cache
+{
+    /** Provider, creating regions as configured. */
+    private final OffHeapCacheProvider provider;
+
+    private final String name;
+
+    /** Region of untyped entries, created when first used. */
+    private volatile OffHeapRegion defaultRegion;
+
+    /** Entity regions, by entity class name. */
+    private final ConcurrentMap<String, OffHeapRegion> regions = new ConcurrentHashMap<String, OffHeapRegion>();
+
+    /**
+     * Instantiates a new cache.
+     * 
+     * @param name
+     *            cache name
+     * @param provider
+     *            provider of region configuration
+     */
+    OffHeapCache(String name, OffHeapCacheProvider provider)
+    {
+        this.name = name;
+        this.provider = provider;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.cache.Cache#get(java.lang.Object)
+     */
+    @Override
+    public Object get(Object key)
+    {
+        return getDefaultRegion().get(key, null);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.cache.Cache#put(java.lang.Object,
+     * java.lang.Object)
+     */
+    @Override
+    public void put(Object key, Object value)
+    {
+        getDefaultRegion().put(key, value);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.cache.Cache#get(java.lang.Class,
+     * java.lang.Object)
+     */
+    @Override
+    public Object get(Class<?> entityClass, Object primaryKey)
+    {
+        return getRegion(entityClass, true).get(primaryKey, entityClass);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.cache.Cache#put(java.lang.Class,
+     * java.lang.Object, java.lang.Object)
+     */
+    @Override
+    public void put(Class<?> entityClass, Object primaryKey, Object value)
+    {
+        getRegion(entityClass, true).put(primaryKey, value);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.cache.Cache#size()
+     */
+    @Override
+    public int size()
+    {
+        int size = defaultRegion != null ? defaultRegion.size() : 0;
+        for (OffHeapRegion region : regions.values())
+        {
+            size += region.size();
+        }
+        return size;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see javax.persistence.Cache#contains(java.lang.Class, java.lang.Object)
+     */
+    @Override
+    public boolean contains(Class arg0, Object arg1)
+    {
+        OffHeapRegion region = getRegion(arg0, false);
+        return (region != null && region.containsKey(arg1))
+                || (defaultRegion != null && defaultRegion.containsKey(arg1));
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see javax.persistence.Cache#evict(java.lang.Class, java.lang.Object)
+     */
+    @Override
+    public void evict(Class arg0, Object arg1)
+    {
+        OffHeapRegion region = getRegion(arg0, false);
+        if (region != null)
+        {
+            region.remove(arg1);
+        }
+        if (defaultRegion != null)
+        {
+            defaultRegion.remove(arg1);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see javax.persistence.Cache#evict(java.lang.Class)
+     */
+    @Override
+    public void evict(Class arg0)
+    {
+        OffHeapRegion region = getRegion(arg0, false);
+        if (region != null)
+        {
+            region.clear();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see javax.persistence.Cache#evictAll()
+     */
+    @Override
+    public void evictAll()
+    {
+        if (defaultRegion != null)
+        {
+            defaultRegion.clear();
+        }
+        for (OffHeapRegion region : regions.values())
+        {
+            region.clear();
+        }
+    }
+
+    /**
+     * Returns region of given entity class, null if not yet there.
+     * 
+     * @param entityClass
+     *            the entity class
+     * @return the region
+     */
+    public OffHeapRegion getRegion(Class<?> entityClass)
+    {
+        return getRegion(entityClass, false);
+    }
+
+    /**
+     * @return entity regions, by entity class name.
+     */
+    public Map<String, OffHeapRegion> getRegions()
+    {
+        return Collections.unmodifiableMap(regions);
+    }
+
+    /**
+     * Releases off heap memory of all regions, flushing memory mapped files.
+     */
+    void close()
+    {
+        if (defaultRegion != null)
+        {
+            defaultRegion.close();
+        }
+        for (OffHeapRegion region : regions.values())
+        {
+            region.close();
+        }
+        regions.clear();
+    }
+
+    private OffHeapRegion getDefaultRegion()
+    {
+        if (defaultRegion == null)
+        {
+            synchronized (this)
+            {
+                if (defaultRegion == null)
+                {
+                    defaultRegion = provider.createRegion(name);
+                }
+            }
+        }
+        return defaultRegion;
+    }
+
+    private OffHeapRegion getRegion(Class<?> entityClass, boolean create)
+    {
+        String regionName = entityClass.getName();
+        OffHeapRegion region = regions.get(regionName);
+        if (region == null && create)
+        {
+            // regions own memory, so never create one twice.
+            synchronized (this)
+            {
+                region = regions.get(regionName);
+                if (region == null)
+                {
+                    region = provider.createRegion(regionName);
+                    regions.put(regionName, region);
+                }
+            }
+        }
+        return region;
+    }
+}
@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.cache.offheap;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.persistence.Cache;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.impetus.kundera.cache.CacheException;
+import com.impetus.kundera.cache.CacheProperties;
+import com.impetus.kundera.cache.CacheProvider;
+
+/**
+ * Cache provider keeping entities off heap, out of reach of garbage
+ * collector, see {@link OffHeapRegion}. Enabled through
+ * <code>kundera.cache.provider.class</code>,
+ * <code>kundera.cache.config.resource</code> may name a properties file on
+ * classpath holding region configuration, see {@link CacheProperties}:
+ * 
+ * <pre>
+ * capacity.bytes=67108864
+ * page.bytes=1048576
+ * capacity.bytes.com.example.Country=21474836480
+ * directory.com.example.Country=/var/cache/kundera
+ * </pre>
+ * 
+ * A region with a directory is backed by a memory mapped file in it, named
+ * after region, and comes up warm on restart. Others use direct memory.
+ */
+public class OffHeapCacheProvider implements CacheProvider
+{
+    /** the log used by this class. */
+    private static Log log = LogFactory.getLog(OffHeapCacheProvider.class);
+
+    /** Off heap memory of a region in bytes. */
+    public static final String CAPACITY_BYTES = "capacity.bytes";
+
+    /** Slab page size in bytes, limits size of an entry. */
+    public static final String PAGE_BYTES = "page.bytes";
+
+    /** Directory of memory mapped region files. */
+    public static final String DIRECTORY = "directory";
+
+    /** Default off heap memory of a region. */
+    public static final long DEFAULT_CAPACITY_BYTES = 64L * 1024 * 1024;
+
+    /** Default slab page size. */
+    public static final int DEFAULT_PAGE_BYTES = 1024 * 1024;
+
+    /** Region configuration, null until initialized. */
+    private CacheProperties properties;
+
+    /** Caches, by name. */
+    private final ConcurrentMap<String, OffHeapCache> caches = new ConcurrentHashMap<String, OffHeapCache>();
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.cache.CacheProvider#init(java.lang.String)
+     */
+    @Override
+    public synchronized void init(String cacheResourceName)
+    {
+        if (properties != null)
+        {
+            log.warn("Attempt to restart an already started CacheFactory. Using previously created OffHeapCacheProvider.");
+            return;
+        }
+        properties = CacheProperties.load(cacheResourceName);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.cache.CacheProvider#init(java.util.Map)
+     */
+    @Override
+    public synchronized void init(Map<?, ?> properties)
+    {
+        if (this.properties != null)
+        {
+            log.warn("Attempt to restart an already started CacheFactory. Using previously created OffHeapCacheProvider.");
+            return;
+        }
+        this.properties = CacheProperties.fromMap(properties);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.cache.CacheProvider#createCache(java.lang.String)
+     */
+    @Override
+    public Cache createCache(String name)
+    {
+        if (properties == null)
+        {
+            throw new CacheException("CacheFactory was not initialized. Call init() before creating a cache.");
+        }
+        OffHeapCache cache = caches.get(name);
+        if (cache == null)
+        {
+            OffHeapCache newCache = new OffHeapCache(name, this);
+            cache = caches.putIfAbsent(name, newCache);
+            if (cache == null)
+            {
+                cache = newCache;
+            }
+        }
+        return cache;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.cache.CacheProvider#getCache(java.lang.String)
+     */
+    @Override
+    public Cache getCache(String name)
+    {
+        return createCache(name);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.cache.CacheProvider#shutdown()
+     */
+    @Override
+    public synchronized void shutdown()
+    {
+        for (OffHeapCache cache : caches.values())
+        {
+            cache.close();
+        }
+        caches.clear();
+        properties = null;
+    }
+
+    /**
+     * Creates region of given name, as configured.
+     * 
+     * @param name
+     *            region name
+     * @return new region
+     */
+    OffHeapRegion createRegion(String name)
+    {
+        long capacity = properties.getLongProperty(CAPACITY_BYTES, name, DEFAULT_CAPACITY_BYTES);
+        int pageSize = (int) properties.getLongProperty(PAGE_BYTES, name, DEFAULT_PAGE_BYTES);
+        String directory = properties.getProperty(DIRECTORY, name);
+
+        File file = null;
+        if (directory != null)
+        {
+            File dir = new File(directory);
+            if (!dir.isDirectory() && !dir.mkdirs())
+            {
+                throw new CacheException("Could not create cache directory " + directory);
+            }
+            file = new File(dir, name + ".cache");
+        }
+        return new OffHeapRegion(name, capacity, pageSize, file);
+    }
+}
@@ -0,0 +1,524 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.cache.offheap;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.impetus.kundera.KunderaException;
+import com.impetus.kundera.cache.CacheException;
+
+/**
+ * Cache region storing entries off heap, in a {@link SlabAllocator}. Keys
+ * and values are encoded by {@link EntryCodec}. Entries are found through an
+ * open addressing index (linear probing, on heap arrays of chunk address and
+ * key hash), so that heap holds 12 bytes per entry whatever its size. When
+ * memory of an entry's size class is exhausted, a CLOCK sweep over index
+ * evicts an entry of same size class not accessed since last sweep.
+ * 
+ * If backed by a memory mapped file, entries written by a previous run are
+ * found again on start.
+ * 
+ * Reads share a read lock, writes take write lock.
+ */
+public class OffHeapRegion
+{
+    /** the log used by this class. */
+    private static Log log = LogFactory.getLog(OffHeapRegion.class);
+
+    private static final int INITIAL_INDEX_SIZE = 1024;
+
+    private final String name;
+
+    private final SlabAllocator memory;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Chunk addresses, 0 for empty slot. */
+    private long[] addresses = new long[INITIAL_INDEX_SIZE];
+
+    /** Spread key hashes. */
+    private int[] hashes = new int[INITIAL_INDEX_SIZE];
+
+    private int size;
+
+    private int clockHand;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    private final AtomicLong rejectionCount = new AtomicLong();
+
+    /**
+     * Instantiates a new region.
+     * 
+     * @param name
+     *            region name.
+     * @param capacity
+     *            off heap memory in bytes.
+     * @param pageSize
+     *            slab page size in bytes, limits entry size.
+     * @param mappedFile
+     *            file to keep entries in, null for direct memory.
+     */
+    public OffHeapRegion(String name, long capacity, int pageSize, File mappedFile)
+    {
+        this.name = name;
+        try
+        {
+            this.memory = new SlabAllocator(capacity, pageSize, mappedFile);
+        }
+        catch (IOException e)
+        {
+            throw new CacheException("Could not open cache file " + mappedFile + " of region " + name, e);
+        }
+
+        if (memory.isRecovered())
+        {
+            memory.recover(new SlabAllocator.ChunkVisitor()
+            {
+                @Override
+                public boolean visit(long address)
+                {
+                    index(address, memory.getInt(address + 4));
+                    return true;
+                }
+            });
+            log.info("Recovered " + size + " entries of region " + name + " from " + mappedFile);
+        }
+    }
+
+    /**
+     * Returns a new instance decoded out of cached value of given key.
+     * 
+     * @param key
+     *            the key
+     * @param type
+     *            class of cached value, null if not known.
+     * @return the value, or null
+     */
+    public Object get(Object key, Class<?> type)
+    {
+        byte[] keyBytes = encodeKey(key);
+        int hash = hash(keyBytes);
+
+        lock.readLock().lock();
+        try
+        {
+            int slot = find(keyBytes, hash);
+            if (slot >= 0)
+            {
+                long address = addresses[slot];
+                int schema = memory.getInt(address + 8);
+                EntryCodec codec = type != null ? EntryCodec.getCodec(type) : EntryCodec.getCodec(schema);
+
+                // value of another class, or of class since changed.
+                if (codec != null && codec.getSchema() == schema)
+                {
+                    memory.putByte(address, (byte) (SlabAllocator.USED | SlabAllocator.ACCESSED));
+                    int keyLength = memory.getInt(address + 12);
+                    int valueLength = memory.getInt(address + 16);
+                    Object value = codec.decode(memory.buffer(address), memory.offset(address)
+                            + SlabAllocator.CHUNK_HEADER + keyLength, valueLength);
+                    hitCount.incrementAndGet();
+                    return value;
+                }
+            }
+        }
+        catch (KunderaException e)
+        {
+            log.warn("Could not decode cached value of " + key + " in region " + name + ", Caused by: "
+                    + e.getMessage());
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+        missCount.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Caches given value. Value is not cached, if it can not be encoded or is
+     * larger than a page.
+     * 
+     * @param key
+     *            the key
+     * @param value
+     *            the value
+     */
+    public void put(Object key, Object value)
+    {
+        byte[] keyBytes = encodeKey(key);
+        int hash = hash(keyBytes);
+        EntryCodec codec = EntryCodec.getCodec(value.getClass());
+        byte[] valueBytes;
+        try
+        {
+            valueBytes = codec.isDecodable() ? codec.encode(value) : null;
+        }
+        catch (KunderaException e)
+        {
+            log.debug("Could not encode " + value.getClass().getName() + " for region " + name + ", Caused by: "
+                    + e.getMessage());
+            valueBytes = null;
+        }
+
+        lock.writeLock().lock();
+        try
+        {
+            int slot = find(keyBytes, hash);
+            if (slot >= 0)
+            {
+                removeSlot(slot);
+            }
+
+            int sizeClass = valueBytes != null ? memory.sizeClass(SlabAllocator.CHUNK_HEADER + keyBytes.length
+                    + valueBytes.length) : -1;
+            long address = sizeClass >= 0 ? allocate(sizeClass) : 0;
+            if (address == 0)
+            {
+                rejectionCount.incrementAndGet();
+                return;
+            }
+
+            memory.putInt(address + 4, hash);
+            memory.putInt(address + 8, codec.getSchema());
+            memory.putInt(address + 12, keyBytes.length);
+            memory.putInt(address + 16, valueBytes.length);
+            memory.put(address + SlabAllocator.CHUNK_HEADER, keyBytes);
+            memory.put(address + SlabAllocator.CHUNK_HEADER + keyBytes.length, valueBytes);
+            memory.putByte(address, SlabAllocator.USED);
+            index(address, hash);
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes given key.
+     * 
+     * @param key
+     *            the key
+     */
+    public void remove(Object key)
+    {
+        byte[] keyBytes = encodeKey(key);
+        int hash = hash(keyBytes);
+        lock.writeLock().lock();
+        try
+        {
+            int slot = find(keyBytes, hash);
+            if (slot >= 0)
+            {
+                removeSlot(slot);
+            }
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return true, if given key is cached.
+     */
+    public boolean containsKey(Object key)
+    {
+        byte[] keyBytes = encodeKey(key);
+        int hash = hash(keyBytes);
+        lock.readLock().lock();
+        try
+        {
+            return find(keyBytes, hash) >= 0;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear()
+    {
+        lock.writeLock().lock();
+        try
+        {
+            for (int slot = 0; slot < addresses.length; slot++)
+            {
+                if (addresses[slot] != 0)
+                {
+                    memory.free(addresses[slot]);
+                    addresses[slot] = 0;
+                }
+            }
+            size = 0;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Flushes memory mapped file, if any, and releases memory. Region may not
+     * be used afterwards.
+     */
+    public void close()
+    {
+        lock.writeLock().lock();
+        try
+        {
+            memory.close();
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of entries.
+     */
+    public int size()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return size;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return share of memory pages in use, between 0 and 1.
+     */
+    public double getUsage()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return (double) (memory.getPagesUsed() - 1) / (memory.getPageCount() - 1);
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of reads which found a value.
+     */
+    public long getHitCount()
+    {
+        return hitCount.get();
+    }
+
+    /**
+     * @return number of reads which found no value.
+     */
+    public long getMissCount()
+    {
+        return missCount.get();
+    }
+
+    /**
+     * @return number of entries evicted for memory.
+     */
+    public long getEvictionCount()
+    {
+        return evictionCount.get();
+    }
+
+    /**
+     * @return number of values not cached, as they could not be encoded or
+     *         were too large.
+     */
+    public long getRejectionCount()
+    {
+        return rejectionCount.get();
+    }
+
+    /**
+     * Allocates a chunk, evicting an entry of same size class if memory is
+     * exhausted.
+     */
+    private long allocate(int sizeClass)
+    {
+        long address = memory.allocate(sizeClass);
+        if (address == 0 && evict(sizeClass))
+        {
+            address = memory.allocate(sizeClass);
+        }
+        return address;
+    }
+
+    /**
+     * CLOCK sweep over index, for an entry of given size class not accessed
+     * since hand last passed it.
+     * 
+     * @return true, if an entry was evicted.
+     */
+    private boolean evict(int sizeClass)
+    {
+        for (int i = 0; i < 2 * addresses.length; i++)
+        {
+            int slot = clockHand;
+            clockHand = (clockHand + 1) & (addresses.length - 1);
+            long address = addresses[slot];
+            if (address == 0 || memory.getSizeClass(address) != sizeClass)
+            {
+                continue;
+            }
+            if ((memory.getByte(address) & SlabAllocator.ACCESSED) != 0)
+            {
+                memory.putByte(address, SlabAllocator.USED);
+            }
+            else
+            {
+                removeSlot(slot);
+                evictionCount.incrementAndGet();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns index slot of given key, or -1.
+     */
+    private int find(byte[] keyBytes, int hash)
+    {
+        int mask = addresses.length - 1;
+        for (int slot = hash & mask; addresses[slot] != 0; slot = (slot + 1) & mask)
+        {
+            long address = addresses[slot];
+            if (hashes[slot] == hash && memory.getInt(address + 12) == keyBytes.length
+                    && memory.equals(address + SlabAllocator.CHUNK_HEADER, keyBytes))
+            {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds given chunk to index, growing it if required.
+     */
+    private void index(long address, int hash)
+    {
+        if ((size + 1) * 4 > addresses.length * 3)
+        {
+            long[] oldAddresses = addresses;
+            int[] oldHashes = hashes;
+            addresses = new long[oldAddresses.length * 2];
+            hashes = new int[oldAddresses.length * 2];
+            clockHand = 0;
+            for (int slot = 0; slot < oldAddresses.length; slot++)
+            {
+                if (oldAddresses[slot] != 0)
+                {
+                    insert(oldAddresses[slot], oldHashes[slot]);
+                }
+            }
+        }
+        insert(address, hash);
+        size++;
+    }
+
+    private void insert(long address, int hash)
+    {
+        int mask = addresses.length - 1;
+        int slot = hash & mask;
+        while (addresses[slot] != 0)
+        {
+            slot = (slot + 1) & mask;
+        }
+        addresses[slot] = address;
+        hashes[slot] = hash;
+    }
+
+    /**
+     * Frees entry of given slot and shifts following entries of its probe
+     * sequence back, so that index needs no tombstones.
+     */
+    private void removeSlot(int slot)
+    {
+        memory.free(addresses[slot]);
+        addresses[slot] = 0;
+        size--;
+
+        int mask = addresses.length - 1;
+        int free = slot;
+        for (int i = (slot + 1) & mask; addresses[i] != 0; i = (i + 1) & mask)
+        {
+            int home = hashes[i] & mask;
+            boolean movable = free <= i ? (home <= free || home > i) : (home <= free && home > i);
+            if (movable)
+            {
+                addresses[free] = addresses[i];
+                hashes[free] = hashes[i];
+                addresses[i] = 0;
+                free = i;
+            }
+        }
+    }
+
+    private static byte[] encodeKey(Object key)
+    {
+        return EntryCodec.getCodec(key.getClass()).encode(key);
+    }
+
+    /**
+     * Hash of encoded key, spread so that low bits are usable as index.
+     */
+    private static int hash(byte[] bytes)
+    {
+        int h = 1;
+        for (byte b : bytes)
+        {
+            h = 31 * h + b;
+        }
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        h ^= (h >>> 13);
+        return h;
+    }
+}
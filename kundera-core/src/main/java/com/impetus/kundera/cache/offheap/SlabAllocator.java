@@ -0,0 +1,450 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.cache.offheap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.impetus.kundera.cache.CacheException;
+
+/**
+ * Slab allocator over off-heap memory, either direct buffers or a memory
+ * mapped file. Memory is split into pages, each page is carved into chunks of
+ * one size class when first needed. Freed chunks are kept in a free list per
+ * size class, linked through chunks themselves, so that allocator holds no
+ * per-chunk state on heap.
+ * 
+ * Addresses are offsets into whole memory; page 0 holds allocator header, so
+ * 0 is never a valid chunk address. Memory is allocated, or mapped, one
+ * segment at a time, as pages are used. Memory is released on
+ * {@link #close()}, allocator may not be used afterwards. Not thread safe.
+ */
+final class SlabAllocator
+{
+    private static final long MAGIC = 0x4b756e6465726131L;
+
+    /** Page header: size class index + 1, 0 if unassigned. */
+    static final int PAGE_HEADER = 8;
+
+    /** Chunk header: flags, hash, schema, key length, value length. */
+    static final int CHUNK_HEADER = 20;
+
+    static final byte USED = 1;
+
+    static final byte ACCESSED = 2;
+
+    private static final int MIN_CHUNK_SIZE = 64;
+
+    private static final double GROWTH_FACTOR = 1.25;
+
+    private final int pageSize;
+
+    private final int pageCount;
+
+    private final int segmentPages;
+
+    private final ByteBuffer[] segments;
+
+    private final int[] chunkSizes;
+
+    /** Free list head per size class, 0 if empty. */
+    private final long[] freeLists;
+
+    private final RandomAccessFile file;
+
+    private int pagesUsed = 1;
+
+    private boolean recovered;
+
+    private boolean closed;
+
+    /**
+     * Instantiates a new allocator.
+     * 
+     * @param capacity
+     *            memory in bytes.
+     * @param pageSize
+     *            page size in bytes, largest chunk size.
+     * @param mappedFile
+     *            file to map memory to, null for direct memory.
+     * @throws IOException
+     *             if file could not be mapped.
+     */
+    SlabAllocator(long capacity, int pageSize, File mappedFile) throws IOException
+    {
+        this.pageSize = pageSize;
+        this.pageCount = (int) Math.max(2, Math.min(capacity / pageSize, Integer.MAX_VALUE));
+        this.segmentPages = Math.max(1, (1 << 30) / pageSize);
+        this.segments = new ByteBuffer[(pageCount + segmentPages - 1) / segmentPages];
+
+        int classes = 0;
+        int[] sizes = new int[64];
+        for (double size = MIN_CHUNK_SIZE; size < pageSize - PAGE_HEADER && classes < sizes.length - 1; size *= GROWTH_FACTOR)
+        {
+            int chunkSize = ((int) size + 7) & ~7;
+            if (classes == 0 || chunkSize > sizes[classes - 1])
+            {
+                sizes[classes++] = chunkSize;
+            }
+        }
+        sizes[classes++] = pageSize - PAGE_HEADER;
+        this.chunkSizes = new int[classes];
+        System.arraycopy(sizes, 0, chunkSizes, 0, classes);
+        this.freeLists = new long[classes];
+
+        this.file = mappedFile != null ? new RandomAccessFile(mappedFile, "rw") : null;
+        if (file != null && file.length() >= PAGE_HEADER * 2 && segment(0).getLong(0) == MAGIC
+                && segment(0).getInt(8) == pageSize)
+        {
+            pagesUsed = Math.min(segment(0).getInt(12), pageCount);
+            recovered = true;
+        }
+        else
+        {
+            segment(0).putLong(0, MAGIC);
+            segment(0).putInt(8, pageSize);
+            segment(0).putInt(12, pagesUsed);
+        }
+    }
+
+    /**
+     * @return true, if memory mapped file held chunks of a previous run.
+     */
+    boolean isRecovered()
+    {
+        return recovered;
+    }
+
+    /**
+     * Returns size class of given chunk size.
+     * 
+     * @param size
+     *            size in bytes, header included.
+     * @return size class, -1 if larger than a page.
+     */
+    int sizeClass(int size)
+    {
+        for (int i = 0; i < chunkSizes.length; i++)
+        {
+            if (chunkSizes[i] >= size)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Allocates a chunk of given size class, out of free list or a new page.
+     * 
+     * @param sizeClass
+     *            size class.
+     * @return chunk address, 0 if memory is exhausted.
+     */
+    long allocate(int sizeClass)
+    {
+        if (freeLists[sizeClass] == 0)
+        {
+            if (pagesUsed == pageCount)
+            {
+                return 0;
+            }
+            carve(pagesUsed++, sizeClass);
+            segment(0).putInt(12, pagesUsed);
+        }
+
+        long address = freeLists[sizeClass];
+        freeLists[sizeClass] = getLong(address + 4);
+        return address;
+    }
+
+    /**
+     * Returns given chunk to free list of its size class.
+     * 
+     * @param address
+     *            chunk address.
+     */
+    void free(long address)
+    {
+        int sizeClass = getSizeClass(address);
+        putByte(address, (byte) 0);
+        putLong(address + 4, freeLists[sizeClass]);
+        freeLists[sizeClass] = address;
+    }
+
+    /**
+     * @return size class of chunk at given address.
+     */
+    int getSizeClass(long address)
+    {
+        long page = address / pageSize;
+        return getInt(page * pageSize) - 1;
+    }
+
+    /**
+     * Walks all chunks of all used pages, putting free ones into free lists.
+     * Used after recovering a memory mapped file.
+     * 
+     * @param visitor
+     *            visitor of used chunks.
+     */
+    void recover(ChunkVisitor visitor)
+    {
+        for (int page = 1; page < pagesUsed; page++)
+        {
+            long pageAddress = (long) page * pageSize;
+            int sizeClass = getInt(pageAddress) - 1;
+            if (sizeClass < 0 || sizeClass >= chunkSizes.length)
+            {
+                // page header got lost, reuse page.
+                carve(page, chunkSizes.length - 1);
+                continue;
+            }
+
+            int chunkSize = chunkSizes[sizeClass];
+            for (long address = pageAddress + PAGE_HEADER; address + chunkSize <= pageAddress + pageSize; address += chunkSize)
+            {
+                if ((getByte(address) & USED) == 0 || !visitor.visit(address))
+                {
+                    putByte(address, (byte) 0);
+                    putLong(address + 4, freeLists[sizeClass]);
+                    freeLists[sizeClass] = address;
+                }
+            }
+        }
+    }
+
+    private void carve(int page, int sizeClass)
+    {
+        long pageAddress = (long) page * pageSize;
+        putInt(pageAddress, sizeClass + 1);
+        int chunkSize = chunkSizes[sizeClass];
+
+        // link chunks so that lowest address is allocated first.
+        long last = pageAddress + PAGE_HEADER + ((pageSize - PAGE_HEADER) / chunkSize - 1) * (long) chunkSize;
+        for (long address = last; address >= pageAddress + PAGE_HEADER; address -= chunkSize)
+        {
+            putByte(address, (byte) 0);
+            putLong(address + 4, freeLists[sizeClass]);
+            freeLists[sizeClass] = address;
+        }
+    }
+
+    /**
+     * @return number of pages in use, header page included.
+     */
+    int getPagesUsed()
+    {
+        return pagesUsed;
+    }
+
+    /**
+     * @return number of pages of memory.
+     */
+    int getPageCount()
+    {
+        return pageCount;
+    }
+
+    /**
+     * Returns buffer holding given address. Chunks never span buffers.
+     */
+    ByteBuffer buffer(long address)
+    {
+        return segment((int) (address / pageSize / segmentPages));
+    }
+
+    /**
+     * Returns offset of given address within its buffer.
+     */
+    int offset(long address)
+    {
+        return (int) (address % ((long) segmentPages * pageSize));
+    }
+
+    byte getByte(long address)
+    {
+        return buffer(address).get(offset(address));
+    }
+
+    void putByte(long address, byte value)
+    {
+        buffer(address).put(offset(address), value);
+    }
+
+    int getInt(long address)
+    {
+        return buffer(address).getInt(offset(address));
+    }
+
+    void putInt(long address, int value)
+    {
+        buffer(address).putInt(offset(address), value);
+    }
+
+    long getLong(long address)
+    {
+        return buffer(address).getLong(offset(address));
+    }
+
+    void putLong(long address, long value)
+    {
+        buffer(address).putLong(offset(address), value);
+    }
+
+    /**
+     * Copies given bytes to given address.
+     */
+    void put(long address, byte[] src)
+    {
+        ByteBuffer buffer = buffer(address).duplicate();
+        buffer.position(offset(address));
+        buffer.put(src);
+    }
+
+    /**
+     * Compares bytes at given address with given bytes.
+     */
+    boolean equals(long address, byte[] bytes)
+    {
+        ByteBuffer buffer = buffer(address);
+        int offset = offset(address);
+        for (int i = 0; i < bytes.length; i++)
+        {
+            if (buffer.get(offset + i) != bytes[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Flushes memory mapped file, if any, then frees direct buffers, or
+     * unmaps file, rather than waiting for garbage collector to.
+     */
+    void close()
+    {
+        if (closed)
+        {
+            return;
+        }
+        closed = true;
+
+        if (file != null)
+        {
+            for (ByteBuffer segment : segments)
+            {
+                if (segment != null)
+                {
+                    ((MappedByteBuffer) segment).force();
+                }
+            }
+        }
+        for (int i = 0; i < segments.length; i++)
+        {
+            if (segments[i] != null)
+            {
+                release(segments[i]);
+                segments[i] = null;
+            }
+        }
+        if (file != null)
+        {
+            try
+            {
+                file.close();
+            }
+            catch (IOException e)
+            {
+                // nothing left to do.
+            }
+        }
+    }
+
+    /**
+     * Frees memory of given direct or mapped buffer through its cleaner, if
+     * JVM exposes one. Otherwise memory is left to garbage collector.
+     */
+    private static void release(ByteBuffer buffer)
+    {
+        try
+        {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if (cleaner != null)
+            {
+                Method cleanMethod = cleaner.getClass().getMethod("clean");
+                cleanMethod.setAccessible(true);
+                cleanMethod.invoke(cleaner);
+            }
+        }
+        catch (Exception e)
+        {
+            // no cleaner on this JVM, left to garbage collector.
+        }
+    }
+
+    private ByteBuffer segment(int index)
+    {
+        if (closed)
+        {
+            throw new CacheException("Off heap memory is already released");
+        }
+        ByteBuffer segment = segments[index];
+        if (segment == null)
+        {
+            int size = (int) Math.min((long) segmentPages, pageCount - (long) index * segmentPages) * pageSize;
+            if (file == null)
+            {
+                segment = ByteBuffer.allocateDirect(size);
+            }
+            else
+            {
+                try
+                {
+                    segment = file.getChannel().map(FileChannel.MapMode.READ_WRITE,
+                            (long) index * segmentPages * pageSize, size);
+                }
+                catch (IOException e)
+                {
+                    throw new CacheException("Could not map segment " + index + " of cache file", e);
+                }
+            }
+            segments[index] = segment;
+        }
+        return segment;
+    }
+
+    /**
+     * Visitor of used chunks found on recovery.
+     */
+    interface ChunkVisitor
+    {
+        /**
+         * @param address
+         *            chunk address.
+         * @return false, if chunk is to be freed.
+         */
+        boolean visit(long address);
+    }
+}
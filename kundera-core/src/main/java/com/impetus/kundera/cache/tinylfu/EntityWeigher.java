@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.cache.tinylfu;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Default {@link Weigher}, estimating shallow size of cached entity plus
+ * contents of its strings and arrays. Objects referenced by entity, e.g.
+ * embedded objects, are counted once more shallow. Fields of an entity class
+ * are resolved once.
+ */
+public class EntityWeigher implements Weigher
+{
+    /** the log used by this class. */
+    private static Log log = LogFactory.getLog(EntityWeigher.class);
+
+    /** Overhead of a region entry and its map entry. */
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private static final int OBJECT_HEADER = 16;
+
+    private static final int REFERENCE = 8;
+
+    private final ConcurrentMap<Class<?>, Field[]> fields = new ConcurrentHashMap<Class<?>, Field[]>();
+
+    @Override
+    public int weigh(Object key, Object value)
+    {
+        long weight = ENTRY_OVERHEAD + sizeOf(key, 1) + sizeOf(value, 2);
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Estimates size of given object, following references up to given
+     * depth.
+     */
+    private long sizeOf(Object o, int depth)
+    {
+        if (o == null)
+        {
+            return 0;
+        }
+        else if (o instanceof String)
+        {
+            return 40 + 2L * ((String) o).length();
+        }
+        else if (o instanceof byte[])
+        {
+            return OBJECT_HEADER + ((byte[]) o).length;
+        }
+        else if (o instanceof Number || o instanceof Boolean || o instanceof Character)
+        {
+            return OBJECT_HEADER + REFERENCE;
+        }
+        else if (o.getClass().isArray())
+        {
+            return OBJECT_HEADER + (long) REFERENCE * java.lang.reflect.Array.getLength(o);
+        }
+        else if (o instanceof Collection)
+        {
+            return 48 + 32L * ((Collection<?>) o).size();
+        }
+        else if (o instanceof Map)
+        {
+            return 48 + 48L * ((Map<?, ?>) o).size();
+        }
+
+        long size = OBJECT_HEADER;
+        for (Field field : getFields(o.getClass()))
+        {
+            Class<?> type = field.getType();
+            if (type.isPrimitive())
+            {
+                size += primitiveSize(type);
+            }
+            else
+            {
+                size += REFERENCE;
+                if (depth > 0)
+                {
+                    try
+                    {
+                        size += sizeOf(field.get(o), depth - 1);
+                    }
+                    catch (IllegalAccessException e)
+                    {
+                        log.warn("Could not weigh " + field + ", Caused by: " + e.getMessage());
+                    }
+                }
+            }
+        }
+        return size;
+    }
+
+    private Field[] getFields(Class<?> clazz)
+    {
+        Field[] classFields = fields.get(clazz);
+        if (classFields == null)
+        {
+            List<Field> fieldList = new ArrayList<Field>();
+            for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass())
+            {
+                for (Field field : c.getDeclaredFields())
+                {
+                    if (!Modifier.isStatic(field.getModifiers()))
+                    {
+                        field.setAccessible(true);
+                        fieldList.add(field);
+                    }
+                }
+            }
+            classFields = fieldList.toArray(new Field[fieldList.size()]);
+            fields.putIfAbsent(clazz, classFields);
+        }
+        return classFields;
+    }
+
+    private static int primitiveSize(Class<?> type)
+    {
+        if (type == long.class || type == double.class)
+        {
+            return 8;
+        }
+        else if (type == int.class || type == float.class)
+        {
+            return 4;
+        }
+        else if (type == short.class || type == char.class)
+        {
+            return 2;
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.cache.tinylfu;
+
+/**
+ * Probabilistic frequency counter of a region (count-min sketch with 4 bit
+ * counters), used by admission policy to decide whether a new entry is worth
+ * evicting another for. Counters are halved periodically so that frequency
+ * reflects recent history. Not thread safe, accessed under region's lock.
+ */
+final class FrequencySketch
+{
+    private static final long[] SEED = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL,
+            0xcbf29ce484222325L };
+
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private static final long ONE_MASK = 0x1111111111111111L;
+
+    /** Sixteen 4 bit counters per element. */
+    private long[] table;
+
+    private int tableMask;
+
+    /** Number of increments after which counters are halved. */
+    private int sampleSize;
+
+    private int size;
+
+    /**
+     * Instantiates a sketch accurately counting given number of entries. Sized
+     * once, as growing it would lose counts.
+     * 
+     * @param maximumSize
+     *            maximum number of entries of the region.
+     */
+    FrequencySketch(long maximumSize)
+    {
+        int maximum = (int) Math.min(maximumSize, Integer.MAX_VALUE >>> 1);
+        table = new long[ceilingPowerOfTwo(Math.max(maximum, 1))];
+        tableMask = Math.max(0, table.length - 1);
+        sampleSize = 10 * maximum;
+        if (sampleSize <= 0)
+        {
+            sampleSize = Integer.MAX_VALUE;
+        }
+        size = 0;
+    }
+
+    /**
+     * @return estimated number of occurrences of given element, at most 15.
+     */
+    int frequency(Object e)
+    {
+        int hash = spread(e.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++)
+        {
+            int index = indexOf(hash, i);
+            int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Increments occurrences of given element, unless already at maximum.
+     */
+    void increment(Object e)
+    {
+        int hash = spread(e.hashCode());
+        int start = (hash & 3) << 2;
+
+        boolean added = false;
+        for (int i = 0; i < 4; i++)
+        {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+
+        if (added && (++size == sampleSize))
+        {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int i, int j)
+    {
+        int offset = j << 2;
+        long mask = (0xfL << offset);
+        if ((table[i] & mask) != mask)
+        {
+            table[i] += (1L << offset);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Halves all counters.
+     */
+    private void reset()
+    {
+        int count = 0;
+        for (int i = 0; i < table.length; i++)
+        {
+            count += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = (size >>> 1) - (count >>> 2);
+    }
+
+    private int indexOf(int item, int i)
+    {
+        long hash = (item + SEED[i]) * SEED[i];
+        hash += (hash >>> 32);
+        return ((int) hash) & tableMask;
+    }
+
+    /**
+     * Spreads bits of given hash code, as element hash codes may be weak.
+     */
+    private static int spread(int x)
+    {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+
+    private static int ceilingPowerOfTwo(int x)
+    {
+        return 1 << -Integer.numberOfLeadingZeros(x - 1);
+    }
+}
@@ -0,0 +1,706 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.cache.tinylfu;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A cache region bounded by weight in bytes, with W-TinyLFU eviction: new
+ * entries enter a small LRU window, and on leaving it have to beat main
+ * space's eviction victim in a {@link FrequencySketch} to be admitted. Main
+ * space is a segmented LRU with probation and protected segments, entries
+ * accessed in probation are promoted to protected.
+ * 
+ * Reads do not block: entries are read from a concurrent map, and accesses
+ * are applied to eviction policy only if its lock is free, otherwise they are
+ * dropped. Writes and removals take policy lock. Entries may expire after
+ * write and/or after access, expired entries are never returned and are
+ * cleaned up on write. Statistics are atomic counters.
+ */
+public class Region
+{
+    private static final int WINDOW = 0;
+
+    private static final int PROBATION = 1;
+
+    private static final int PROTECTED = 2;
+
+    private static final int REMOVED = -1;
+
+    /** Window share of region weight, in percent. */
+    private static final int WINDOW_PERCENT = 1;
+
+    /** Protected segment share of main space weight, in percent. */
+    private static final int PROTECTED_PERCENT = 80;
+
+    /**
+     * Assumed weight of an entry in bytes, to estimate maximum number of
+     * entries when not configured.
+     */
+    static final long DEFAULT_ENTRY_WEIGHT = 512;
+
+    /** Least number of entries frequency sketch is sized for. */
+    private static final long MIN_SKETCH_SIZE = 16;
+
+    private final String name;
+
+    private final long maxWeight;
+
+    private final long windowMaxWeight;
+
+    private final long mainMaxWeight;
+
+    private final long protectedMaxWeight;
+
+    private final long expireAfterWrite;
+
+    private final long expireAfterAccess;
+
+    private final Weigher weigher;
+
+    private final ConcurrentMap<Object, Entry> data = new ConcurrentHashMap<Object, Entry>();
+
+    /** Guards eviction policy, i.e. all fields below. */
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final FrequencySketch sketch;
+
+    private final EntryDeque window = new EntryDeque();
+
+    private final EntryDeque probation = new EntryDeque();
+
+    private final EntryDeque protectedSegment = new EntryDeque();
+
+    private long windowWeight;
+
+    private long mainWeight;
+
+    private long protectedWeight;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    private final AtomicLong rejectionCount = new AtomicLong();
+
+    private final AtomicLong expirationCount = new AtomicLong();
+
+    /**
+     * Instantiates a new region.
+     * 
+     * @param name
+     *            region name.
+     * @param maxWeight
+     *            maximum weight in bytes.
+     * @param expireAfterWrite
+     *            time in milliseconds after which an entry expires once
+     *            written, 0 for never.
+     * @param expireAfterAccess
+     *            time in milliseconds after which an entry expires once last
+     *            read or written, 0 for never.
+     * @param weigher
+     *            weigher of entries.
+     */
+    public Region(String name, long maxWeight, long expireAfterWrite, long expireAfterAccess, Weigher weigher)
+    {
+        this(name, maxWeight, maxWeight / DEFAULT_ENTRY_WEIGHT, expireAfterWrite, expireAfterAccess, weigher);
+    }
+
+    /**
+     * Instantiates a new region.
+     * 
+     * @param name
+     *            region name.
+     * @param maxWeight
+     *            maximum weight in bytes.
+     * @param maxEntries
+     *            expected maximum number of entries, frequency sketch is
+     *            sized for once.
+     * @param expireAfterWrite
+     *            time in milliseconds after which an entry expires once
+     *            written, 0 for never.
+     * @param expireAfterAccess
+     *            time in milliseconds after which an entry expires once last
+     *            read or written, 0 for never.
+     * @param weigher
+     *            weigher of entries.
+     */
+    public Region(String name, long maxWeight, long maxEntries, long expireAfterWrite, long expireAfterAccess,
+            Weigher weigher)
+    {
+        this.name = name;
+        this.sketch = new FrequencySketch(Math.max(MIN_SKETCH_SIZE, maxEntries));
+        this.maxWeight = maxWeight;
+        this.windowMaxWeight = Math.max(1, maxWeight * WINDOW_PERCENT / 100);
+        this.mainMaxWeight = maxWeight - windowMaxWeight;
+        this.protectedMaxWeight = mainMaxWeight * PROTECTED_PERCENT / 100;
+        this.expireAfterWrite = expireAfterWrite;
+        this.expireAfterAccess = expireAfterAccess;
+        this.weigher = weigher;
+    }
+
+    /**
+     * Returns value of given key, if cached and not expired.
+     * 
+     * @param key
+     *            the key
+     * @return the value, or null
+     */
+    public Object get(Object key)
+    {
+        Entry entry = data.get(key);
+        if (entry == null)
+        {
+            missCount.incrementAndGet();
+            recordAccess(key, null);
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+        if (isExpired(entry, now))
+        {
+            missCount.incrementAndGet();
+            expire(entry);
+            return null;
+        }
+
+        entry.accessTime = now;
+        hitCount.incrementAndGet();
+        recordAccess(key, entry);
+        return entry.value;
+    }
+
+    /**
+     * Caches given value, replacing the one cached for given key. Value may
+     * not be admitted, or be evicted right away, if region is full of more
+     * frequently used entries.
+     * 
+     * @param key
+     *            the key
+     * @param value
+     *            the value
+     */
+    public void put(Object key, Object value)
+    {
+        long now = System.currentTimeMillis();
+        Entry entry = new Entry(key, value, weigher.weigh(key, value), now);
+
+        evictionLock.lock();
+        try
+        {
+            Entry old = data.put(key, entry);
+            if (old != null)
+            {
+                unlink(old);
+            }
+            if (entry.weight > maxWeight)
+            {
+                data.remove(key, entry);
+                rejectionCount.incrementAndGet();
+                return;
+            }
+
+            sketch.increment(key);
+            entry.queue = WINDOW;
+            window.addLast(entry);
+            windowWeight += entry.weight;
+
+            expireEntries(now);
+            evictEntries();
+        }
+        finally
+        {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Removes given key.
+     * 
+     * @param key
+     *            the key
+     */
+    public void remove(Object key)
+    {
+        evictionLock.lock();
+        try
+        {
+            Entry entry = data.remove(key);
+            if (entry != null)
+            {
+                unlink(entry);
+            }
+        }
+        finally
+        {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear()
+    {
+        evictionLock.lock();
+        try
+        {
+            data.clear();
+            window.clear();
+            probation.clear();
+            protectedSegment.clear();
+            windowWeight = 0;
+            mainWeight = 0;
+            protectedWeight = 0;
+        }
+        finally
+        {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * @return true, if given key is cached and not expired.
+     */
+    public boolean containsKey(Object key)
+    {
+        Entry entry = data.get(key);
+        return entry != null && !isExpired(entry, System.currentTimeMillis());
+    }
+
+    /**
+     * @return number of entries, expired ones not yet cleaned up included.
+     */
+    public int size()
+    {
+        return data.size();
+    }
+
+    /**
+     * @return the name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return estimated weight of all entries, in bytes.
+     */
+    public long getWeight()
+    {
+        evictionLock.lock();
+        try
+        {
+            return windowWeight + mainWeight;
+        }
+        finally
+        {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * @return maximum weight, in bytes.
+     */
+    public long getMaxWeight()
+    {
+        return maxWeight;
+    }
+
+    /**
+     * @return number of reads which found a value.
+     */
+    public long getHitCount()
+    {
+        return hitCount.get();
+    }
+
+    /**
+     * @return number of reads which found no value.
+     */
+    public long getMissCount()
+    {
+        return missCount.get();
+    }
+
+    /**
+     * @return hits per read, 0 if nothing was read.
+     */
+    public double getHitRatio()
+    {
+        long hits = getHitCount();
+        long reads = hits + getMissCount();
+        return reads == 0 ? 0 : (double) hits / reads;
+    }
+
+    /**
+     * @return number of entries evicted for weight.
+     */
+    public long getEvictionCount()
+    {
+        return evictionCount.get();
+    }
+
+    /**
+     * @return number of entries not admitted, either heavier than region or
+     *         less frequent than eviction victim.
+     */
+    public long getRejectionCount()
+    {
+        return rejectionCount.get();
+    }
+
+    /**
+     * @return number of expired entries removed.
+     */
+    public long getExpirationCount()
+    {
+        return expirationCount.get();
+    }
+
+    /**
+     * Applies an access to eviction policy. Lossy, under contention access is
+     * dropped rather than waited for.
+     */
+    private void recordAccess(Object key, Entry entry)
+    {
+        if (evictionLock.tryLock())
+        {
+            try
+            {
+                sketch.increment(key);
+                if (entry != null)
+                {
+                    onAccess(entry);
+                }
+            }
+            finally
+            {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private void onAccess(Entry entry)
+    {
+        switch (entry.queue)
+        {
+        case WINDOW:
+            window.moveToBack(entry);
+            break;
+
+        case PROBATION:
+            // promote, demoting least recently used protected entries.
+            probation.remove(entry);
+            entry.queue = PROTECTED;
+            protectedSegment.addLast(entry);
+            protectedWeight += entry.weight;
+            while (protectedWeight > protectedMaxWeight)
+            {
+                Entry demoted = protectedSegment.pollFirst();
+                protectedWeight -= demoted.weight;
+                demoted.queue = PROBATION;
+                probation.addLast(demoted);
+            }
+            break;
+
+        case PROTECTED:
+            protectedSegment.moveToBack(entry);
+            break;
+
+        default:
+            // removed meanwhile.
+        }
+    }
+
+    /**
+     * Moves entries overflowing window to main space, through admission
+     * filter, and evicts until region is within its weight.
+     */
+    private void evictEntries()
+    {
+        while (windowWeight > windowMaxWeight)
+        {
+            Entry candidate = window.pollFirst();
+            windowWeight -= candidate.weight;
+            candidate.queue = PROBATION;
+            probation.addLast(candidate);
+            mainWeight += candidate.weight;
+
+            while (mainWeight > mainMaxWeight && candidate.queue != REMOVED)
+            {
+                Entry victim = probation.peekFirst();
+                if (victim == null)
+                {
+                    victim = protectedSegment.peekFirst();
+                }
+
+                if (victim == candidate)
+                {
+                    evict(candidate);
+                }
+                else if (sketch.frequency(candidate.key) > sketch.frequency(victim.key))
+                {
+                    evict(victim);
+                }
+                else
+                {
+                    evict(candidate);
+                    rejectionCount.incrementAndGet();
+                }
+            }
+        }
+
+        while (mainWeight > mainMaxWeight)
+        {
+            Entry victim = probation.peekFirst();
+            evict(victim != null ? victim : protectedSegment.peekFirst());
+        }
+    }
+
+    /**
+     * Removes expired entries from least recently used end of each segment.
+     */
+    private void expireEntries(long now)
+    {
+        if (expireAfterWrite <= 0 && expireAfterAccess <= 0)
+        {
+            return;
+        }
+        expireEntries(window, now);
+        expireEntries(probation, now);
+        expireEntries(protectedSegment, now);
+    }
+
+    private void expireEntries(EntryDeque deque, long now)
+    {
+        Entry entry = deque.peekFirst();
+        while (entry != null && isExpired(entry, now))
+        {
+            data.remove(entry.key, entry);
+            unlink(entry);
+            expirationCount.incrementAndGet();
+            entry = deque.peekFirst();
+        }
+    }
+
+    private void expire(Entry entry)
+    {
+        evictionLock.lock();
+        try
+        {
+            if (data.remove(entry.key, entry))
+            {
+                unlink(entry);
+                expirationCount.incrementAndGet();
+            }
+        }
+        finally
+        {
+            evictionLock.unlock();
+        }
+    }
+
+    private boolean isExpired(Entry entry, long now)
+    {
+        return (expireAfterWrite > 0 && now - entry.writeTime >= expireAfterWrite)
+                || (expireAfterAccess > 0 && now - entry.accessTime >= expireAfterAccess);
+    }
+
+    private void evict(Entry entry)
+    {
+        data.remove(entry.key, entry);
+        unlink(entry);
+        evictionCount.incrementAndGet();
+    }
+
+    /**
+     * Removes given entry from its segment.
+     */
+    private void unlink(Entry entry)
+    {
+        switch (entry.queue)
+        {
+        case WINDOW:
+            window.remove(entry);
+            windowWeight -= entry.weight;
+            break;
+
+        case PROBATION:
+            probation.remove(entry);
+            mainWeight -= entry.weight;
+            break;
+
+        case PROTECTED:
+            protectedSegment.remove(entry);
+            mainWeight -= entry.weight;
+            protectedWeight -= entry.weight;
+            break;
+
+        default:
+            // not linked.
+        }
+        entry.queue = REMOVED;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Region [name=");
+        builder.append(name);
+        builder.append(", size=");
+        builder.append(size());
+        builder.append(", weight=");
+        builder.append(getWeight());
+        builder.append(", hits=");
+        builder.append(getHitCount());
+        builder.append(", misses=");
+        builder.append(getMissCount());
+        builder.append(", evicted=");
+        builder.append(getEvictionCount());
+        builder.append(", rejected=");
+        builder.append(getRejectionCount());
+        builder.append(", expired=");
+        builder.append(getExpirationCount());
+        builder.append("]");
+        return builder.toString();
+    }
+
+    /**
+     * Cached value, linked into one of the segments.
+     */
+    private static final class Entry
+    {
+        private final Object key;
+
+        private final Object value;
+
+        private final int weight;
+
+        private final long writeTime;
+
+        private volatile long accessTime;
+
+        /** Segment, guarded by eviction lock. */
+        private int queue = REMOVED;
+
+        private Entry prev;
+
+        private Entry next;
+
+        private Entry(Object key, Object value, int weight, long writeTime)
+        {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.writeTime = writeTime;
+            this.accessTime = writeTime;
+        }
+    }
+
+    /**
+     * Doubly linked list of entries, least recently used first.
+     */
+    private static final class EntryDeque
+    {
+        private Entry first;
+
+        private Entry last;
+
+        private void addLast(Entry entry)
+        {
+            entry.prev = last;
+            entry.next = null;
+            if (last == null)
+            {
+                first = entry;
+            }
+            else
+            {
+                last.next = entry;
+            }
+            last = entry;
+        }
+
+        private void remove(Entry entry)
+        {
+            if (entry.prev == null)
+            {
+                first = entry.next;
+            }
+            else
+            {
+                entry.prev.next = entry.next;
+            }
+            if (entry.next == null)
+            {
+                last = entry.prev;
+            }
+            else
+            {
+                entry.next.prev = entry.prev;
+            }
+            entry.prev = null;
+            entry.next = null;
+        }
+
+        private void moveToBack(Entry entry)
+        {
+            if (entry != last)
+            {
+                remove(entry);
+                addLast(entry);
+            }
+        }
+
+        private Entry peekFirst()
+        {
+            return first;
+        }
+
+        private Entry pollFirst()
+        {
+            Entry entry = first;
+            if (entry != null)
+            {
+                remove(entry);
+            }
+            return entry;
+        }
+
+        private void clear()
+        {
+            Entry entry = first;
+            while (entry != null)
+            {
+                Entry next = entry.next;
+                entry.prev = null;
+                entry.next = null;
+                entry.queue = REMOVED;
+                entry = next;
+            }
+            first = null;
+            last = null;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.cache.tinylfu;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.impetus.kundera.cache.Cache;
+
+/**
+ * Cache implementation holding entities in one W-TinyLFU {@link Region} per
+ * entity class, named after entity class. Untyped entries put through
+ * {@link #put(Object, Object)} are held in a region named after cache.
+ * 
+ * @see TinyLfuCacheProvider
+ */
+public class TinyLfuCache implements Cache
+{
+    /** Provider, creating regions as configured. */
+    private final TinyLfuCacheProvider provider;
+
+    /** Region of untyped entries. */
+    private final Region defaultRegion;
+
+    /** Entity regions, by entity class name. */
+    private final ConcurrentMap<String, Region> regions = new ConcurrentHashMap<String, Region>();
+
+    /**
+     * Instantiates a new cache.
+     * 
+     * @param name
+     *            cache name
+     * @param provider
+     *            provider of region configuration
+     */
+    TinyLfuCache(String name, TinyLfuCacheProvider provider)
+    {
+        this.provider = provider;
+        this.defaultRegion = provider.createRegion(name);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.cache.Cache#get(java.lang.Object)
+     */
+    @Override
+    public Object get(Object key)
+    {
+        return defaultRegion.get(key);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.cache.Cache#put(java.lang.Object,
+     * java.lang.Object)
+     */
+    @Override
+    public void put(Object key, Object value)
+    {
+        defaultRegion.put(key, value);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.cache.Cache#get(java.lang.Class,
+     * java.lang.Object)
+     */
+    @Override
+    public Object get(Class<?> entityClass, Object primaryKey)
+    {
+        return getRegion(entityClass, true).get(primaryKey);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.cache.Cache#put(java.lang.Class,
+     * java.lang.Object, java.lang.Object)
+     */
+    @Override
+    public void put(Class<?> entityClass, Object primaryKey, Object value)
+    {
+        getRegion(entityClass, true).put(primaryKey, value);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.cache.Cache#size()
+     */
+    @Override
+    public int size()
+    {
+        int size = defaultRegion.size();
+        for (Region region : regions.values())
+        {
+            size += region.size();
+        }
+        return size;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see javax.persistence.Cache#contains(java.lang.Class, java.lang.Object)
+     */
+    @Override
+    public boolean contains(Class arg0, Object arg1)
+    {
+        Region region = getRegion(arg0, false);
+        return (region != null && region.containsKey(arg1)) || defaultRegion.containsKey(arg1);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see javax.persistence.Cache#evict(java.lang.Class, java.lang.Object)
+     */
+    @Override
+    public void evict(Class arg0, Object arg1)
+    {
+        Region region = getRegion(arg0, false);
+        if (region != null)
+        {
+            region.remove(arg1);
+        }
+        defaultRegion.remove(arg1);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see javax.persistence.Cache#evict(java.lang.Class)
+     */
+    @Override
+    public void evict(Class arg0)
+    {
+        Region region = getRegion(arg0, false);
+        if (region != null)
+        {
+            region.clear();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see javax.persistence.Cache#evictAll()
+     */
+    @Override
+    public void evictAll()
+    {
+        defaultRegion.clear();
+        for (Region region : regions.values())
+        {
+            region.clear();
+        }
+    }
+
+    /**
+     * Returns region of given entity class, null if not yet there.
+     * 
+     * @param entityClass
+     *            the entity class
+     * @return the region
+     */
+    public Region getRegion(Class<?> entityClass)
+    {
+        return getRegion(entityClass, false);
+    }
+
+    /**
+     * @return entity regions, by entity class name.
+     */
+    public Map<String, Region> getRegions()
+    {
+        return Collections.unmodifiableMap(regions);
+    }
+
+    private Region getRegion(Class<?> entityClass, boolean create)
+    {
+        String name = entityClass.getName();
+        Region region = regions.get(name);
+        if (region == null && create)
+        {
+            Region newRegion = provider.createRegion(name);
+            region = regions.putIfAbsent(name, newRegion);
+            if (region == null)
+            {
+                region = newRegion;
+            }
+        }
+        return region;
+    }
+}
@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.cache.tinylfu;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.persistence.Cache;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.impetus.kundera.cache.CacheException;
+import com.impetus.kundera.cache.CacheProperties;
+import com.impetus.kundera.cache.CacheProvider;
+
+/**
+ * In-process cache provider with size aware W-TinyLFU eviction, see
+ * {@link Region}. Enabled through <code>kundera.cache.provider.class</code>,
+ * <code>kundera.cache.config.resource</code> may name a properties file on
+ * classpath holding region configuration, see {@link CacheProperties}:
+ * 
+ * <pre>
+ * max.bytes=33554432
+ * max.entries=65536
+ * expire.after.write=0
+ * expire.after.access=600000
+ * max.bytes.com.example.Person=8388608
+ * </pre>
+ */
+public class TinyLfuCacheProvider implements CacheProvider
+{
+    /** the log used by this class. */
+    private static Log log = LogFactory.getLog(TinyLfuCacheProvider.class);
+
+    /** Maximum weight of a region in bytes. */
+    public static final String MAX_BYTES = "max.bytes";
+
+    /**
+     * Expected maximum number of entries of a region, defaults to maximum
+     * weight divided by {@link Region#DEFAULT_ENTRY_WEIGHT}.
+     */
+    public static final String MAX_ENTRIES = "max.entries";
+
+    /** Milliseconds after write an entry expires, 0 for never. */
+    public static final String EXPIRE_AFTER_WRITE = "expire.after.write";
+
+    /** Milliseconds after last access an entry expires, 0 for never. */
+    public static final String EXPIRE_AFTER_ACCESS = "expire.after.access";
+
+    /** {@link Weigher} implementation class. */
+    public static final String WEIGHER = "weigher";
+
+    /** Default maximum weight of a region. */
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+    /** Region configuration, null until initialized. */
+    private CacheProperties properties;
+
+    /** Caches, by name. */
+    private final ConcurrentMap<String, TinyLfuCache> caches = new ConcurrentHashMap<String, TinyLfuCache>();
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.cache.CacheProvider#init(java.lang.String)
+     */
+    @Override
+    public synchronized void init(String cacheResourceName)
+    {
+        if (properties != null)
+        {
+            log.warn("Attempt to restart an already started CacheFactory. Using previously created TinyLfuCacheProvider.");
+            return;
+        }
+        properties = CacheProperties.load(cacheResourceName);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.cache.CacheProvider#init(java.util.Map)
+     */
+    @Override
+    public synchronized void init(Map<?, ?> properties)
+    {
+        if (this.properties != null)
+        {
+            log.warn("Attempt to restart an already started CacheFactory. Using previously created TinyLfuCacheProvider.");
+            return;
+        }
+        this.properties = CacheProperties.fromMap(properties);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.cache.CacheProvider#createCache(java.lang.String)
+     */
+    @Override
+    public Cache createCache(String name)
+    {
+        if (properties == null)
+        {
+            throw new CacheException("CacheFactory was not initialized. Call init() before creating a cache.");
+        }
+        TinyLfuCache cache = caches.get(name);
+        if (cache == null)
+        {
+            TinyLfuCache newCache = new TinyLfuCache(name, this);
+            cache = caches.putIfAbsent(name, newCache);
+            if (cache == null)
+            {
+                cache = newCache;
+            }
+        }
+        return cache;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.cache.CacheProvider#getCache(java.lang.String)
+     */
+    @Override
+    public Cache getCache(String name)
+    {
+        return createCache(name);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.cache.CacheProvider#shutdown()
+     */
+    @Override
+    public synchronized void shutdown()
+    {
+        for (TinyLfuCache cache : caches.values())
+        {
+            cache.evictAll();
+        }
+        caches.clear();
+        properties = null;
+    }
+
+    /**
+     * Creates region of given name, as configured.
+     * 
+     * @param name
+     *            region name
+     * @return new region
+     */
+    Region createRegion(String name)
+    {
+        long maxBytes = properties.getLongProperty(MAX_BYTES, name, DEFAULT_MAX_BYTES);
+        long maxEntries = properties.getLongProperty(MAX_ENTRIES, name, maxBytes / Region.DEFAULT_ENTRY_WEIGHT);
+        long expireAfterWrite = properties.getLongProperty(EXPIRE_AFTER_WRITE, name, 0);
+        long expireAfterAccess = properties.getLongProperty(EXPIRE_AFTER_ACCESS, name, 0);
+        return new Region(name, maxBytes, maxEntries, expireAfterWrite, expireAfterAccess, getWeigher(name));
+    }
+
+    private Weigher getWeigher(String region)
+    {
+        String weigherClassName = properties.getProperty(WEIGHER, region);
+        if (weigherClassName == null)
+        {
+            return new EntityWeigher();
+        }
+        try
+        {
+            return (Weigher) Class.forName(weigherClassName).newInstance();
+        }
+        catch (ClassNotFoundException e)
+        {
+            throw new CacheException("Could not find class " + weigherClassName
+                    + ". Check whether you spelled it correctly in cache configuration", e);
+        }
+        catch (InstantiationException e)
+        {
+            throw new CacheException("Could not instantiate " + weigherClassName, e);
+        }
+        catch (IllegalAccessException e)
+        {
+            throw new CacheException(e);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.cache.tinylfu;
+
+/**
+ * Estimates memory held by a cache entry, used to bound regions in bytes.
+ * Implementation must have a public no-arg constructor and be thread safe.
+ */
+public interface Weigher
+{
+
+    /**
+     * Returns estimated weight of given entry.
+     * 
+     * @param key
+     *            the key
+     * @param value
+     *            the value
+     * @return weight in bytes, not negative.
+     */
+    int weigh(Object key, Object value);
+}
@@ -18,6 +18,10 @@ package com.impetus.kundera.client;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
 
 import com.impetus.kundera.db.RelationHolder;
 import com.impetus.kundera.graph.Node;
@@ -27,6 +31,8 @@ import com.impetus.kundera.index.IndexManager;
 import com.impetus.kundera.metadata.KunderaMetadataManager;
 import com.impetus.kundera.metadata.MetadataUtils;
 import com.impetus.kundera.metadata.model.EntityMetadata;
+import com.impetus.kundera.metadata.model.KunderaMetadata;
+import com.impetus.kundera.metadata.model.MetamodelImpl;
 import com.impetus.kundera.metadata.model.Relation;
 import com.impetus.kundera.metadata.model.Relation.ForeignKey;
 
@@ -80,10 +86,70 @@ public abstract class ClientBase
         EntityMetadata metadata = KunderaMetadataManager.getEntityMetadata(node.getDataClass());
         isUpdate = node.isUpdate();
         List<RelationHolder> relationHolders = getRelationHolders(node);
-        onPersist(metadata, entity, id, relationHolders);
+
+        // write changed columns only, if client supports it.
+        List<Attribute> changedAttributes = isUpdate ? getChangedAttributes(metadata, node.getDirtyAttributes())
+                : null;
+        if (changedAttributes == null || !onUpdate(metadata, entity, id, changedAttributes))
+        {
+            onPersist(metadata, entity, id, relationHolders);
+        }
         indexNode(node, metadata);
     }
 
+    /**
+     * Returns attributes for given changed attribute names. Returns null, if
+     * changes are not known or any of them is a relation, in which case
+     * complete entity needs to be written.
+     * 
+     * @param metadata
+     *            entity metadata.
+     * @param dirtyAttributes
+     *            changed attribute names, may be null.
+     * @return changed attributes, id attribute excluded.
+     */
+    protected List<Attribute> getChangedAttributes(EntityMetadata metadata, Set<String> dirtyAttributes)
+    {
+        if (dirtyAttributes == null || dirtyAttributes.isEmpty())
+        {
+            return null;
+        }
+
+        MetamodelImpl metaModel = (MetamodelImpl) KunderaMetadata.INSTANCE.getApplicationMetadata().getMetamodel(
+                metadata.getPersistenceUnit());
+        EntityType entityType = metaModel.entity(metadata.getEntityClazz());
+
+        List<Attribute> changedAttributes = new ArrayList<Attribute>(dirtyAttributes.size());
+        for (String attributeName : dirtyAttributes)
+        {
+            if (metadata.getRelation(attributeName) != null)
+            {
+                return null;
+            }
+
+            Attribute attribute;
+            try
+            {
+                attribute = entityType.getAttribute(attributeName);
+            }
+            catch (IllegalArgumentException e)
+            {
+                // not a persistent attribute.
+                continue;
+            }
+
+            if (attribute.isAssociation())
+            {
+                return null;
+            }
+            if (!attribute.getName().equals(metadata.getIdAttribute().getName()))
+            {
+                changedAttributes.add(attribute);
+            }
+        }
+        return changedAttributes;
+    }
+
     /**
      * @param node
      * @return
@@ -145,7 +211,10 @@ public abstract class ClientBase
      */
     protected void indexNode(Node node, EntityMetadata entityMetadata)
     {
-        if (!MetadataUtils.useSecondryIndex(getPersistenceUnit()))
+        // documents of an update remain as they are, unless indexed
+        // attributes changed.
+        if (!MetadataUtils.useSecondryIndex(getPersistenceUnit())
+                && (!node.isUpdate() || indexManager.isIndexChanged(entityMetadata, node.getDirtyAttributes())))
         {
             Map<NodeLink, Node> parents = node.getParents();
             if (parents != null)
@@ -199,4 +268,28 @@ public abstract class ClientBase
      */
     protected abstract void onPersist(EntityMetadata entityMetadata, Object entity, Object id,
             List<RelationHolder> rlHolders);
+
+    /**
+     * Method to be overridden by clients capable of writing only changed
+     * columns of an already persisted entity. Relations are never among
+     * changed attributes, so foreign keys remain as they are. Default
+     * implementation returns false, so that complete entity is written via
+     * {@link #onPersist(EntityMetadata, Object, Object, List)}.
+     * 
+     * @param entityMetadata
+     *            entity metadata.
+     * @param entity
+     *            entity object.
+     * @param id
+     *            entity id.
+     * @param changedAttributes
+     *            attributes changed since entity was last written.
+     * @return true, if update is written. False if client can not write
+     *         these changes partially.
+     */
+    protected boolean onUpdate(EntityMetadata entityMetadata, Object entity, Object id,
+            List<Attribute> changedAttributes)
+    {
+        return false;
+    }
 }
@@ -48,6 +48,7 @@ import com.impetus.kundera.metadata.model.MetamodelImpl;
 import com.impetus.kundera.metadata.model.PersistenceUnitMetadata;
 import com.impetus.kundera.metadata.validator.EntityValidator;
 import com.impetus.kundera.metadata.validator.EntityValidatorImpl;
+import com.impetus.kundera.utils.EntityCopier;
 
 /**
  * The Metamodel configurer: a) Configure application meta data b) loads entity
@@ -226,6 +227,12 @@ public class MetamodelConfiguration implements Configuration
         ((MetamodelImpl) metamodel).assignManagedTypes(KunderaMetadata.INSTANCE.getApplicationMetadata().getMetaModelBuilder(persistenceUnit).getManagedTypes());
         ((MetamodelImpl) metamodel).assignMappedSuperClass(KunderaMetadata.INSTANCE.getApplicationMetadata().getMetaModelBuilder(persistenceUnit).getMappedSuperClassTypes());
 
+        // build entity copiers, once metamodel is complete.
+        for (EntityMetadata entityMetadata : entityMetadataMap.values())
+        {
+            entityMetadata.setEntityCopier(EntityCopier.build(entityMetadata, (MetamodelImpl) metamodel));
+        }
+
         validateEntityForClientSpecificProperty(classes, persistenceUnit);
         
         
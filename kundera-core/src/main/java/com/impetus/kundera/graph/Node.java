@@ -15,10 +15,12 @@
  */
 package com.impetus.kundera.graph;
 
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
-import org.apache.commons.lang.builder.HashCodeBuilder;
 
 import com.impetus.kundera.client.Client;
 import com.impetus.kundera.lifecycle.NodeStateContext;
@@ -37,7 +39,7 @@ public class Node implements NodeStateContext
 {
 
     // ID of a node into object graph
-    private String nodeId;
+    private NodeKey nodeId;
 
     // Primary key of entity data contained in this node
     private Object entityId;
@@ -63,6 +65,10 @@ public class Node implements NodeStateContext
     // Whether this node is dirty
     private boolean dirty;
 
+    // Attributes changed since last flush, if tracked by entity. Null means
+    // all attributes are to be written.
+    private Set<String> dirtyAttributes;
+
     // Whether this is a head node
     private boolean isHeadNode;
 
@@ -87,7 +93,7 @@ public class Node implements NodeStateContext
 
     private boolean isProcessed;
 
-    public Node(String nodeId, Object data, PersistenceCache pc, Object primaryKey)
+    public Node(NodeKey nodeId, Object data, PersistenceCache pc, Object primaryKey)
     {
         initializeNode(nodeId, data, primaryKey);
         setPersistenceCache(pc);
@@ -96,7 +102,7 @@ public class Node implements NodeStateContext
         this.currentNodeState = new TransientState();
     }
 
-    public Node(String nodeId, Object data, NodeState initialNodeState, PersistenceCache pc, Object primaryKey)
+    public Node(NodeKey nodeId, Object data, NodeState initialNodeState, PersistenceCache pc, Object primaryKey)
     {
         initializeNode(nodeId, data, primaryKey);
         setPersistenceCache(pc);
@@ -113,7 +119,7 @@ public class Node implements NodeStateContext
 
     }
 
-    public Node(String nodeId, Class<?> nodeDataClass, NodeState initialNodeState, PersistenceCache pc,
+    public Node(NodeKey nodeId, Class<?> nodeDataClass, NodeState initialNodeState, PersistenceCache pc,
             Object primaryKey)
     {
         this.nodeId = nodeId;
@@ -132,7 +138,7 @@ public class Node implements NodeStateContext
         }
     }
 
-    private void initializeNode(String nodeId, Object data, Object primaryKey)
+    private void initializeNode(NodeKey nodeId, Object data, Object primaryKey)
     {
         this.nodeId = nodeId;
         this.data = data;
@@ -145,7 +151,7 @@ public class Node implements NodeStateContext
      * @return the nodeId
      */
     @Override
-    public String getNodeId()
+    public NodeKey getNodeId()
     {
         return nodeId;
     }
@@ -155,7 +161,7 @@ public class Node implements NodeStateContext
      *            the nodeId to set
      */
     @Override
-    public void setNodeId(String nodeId)
+    public void setNodeId(NodeKey nodeId)
     {
         this.nodeId = nodeId;
     }
@@ -267,7 +273,7 @@ public class Node implements NodeStateContext
      * Retrieves parent node of this node for a given parent node ID
      */
     @Override
-    public Node getParentNode(String parentNodeId)
+    public Node getParentNode(NodeKey parentNodeId)
     {
         NodeLink link = new NodeLink(parentNodeId, getNodeId());
 
@@ -286,7 +292,7 @@ public class Node implements NodeStateContext
      */
 
     @Override
-    public Node getChildNode(String childNodeId)
+    public Node getChildNode(NodeKey childNodeId)
     {
         NodeLink link = new NodeLink(getNodeId(), childNodeId);
 
@@ -356,6 +362,43 @@ public class Node implements NodeStateContext
     public void setDirty(boolean dirty)
     {
         this.dirty = dirty;
+        if (!dirty)
+        {
+            this.dirtyAttributes = null;
+        }
+    }
+
+    /**
+     * Returns names of attributes changed since node was last flushed, for
+     * entities tracking their own changes.
+     * 
+     * @return the dirtyAttributes, null if not known and all attributes are
+     *         to be written.
+     */
+    public Set<String> getDirtyAttributes()
+    {
+        return dirtyAttributes;
+    }
+
+    /**
+     * Adds changed attributes to this node and marks it as dirty.
+     * 
+     * @param attributes
+     *            names of changed attributes
+     */
+    public void addDirtyAttributes(Collection<String> attributes)
+    {
+        if (dirty && dirtyAttributes == null)
+        {
+            // already to be written as whole.
+            return;
+        }
+        if (dirtyAttributes == null)
+        {
+            dirtyAttributes = new HashSet<String>();
+        }
+        dirtyAttributes.addAll(attributes);
+        this.dirty = true;
     }
 
     /**
@@ -432,7 +475,7 @@ public class Node implements NodeStateContext
     @Override
     public int hashCode()
     {
-        return HashCodeBuilder.reflectionHashCode(this.nodeId);
+        return this.nodeId.hashCode();
     }
 
     // ////////////////////////////////////////
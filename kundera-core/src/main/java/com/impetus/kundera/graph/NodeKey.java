@@ -0,0 +1,152 @@
+/**
+ * Copyright 2012 Impetus Infotech.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.impetus.kundera.graph;
+
+import com.impetus.kundera.Constants;
+
+/**
+ * Identity of a {@link Node}, i.e. entity class and primary key. Replaces node
+ * ids built as <code>className + "$" + pk</code>, so that finding a node
+ * neither builds nor hashes a string.
+ *
+ * Keys compare equal exactly when such string ids did: primary keys of
+ * different types, e.g. a foreign key read back as string, match when their
+ * string forms do. Hash code is computed once, on construction.
+ */
+public final class NodeKey
+{
+    /** The entity class. */
+    private final Class<?> entityClass;
+
+    /** The primary key. */
+    private final Object entityId;
+
+    /** Cached hash code. */
+    private final int hash;
+
+    /**
+     * Instantiates a new node key.
+     *
+     * @param entityClass
+     *            the entity class
+     * @param entityId
+     *            the primary key, not null
+     */
+    public NodeKey(Class<?> entityClass, Object entityId)
+    {
+        this.entityClass = entityClass;
+        this.entityId = entityId;
+        this.hash = 31 * entityClass.hashCode() + hashOf(entityId);
+    }
+
+    /**
+     * @return the entity class
+     */
+    public Class<?> getEntityClass()
+    {
+        return entityClass;
+    }
+
+    /**
+     * @return the primary key
+     */
+    public Object getEntityId()
+    {
+        return entityId;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj)
+        {
+            return true;
+        }
+
+        if (!(obj instanceof NodeKey))
+        {
+            return false;
+        }
+
+        NodeKey other = (NodeKey) obj;
+        if (hash != other.hash || entityClass != other.entityClass)
+        {
+            return false;
+        }
+        return entityId.equals(other.entityId)
+                || (entityId.getClass() != other.entityId.getClass() && entityId.toString().equals(
+                        other.entityId.toString()));
+    }
+
+    @Override
+    public String toString()
+    {
+        return entityClass.getName() + Constants.NODE_ID_SEPARATOR + entityId;
+    }
+
+    /**
+     * Returns hash code of string form of given primary key, without building
+     * it for integral keys.
+     */
+    private static int hashOf(Object id)
+    {
+        if (id instanceof String)
+        {
+            return id.hashCode();
+        }
+        else if (id instanceof Integer || id instanceof Long || id instanceof Short || id instanceof Byte)
+        {
+            return decimalHash(((Number) id).longValue());
+        }
+        return id.toString().hashCode();
+    }
+
+    /**
+     * Returns what <code>Long.toString(value).hashCode()</code> would.
+     */
+    private static int decimalHash(long value)
+    {
+        if (value == Long.MIN_VALUE)
+        {
+            return Long.toString(value).hashCode();
+        }
+
+        int h = 0;
+        if (value < 0)
+        {
+            h = '-';
+            value = -value;
+        }
+
+        long divisor = 1;
+        while (value / divisor >= 10)
+        {
+            divisor *= 10;
+        }
+        while (divisor > 0)
+        {
+            h = 31 * h + (int) ('0' + value / divisor % 10);
+            divisor /= 10;
+        }
+        return h;
+    }
+}
@@ -37,9 +37,9 @@ public class NodeLink
         // Add more if required
     };
 
-    private String sourceNodeId;
+    private NodeKey sourceNodeId;
 
-    private String targetNodeId;
+    private NodeKey targetNodeId;
 
     // Multiplicity of relationship
     private Relation.ForeignKey multiplicity;
@@ -52,7 +52,7 @@ public class NodeLink
 
     }
 
-    public NodeLink(String sourceNodeId, String targetNodeId)
+    public NodeLink(NodeKey sourceNodeId, NodeKey targetNodeId)
     {
         this.sourceNodeId = sourceNodeId;
         this.targetNodeId = targetNodeId;
@@ -61,7 +61,7 @@ public class NodeLink
     /**
      * @return the sourceNodeId
      */
-    public String getSourceNodeId()
+    public NodeKey getSourceNodeId()
     {
         return sourceNodeId;
     }
@@ -70,7 +70,7 @@ public class NodeLink
      * @param sourceNodeId
      *            the sourceNodeId to set
      */
-    public void setSourceNodeId(String sourceNodeId)
+    public void setSourceNodeId(NodeKey sourceNodeId)
     {
         this.sourceNodeId = sourceNodeId;
     }
@@ -78,7 +78,7 @@ public class NodeLink
     /**
      * @return the targetNodeId
      */
-    public String getTargetNodeId()
+    public NodeKey getTargetNodeId()
     {
         return targetNodeId;
     }
@@ -87,7 +87,7 @@ public class NodeLink
      * @param targetNodeId
      *            the targetNodeId to set
      */
-    public void setTargetNodeId(String targetNodeId)
+    public void setTargetNodeId(NodeKey targetNodeId)
     {
         this.targetNodeId = targetNodeId;
     }
@@ -30,11 +30,11 @@ public class ObjectGraph
 
     // Mapping between Node ID and Node itself
     // Each node contains link to parent/ child nodes it is related to
-    private Map<String, Node> nodeMapping;
+    private Map<NodeKey, Node> nodeMapping;
 
     public ObjectGraph()
     {
-        nodeMapping = new HashMap<String, Node>();
+        nodeMapping = new HashMap<NodeKey, Node>();
     }
 
     /**
@@ -43,7 +43,7 @@ public class ObjectGraph
      * @param nodeId
      * @param node
      */
-    public void addNode(String nodeId, Node node)
+    public void addNode(NodeKey nodeId, Node node)
     {
         nodeMapping.put(nodeId, node);
     }
@@ -54,7 +54,7 @@ public class ObjectGraph
      * @param nodeId
      * @return
      */
-    public Node getNode(String nodeId)
+    public Node getNode(NodeKey nodeId)
     {
         return nodeMapping.get(nodeId);
     }
@@ -79,7 +79,7 @@ public class ObjectGraph
     /**
      * @return the nodeMapping
      */
-    public Map<String, Node> getNodeMapping()
+    public Map<NodeKey, Node> getNodeMapping()
     {
         return nodeMapping;
     }
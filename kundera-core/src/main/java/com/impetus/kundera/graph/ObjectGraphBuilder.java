@@ -18,14 +18,15 @@ package com.impetus.kundera.graph;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
-import com.impetus.kundera.Constants;
 import com.impetus.kundera.graph.NodeLink.LinkProperty;
 import com.impetus.kundera.lifecycle.states.NodeState;
 import com.impetus.kundera.metadata.KunderaMetadataManager;
 import com.impetus.kundera.metadata.MetadataUtils;
 import com.impetus.kundera.metadata.model.EntityMetadata;
 import com.impetus.kundera.metadata.model.Relation;
+import com.impetus.kundera.persistence.api.DirtyTrackable;
 import com.impetus.kundera.persistence.context.PersistenceCache;
 import com.impetus.kundera.property.PropertyAccessorHelper;
 import com.impetus.kundera.utils.DeepEquals;
@@ -63,24 +64,14 @@ public class ObjectGraphBuilder
     }
 
 
-    public static String getNodeId(Object pk, Object nodeData)
+    public static NodeKey getNodeId(Object pk, Object nodeData)
     {
-        StringBuffer strBuffer = new StringBuffer(nodeData.getClass().getName());
-        strBuffer.append(Constants.NODE_ID_SEPARATOR);
-        strBuffer.append(pk);
-        return strBuffer.toString();
+        return ObjectGraphUtils.getNodeId(pk, nodeData);
     }
 
-    public static String getNodeId(Object pk, Class<?> objectClass)
+    public static NodeKey getNodeId(Object pk, Class<?> objectClass)
     {
-
-        StringBuffer strBuffer = new StringBuffer(objectClass.getName());
-        strBuffer.append(Constants.NODE_ID_SEPARATOR);
-        strBuffer.append(pk);
-        return strBuffer.toString();
-
-        // return objectClass.getName() + Constants.NODE_ID_SEPARATOR +
-        // pk.toString();
+        return ObjectGraphUtils.getNodeId(pk, objectClass);
     }
 
 
@@ -100,7 +91,7 @@ public class ObjectGraphBuilder
             return null;
         }
         Object id = PropertyAccessorHelper.getId(entity, entityMetadata);
-        String nodeId = ObjectGraphUtils.getNodeId(id, entity);
+        NodeKey nodeId = ObjectGraphUtils.getNodeId(id, entity);
 
         // If this node is already there in graph (may happen for bidirectional
         // relationship, do nothing and return null)
@@ -125,13 +116,36 @@ public class ObjectGraphBuilder
         node = null;
         Node nodeInPersistenceCache = persistenceCache.getMainCache().getNodeFromCache(nodeId);
 
+        // Entities tracking their own changes need no snapshot
+        boolean isTracked = entity instanceof DirtyTrackable;
+
         // Make a deep copy of entity data
-        Object nodeDataCopy = ObjectUtils.deepCopy(entity);
+        Object nodeDataCopy = isTracked ? entity : ObjectUtils.deepCopy(entity);
 
         if (nodeInPersistenceCache == null)
         {
             node = new Node(nodeId, nodeDataCopy, initialNodeState, persistenceCache,id);
+            if (isTracked)
+            {
+                ((DirtyTrackable) entity).clearDirtyAttributes();
+            }
+        }
+        else if (isTracked)
+        {
+            node = nodeInPersistenceCache;
 
+            // Changed attributes are recorded by entity itself
+            Set<String> dirtyAttributes = ((DirtyTrackable) entity).getDirtyAttributes();
+            if (dirtyAttributes != null && !dirtyAttributes.isEmpty())
+            {
+                node.setData(entity);
+                node.addDirtyAttributes(dirtyAttributes);
+                ((DirtyTrackable) entity).clearDirtyAttributes();
+            }
+            else if (node.getDirtyAttributes() == null)
+            {
+                node.setDirty(false);
+            }
         }
         else
         {
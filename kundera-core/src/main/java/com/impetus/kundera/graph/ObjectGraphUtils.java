@@ -15,8 +15,6 @@
  */
 package com.impetus.kundera.graph;
 
-import com.impetus.kundera.Constants;
-
 /**
  * Provides utility methods for object graph
  * 
@@ -24,28 +22,19 @@ import com.impetus.kundera.Constants;
  */
 public class ObjectGraphUtils
 {
-    public static String getNodeId(Object pk, Object nodeData)
+    public static NodeKey getNodeId(Object pk, Object nodeData)
     {
-        StringBuffer strBuffer = new StringBuffer(nodeData.getClass().getName());
-        strBuffer.append(Constants.NODE_ID_SEPARATOR);
-        strBuffer.append(pk);
-        return strBuffer.toString();
+        return new NodeKey(nodeData.getClass(), pk);
     }
 
-    public static String getNodeId(Object pk, Class<?> objectClass)
+    public static NodeKey getNodeId(Object pk, Class<?> objectClass)
     {
-
-        StringBuffer strBuffer = new StringBuffer(objectClass.getName());
-        strBuffer.append(Constants.NODE_ID_SEPARATOR);
-        strBuffer.append(pk);
-        return strBuffer.toString();
-
+        return new NodeKey(objectClass, pk);
     }
 
-    public static Object getEntityId(String nodeId)
+    public static Object getEntityId(NodeKey nodeId)
     {
-
-        return nodeId.substring(nodeId.indexOf(Constants.NODE_ID_SEPARATOR) + 1, nodeId.length());
+        return nodeId.getEntityId();
     }
 
 }
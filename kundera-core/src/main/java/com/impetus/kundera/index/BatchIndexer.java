@@ -0,0 +1,36 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.index;
+
+import java.util.Collection;
+
+/**
+ * Indexer capable of applying changes of many entities in one pass, each
+ * replacing documents of an entity without having to search for them first.
+ * {@link IndexManager} collects changes of a flush and applies them through
+ * it; changes are applied one by one to other indexers.
+ */
+public interface BatchIndexer extends Indexer
+{
+
+    /**
+     * Applies given changes, in order.
+     *
+     * @param updates
+     *            the updates
+     */
+    void update(Collection<IndexUpdate> updates);
+}
@@ -28,6 +28,7 @@ import org.apache.lucene.analysis.Tokenizer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.NumericField;
 import org.apache.lucene.util.Version;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -62,7 +63,12 @@ public abstract class DocumentIndexer implements Indexer
     /** The Constant ENTITY_ID_FIELD. */
     public static final String ENTITY_ID_FIELD = UUID + ".entity.id";
 
-    /** The Constant KUNDERA_ID_FIELD. */
+    /**
+     * The Constant KUNDERA_ID_FIELD, indexed not analyzed so that documents of
+     * an entity are updated and deleted by it. Indexes written before it was
+     * indexed keep stale documents of updated and removed entities, and need
+     * to be rebuilt: delete index directory and write entities again.
+     */
     public static final String KUNDERA_ID_FIELD = UUID + ".kundera.id";
 
     /** The Constant ENTITY_INDEXNAME_FIELD. */
@@ -77,6 +83,9 @@ public abstract class DocumentIndexer implements Indexer
     /** The Constant SUPERCOLUMN_INDEX. */
     protected static final String SUPERCOLUMN_INDEX = UUID + ".entity.super.indexname";
 
+    /** Suffix of fields holding numeric and date properties as numbers. */
+    public static final String NUMERIC_FIELD_SUFFIX = ".numeric";
+
     /** The Constant PARENT_ID_FIELD. */
     public static final String PARENT_ID_FIELD = UUID + ".parent.id";
 
@@ -266,7 +275,8 @@ public abstract class DocumentIndexer implements Indexer
             document.add(luceneField);
 
             // index namespace for unique deletion
-            luceneField = new Field(KUNDERA_ID_FIELD, getKunderaId(metadata, id), Field.Store.YES, Field.Index.NO); // adding
+            luceneField = new Field(KUNDERA_ID_FIELD, getKunderaId(metadata, id), Field.Store.YES,
+                    Field.Index.NOT_ANALYZED_NO_NORMS); // adding
             // class
             // namespace
             // Field.Store.YES/*, Field.Index.ANALYZED_NO_NORMS*/);
@@ -314,9 +324,17 @@ public abstract class DocumentIndexer implements Indexer
             // String value = (obj == null) ? null : obj.toString();
             if (obj != null)
             {
-                Field luceneField = new Field(getCannonicalPropertyName(indexName, colName), obj.toString(),
-                        Field.Store.YES, Field.Index.ANALYZED_NO_NORMS);
+                String fieldName = getCannonicalPropertyName(indexName, colName);
+                Field luceneField = new Field(fieldName, obj.toString(), Field.Store.YES,
+                        Field.Index.ANALYZED_NO_NORMS);
                 document.add(luceneField);
+
+                // numbers and dates are searched by range as numbers too.
+                NumericField numericField = LuceneQueryUtils.getNumericField(fieldName, obj);
+                if (numericField != null)
+                {
+                    document.add(numericField);
+                }
             }
             else
             {
@@ -15,11 +15,21 @@
  ******************************************************************************/
 package com.impetus.kundera.index;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
+
+import org.apache.lucene.search.Query;
 
 import com.impetus.kundera.Constants;
 import com.impetus.kundera.metadata.MetadataUtils;
 import com.impetus.kundera.metadata.model.EntityMetadata;
+import com.impetus.kundera.metadata.model.PropertyIndex;
 import com.impetus.kundera.property.PropertyAccessException;
 import com.impetus.kundera.property.PropertyAccessorHelper;
 
@@ -35,6 +45,14 @@ public class IndexManager
     /** The indexer. */
     private Indexer indexer;
 
+    /**
+     * Batch of calling thread, null if none is open. Batches belong to the
+     * flush which began them, so that changes written by other entity
+     * managers or write behind threads through this manager meanwhile are
+     * neither held back nor dropped with them.
+     */
+    private final ThreadLocal<Batch> currentBatch = new ThreadLocal<Batch>();
+
     /**
      * The Constructor.
      * 
@@ -61,7 +79,7 @@ public class IndexManager
     {
         if (!MetadataUtils.useSecondryIndex(metadata.getPersistenceUnit()))
         {
-            indexer.unindex(metadata, key);
+            addUpdate(IndexUpdate.remove(metadata, key));
         }
 
     }
@@ -82,14 +100,8 @@ public class IndexManager
             if (!MetadataUtils.useSecondryIndex(metadata.getPersistenceUnit()))
             {
                 Object id = PropertyAccessorHelper.getId(entity, metadata);
-
-                boolean documentExists = indexer.entityExistsInIndex(entity.getClass());
-                if (documentExists)
-                {
-                    indexer.unindex(metadata, id);
-                    indexer.flush();
-                }
-                indexer.index(metadata, entity, parentId.toString(), clazz);
+                addUpdate(IndexUpdate.update(metadata, id, entity, parentId != null ? parentId.toString() : null,
+                        clazz));
             }
         }
         catch (PropertyAccessException e)
@@ -108,10 +120,7 @@ public class IndexManager
      */
     public final void write(EntityMetadata metadata, Object entity)
     {
-        if (!MetadataUtils.useSecondryIndex(metadata.getPersistenceUnit()))
-        {
-            indexer.index(metadata, entity);
-        }
+        update(metadata, entity, null, null);
     }
 
     /**
@@ -128,9 +137,201 @@ public class IndexManager
      */
     public final void write(EntityMetadata metadata, Object entity, String parentId, Class<?> clazz)
     {
-        if (!MetadataUtils.useSecondryIndex(metadata.getPersistenceUnit()))
+        update(metadata, entity, parentId, clazz);
+    }
+
+    /**
+     * Checks whether changes of given attributes of an already indexed
+     * entity change its documents.
+     * 
+     * @param metadata
+     *            the metadata
+     * @param changedAttributes
+     *            names of changed attributes, null if not known.
+     * @return true, if entity needs to be indexed again.
+     */
+    public final boolean isIndexChanged(EntityMetadata metadata, Set<String> changedAttributes)
+    {
+        if (changedAttributes == null || metadata.getType().equals(EntityMetadata.Type.SUPER_COLUMN_FAMILY))
+        {
+            return true;
+        }
+        for (String attributeName : changedAttributes)
+        {
+            // relations decide parent of documents.
+            if (metadata.getRelation(attributeName) != null)
+            {
+                return true;
+            }
+            for (PropertyIndex index : metadata.getIndexProperties())
+            {
+                if (index.getProperty().getName().equals(attributeName))
+                {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Starts collecting index changes of calling thread, to be applied
+     * together by {@link #endBatch()}. Batches may be nested, changes being
+     * applied when outermost one ends. Other threads writing for the same
+     * flush join returned batch through {@link #joinBatch(Batch)}.
+     * 
+     * @return batch of calling thread.
+     */
+    public Batch beginBatch()
+    {
+        Batch batch = currentBatch.get();
+        if (batch == null)
+        {
+            batch = new Batch();
+            currentBatch.set(batch);
+        }
+        batch.depth++;
+        return batch;
+    }
+
+    /**
+     * Applies index changes collected since {@link #beginBatch()} of calling
+     * thread. Later changes of an entity supersede earlier ones, so that each
+     * entity changed is indexed once. Nothing is applied if a nested batch was
+     * discarded.
+     */
+    public void endBatch()
+    {
+        Batch batch = currentBatch.get();
+        if (batch == null || --batch.depth > 0)
+        {
+            return;
+        }
+        currentBatch.remove();
+
+        Collection<IndexUpdate> updates;
+        synchronized (batch)
+        {
+            updates = batch.discarded ? Collections.<IndexUpdate> emptyList() : new ArrayList<IndexUpdate>(
+                    batch.pendingUpdates.values());
+        }
+        applyUpdates(updates);
+    }
+
+    /**
+     * Ends batch begun by {@link #beginBatch()} of calling thread without
+     * applying its changes, e.g. because flushing entities failed. Changes of
+     * entities written before the failure are dropped as well, so index may
+     * miss them until they are written again; it never holds changes which
+     * were not written.
+     */
+    public void discardBatch()
+    {
+        Batch batch = currentBatch.get();
+        if (batch == null)
+        {
+            return;
+        }
+        if (--batch.depth > 0)
         {
-            indexer.index(metadata, entity, parentId, clazz);
+            batch.discarded = true;
+            return;
+        }
+        currentBatch.remove();
+    }
+
+    /**
+     * Makes calling thread collect its index changes into given batch, begun
+     * by another thread of the same flush. Only the thread which began the
+     * batch ends it.
+     * 
+     * @param batch
+     *            batch to join, null to collect no more.
+     * @return batch calling thread collected into before, to be joined again
+     *         when done.
+     */
+    public Batch joinBatch(Batch batch)
+    {
+        Batch previous = currentBatch.get();
+        if (batch != null)
+        {
+            currentBatch.set(batch);
+        }
+        else
+        {
+            currentBatch.remove();
+        }
+        return previous;
+    }
+
+    /**
+     * Adds change to batch of calling thread, or applies it if no batch is
+     * open.
+     */
+    private void addUpdate(IndexUpdate update)
+    {
+        Batch batch = currentBatch.get();
+        if (batch == null)
+        {
+            applyUpdates(Collections.singletonList(update));
+            return;
+        }
+
+        synchronized (batch)
+        {
+            String key = update.getMetadata().getEntityClazz().getName() + "|" + update.getId();
+            IndexUpdate pending = batch.pendingUpdates.get(key);
+            if (pending != null && !pending.isRemove() && !update.isRemove())
+            {
+                // same entity indexed again, maybe with another parent.
+                update.getParents().putAll(pending.getParents());
+                batch.pendingUpdates.put(key, update);
+            }
+            else
+            {
+                batch.pendingUpdates.remove(key);
+                batch.pendingUpdates.put(key, update);
+            }
+        }
+    }
+
+    /**
+     * Applies changes through indexer.
+     */
+    private void applyUpdates(Collection<IndexUpdate> updates)
+    {
+        if (updates.isEmpty())
+        {
+            return;
+        }
+        if (indexer instanceof BatchIndexer)
+        {
+            ((BatchIndexer) indexer).update(updates);
+            return;
+        }
+
+        for (IndexUpdate update : updates)
+        {
+            if (update.isRemove())
+            {
+                indexer.unindex(update.getMetadata(), update.getId());
+                continue;
+            }
+            if (indexer.entityExistsInIndex(update.getEntity().getClass()))
+            {
+                indexer.unindex(update.getMetadata(), update.getId());
+            }
+            for (Map.Entry<String, Class<?>> parent : update.getParents().entrySet())
+            {
+                if (parent.getKey() != null)
+                {
+                    indexer.index(update.getMetadata(), update.getEntity(), parent.getKey(), parent.getValue());
+                }
+                else
+                {
+                    indexer.index(update.getMetadata(), update.getEntity());
+                }
+            }
         }
     }
 
@@ -209,6 +410,64 @@ public class IndexManager
         return indexer.search(query, start, count, fetchRelation);
     }
 
+    /**
+     * Searches on the index with a Lucene query built already. Indexers other
+     * than {@link LuceneIndexer} get its text form.
+     * 
+     * @param query
+     *            the query
+     * @param start
+     *            the start
+     * @param count
+     *            the count
+     * @return the list
+     */
+    public final Map<String, String> search(Query query, int start, int count)
+    {
+        if (indexer instanceof LuceneIndexer)
+        {
+            return ((LuceneIndexer) indexer).search(query, start, count, false);
+        }
+        return indexer.search(query.toString(), start, count, false);
+    }
+
+    /**
+     * Searches ids of children of given class indexed under any of given
+     * parents. {@link LuceneIndexer} runs one query for many parents, other
+     * indexers are searched once per parent.
+     * 
+     * @param parentClass
+     *            class of parents
+     * @param parentIds
+     *            ids of parents
+     * @param childClass
+     *            class of children
+     * @return ids of children by id of parent, parents without children are
+     *         left out
+     */
+    public final Map<String, Set<String>> searchChildren(Class<?> parentClass, Collection<?> parentIds,
+            Class<?> childClass)
+    {
+        if (indexer instanceof LuceneIndexer)
+        {
+            return ((LuceneIndexer) indexer).searchChildren(parentClass, parentIds, childClass);
+        }
+
+        Map<String, Set<String>> children = new HashMap<String, Set<String>>();
+        for (Object parentId : parentIds)
+        {
+            String query = LuceneQueryUtils.getQuery(DocumentIndexer.PARENT_ID_CLASS, parentClass.getCanonicalName()
+                    .toLowerCase(), DocumentIndexer.PARENT_ID_FIELD, parentId, childClass.getCanonicalName()
+                    .toLowerCase());
+            Set<String> childIds = new HashSet<String>(search(query).values());
+            if (!childIds.isEmpty())
+            {
+                children.put(parentId.toString(), childIds);
+            }
+        }
+        return children;
+    }
+
     /**
      * Flushes out the indexes, keeping RAM directory open.
      */
@@ -230,4 +489,19 @@ public class IndexManager
             indexer.close();
         }
     }
+
+    /**
+     * Index changes collected by a flush, shared by threads writing for it.
+     */
+    public static final class Batch
+    {
+        /** Changes by entity. */
+        private final Map<String, IndexUpdate> pendingUpdates = new LinkedHashMap<String, IndexUpdate>();
+
+        /** Number of batches begun and not ended yet by flushing thread. */
+        private int depth;
+
+        /** Whether a nested batch was discarded. */
+        private boolean discarded;
+    }
 }
@@ -0,0 +1,593 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.index.IndexCommit;
+import org.apache.lucene.index.IndexFileNameFilter;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.KeepOnlyLastCommitDeletionPolicy;
+import org.apache.lucene.index.LogDocMergePolicy;
+import org.apache.lucene.index.SnapshotDeletionPolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Version;
+
+import com.impetus.kundera.PersistenceProperties;
+
+/**
+ * One Lucene index of {@link LuceneIndexer}, with its own directory, writer
+ * and near-real-time reader, so that writes to different partitions do not
+ * contend and merges of one do not touch others.
+ */
+class IndexPartition
+{
+
+    /** log for this class. */
+    private static Log log = LogFactory.getLog(IndexPartition.class);
+
+    /** Id of commit snapshot being copied to disk. */
+    private static final String SNAPSHOT_ID = "kundera";
+
+    /** Name of file pointing to latest segments file. */
+    private static final String SEGMENTS_GEN = "segments.gen";
+
+    /** The name. */
+    private final String name;
+
+    /** Directory of partition in index home dir. */
+    private final File indexDirectory;
+
+    /** Whether index is written to index home dir directly. */
+    private final boolean onDisk;
+
+    /** The index. */
+    private final Directory index;
+
+    /** Keeps commit being copied to disk from being deleted by writer. */
+    private final SnapshotDeletionPolicy snapshotter;
+
+    /** The writer. */
+    private final IndexWriter writer;
+
+    /** Near-real-time reader shared by searches. */
+    private final IndexReaderManager readerManager;
+
+    /** Number of changes made to index. */
+    private final AtomicLong changeCount = new AtomicLong();
+
+    /** Number of changes made before reader was last reopened. */
+    private volatile long reopenedCount;
+
+    /** Serializes reopens on change, see {@link #acquireIndexReader()}. */
+    private final Object reopenLock = new Object();
+
+    /** Whether index changed since last commit. */
+    private volatile boolean readyForCommit;
+
+    private final AtomicLong searchCount = new AtomicLong();
+
+    private final AtomicLong searchTime = new AtomicLong();
+
+    private final AtomicLong maxSearchTime = new AtomicLong();
+
+    /**
+     * Opens partition, on its last commit if any.
+     *
+     * @param name
+     *            the name
+     * @param indexDirectory
+     *            directory of partition in index home dir
+     * @param analyzer
+     *            the analyzer
+     * @param properties
+     *            persistence unit properties
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    IndexPartition(String name, File indexDirectory, Analyzer analyzer, Properties properties) throws IOException
+    {
+        this.name = name;
+        this.indexDirectory = indexDirectory;
+        String directoryType = LuceneIndexer.getProperty(properties, PersistenceProperties.KUNDERA_INDEX_DIRECTORY,
+                LuceneIndexer.DIRECTORY_RAM);
+        this.onDisk = !LuceneIndexer.DIRECTORY_RAM.equalsIgnoreCase(directoryType);
+        if (onDisk)
+        {
+            index = openDirectory(directoryType);
+        }
+        else if (indexDirectory.exists())
+        {
+            Directory sourceDir = FSDirectory.open(getIndexDirectory());
+            index = new RAMDirectory(sourceDir);
+        }
+        else
+        {
+            index = new RAMDirectory();
+        }
+        snapshotter = new SnapshotDeletionPolicy(new KeepOnlyLastCommitDeletionPolicy());
+        writer = openIndexWriter(analyzer, properties);
+        readerManager = new IndexReaderManager(writer);
+        checkKunderaIdIndexed();
+    }
+
+    /**
+     * Warns if index was written while {@link DocumentIndexer#KUNDERA_ID_FIELD}
+     * was not indexed, as documents of such an index are never updated or
+     * deleted.
+     */
+    private void checkKunderaIdIndexed() throws IOException
+    {
+        IndexReader reader = readerManager.acquire();
+        try
+        {
+            if (reader.numDocs() > 0
+                    && !reader.getFieldNames(IndexReader.FieldOption.INDEXED).contains(
+                            DocumentIndexer.KUNDERA_ID_FIELD))
+            {
+                log.warn("Lucene index " + indexDirectory + " does not index " + DocumentIndexer.KUNDERA_ID_FIELD
+                        + ", documents of updated or removed entities are kept. Rebuild index by deleting "
+                        + indexDirectory + " and writing entities again.");
+            }
+        }
+        finally
+        {
+            readerManager.release(reader);
+        }
+    }
+
+    /**
+     * @return the name
+     */
+    String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Opens partition directory as directory of given type.
+     */
+    private Directory openDirectory(String directoryType) throws IOException
+    {
+        if (LuceneIndexer.DIRECTORY_MMAP.equalsIgnoreCase(directoryType))
+        {
+            return new MMapDirectory(getIndexDirectory());
+        }
+        else if (LuceneIndexer.DIRECTORY_NIO.equalsIgnoreCase(directoryType))
+        {
+            return new NIOFSDirectory(getIndexDirectory());
+        }
+        else if (LuceneIndexer.DIRECTORY_FS.equalsIgnoreCase(directoryType))
+        {
+            return FSDirectory.open(getIndexDirectory());
+        }
+        throw new LuceneIndexingException("Invalid value " + directoryType + " for "
+                + PersistenceProperties.KUNDERA_INDEX_DIRECTORY + ", expected one of " + LuceneIndexer.DIRECTORY_RAM
+                + ", " + LuceneIndexer.DIRECTORY_MMAP + ", " + LuceneIndexer.DIRECTORY_NIO + ", "
+                + LuceneIndexer.DIRECTORY_FS);
+    }
+
+    /**
+     * Opens writer on last commit of index. If an index on disk can not be
+     * read, e.g. after a crash while committing, earlier commit points are
+     * tried, newest first.
+     */
+    private IndexWriter openIndexWriter(Analyzer analyzer, Properties properties) throws IOException
+    {
+        try
+        {
+            return new IndexWriter(index, newIndexWriterConfig(analyzer, properties, null));
+        }
+        catch (CorruptIndexException e)
+        {
+            if (!onDisk)
+            {
+                throw e;
+            }
+
+            List<IndexCommit> commits = new ArrayList<IndexCommit>(IndexReader.listCommits(index));
+            Collections.sort(commits);
+            for (int i = commits.size() - 1; i >= 0; i--)
+            {
+                IndexCommit commit = commits.get(i);
+                try
+                {
+                    IndexWriter writer = new IndexWriter(index, newIndexWriterConfig(analyzer, properties, commit));
+                    log.warn("Lucene index " + indexDirectory + " reopened at commit "
+                            + commit.getSegmentsFileName() + ", Caused by: " + e.getMessage());
+                    return writer;
+                }
+                catch (CorruptIndexException ce)
+                {
+                    log.warn("Can not reopen Lucene index " + indexDirectory + " at commit "
+                            + commit.getSegmentsFileName() + ", Caused by: " + ce.getMessage());
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Creates writer config with merge settings of persistence unit.
+     */
+    private IndexWriterConfig newIndexWriterConfig(Analyzer analyzer, Properties properties, IndexCommit commit)
+    {
+        LogDocMergePolicy mergePolicy = new LogDocMergePolicy();
+        mergePolicy.setMergeFactor(Integer.parseInt(LuceneIndexer.getProperty(properties,
+                PersistenceProperties.KUNDERA_INDEX_MERGE_FACTOR, "1000")));
+        mergePolicy.setMaxMergeDocs(Integer.parseInt(LuceneIndexer.getProperty(properties,
+                PersistenceProperties.KUNDERA_INDEX_MERGE_MAX_DOCS, String.valueOf(Integer.MAX_VALUE))));
+
+        IndexWriterConfig config = new IndexWriterConfig(Version.LUCENE_34, analyzer);
+        config.setIndexDeletionPolicy(snapshotter);
+        config.setMergePolicy(mergePolicy);
+        config.setRAMBufferSizeMB(Double.parseDouble(LuceneIndexer.getProperty(properties,
+                PersistenceProperties.KUNDERA_INDEX_RAM_BUFFER_MB, "32")));
+        config.setIndexCommit(commit);
+        return config;
+    }
+
+    /**
+     * Creates partition directory if it does not exist.
+     */
+    private File getIndexDirectory()
+    {
+        if (!indexDirectory.isDirectory())
+        {
+            indexDirectory.mkdirs();
+        }
+        return indexDirectory;
+    }
+
+    /**
+     * Adds document.
+     *
+     * @param document
+     *            the document
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    void addDocument(Document document) throws IOException
+    {
+        writer.addDocument(document);
+        onChange();
+    }
+
+    /**
+     * Replaces documents having given term by given document, in one writer
+     * operation.
+     *
+     * @param term
+     *            the term
+     * @param document
+     *            the document
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    void updateDocument(Term term, Document document) throws IOException
+    {
+        writer.updateDocument(term, document);
+        onChange();
+    }
+
+    /**
+     * Deletes documents having given term.
+     *
+     * @param term
+     *            the term
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    void deleteDocuments(Term term) throws IOException
+    {
+        writer.deleteDocuments(term);
+        onChange();
+    }
+
+    /**
+     * Marks index changed: next search reopens reader, next commit run
+     * commits.
+     */
+    private void onChange()
+    {
+        changeCount.incrementAndGet();
+        readyForCommit = true;
+    }
+
+    /**
+     * Searches top documents of partition, reading given stored fields of
+     * them while reader is held.
+     *
+     * @param query
+     *            the query
+     * @param count
+     *            maximum number of hits
+     * @param idField
+     *            field holding id of hit
+     * @return the hits, best first
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    List<Hit> search(Query query, int count, String idField) throws IOException
+    {
+        long start = System.nanoTime();
+        IndexReader reader = acquireIndexReader();
+        try
+        {
+            return search(new IndexSearcher(reader), query, count, idField);
+        }
+        finally
+        {
+            release(reader, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Searches top documents with given searcher, reading given stored fields
+     * of them.
+     *
+     * @param searcher
+     *            the searcher
+     * @param query
+     *            the query
+     * @param count
+     *            maximum number of hits
+     * @param idField
+     *            field holding id of hit
+     * @return the hits, best first
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    static List<Hit> search(IndexSearcher searcher, Query query, int count, String idField) throws IOException
+    {
+        TopDocs docs = searcher.search(query, count);
+        List<Hit> hits = new ArrayList<Hit>(docs.scoreDocs.length);
+        for (ScoreDoc sc : docs.scoreDocs)
+        {
+            Document doc = searcher.doc(sc.doc);
+            hits.add(new Hit(sc.score, doc.get(idField), doc.get(DocumentIndexer.SUPERCOLUMN_INDEX), doc
+                    .get(DocumentIndexer.PARENT_ID_FIELD)));
+        }
+        return hits;
+    }
+
+    /**
+     * Acquires reader which sees all writes made so far, for a search across
+     * partitions. Must be given back with {@link #release(IndexReader, long)}.
+     *
+     * @return the reader
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    IndexReader acquire() throws IOException
+    {
+        return acquireIndexReader();
+    }
+
+    /**
+     * Releases reader acquired for a search, recording its latency.
+     *
+     * @param reader
+     *            the reader
+     * @param time
+     *            search time in nanoseconds
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    void release(IndexReader reader, long time) throws IOException
+    {
+        try
+        {
+            readerManager.release(reader);
+        }
+        finally
+        {
+            searchCount.incrementAndGet();
+            searchTime.addAndGet(time);
+            long max = maxSearchTime.get();
+            while (time > max && !maxSearchTime.compareAndSet(max, time))
+            {
+                max = maxSearchTime.get();
+            }
+        }
+    }
+
+    /**
+     * Acquires reader which sees all writes made so far, reopening it from
+     * writer if index changed. Reopening neither commits nor copies index.
+     * Changes are counted before a reopen starts and marked seen only once it
+     * swapped reader, so that a thread searching right after its write never
+     * gets a reader which misses it while another thread reopens.
+     */
+    private IndexReader acquireIndexReader() throws IOException
+    {
+        if (reopenedCount != changeCount.get())
+        {
+            synchronized (reopenLock)
+            {
+                long count = changeCount.get();
+                if (reopenedCount != count)
+                {
+                    readerManager.maybeReopen();
+                    reopenedCount = count;
+                }
+            }
+        }
+        return readerManager.acquire();
+    }
+
+    /**
+     * Returns size and search latency of partition.
+     *
+     * @return the statistics
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    IndexPartitionStatistics getStatistics() throws IOException
+    {
+        IndexReader reader = acquireIndexReader();
+        try
+        {
+            return new IndexPartitionStatistics(name, reader.numDocs(), searchCount.get(), searchTime.get(),
+                    maxSearchTime.get());
+        }
+        finally
+        {
+            readerManager.release(reader);
+        }
+    }
+
+    /**
+     * Commits index, if changed. An index held in memory is then copied to
+     * disk; only files not yet on disk are copied, segment files being never
+     * modified once written.
+     */
+    synchronized void commit()
+    {
+        if (!readyForCommit)
+        {
+            return;
+        }
+        try
+        {
+            readyForCommit = false;
+            writer.commit();
+            if (!onDisk)
+            {
+                copyToDisk();
+            }
+        }
+        catch (CorruptIndexException e)
+        {
+            readyForCommit = true;
+            log.error("Error while committing Lucene Indexes. Details:" + e.getMessage());
+            throw new LuceneIndexingException("Error while committing Lucene Indexes", e);
+        }
+        catch (IOException e)
+        {
+            readyForCommit = true;
+            log.error("Error while committing Lucene Indexes. Details:" + e.getMessage());
+            throw new LuceneIndexingException("Error while committing Lucene Indexes", e);
+        }
+    }
+
+    /**
+     * Commits and closes partition.
+     *
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    synchronized void close() throws IOException
+    {
+        commit();
+        readerManager.close();
+        writer.close();
+        index.close();
+    }
+
+    /**
+     * Copies files of last commit missing from disk, then its segments file,
+     * so that disk index is never left referring to files not copied yet.
+     * Files of earlier commits are deleted from disk afterwards.
+     */
+    private void copyToDisk() throws IOException
+    {
+        IndexCommit commit = snapshotter.snapshot(SNAPSHOT_ID);
+        Directory disk = FSDirectory.open(getIndexDirectory());
+        try
+        {
+            Collection<String> files = commit.getFileNames();
+            String segmentsFile = commit.getSegmentsFileName();
+            List<String> copied = new ArrayList<String>();
+            for (String file : files)
+            {
+                if (!file.equals(segmentsFile)
+                        && !(disk.fileExists(file) && disk.fileLength(file) == index.fileLength(file)))
+                {
+                    index.copy(disk, file, file);
+                    copied.add(file);
+                }
+            }
+            disk.sync(copied);
+
+            index.copy(disk, segmentsFile, segmentsFile);
+            disk.sync(Collections.singleton(segmentsFile));
+            if (index.fileExists(SEGMENTS_GEN))
+            {
+                index.copy(disk, SEGMENTS_GEN, SEGMENTS_GEN);
+            }
+
+            for (String file : disk.listAll())
+            {
+                if (!files.contains(file) && !SEGMENTS_GEN.equals(file)
+                        && IndexFileNameFilter.getFilter().accept(null, file))
+                {
+                    disk.deleteFile(file);
+                }
+            }
+        }
+        finally
+        {
+            disk.close();
+            snapshotter.release(SNAPSHOT_ID);
+        }
+    }
+
+    /**
+     * A document found by search.
+     */
+    static final class Hit
+    {
+        final float score;
+
+        final String id;
+
+        final String superColumn;
+
+        final String parentId;
+
+        Hit(float score, String id, String superColumn, String parentId)
+        {
+            this.score = score;
+            this.id = id;
+            this.superColumn = superColumn;
+            this.parentId = parentId;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.index;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Size and search latency of a Lucene index partition, at time it was taken.
+ *
+ * @see LuceneIndexer#getPartitionStatistics()
+ */
+public class IndexPartitionStatistics
+{
+    private final String name;
+
+    private final int documentCount;
+
+    private final long searchCount;
+
+    private final long searchTime;
+
+    private final long maxSearchTime;
+
+    IndexPartitionStatistics(String name, int documentCount, long searchCount, long searchTime, long maxSearchTime)
+    {
+        this.name = name;
+        this.documentCount = documentCount;
+        this.searchCount = searchCount;
+        this.searchTime = searchTime;
+        this.maxSearchTime = maxSearchTime;
+    }
+
+    /**
+     * @return name of partition, i.e. entity class and shard.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return number of documents, not counting deleted ones.
+     */
+    public int getDocumentCount()
+    {
+        return documentCount;
+    }
+
+    /**
+     * @return number of searches run on partition.
+     */
+    public long getSearchCount()
+    {
+        return searchCount;
+    }
+
+    /**
+     * @return average search time in microseconds.
+     */
+    public long getAverageSearchTime()
+    {
+        return searchCount > 0 ? TimeUnit.NANOSECONDS.toMicros(searchTime / searchCount) : 0;
+    }
+
+    /**
+     * @return longest search time in microseconds.
+     */
+    public long getMaxSearchTime()
+    {
+        return TimeUnit.NANOSECONDS.toMicros(maxSearchTime);
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append("IndexPartitionStatistics [name=");
+        builder.append(getName());
+        builder.append(", documents=");
+        builder.append(getDocumentCount());
+        builder.append(", searches=");
+        builder.append(getSearchCount());
+        builder.append(", averageSearchTime=");
+        builder.append(getAverageSearchTime());
+        builder.append(", maxSearchTime=");
+        builder.append(getMaxSearchTime());
+        builder.append("]");
+        return builder.toString();
+    }
+}
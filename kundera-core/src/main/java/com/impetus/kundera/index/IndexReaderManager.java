@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.index;
+
+import java.io.IOException;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+
+/**
+ * Shares a near-real-time reader of an {@link IndexWriter} among searches, as
+ * SearcherManager of later Lucene versions does. Searches {@link #acquire()}
+ * reader and {@link #release(IndexReader)} it when done. {@link #maybeReopen()}
+ * replaces reader by one which sees writes made since, without committing
+ * them; replaced reader is closed once last search using it releases it.
+ */
+public class IndexReaderManager
+{
+
+    /** The writer. */
+    private final IndexWriter writer;
+
+    /** Serializes reopens, so that searches do not wait for them. */
+    private final Object reopenLock = new Object();
+
+    /** The current reader. */
+    private IndexReader current;
+
+    /**
+     * Instantiates a new index reader manager.
+     *
+     * @param writer
+     *            the writer
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    public IndexReaderManager(IndexWriter writer) throws IOException
+    {
+        this.writer = writer;
+        this.current = IndexReader.open(writer, true);
+    }
+
+    /**
+     * Acquires current reader.
+     *
+     * @return the index reader
+     */
+    public synchronized IndexReader acquire()
+    {
+        if (current == null)
+        {
+            throw new IllegalStateException("Index reader manager is closed");
+        }
+        current.incRef();
+        return current;
+    }
+
+    /**
+     * Releases reader acquired before.
+     *
+     * @param reader
+     *            the reader
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    public void release(IndexReader reader) throws IOException
+    {
+        reader.decRef();
+    }
+
+    /**
+     * Reopens current reader from writer, if index changed.
+     *
+     * @return true, if reader was replaced
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    public boolean maybeReopen() throws IOException
+    {
+        synchronized (reopenLock)
+        {
+            IndexReader reader = acquire();
+            IndexReader newReader;
+            try
+            {
+                newReader = reader.reopen(writer, true);
+            }
+            finally
+            {
+                release(reader);
+            }
+            if (newReader == reader)
+            {
+                return false;
+            }
+            swap(newReader);
+            return true;
+        }
+    }
+
+    /**
+     * Closes current reader, once searches using it release it.
+     *
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    public void close() throws IOException
+    {
+        synchronized (reopenLock)
+        {
+            swap(null);
+        }
+    }
+
+    private void swap(IndexReader newReader) throws IOException
+    {
+        IndexReader old;
+        synchronized (this)
+        {
+            old = current;
+            current = newReader;
+        }
+        if (old != null)
+        {
+            release(old);
+        }
+    }
+}
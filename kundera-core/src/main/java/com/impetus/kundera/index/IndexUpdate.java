@@ -0,0 +1,140 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.index;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.impetus.kundera.metadata.model.EntityMetadata;
+
+/**
+ * Change of an entity to be applied to index: either its documents are
+ * replaced by those of its current state, one per parent it is indexed with,
+ * or they are removed.
+ */
+public class IndexUpdate
+{
+
+    /** The metadata. */
+    private final EntityMetadata metadata;
+
+    /** The id. */
+    private final Object id;
+
+    /** The entity, null if removed. */
+    private final Object entity;
+
+    /** Parent ids with their classes, a null key if indexed without parent. */
+    private final Map<String, Class<?>> parents;
+
+    private IndexUpdate(EntityMetadata metadata, Object id, Object entity)
+    {
+        this.metadata = metadata;
+        this.id = id;
+        this.entity = entity;
+        this.parents = entity != null ? new LinkedHashMap<String, Class<?>>() : null;
+    }
+
+    /**
+     * Creates update replacing documents of entity.
+     *
+     * @param metadata
+     *            the metadata
+     * @param id
+     *            the id
+     * @param entity
+     *            the entity
+     * @param parentId
+     *            parent id, may be null
+     * @param parentClass
+     *            parent class, may be null
+     * @return the index update
+     */
+    public static IndexUpdate update(EntityMetadata metadata, Object id, Object entity, String parentId,
+            Class<?> parentClass)
+    {
+        IndexUpdate update = new IndexUpdate(metadata, id, entity);
+        update.addParent(parentId, parentClass);
+        return update;
+    }
+
+    /**
+     * Creates update removing documents of entity.
+     *
+     * @param metadata
+     *            the metadata
+     * @param id
+     *            the id
+     * @return the index update
+     */
+    public static IndexUpdate remove(EntityMetadata metadata, Object id)
+    {
+        return new IndexUpdate(metadata, id, null);
+    }
+
+    /**
+     * Adds parent entity is indexed with, besides those added before.
+     *
+     * @param parentId
+     *            parent id, may be null
+     * @param parentClass
+     *            parent class, may be null
+     */
+    void addParent(String parentId, Class<?> parentClass)
+    {
+        parents.put(parentId, parentClass);
+    }
+
+    /**
+     * @return the metadata
+     */
+    public EntityMetadata getMetadata()
+    {
+        return metadata;
+    }
+
+    /**
+     * @return the id
+     */
+    public Object getId()
+    {
+        return id;
+    }
+
+    /**
+     * @return the entity, null if removed.
+     */
+    public Object getEntity()
+    {
+        return entity;
+    }
+
+    /**
+     * @return true, if documents of entity are removed.
+     */
+    public boolean isRemove()
+    {
+        return entity == null;
+    }
+
+    /**
+     * @return parent ids with their classes, null if removed.
+     */
+    public Map<String, Class<?>> getParents()
+    {
+        return parents;
+    }
+}
@@ -17,11 +17,23 @@ package com.impetus.kundera.index;
 
 import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import javax.persistence.metamodel.EmbeddableType;
 import javax.persistence.metamodel.EntityType;
@@ -29,27 +41,23 @@ import javax.persistence.metamodel.EntityType;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.lucene.analysis.Analyzer;
-import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.index.IndexReader;
-import org.apache.lucene.index.IndexWriter;
-import org.apache.lucene.index.IndexWriterConfig;
-import org.apache.lucene.index.LogDocMergePolicy;
+import org.apache.lucene.index.MultiReader;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queryParser.ParseException;
 import org.apache.lucene.queryParser.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
-import org.apache.lucene.search.ScoreDoc;
-import org.apache.lucene.search.TopDocs;
-import org.apache.lucene.store.Directory;
-import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.store.LockObtainFailedException;
-import org.apache.lucene.store.RAMDirectory;
 import org.apache.lucene.util.Version;
 
 import com.impetus.kundera.Constants;
+import com.impetus.kundera.PersistenceProperties;
 import com.impetus.kundera.cache.ElementCollectionCacheManager;
 import com.impetus.kundera.metadata.model.EntityMetadata;
 import com.impetus.kundera.metadata.model.KunderaMetadata;
@@ -62,29 +70,59 @@ import com.impetus.kundera.property.PropertyAccessorHelper;
  * 
  * @author amresh.singh
  */
-public class LuceneIndexer extends DocumentIndexer
+public class LuceneIndexer extends DocumentIndexer implements BatchIndexer
 {
 
     /** log for this class. */
     private static Log log = LogFactory.getLog(LuceneIndexer.class);
 
-    /** The w. */
-    private static IndexWriter w;
+    /** Default interval of commits to disk, in milliseconds. */
+    public static final long DEFAULT_COMMIT_INTERVAL = 1000;
 
-    /** The reader. */
-    private static IndexReader reader;
+    /** Index held in memory, loaded from and copied to index home dir. */
+    public static final String DIRECTORY_RAM = "ram";
 
-    /** The index. */
-    private static Directory index;
+    /** Index memory mapped from index home dir. */
+    public static final String DIRECTORY_MMAP = "mmap";
 
-    /** The is initialized. */
-    private static boolean isInitialized;
+    /** Index read from index home dir through NIO. */
+    public static final String DIRECTORY_NIO = "nio";
+
+    /** Index in index home dir, directory chosen by Lucene for platform. */
+    public static final String DIRECTORY_FS = "fs";
+
+    /** One index in index home dir. */
+    public static final String PARTITION_NONE = "none";
+
+    /** One index per entity class, in sub directories of index home dir. */
+    public static final String PARTITION_ENTITY = "entity";
+
+    /** Maximum number of hits of a search not limiting them. */
+    private static final int DEFAULT_COUNT = 100;
+
+    /** Partitions of index by name. */
+    private static Map<String, IndexPartition> partitions;
+
+    /** Whether index is partitioned by entity class. */
+    private static boolean partitionByEntity;
+
+    /** Number of partitions of each entity class. */
+    private static int shards;
+
+    /** Searches segments of partitions in parallel. */
+    private static ExecutorService searcher;
+
+    /** Persistence unit properties, to open partitions with. */
+    private static Properties indexProperties;
 
     /** The indexer. */
     private static LuceneIndexer indexer;
 
-    /** The ready for commit. */
-    private static boolean readyForCommit;
+    /** Commits index to disk in background. */
+    private static ScheduledExecutorService committer;
+
+    /** Whether flush commits index. */
+    private static boolean commitOnFlush;
 
     /** The lucene dir path. */
     private static String luceneDirPath;
@@ -96,33 +134,87 @@ public class LuceneIndexer extends DocumentIndexer
      *            the analyzer
      * @param lucDirPath
      *            the luc dir path
+     * @param properties
+     *            persistence unit properties
      */
-    private LuceneIndexer(Analyzer analyzer, String lucDirPath)
+    private LuceneIndexer(Analyzer analyzer, String lucDirPath, Properties properties)
     {
         super(analyzer);
         try
         {
             luceneDirPath = lucDirPath;
-            File file = new File(luceneDirPath);
-            if (file.exists())
+            indexProperties = properties;
+            partitions = new ConcurrentHashMap<String, IndexPartition>();
+            commitOnFlush = Boolean.parseBoolean(getProperty(properties,
+                    PersistenceProperties.KUNDERA_INDEX_COMMIT_ON_FLUSH, "false"));
+            long commitInterval = Long.parseLong(getProperty(properties,
+                    PersistenceProperties.KUNDERA_INDEX_COMMIT_INTERVAL, String.valueOf(DEFAULT_COMMIT_INTERVAL)));
+
+            String partitioning = getProperty(properties, PersistenceProperties.KUNDERA_INDEX_PARTITION,
+                    PARTITION_NONE);
+            if (PARTITION_ENTITY.equalsIgnoreCase(partitioning))
             {
-                Directory sourceDir = FSDirectory.open(getIndexDirectory());
-                index = new RAMDirectory(sourceDir);
+                partitionByEntity = true;
+                shards = Integer.parseInt(getProperty(properties,
+                        PersistenceProperties.KUNDERA_INDEX_PARTITION_SHARDS, "1"));
+                int searchThreads = Integer.parseInt(getProperty(properties,
+                        PersistenceProperties.KUNDERA_INDEX_SEARCH_THREADS,
+                        String.valueOf(Runtime.getRuntime().availableProcessors())));
+                if (shards < 1 || searchThreads < 1)
+                {
+                    throw new NumberFormatException("shards and search threads must be positive");
+                }
+
+                File[] partitionDirs = new File(luceneDirPath).listFiles();
+                if (partitionDirs != null)
+                {
+                    for (File partitionDir : partitionDirs)
+                    {
+                        if (partitionDir.isDirectory())
+                        {
+                            partitions.put(partitionDir.getName(), new IndexPartition(partitionDir.getName(),
+                                    partitionDir, analyzer, properties));
+                        }
+                    }
+                }
+                searcher = Executors.newFixedThreadPool(searchThreads, newDaemonThreadFactory("kundera-index-search"));
+            }
+            else if (PARTITION_NONE.equalsIgnoreCase(partitioning))
+            {
+                File indexDir = new File(luceneDirPath);
+                partitions.put(indexDir.getName(), new IndexPartition(indexDir.getName(), indexDir, analyzer,
+                        properties));
             }
             else
             {
-                index = new RAMDirectory();
+                throw new LuceneIndexingException("Invalid value " + partitioning + " for "
+                        + PersistenceProperties.KUNDERA_INDEX_PARTITION + ", expected one of " + PARTITION_NONE
+                        + ", " + PARTITION_ENTITY);
+            }
+
+            if (commitInterval > 0)
+            {
+                committer = Executors.newSingleThreadScheduledExecutor(newDaemonThreadFactory("kundera-index-commit"));
+                committer.scheduleWithFixedDelay(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        try
+                        {
+                            commit();
+                        }
+                        catch (LuceneIndexingException e)
+                        {
+                            // retried on next run.
+                        }
+                    }
+                }, commitInterval, commitInterval, TimeUnit.MILLISECONDS);
             }
-            /*
-             * FSDirectory.open(getIndexDirectory( ))
-             */
-            // isInitialized
-            /* writer */
-            w = new IndexWriter(index, new IndexWriterConfig(Version.LUCENE_34, analyzer));
-            /* reader = */
-            w.setMergePolicy(new LogDocMergePolicy());
-            w.setMergeFactor(1000);
-            w.getConfig().setRAMBufferSizeMB(32);
+        }
+        catch (NumberFormatException e)
+        {
+            throw new LuceneIndexingException("Invalid Lucene index setting, Caused by: " + e.getMessage(), e);
         }
         catch (CorruptIndexException e)
         {
@@ -138,6 +230,32 @@ public class LuceneIndexer extends DocumentIndexer
         }
     }
 
+    /**
+     * Creates factory of daemon threads with given name.
+     */
+    private static ThreadFactory newDaemonThreadFactory(final String name)
+    {
+        return new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, name);
+                t.setDaemon(true);
+                return t;
+            }
+        };
+    }
+
+    /**
+     * Gets trimmed property, or default value if not set.
+     */
+    static String getProperty(Properties properties, String name, String defaultValue)
+    {
+        String value = properties != null ? properties.getProperty(name) : null;
+        return value != null ? value.trim() : defaultValue;
+    }
+
     /**
      * Gets the single instance of LuceneIndexer.
      * 
@@ -148,80 +266,206 @@ public class LuceneIndexer extends DocumentIndexer
      * @return single instance of LuceneIndexer
      */
     public static synchronized LuceneIndexer getInstance(Analyzer analyzer, String lucDirPath)
+    {
+        return getInstance(analyzer, lucDirPath, null);
+    }
+
+    /**
+     * Gets the single instance of LuceneIndexer, configured by given
+     * persistence unit properties if it is created.
+     * 
+     * @param analyzer
+     *            the analyzer
+     * @param lucDirPath
+     *            the luc dir path
+     * @param properties
+     *            persistence unit properties, e.g.
+     *            {@link PersistenceProperties#KUNDERA_INDEX_DIRECTORY}
+     * @return single instance of LuceneIndexer
+     */
+    public static synchronized LuceneIndexer getInstance(Analyzer analyzer, String lucDirPath, Properties properties)
     {
         // super(analyzer);
         if (indexer == null && lucDirPath != null)
         {
-            indexer = new LuceneIndexer(analyzer, lucDirPath);
+            indexer = new LuceneIndexer(analyzer, lucDirPath, properties);
 
         }
         return indexer;
     }
 
     /**
-     * Added for HBase support.
-     * 
-     * @return default index writer
+     * Commits and closes partitions and stops background threads of single
+     * instance, so that next {@link #getInstance(Analyzer, String, Properties)}
+     * creates a new one, e.g. on another index home dir.
      */
-    private IndexWriter getIndexWriter()
+    static synchronized void shutdown()
     {
-        return w;
+        if (indexer == null)
+        {
+            return;
+        }
+        try
+        {
+            if (committer != null)
+            {
+                committer.shutdownNow();
+            }
+            if (searcher != null)
+            {
+                searcher.shutdownNow();
+            }
+            for (IndexPartition partition : partitions.values())
+            {
+                partition.close();
+            }
+        }
+        catch (IOException e)
+        {
+            throw new LuceneIndexingException(e);
+        }
+        finally
+        {
+            indexer = null;
+            partitions = null;
+            partitionByEntity = false;
+            committer = null;
+            searcher = null;
+        }
     }
 
     /**
-     * Returns default index reader.
+     * Gets partition holding documents of given entity, opening it if it does
+     * not exist yet.
      * 
-     * @return index reader.
+     * @param metadata
+     *            the metadata
+     * @param id
+     *            id of entity, choosing shard
+     * @return the index partition
      */
-    private IndexReader getIndexReader()
+    private IndexPartition getPartition(EntityMetadata metadata, String id)
     {
-        flushInternal();
+        if (!partitionByEntity)
+        {
+            return partitions.values().iterator().next();
+        }
 
-        if (reader == null)
+        int shard = shards > 1 ? (id.hashCode() & 0x7fffffff) % shards : 0;
+        String name = getPartitionName(metadata.getEntityClazz().getCanonicalName().toLowerCase(), shard);
+        IndexPartition partition = partitions.get(name);
+        if (partition == null)
         {
-            try
+            synchronized (partitions)
             {
-                if (!isInitialized)
+                partition = partitions.get(name);
+                if (partition == null)
                 {
-                    Directory sourceDir = FSDirectory.open(getIndexDirectory());
-                    sourceDir.copy(sourceDir, index, true);
-                    isInitialized = true;
+                    try
+                    {
+                        partition = new IndexPartition(name, new File(luceneDirPath, name), analyzer,
+                                indexProperties);
+                    }
+                    catch (IOException e)
+                    {
+                        throw new LuceneIndexingException("Error while opening Lucene index partition " + name, e);
+                    }
+                    partitions.put(name, partition);
                 }
-                reader = IndexReader.open(index, true);
             }
-            catch (CorruptIndexException e)
+        }
+        return partition;
+    }
+
+    /**
+     * Gets name of partition of given shard of entity class.
+     */
+    private String getPartitionName(String entityClass, int shard)
+    {
+        return shards > 1 ? entityClass + "-" + shard : entityClass;
+    }
+
+    /**
+     * Gets partitions a query has to search: those of the entity class it
+     * requires if any, all otherwise.
+     * 
+     * @param query
+     *            the query
+     * @return the partitions
+     */
+    private List<IndexPartition> getPartitions(Query query)
+    {
+        String entityClass = partitionByEntity ? getRequiredEntityClass(query) : null;
+        if (entityClass == null)
+        {
+            return new ArrayList<IndexPartition>(partitions.values());
+        }
+
+        List<IndexPartition> result = new ArrayList<IndexPartition>(shards);
+        for (int shard = 0; shard < shards; shard++)
+        {
+            IndexPartition partition = partitions.get(getPartitionName(entityClass, shard));
+            if (partition != null)
             {
-                throw new LuceneIndexingException(e);
+                result.add(partition);
             }
-            catch (IOException e)
+        }
+        return result;
+    }
+
+    /**
+     * Gets entity class every document matching query must have, or null.
+     */
+    private String getRequiredEntityClass(Query query)
+    {
+        if (query instanceof TermQuery)
+        {
+            Term term = ((TermQuery) query).getTerm();
+            return ENTITY_CLASS_FIELD.equals(term.field()) ? term.text() : null;
+        }
+        else if (query instanceof BooleanQuery)
+        {
+            for (BooleanClause clause : ((BooleanQuery) query).getClauses())
             {
-                throw new LuceneIndexingException(e);
+                if (clause.getOccur() == BooleanClause.Occur.MUST)
+                {
+                    String entityClass = getRequiredEntityClass(clause.getQuery());
+                    if (entityClass != null)
+                    {
+                        return entityClass;
+                    }
+                }
             }
         }
-        return reader;
+        return null;
     }
 
     /**
-     * Creates a Lucene index directory if it does not exist.
+     * Returns size and search latency of each index partition.
      * 
-     * @return the index directory
+     * @return statistics by partition name
      */
-    private File getIndexDirectory()
+    public Map<String, IndexPartitionStatistics> getPartitionStatistics()
     {
-        File file = new File(luceneDirPath);
-
-        if (!file.isDirectory())
+        Map<String, IndexPartitionStatistics> statistics = new TreeMap<String, IndexPartitionStatistics>();
+        try
+        {
+            for (IndexPartition partition : partitions.values())
+            {
+                statistics.put(partition.getName(), partition.getStatistics());
+            }
+        }
+        catch (IOException e)
         {
-            file.mkdir();
+            throw new LuceneIndexingException(e);
         }
-        return file;
+        return statistics;
     }
 
     @Override
     public final void index(EntityMetadata metadata, Object object)
     {
         indexDocument(metadata, object, null, null);
-        onCommit();
     }
 
     @Override
@@ -231,7 +475,8 @@ public class LuceneIndexer extends DocumentIndexer
         try
         {
             /* String indexName, Query query, boolean autoCommit */
-            getIndexWriter().deleteDocuments(new Term(KUNDERA_ID_FIELD, getKunderaId(metadata, id)));
+            getPartition(metadata, id.toString()).deleteDocuments(
+                    new Term(KUNDERA_ID_FIELD, getKunderaId(metadata, id)));
         }
         catch (CorruptIndexException e)
         {
@@ -243,15 +488,106 @@ public class LuceneIndexer extends DocumentIndexer
         }
     }
 
-    @SuppressWarnings("deprecation")
+    /**
+     * Applies changes of entities to their partitions. Documents of an entity
+     * indexed once are replaced in one writer operation, keyed on
+     * {@link #KUNDERA_ID_FIELD}; those of super column families and of
+     * entities indexed with several parents are deleted before being added
+     * again.
+     * 
+     * @param updates
+     *            the updates
+     */
+    @Override
+    public void update(Collection<IndexUpdate> updates)
+    {
+        for (IndexUpdate update : updates)
+        {
+            EntityMetadata metadata = update.getMetadata();
+            if (!update.isRemove() && !metadata.isIndexable())
+            {
+                continue;
+            }
+
+            Term term = new Term(KUNDERA_ID_FIELD, getKunderaId(metadata, update.getId()));
+            IndexPartition partition = getPartition(metadata, update.getId().toString());
+            try
+            {
+                if (update.isRemove())
+                {
+                    partition.deleteDocuments(term);
+                }
+                else if (update.getParents().size() == 1
+                        && !metadata.getType().equals(EntityMetadata.Type.SUPER_COLUMN_FAMILY))
+                {
+                    Map.Entry<String, Class<?>> parent = update.getParents().entrySet().iterator().next();
+                    partition.updateDocument(term,
+                            prepareDocument(metadata, update.getEntity(), parent.getKey(), parent.getValue()));
+                }
+                else
+                {
+                    partition.deleteDocuments(term);
+                    for (Map.Entry<String, Class<?>> parent : update.getParents().entrySet())
+                    {
+                        indexDocument(metadata, update.getEntity(), parent.getKey(), parent.getValue());
+                    }
+                }
+            }
+            catch (CorruptIndexException e)
+            {
+                throw new LuceneIndexingException(e);
+            }
+            catch (IOException e)
+            {
+                throw new LuceneIndexingException(e);
+            }
+        }
+    }
+
     @Override
     public final Map<String, String> search(String luceneQuery, int start, int count, boolean fetchRelation)
     {
+        return search(parse(luceneQuery), start, count, fetchRelation);
+    }
+
+    /**
+     * Parses query with analyzer documents are indexed with.
+     */
+    private Query parse(String luceneQuery)
+    {
+        // parser is not thread safe.
+        QueryParser qp = new QueryParser(Version.LUCENE_34, DEFAULT_SEARCHABLE_FIELD, analyzer);
+        qp.setLowercaseExpandedTerms(false);
+        qp.setAllowLeadingWildcard(true);
+        try
+        {
+            return qp.parse(luceneQuery);
+        }
+        catch (ParseException e)
+        {
+            throw new LuceneIndexingException("Error while parsing Lucene Query " + luceneQuery, e);
+        }
+    }
 
-        reader = getIndexReader();
+    /**
+     * Searches index with a query built already, e.g. from filter of a JPA
+     * query.
+     * 
+     * @param luceneQuery
+     *            the lucene query
+     * @param start
+     *            the start
+     * @param count
+     *            the count
+     * @param fetchRelation
+     *            the fetch relation
+     * @return the map
+     */
+    public final Map<String, String> search(Query luceneQuery, int start, int count, boolean fetchRelation)
+    {
         if (Constants.INVALID == count)
         {
-            count = 100;
+            count = DEFAULT_COUNT;
         }
 
         log.debug("Searching index with query[" + luceneQuery + "], start:" + start + ", count:" + count);
@@ -259,31 +595,18 @@ public class LuceneIndexer extends DocumentIndexer
         // Set<String> entityIds = new HashSet<String>();
         Map<String, String> indexCol = new HashMap<String, String>();
 
-        if (reader == null)
-        {
-            throw new LuceneIndexingException("Index reader is not initialized!");
-        }
-
-        IndexSearcher searcher = new IndexSearcher(reader);
-        QueryParser qp = new QueryParser(Version.LUCENE_34, DEFAULT_SEARCHABLE_FIELD, new StandardAnalyzer(
-                Version.LUCENE_34));
-
         try
         {
-            qp.setLowercaseExpandedTerms(false);
-            qp.setAllowLeadingWildcard(true);
-            // qp.set
-            Query q = qp.parse(luceneQuery);
-            TopDocs docs = searcher.search(q, count);
+            List<IndexPartition.Hit> hits = search(getPartitions(luceneQuery), luceneQuery, count,
+                    fetchRelation ? PARENT_ID_FIELD : ENTITY_ID_FIELD);
 
             int nullCount = 0;
             // Assuming Supercol will be null in case if alias only.
             // This is a quick fix
-            for (ScoreDoc sc : docs.scoreDocs)
+            for (IndexPartition.Hit hit : hits)
             {
-                Document doc = searcher.doc(sc.doc);
-                String entityId = doc.get(fetchRelation ? PARENT_ID_FIELD : ENTITY_ID_FIELD);
-                String superCol = doc.get(SUPERCOLUMN_INDEX);
+                String entityId = hit.id;
+                String superCol = hit.superColumn;
 
                 if (superCol == null)
                 {
@@ -293,19 +616,114 @@ public class LuceneIndexer extends DocumentIndexer
                 indexCol.put(superCol + "|" + entityId, entityId);
             }
         }
-        catch (ParseException e)
-        {
-            throw new LuceneIndexingException("Error while parsing Lucene Query " + luceneQuery, e);
-        }
         catch (IOException e)
         {
             throw new LuceneIndexingException(e);
         }
 
-        reader = null;
         return indexCol;
     }
 
+    /**
+     * Searches ids of children of given class indexed under any of given
+     * parents, with one query per {@link BooleanQuery#getMaxClauseCount()}
+     * parents instead of one per parent. At most 100 children are returned per
+     * parent, as by a search of children of a single parent.
+     * 
+     * @param parentClass
+     *            class of parents
+     * @param parentIds
+     *            ids of parents
+     * @param childClass
+     *            class of children
+     * @return ids of children by id of parent, parents without children are
+     *         left out
+     */
+    public Map<String, Set<String>> searchChildren(Class<?> parentClass, Collection<?> parentIds, Class<?> childClass)
+    {
+        Map<String, Set<String>> children = new HashMap<String, Set<String>>();
+        List<Object> ids = new ArrayList<Object>(parentIds);
+        int chunkSize = BooleanQuery.getMaxClauseCount();
+        for (int from = 0; from < ids.size(); from += chunkSize)
+        {
+            List<Object> chunk = ids.subList(from, Math.min(ids.size(), from + chunkSize));
+            Query query = parse(LuceneQueryUtils.getInQuery(PARENT_ID_CLASS, parentClass.getCanonicalName()
+                    .toLowerCase(), PARENT_ID_FIELD, chunk, childClass.getCanonicalName().toLowerCase()));
+
+            log.debug("Searching children with query[" + query + "]");
+            try
+            {
+                for (IndexPartition.Hit hit : search(getPartitions(query), query, DEFAULT_COUNT * chunk.size(),
+                        ENTITY_ID_FIELD))
+                {
+                    Set<String> childIds = children.get(hit.parentId);
+                    if (childIds == null)
+                    {
+                        childIds = new HashSet<String>();
+                        children.put(hit.parentId, childIds);
+                    }
+                    childIds.add(hit.id);
+                }
+            }
+            catch (IOException e)
+            {
+                throw new LuceneIndexingException(e);
+            }
+        }
+        return children;
+    }
+
+    /**
+     * Searches given partitions. Several partitions are searched as one
+     * {@link MultiReader}, so that hits are scored with term statistics of all
+     * of them and ranked alike whichever partition they come from; segments
+     * are searched in parallel.
+     * 
+     * @param targets
+     *            partitions to search
+     * @param query
+     *            the query
+     * @param count
+     *            maximum number of hits
+     * @param idField
+     *            field holding id of hit
+     * @return the hits, best first
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private List<IndexPartition.Hit> search(List<IndexPartition> targets, Query query, int count, String idField)
+            throws IOException
+    {
+        if (targets.isEmpty())
+        {
+            return Collections.emptyList();
+        }
+        else if (targets.size() == 1)
+        {
+            return targets.get(0).search(query, count, idField);
+        }
+
+        long start = System.nanoTime();
+        IndexReader[] readers = new IndexReader[targets.size()];
+        try
+        {
+            for (int i = 0; i < readers.length; i++)
+            {
+                readers[i] = targets.get(i).acquire();
+            }
+            IndexSearcher multiSearcher = new IndexSearcher(new MultiReader(readers, false), searcher);
+            return IndexPartition.search(multiSearcher, query, count, idField);
+        }
+        finally
+        {
+            long time = System.nanoTime() - start;
+            for (int i = 0; i < readers.length && readers[i] != null; i++)
+            {
+                targets.get(i).release(readers[i], time);
+            }
+        }
+    }
+
     /**
      * Indexes document in file system using lucene.
      * 
@@ -318,14 +736,9 @@ public class LuceneIndexer extends DocumentIndexer
     {
         log.debug("Indexing document: " + document + " for in file system using Lucene");
 
-        IndexWriter w = getIndexWriter();
         try
         {
-            // w.setR
-            w.addDocument(document);
-            // w.optimize();
-            // w.commit();
-            // w.close();
+            getPartition(metadata, document.get(ENTITY_ID_FIELD)).addDocument(document);
         }
         catch (CorruptIndexException e)
         {
@@ -340,29 +753,31 @@ public class LuceneIndexer extends DocumentIndexer
     }
 
     /**
-     * Flush internal.
+     * Commits partitions changed since last commit. Runs on background
+     * schedule, on close and, if configured, on flush, never on search. A
+     * partition failing to commit does not keep others from committing.
      */
-    private void flushInternal()
+    private void commit()
     {
-        try
+        if (partitions == null)
         {
-            if (w != null && readyForCommit)
-            {
-                w.commit();
-                index.copy(index, FSDirectory.open(getIndexDirectory()), false);
-                readyForCommit = false;
-            }
+            return;
         }
-
-        catch (CorruptIndexException e)
+        LuceneIndexingException error = null;
+        for (IndexPartition partition : partitions.values())
         {
-            log.error("Error while Flushing Lucene Indexes. Details:" + e.getMessage());
-            throw new LuceneIndexingException("Error while Flushing Lucene Indexes", e);
+            try
+            {
+                partition.commit();
+            }
+            catch (LuceneIndexingException e)
+            {
+                error = e;
+            }
         }
-        catch (IOException e)
+        if (error != null)
         {
-            log.error("Error while Flushing Lucene Indexes" + e.getMessage());
-            throw new LuceneIndexingException("Error while Flushing Lucene Indexes", e);
+            throw error;
         }
     }
 
@@ -371,25 +786,7 @@ public class LuceneIndexer extends DocumentIndexer
      */
     public void close()
     {
-        try
-        {
-            if (w != null && readyForCommit)
-            {
-                w.commit();
-                index.copy(index, FSDirectory.open(getIndexDirectory()), false);
-            }
-        }
-
-        catch (CorruptIndexException e)
-        {
-            log.error("Error while closing lucene indexes. Details:" + e.getMessage());
-            throw new LuceneIndexingException("Error while closing lucene indexes.", e);
-        }
-        catch (IOException e)
-        {
-            log.error("Error while closing lucene indexes. Details:" + e.getMessage());
-            throw new LuceneIndexingException("Error while closing lucene indexes.", e);
-        }
+        commit();
     }
 
     /*
@@ -400,12 +797,11 @@ public class LuceneIndexer extends DocumentIndexer
     @Override
     public void flush()
     {
-        /*
-         * if (w != null) {
-         * 
-         * // w.commit(); // w.close(); // index.copy(index,
-         * FSDirectory.open(getIndexDirectory()), // false); }
-         */
+        // Writes are visible to next search, and committed in background.
+        if (commitOnFlush)
+        {
+            commit();
+        }
     }
 
     @Override
@@ -413,7 +809,6 @@ public class LuceneIndexer extends DocumentIndexer
     {
 
         indexDocument(metadata, object, parentId, clazz);
-        onCommit();
     }
 
     @Override
@@ -497,8 +892,7 @@ public class LuceneIndexer extends DocumentIndexer
                 String attributeName = iter.next();
                 EmbeddableType embeddableAttribute = embeddables.get(attributeName);
                 EntityType entityType = metaModel.entity(metadata.getEntityClazz());
-                embeddedObject = PropertyAccessorHelper.getObject(object, (Field) entityType
-                        .getAttribute(attributeName).getJavaMember());
+                embeddedObject = PropertyAccessorHelper.getObject(object, entityType.getAttribute(attributeName));
 
                 if (embeddedObject == null)
                 {
@@ -560,15 +954,7 @@ public class LuceneIndexer extends DocumentIndexer
         }
         else
         {
-            currentDoc = new Document();
-
-            // Add entity class, PK info into document
-            addEntityClassToDocument(metadata, object, currentDoc);
-
-            // Add all entity fields(columns) into document
-            addEntityFieldsToDocument(metadata, object, currentDoc);
-
-            indexParentKey(parentId, currentDoc, clazz);
+            currentDoc = prepareDocument(metadata, object, parentId, clazz);
             // Store document into index
             indexDocument(metadata, currentDoc);
         }
@@ -577,27 +963,30 @@ public class LuceneIndexer extends DocumentIndexer
     }
 
     /**
-     * On commit.
+     * Prepares document of an entity which is not a super column family.
+     * 
+     * @param metadata
+     *            the metadata
+     * @param object
+     *            the object
+     * @param parentId
+     *            the parent id
+     * @param clazz
+     *            the clazz
+     * @return the document
      */
-    private void onCommit()
+    private Document prepareDocument(EntityMetadata metadata, Object object, String parentId, Class<?> clazz)
     {
-        // TODO: Sadly this required to keep lucene happy, in case of indexing
-        // and searching with same entityManager.
-        // Other alternative would be to issue flush on each search
-        // try
-        // {
-        // w.commit();
-        isInitialized = true;
-        readyForCommit = true;
-        // }
-        // catch (CorruptIndexException e)
-        // {
-        // throw new IndexingException(e.getMessage());
-        // }
-        // catch (IOException e)
-        // {
-        // throw new IndexingException(e.getMessage());
-        // }
+        Document currentDoc = new Document();
+
+        // Add entity class, PK info into document
+        addEntityClassToDocument(metadata, object, currentDoc);
+
+        // Add all entity fields(columns) into document
+        addEntityFieldsToDocument(metadata, object, currentDoc);
+
+        indexParentKey(parentId, currentDoc, clazz);
+        return currentDoc;
     }
 
 }
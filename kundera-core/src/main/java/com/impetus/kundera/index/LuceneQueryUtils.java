@@ -15,6 +15,15 @@
  */
 package com.impetus.kundera.index;
 
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericField;
+import org.apache.lucene.search.NumericRangeQuery;
+import org.apache.lucene.search.Query;
+
 /**
  * Provides utility methods for Lucene Query related functionality
  * 
@@ -87,4 +96,267 @@ public class LuceneQueryUtils
         return sb.toString();
     }
 
+    /**
+     * Returns lucene based query matching documents having any of given ids,
+     * e.g. children of several parents.
+     * 
+     * @param clazzFieldName
+     *            lucene field name for class
+     * @param clazzName
+     *            class name
+     * @param idFieldName
+     *            lucene id field name
+     * @param idFieldValues
+     *            lucene id field values
+     * @param entityClazz
+     *            the entity clazz
+     * @return query lucene query.
+     */
+    public static String getInQuery(String clazzFieldName, String clazzName, String idFieldName,
+            Collection<?> idFieldValues, String entityClazz)
+    {
+        StringBuffer sb = new StringBuffer("+");
+        sb.append(clazzFieldName);
+        sb.append(":");
+        sb.append(clazzName);
+        sb.append(" AND ");
+        sb.append("+(");
+        for (Object idFieldValue : idFieldValues)
+        {
+            sb.append(" ");
+            sb.append(idFieldName);
+            sb.append(":");
+            sb.append(idFieldValue);
+        }
+        sb.append(")");
+        if (entityClazz != null)
+        {
+            sb.append(" AND ");
+            sb.append("+");
+            sb.append(DocumentIndexer.ENTITY_CLASS_FIELD);
+            sb.append(":");
+            sb.append(entityClazz);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns name of field holding value of a numeric or date property as
+     * number, so that it can be searched by numeric range.
+     * 
+     * @param field
+     *            field holding value of property as text
+     * @return numeric field name
+     */
+    public static String getNumericFieldName(String field)
+    {
+        return field + DocumentIndexer.NUMERIC_FIELD_SUFFIX;
+    }
+
+    /**
+     * Returns numeric field for value of a property, or null if it is neither
+     * a number nor a date.
+     * 
+     * @param field
+     *            field holding value of property as text
+     * @param value
+     *            value of property
+     * @return numeric field, not stored
+     */
+    public static NumericField getNumericField(String field, Object value)
+    {
+        Number number = toNumber(value);
+        if (number == null)
+        {
+            return null;
+        }
+
+        NumericField numericField = new NumericField(getNumericFieldName(field), Field.Store.NO, true);
+        if (number instanceof Integer)
+        {
+            numericField.setIntValue(number.intValue());
+        }
+        else if (number instanceof Long)
+        {
+            numericField.setLongValue(number.longValue());
+        }
+        else if (number instanceof Float)
+        {
+            numericField.setFloatValue(number.floatValue());
+        }
+        else
+        {
+            numericField.setDoubleValue(number.doubleValue());
+        }
+        return numericField;
+    }
+
+    /**
+     * Returns query for numeric field of a property, matching values between
+     * given bounds.
+     * 
+     * @param field
+     *            field holding value of property as text
+     * @param lower
+     *            lower bound, as returned by {@link #toNumber(Object, Class)},
+     *            null if open
+     * @param upper
+     *            upper bound, of same type as lower one, null if open
+     * @param lowerInclusive
+     *            whether lower bound matches
+     * @param upperInclusive
+     *            whether upper bound matches
+     * @return the query
+     */
+    public static Query getNumericRangeQuery(String field, Number lower, Number upper, boolean lowerInclusive,
+            boolean upperInclusive)
+    {
+        String numericField = getNumericFieldName(field);
+        Number bound = lower != null ? lower : upper;
+        if (bound instanceof Integer)
+        {
+            return NumericRangeQuery.newIntRange(numericField, (Integer) lower, (Integer) upper, lowerInclusive,
+                    upperInclusive);
+        }
+        else if (bound instanceof Long)
+        {
+            return NumericRangeQuery.newLongRange(numericField, (Long) lower, (Long) upper, lowerInclusive,
+                    upperInclusive);
+        }
+        else if (bound instanceof Float)
+        {
+            return NumericRangeQuery.newFloatRange(numericField, (Float) lower, (Float) upper, lowerInclusive,
+                    upperInclusive);
+        }
+        return NumericRangeQuery.newDoubleRange(numericField, (Double) lower, (Double) upper, lowerInclusive,
+                upperInclusive);
+    }
+
+    /**
+     * Converts value of a property to number it is indexed as: Integer for
+     * int, short and byte values, Long for long values and dates in
+     * milliseconds, Float and Double for float and double ones.
+     * 
+     * @param value
+     *            value of property
+     * @return the number, null if value is of no such type
+     */
+    public static Number toNumber(Object value)
+    {
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte)
+        {
+            return Integer.valueOf(((Number) value).intValue());
+        }
+        else if (value instanceof Long || value instanceof Float || value instanceof Double)
+        {
+            return (Number) value;
+        }
+        else if (value instanceof Date)
+        {
+            return Long.valueOf(((Date) value).getTime());
+        }
+        else if (value instanceof Calendar)
+        {
+            return Long.valueOf(((Calendar) value).getTimeInMillis());
+        }
+        return null;
+    }
+
+    /**
+     * Converts value compared to a property of given type to number property
+     * is indexed as, see {@link #toNumber(Object)}. Text, e.g. a literal of a
+     * JPA query, is parsed; dates are given in milliseconds then.
+     * 
+     * @param value
+     *            value compared to property
+     * @param type
+     *            type of property
+     * @return the number, null if property is not indexed as number or value
+     *         can not be converted
+     */
+    public static Number toNumber(Object value, Class<?> type)
+    {
+        if (value instanceof String)
+        {
+            String text = unquote((String) value);
+            try
+            {
+                if (isIntType(type))
+                {
+                    return Integer.valueOf(text);
+                }
+                else if (isLongType(type))
+                {
+                    return Long.valueOf(text);
+                }
+                else if (type == float.class || type == Float.class)
+                {
+                    return Float.valueOf(text);
+                }
+                else if (type == double.class || type == Double.class)
+                {
+                    return Double.valueOf(text);
+                }
+            }
+            catch (NumberFormatException e)
+            {
+                return null;
+            }
+            return null;
+        }
+
+        Number number = toNumber(value);
+        if (number == null)
+        {
+            return null;
+        }
+        else if (isIntType(type))
+        {
+            return number instanceof Integer ? number : null;
+        }
+        else if (isLongType(type))
+        {
+            return number instanceof Integer || number instanceof Long ? Long.valueOf(number.longValue()) : null;
+        }
+        else if (type == float.class || type == Float.class)
+        {
+            return Float.valueOf(number.floatValue());
+        }
+        else if (type == double.class || type == Double.class)
+        {
+            return Double.valueOf(number.doubleValue());
+        }
+        return null;
+    }
+
+    /**
+     * Strips quotes around a literal value of a JPA query.
+     * 
+     * @param value
+     *            the value
+     * @return value without quotes
+     */
+    public static String unquote(String value)
+    {
+        String text = value.trim();
+        if (text.length() > 1 && (text.charAt(0) == '\'' || text.charAt(0) == '"')
+                && text.charAt(text.length() - 1) == text.charAt(0))
+        {
+            return text.substring(1, text.length() - 1);
+        }
+        return text;
+    }
+
+    private static boolean isIntType(Class<?> type)
+    {
+        return type == int.class || type == Integer.class || type == short.class || type == Short.class
+                || type == byte.class || type == Byte.class;
+    }
+
+    private static boolean isLongType(Class<?> type)
+    {
+        return type == long.class || type == Long.class || Date.class.isAssignableFrom(type)
+                || Calendar.class.isAssignableFrom(type);
+    }
+
 }
@@ -19,6 +19,7 @@ import java.util.Map;
 
 import com.impetus.kundera.client.Client;
 import com.impetus.kundera.graph.Node;
+import com.impetus.kundera.graph.NodeKey;
 import com.impetus.kundera.graph.NodeLink;
 import com.impetus.kundera.lifecycle.states.NodeState;
 import com.impetus.kundera.persistence.PersistenceDelegator;
@@ -37,9 +38,9 @@ public interface NodeStateContext
 
     void setCurrentNodeState(NodeState nodeState);
 
-    String getNodeId();
+    NodeKey getNodeId();
 
-    void setNodeId(String nodeId);
+    void setNodeId(NodeKey nodeId);
 
     Object getData();
 
@@ -57,9 +58,9 @@ public interface NodeStateContext
 
     void setChildren(Map<NodeLink, Node> children);
 
-    Node getParentNode(String parentNodeId);
+    Node getParentNode(NodeKey parentNodeId);
 
-    Node getChildNode(String childNodeId);
+    Node getChildNode(NodeKey childNodeId);
 
     void addParentNode(NodeLink nodeLink, Node node);
 
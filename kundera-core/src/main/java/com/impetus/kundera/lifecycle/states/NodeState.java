@@ -24,6 +24,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.impetus.kundera.graph.Node;
+import com.impetus.kundera.graph.NodeKey;
 import com.impetus.kundera.graph.NodeLink;
 import com.impetus.kundera.graph.NodeLink.LinkProperty;
 import com.impetus.kundera.lifecycle.NodeStateContext;
@@ -142,13 +143,13 @@ public abstract class NodeState
         }
     }
 
-    public void logStateChangeEvent(NodeState prevState, NodeState nextState, String nodeId)
+    public void logStateChangeEvent(NodeState prevState, NodeState nextState, NodeKey nodeId)
     {
         log.debug("Node: " + nodeId + ":: " + prevState.getClass().getSimpleName() + " >>> "
                 + nextState.getClass().getSimpleName());
     }
 
-    public void logNodeEvent(String eventType, NodeState currentState, String nodeId)
+    public void logNodeEvent(String eventType, NodeState currentState, NodeKey nodeId)
     {
         log.debug("Node: " + nodeId + ":: " + eventType + " in state " + currentState.getClass().getSimpleName());
     }
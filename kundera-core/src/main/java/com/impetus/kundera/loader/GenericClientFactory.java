@@ -28,6 +28,7 @@ import com.impetus.kundera.index.IndexManager;
 import com.impetus.kundera.index.LuceneIndexer;
 import com.impetus.kundera.metadata.model.ClientMetadata;
 import com.impetus.kundera.metadata.model.KunderaMetadata;
+import com.impetus.kundera.metadata.model.PersistenceUnitMetadata;
 import com.impetus.kundera.persistence.EntityReader;
 
 /**
@@ -97,9 +98,9 @@ public abstract class GenericClientFactory implements ClientFactory, ClientLifeC
         if (KunderaMetadata.INSTANCE.getClientMetadata(persistenceUnit) == null)
         {
             ClientMetadata clientMetadata = new ClientMetadata();
-            String luceneDirectoryPath = KunderaMetadata.INSTANCE.getApplicationMetadata()
-                    .getPersistenceUnitMetadata(persistenceUnit)
-                    .getProperty(PersistenceProperties.KUNDERA_INDEX_HOME_DIR);
+            PersistenceUnitMetadata puMetadata = KunderaMetadata.INSTANCE.getApplicationMetadata()
+                    .getPersistenceUnitMetadata(persistenceUnit);
+            String luceneDirectoryPath = puMetadata.getProperty(PersistenceProperties.KUNDERA_INDEX_HOME_DIR);
 
             // Add client metadata
             clientMetadata.setLuceneIndexDir(luceneDirectoryPath);
@@ -107,7 +108,7 @@ public abstract class GenericClientFactory implements ClientFactory, ClientLifeC
 
             // Set Index Manager
             indexManager = new IndexManager(LuceneIndexer.getInstance(new StandardAnalyzer(Version.LUCENE_34),
-                    luceneDirectoryPath));       
+                    luceneDirectoryPath, puMetadata.getProperties()));
             
         }
     }
@@ -15,6 +15,7 @@
  ******************************************************************************/
 package com.impetus.kundera.metadata.model;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -239,6 +240,25 @@ public class ApplicationMetadata
      * 
      */
     public void addQueryToCollection(String queryName, String query, boolean isNativeQuery, Class clazz)
+    {
+        addQueryToCollection(queryName, query, isNativeQuery, clazz, null);
+    }
+
+    /**
+     * Adds parameterised query with given name and hints into collection.
+     * Throws exception if duplicate name is provided.
+     * 
+     * @param queryName
+     *            query name.
+     * @param query
+     *            named/native query.
+     * @param isNativeQuery
+     *            true, if it is a namednativequery.
+     * @param hints
+     *            query hints, by hint name. May be null.
+     */
+    public void addQueryToCollection(String queryName, String query, boolean isNativeQuery, Class clazz,
+            Map<String, Object> hints)
     {
         if (namedNativeQueries == null)
         {
@@ -246,7 +266,7 @@ public class ApplicationMetadata
         }
         if (!namedNativeQueries.containsKey(queryName))
         {
-            namedNativeQueries.put(queryName, new QueryWrapper(queryName, query, isNativeQuery, clazz));
+            namedNativeQueries.put(queryName, new QueryWrapper(queryName, query, isNativeQuery, clazz, hints));
         }
         // No null check made as it will never hold null value
         else if (!getQuery(queryName).equals(query))
@@ -271,6 +291,16 @@ public class ApplicationMetadata
         return wrapper != null ? wrapper.getQuery() : null;
     }
 
+    /**
+     * Returns names of all named and named native queries.
+     * 
+     * @return query names.
+     */
+    public Set<String> getQueryNames()
+    {
+        return namedNativeQueries != null ? namedNativeQueries.keySet() : Collections.<String> emptySet();
+    }
+
     /**
      * Returns true, if query is named native or native, else false
      * 
@@ -284,6 +314,19 @@ public class ApplicationMetadata
         return wrapper != null ? wrapper.isNativeQuery() : false;
     }
 
+    /**
+     * Returns hints of named query, applied to each query created from it.
+     * 
+     * @param name
+     *            query name.
+     * @return hints by hint name, empty if none or not a named query.
+     */
+    public Map<String, Object> getQueryHints(String name)
+    {
+        QueryWrapper wrapper = namedNativeQueries != null ? namedNativeQueries.get(name) : null;
+        return wrapper != null && wrapper.hints != null ? wrapper.hints : Collections.<String, Object> emptyMap();
+    }
+
     public Class getMappedClass(String name)
     {
         QueryWrapper wrapper = namedNativeQueries != null ? namedNativeQueries.get(name) : null;
@@ -313,17 +356,22 @@ public class ApplicationMetadata
 
         Class entityClazz;
 
+        Map<String, Object> hints;
+
         /**
          * @param queryName
          * @param query
          * @param isNativeQuery
+         * @param hints
          */
-        public QueryWrapper(String queryName, String query, boolean isNativeQuery, Class clazz)
+        public QueryWrapper(String queryName, String query, boolean isNativeQuery, Class clazz,
+                Map<String, Object> hints)
         {
             this.queryName = queryName;
             this.query = query;
             this.isNativeQuery = isNativeQuery;
             this.entityClazz = clazz;
+            this.hints = hints;
         }
 
         /**
@@ -30,6 +30,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.impetus.kundera.persistence.event.CallbackMethod;
+import com.impetus.kundera.utils.EntityCopier;
 
 /**
  * Holds metadata for entities.
@@ -105,6 +106,9 @@ public final class EntityMetadata
     // Whether it contains One-To-Many relationship
     private boolean isParent;
 
+    /** Deep copier of entity, built at metamodel load time. */
+    private EntityCopier entityCopier;
+
 
     /** The log. */
     private static Log log = LogFactory.getLog(EntityMetadata.class);
@@ -745,4 +749,21 @@ public final class EntityMetadata
     {
         return jpaColumnMapping.get(jpaColumnName);
     }
+
+    /**
+     * @return the entityCopier
+     */
+    public EntityCopier getEntityCopier()
+    {
+        return entityCopier;
+    }
+
+    /**
+     * @param entityCopier
+     *            the entityCopier to set
+     */
+    public void setEntityCopier(EntityCopier entityCopier)
+    {
+        this.entityCopier = entityCopier;
+    }
 }
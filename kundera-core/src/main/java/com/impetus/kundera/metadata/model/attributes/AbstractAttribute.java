@@ -30,6 +30,8 @@ import javax.persistence.metamodel.Type;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import com.impetus.kundera.property.FieldAccessor;
+
 /**
  * Abstract class for to provide generalisation, abstraction to <code>Type</code> hierarchy.
  *
@@ -61,6 +63,9 @@ public abstract class AbstractAttribute<X, T>
     /** Column name */
     private String columnName;
 
+    /** Accessor of member. */
+    private final FieldAccessor accessor;
+
     /**
      * Instantiates a new abstract attribute.
      *
@@ -81,6 +86,7 @@ public abstract class AbstractAttribute<X, T>
         this.managedType = managedType;
         this.member = member;
         this.columnName = getValidJPAColumnName();
+        this.accessor = new FieldAccessor(member);
     }
 
     /*
@@ -148,6 +154,17 @@ public abstract class AbstractAttribute<X, T>
         return member;
     }
 
+    /**
+     * Returns accessor of java member, to read and write attribute value of
+     * an entity or embeddable without looking up field again.
+     * 
+     * @return field accessor
+     */
+    public FieldAccessor getAccessor()
+    {
+        return accessor;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -17,7 +17,9 @@ package com.impetus.kundera.metadata.processor;
 
 import java.lang.reflect.Field;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javassist.Modifier;
 
@@ -28,6 +30,7 @@ import javax.persistence.NamedNativeQuery;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
 import javax.persistence.PersistenceException;
+import javax.persistence.QueryHint;
 import javax.persistence.Table;
 import javax.persistence.Transient;
 import javax.persistence.metamodel.Attribute;
@@ -207,7 +210,7 @@ public class TableProcessor extends AbstractEntityFieldProcessor
         if (clazz.isAnnotationPresent(NamedQuery.class))
         {
             NamedQuery ann = (NamedQuery) clazz.getAnnotation(NamedQuery.class);
-            appMetadata.addQueryToCollection(ann.name(), ann.query(), false, clazz);
+            appMetadata.addQueryToCollection(ann.name(), ann.query(), false, clazz, getHints(ann.hints()));
         }
 
         if (clazz.isAnnotationPresent(NamedQueries.class))
@@ -217,7 +220,7 @@ public class TableProcessor extends AbstractEntityFieldProcessor
             NamedQuery[] anns = ann.value();
             for (NamedQuery a : anns)
             {
-                appMetadata.addQueryToCollection(a.name(), a.query(), false, clazz);
+                appMetadata.addQueryToCollection(a.name(), a.query(), false, clazz, getHints(a.hints()));
             }
         }
 
@@ -239,6 +242,26 @@ public class TableProcessor extends AbstractEntityFieldProcessor
         }
     }
 
+    /**
+     * Returns named query hints by hint name, null if there are none.
+     * 
+     * @param hints
+     *            hints of named query annotation.
+     */
+    private Map<String, Object> getHints(QueryHint[] hints)
+    {
+        if (hints == null || hints.length == 0)
+        {
+            return null;
+        }
+        Map<String, Object> hintMap = new HashMap<String, Object>();
+        for (QueryHint hint : hints)
+        {
+            hintMap.put(hint.name(), hint.value());
+        }
+        return hintMap;
+    }
+
     /**
      * On id attribute.
      *
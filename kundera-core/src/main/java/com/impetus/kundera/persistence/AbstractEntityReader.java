@@ -18,6 +18,7 @@ package com.impetus.kundera.persistence;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -99,8 +100,111 @@ public class AbstractEntityReader
     public Object recursivelyFindEntities(Object entity, Map<String, Object> relationsMap, EntityMetadata m,
             PersistenceDelegator pd)
     {
-        Object entityId = PropertyAccessorHelper.getId(entity, m);
         associationBuilder = new AssociationBuilder();
+        return recursivelyFindEntities(entity, relationsMap, m, pd, Collections.<Relation> emptySet());
+    }
+
+    /**
+     * Recursively fetches associated entities for a whole list of
+     * <code>enhanceEntities</code>. Eager relations are resolved set wise,
+     * i.e. foreign keys of all entities are fetched with a single find call per
+     * relation and children located via Lucene are fetched with a single
+     * findAll call per relation. Rest of relations (lazy, join table and
+     * secondary index based ones) are populated per entity.
+     * 
+     * @param enhanceEntities
+     *            enhance entities
+     * @param m
+     *            entity metadata
+     * @param pd
+     *            persistence delegator
+     * @return list of populated entities, in same order.
+     */
+    public List<Object> recursivelyFindEntities(List<EnhanceEntity> enhanceEntities, EntityMetadata m,
+            PersistenceDelegator pd)
+    {
+        List<Object> result = new ArrayList<Object>(enhanceEntities.size());
+        associationBuilder = new AssociationBuilder();
+
+        int size = enhanceEntities.size();
+        List<Object> entities = new ArrayList<Object>(size);
+        List<Object> entityIds = new ArrayList<Object>(size);
+        List<Set<Relation>> populatedRelations = new ArrayList<Set<Relation>>(size);
+
+        for (EnhanceEntity ee : enhanceEntities)
+        {
+            entities.add(ee.getEntity());
+            entityIds.add(ee.getEntityId() != null ? ee.getEntityId() : getId(ee.getEntity(), m));
+            populatedRelations.add(new HashSet<Relation>());
+        }
+
+        for (Relation relation : m.getRelations())
+        {
+            if (relation.getFetchType().equals(FetchType.LAZY) || relation.isRelatedViaJoinTable())
+            {
+                continue;
+            }
+
+            String relationName = MetadataUtils.getMappedName(m, relation);
+            EntityMetadata childMetadata = KunderaMetadataManager.getEntityMetadata(relation.getTargetEntity());
+            boolean useLucene = !MetadataUtils.useSecondryIndex(pd.getClient(childMetadata).getPersistenceUnit());
+
+            // Entities holding foreign key and entities to be searched by
+            // their id on other side of relation.
+            List<Integer> fkHolders = new ArrayList<Integer>();
+            List<Object> fkValues = new ArrayList<Object>();
+            List<Integer> parents = new ArrayList<Integer>();
+
+            for (int i = 0; i < size; i++)
+            {
+                Object entity = entities.get(i);
+                if (PropertyAccessorHelper.getObject(entity, relation.getProperty()) == null)
+                {
+                    Map<String, Object> relationsMap = enhanceEntities.get(i).getRelations();
+                    Object relationValue = relationsMap != null ? relationsMap.get(relationName) : null;
+                    if (relationValue != null)
+                    {
+                        fkHolders.add(i);
+                        fkValues.add(relationValue);
+                    }
+                    else if (useLucene)
+                    {
+                        parents.add(i);
+                    }
+                }
+            }
+
+            if (!fkHolders.isEmpty())
+            {
+                associationBuilder.populateRelationFromValues(select(entities, fkHolders), fkValues, pd, relation,
+                        m, childMetadata);
+                markPopulated(populatedRelations, fkHolders, relation);
+            }
+
+            if (!parents.isEmpty())
+            {
+                associationBuilder.populateRelationViaIndex(select(entities, parents), select(entityIds, parents),
+                        pd, relation, childMetadata);
+                markPopulated(populatedRelations, parents, relation);
+            }
+        }
+
+        for (int i = 0; i < size; i++)
+        {
+            result.add(recursivelyFindEntities(entities.get(i), enhanceEntities.get(i).getRelations(), m, pd,
+                    populatedRelations.get(i)));
+        }
+        return result;
+    }
+
+    /**
+     * Recursively fetches associated entities for a given <code>entity</code>,
+     * skipping relations already populated set wise.
+     */
+    private Object recursivelyFindEntities(Object entity, Map<String, Object> relationsMap, EntityMetadata m,
+            PersistenceDelegator pd, Set<Relation> populatedRelations)
+    {
+        Object entityId = PropertyAccessorHelper.getId(entity, m);
 
         for (Relation relation : m.getRelations())
         {
@@ -108,7 +212,7 @@ public class AbstractEntityReader
             // proceeding further.
             Field f = relation.getProperty();
 
-            if (PropertyAccessorHelper.getObject(entity, f) == null)
+            if (!populatedRelations.contains(relation) && PropertyAccessorHelper.getObject(entity, f) == null)
             {
 
                 //If fetch type is LAZY, just populate proxy object
@@ -189,6 +293,31 @@ public class AbstractEntityReader
         return entity;
     }
 
+    /**
+     * Returns elements of <code>list</code> at given positions.
+     */
+    private List<Object> select(List<Object> list, List<Integer> positions)
+    {
+        List<Object> selected = new ArrayList<Object>(positions.size());
+        for (Integer position : positions)
+        {
+            selected.add(list.get(position));
+        }
+        return selected;
+    }
+
+    /**
+     * Marks <code>relation</code> as populated for entities at given
+     * positions.
+     */
+    private void markPopulated(List<Set<Relation>> populatedRelations, List<Integer> positions, Relation relation)
+    {
+        for (Integer position : positions)
+        {
+            populatedRelations.get(position).add(relation);
+        }
+    }
+
     /**
      * On association using lucene.
      * 
@@ -19,7 +19,10 @@ import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -30,6 +33,7 @@ import org.apache.commons.logging.LogFactory;
 import com.impetus.kundera.client.Client;
 import com.impetus.kundera.client.EnhanceEntity;
 import com.impetus.kundera.graph.Node;
+import com.impetus.kundera.graph.NodeKey;
 import com.impetus.kundera.graph.ObjectGraphUtils;
 import com.impetus.kundera.index.DocumentIndexer;
 import com.impetus.kundera.index.LuceneQueryUtils;
@@ -246,7 +250,7 @@ final class AssociationBuilder
             {
                 Object childId = PropertyAccessorHelper.getId(child, childMetadata);
 
-                String nodeId = ObjectGraphUtils.getNodeId(childId, childMetadata.getEntityClazz());
+                NodeKey nodeId = ObjectGraphUtils.getNodeId(childId, childMetadata.getEntityClazz());
                 Node node = new Node(nodeId, childMetadata.getEntityClazz(), new ManagedState(),
                         pd.getPersistenceCache(),childId);
                 node.setData(child);
@@ -275,6 +279,202 @@ final class AssociationBuilder
 
     }
 
+    /**
+     * Set oriented variant of
+     * {@link #populateRelationFromValue(Object, PersistenceDelegator, Relation, Object, EntityMetadata)}
+     * . Fetches children for all given relation values in one go (via child's
+     * own client, which can be in a different persistence unit) and sets them
+     * into corresponding entities.
+     *
+     * @param entities
+     *            entities holding relation
+     * @param relationValues
+     *            relation(foreign key) value for each entity, in same order.
+     * @param pd
+     *            persistence delegator
+     * @param relation
+     *            relation to populate
+     * @param entityMetadata
+     *            metadata of entities holding relation
+     * @param childMetadata
+     *            metadata of child entity
+     */
+    void populateRelationFromValues(List<Object> entities, List<Object> relationValues, PersistenceDelegator pd,
+            Relation relation, EntityMetadata entityMetadata, EntityMetadata childMetadata)
+    {
+        Class<?> childClass = relation.getTargetEntity();
+
+        List<?> children = pd.find(childClass, relationValues.toArray());
+
+        Map<NodeKey, Object> childrenByNodeId = new HashMap<NodeKey, Object>();
+        for (Object child : children)
+        {
+            child = child instanceof EnhanceEntity ? ((EnhanceEntity) child).getEntity() : child;
+            if (child != null)
+            {
+                childrenByNodeId.put(
+                        ObjectGraphUtils.getNodeId(PropertyAccessorHelper.getId(child, childMetadata), childClass),
+                        child);
+            }
+        }
+
+        // If child has any bidirectional relationship, process them here
+        Field biDirectionalField = getBiDirectionalField(entityMetadata.getEntityClazz(), childClass);
+        Relation reverseRelation = biDirectionalField != null ? childMetadata.getRelation(biDirectionalField
+                .getName()) : null;
+
+        Set<NodeKey> processedChildren = new HashSet<NodeKey>();
+        for (int i = 0; i < entities.size(); i++)
+        {
+            Object entity = entities.get(i);
+            NodeKey childNodeId = ObjectGraphUtils.getNodeId(relationValues.get(i), childClass);
+            Object child = childrenByNodeId.get(childNodeId);
+
+            if (child != null)
+            {
+                PropertyAccessorHelper.set(entity, relation.getProperty(), child);
+
+                if (reverseRelation != null)
+                {
+                    if (relation.getType().equals(ForeignKey.ONE_TO_ONE))
+                    {
+                        PropertyAccessorHelper.set(child, reverseRelation.getProperty(), entity);
+                    }
+                    else if (processedChildren.add(childNodeId))
+                    {
+                        // Many entities may point to the same child, fetch
+                        // its other side only once.
+                        Object childId = PropertyAccessorHelper.getId(child, childMetadata);
+                        populateRelationViaQuery(child, pd, childId, reverseRelation, relation.getJoinColumnName(),
+                                entityMetadata);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Set oriented variant of
+     * {@link #populateRelationViaQuery(Object, PersistenceDelegator, Object, Relation, String, EntityMetadata)}
+     * for children located via Lucene indexes. Child ids for all entities are
+     * collected from index first and then all children are fetched with a
+     * single {@link Client#findAll(Class, Object...)} call on child's client.
+     *
+     * @param entities
+     *            parent entities
+     * @param entityIds
+     *            ids of parent entities, in same order.
+     * @param pd
+     *            persistence delegator
+     * @param relation
+     *            relation to populate
+     * @param childMetadata
+     *            metadata of child entity
+     */
+    void populateRelationViaIndex(List<Object> entities, List<Object> entityIds, PersistenceDelegator pd,
+            Relation relation, EntityMetadata childMetadata)
+    {
+        Class<?> childClass = relation.getTargetEntity();
+        Client childClient = pd.getClient(childMetadata);
+
+        if (entities.isEmpty())
+        {
+            return;
+        }
+
+        // Child ids held by each entity, searched for all entities at once,
+        // and all child ids to be fetched.
+        Map<String, Set<String>> childIdsByParent = childClient.getIndexManager().searchChildren(
+                entities.get(0).getClass(), entityIds, childClass);
+        List<Set<String>> childIds = new ArrayList<Set<String>>(entities.size());
+        Set<String> allChildIds = new LinkedHashSet<String>();
+        for (int i = 0; i < entities.size(); i++)
+        {
+            Set<String> ids = childIdsByParent.get(entityIds.get(i).toString());
+            if (ids == null)
+            {
+                ids = Collections.emptySet();
+            }
+            childIds.add(ids);
+            allChildIds.addAll(ids);
+        }
+
+        if (allChildIds.isEmpty())
+        {
+            return;
+        }
+
+        List<?> fetched = childClient.findAll(childClass, allChildIds.toArray(new String[] {}));
+
+        Map<String, Object> childrenById = new HashMap<String, Object>();
+        if (fetched != null)
+        {
+            for (Object o : fetched)
+            {
+                Object child = o instanceof EnhanceEntity ? ((EnhanceEntity) o).getEntity() : o;
+                if (child != null)
+                {
+                    childrenById.put(PropertyAccessorHelper.getId(child, childMetadata).toString(), child);
+                }
+            }
+        }
+
+        Field biDirectionalField = getBiDirectionalField(entities.get(0).getClass(), childClass);
+        Relation reverseRelation = biDirectionalField != null ? childMetadata.getRelation(biDirectionalField
+                .getName()) : null;
+
+        MainCache mainCache = (MainCache) pd.getPersistenceCache().getMainCache();
+        List<EnhanceEntity> associatedEntities = new ArrayList<EnhanceEntity>();
+
+        for (int i = 0; i < entities.size(); i++)
+        {
+            Object entity = entities.get(i);
+            List<Object> children = new ArrayList<Object>();
+            for (String childId : childIds.get(i))
+            {
+                Object child = childrenById.get(childId);
+                if (child != null)
+                {
+                    children.add(child);
+                }
+            }
+
+            if (children.isEmpty())
+            {
+                continue;
+            }
+
+            setAssociatedEntities(entity, relation.getProperty(), children);
+
+            for (Object child : children)
+            {
+                if (reverseRelation != null)
+                {
+                    PropertyAccessorHelper.set(child, reverseRelation.getProperty(), entity);
+                }
+
+                // Save children entities to persistence cache
+                Object childId = PropertyAccessorHelper.getId(child, childMetadata);
+                NodeKey nodeId = ObjectGraphUtils.getNodeId(childId, childMetadata.getEntityClazz());
+                Node node = new Node(nodeId, childMetadata.getEntityClazz(), new ManagedState(),
+                        pd.getPersistenceCache(), childId);
+                node.setData(child);
+                node.setPersistenceDelegator(pd);
+                mainCache.addNodeToCache(node);
+
+                associatedEntities.add(new EnhanceEntity(child, childId, null));
+            }
+        }
+
+        // Recursively find associated entities, again for all children at
+        // once.
+        if ((childMetadata.getRelationNames() != null && !childMetadata.getRelationNames().isEmpty())
+                || childMetadata.isRelationViaJoinTable())
+        {
+            pd.getReader(childClient).recursivelyFindEntities(associatedEntities, childMetadata, pd);
+        }
+    }
+
     /**
      * Retrieves associated entities via running query into Lucene indexing.
      */
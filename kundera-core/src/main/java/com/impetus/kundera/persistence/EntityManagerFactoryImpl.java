@@ -15,10 +15,17 @@
  ******************************************************************************/
 package com.impetus.kundera.persistence;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 
 import javax.persistence.Cache;
 import javax.persistence.EntityManager;
@@ -35,6 +42,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.impetus.kundera.Constants;
+import com.impetus.kundera.KunderaException;
 import com.impetus.kundera.KunderaPersistenceUnitUtil;
 import com.impetus.kundera.PersistenceProperties;
 import com.impetus.kundera.PersistenceUtilHelper;
@@ -44,6 +52,16 @@ import com.impetus.kundera.cache.NonOperationalCacheProvider;
 import com.impetus.kundera.client.ClientResolver;
 import com.impetus.kundera.loader.ClientLifeCycleManager;
 import com.impetus.kundera.metadata.KunderaMetadataManager;
+import com.impetus.kundera.metadata.model.ApplicationMetadata;
+import com.impetus.kundera.metadata.model.KunderaMetadata;
+import com.impetus.kundera.persistence.api.WriteBehindListener;
+import com.impetus.kundera.persistence.context.PersistenceCache;
+import com.impetus.kundera.persistence.context.WriteBehindQueue;
+import com.impetus.kundera.persistence.context.WriteBehindStatistics;
+import com.impetus.kundera.property.ObjectSerializer;
+import com.impetus.kundera.property.ObjectSerializerFactory;
+import com.impetus.kundera.query.QueryPlanCache;
+import com.impetus.kundera.query.QueryResultCache;
 
 /**
  * Implementation class for {@link EntityManagerFactory} 
@@ -68,6 +86,33 @@ public class EntityManagerFactoryImpl implements EntityManagerFactory
     /** The cache provider. */
     private CacheProvider cacheProvider;
 
+    /** Parsed query plans shared by entity managers of this factory. */
+    private QueryPlanCache queryPlanCache;
+
+    /** Query results shared by entity managers of this factory. */
+    private QueryResultCache queryResultCache;
+
+    /** Background flusher of write behind queues, null if not enabled. */
+    private ScheduledExecutorService writeBehindExecutor;
+
+    private WriteBehindListener writeBehindListener;
+
+    private WriteBehindStatistics writeBehindStatistics;
+
+    private int writeBehindQueueSize;
+
+    private int writeBehindBatchSize;
+
+    private long writeBehindMaxLatency;
+
+    /** Executor of parallel flushes, null if not enabled. */
+    private ExecutorService flushExecutor;
+
+    /** Bounds of persistence contexts, zero if unbounded. */
+    private int persistenceContextMaxSize;
+
+    private long persistenceContextMaxBytes;
+
     /**
      * Array of persistence units. (Contains only one string usually except when
      * persisting in multiple data-stores)
@@ -115,6 +160,8 @@ public class EntityManagerFactoryImpl implements EntityManagerFactory
         this.properties = properties;
         this.persistenceUnits = persistenceUnit.split(Constants.PERSISTENCE_UNIT_SEPARATOR);
 
+        initObjectSerializer();
+
         // Initialize L2 cache
         cacheProvider = initSecondLevelCache();
         cacheProvider.createCache(Constants.KUNDERA_SECONDARY_CACHE_NAME);
@@ -144,6 +191,18 @@ public class EntityManagerFactoryImpl implements EntityManagerFactory
         
         this.util = new KunderaPersistenceUnitUtil(cache);
 
+        // Initialize query plan cache, precompiling named queries
+        queryPlanCache = initQueryPlanCache();
+
+        queryResultCache = initQueryResultCache();
+
+        initWriteBehind();
+
+        initFlushExecutor();
+
+        persistenceContextMaxSize = getIntProperty(PersistenceProperties.KUNDERA_PERSISTENCE_CONTEXT_MAX_SIZE, 0);
+        persistenceContextMaxBytes = getLongProperty(PersistenceProperties.KUNDERA_PERSISTENCE_CONTEXT_MAX_BYTES, 0);
+
         logger.info("EntityManagerFactory created for persistence unit : " + persistenceUnit);
     }
     
@@ -168,10 +227,32 @@ public class EntityManagerFactoryImpl implements EntityManagerFactory
             cacheProvider.shutdown();
         }
 
+        if (queryPlanCache != null)
+        {
+            queryPlanCache.clear();
+        }
+
+        if (queryResultCache != null)
+        {
+            queryResultCache.clear();
+        }
+
+        if (writeBehindExecutor != null)
+        {
+            writeBehindExecutor.shutdown();
+        }
+
+        if (flushExecutor != null)
+        {
+            flushExecutor.shutdown();
+        }
+
         for (String pu : persistenceUnits)
         {
             ((ClientLifeCycleManager) ClientResolver.getClientFactory(pu)).destroy();
         }
+
+        ObjectSerializerFactory.release(getPersistenceUnit());
     }
 
     /**
@@ -363,6 +444,320 @@ public class EntityManagerFactoryImpl implements EntityManagerFactory
         return cacheProvider;
     }
 
+    /**
+     * Inits the query plan cache and compiles named queries mapped to
+     * persistence units of this factory into it.
+     * 
+     * @return the query plan cache
+     */
+    private QueryPlanCache initQueryPlanCache()
+    {
+        int maxSize = getIntProperty(PersistenceProperties.KUNDERA_QUERY_PLAN_CACHE_SIZE,
+                QueryPlanCache.DEFAULT_MAX_SIZE);
+
+        QueryPlanCache queryPlanCache = new QueryPlanCache(maxSize);
+        if (maxSize > 0)
+        {
+            ApplicationMetadata appMetadata = KunderaMetadata.INSTANCE.getApplicationMetadata();
+            List<String> pus = Arrays.asList(persistenceUnits);
+            for (String queryName : appMetadata.getQueryNames())
+            {
+                Class<?> mappedClass = appMetadata.getMappedClass(queryName);
+                List<String> mappedPus = mappedClass != null ? appMetadata.getMappedPersistenceUnit(mappedClass)
+                        : null;
+                if (!appMetadata.isNative(queryName) && mappedPus != null && !Collections.disjoint(pus, mappedPus))
+                {
+                    try
+                    {
+                        queryPlanCache.compile(appMetadata.getQuery(queryName));
+                    }
+                    catch (RuntimeException e)
+                    {
+                        // Let it fail on createNamedQuery, same as before.
+                        logger.warn("Could not compile named query " + queryName + ", Caused by: " + e.getMessage());
+                    }
+                }
+            }
+        }
+        return queryPlanCache;
+    }
+
+    /**
+     * Creates cache of query results, if its size is set or, by default size,
+     * if a named query of persistence units asks for caching. Queries asking
+     * for it through Query#setHint only are cached once size is set.
+     * 
+     * @return the query result cache, null if no query is cached.
+     */
+    private QueryResultCache initQueryResultCache()
+    {
+        int maxSize = getIntProperty(PersistenceProperties.KUNDERA_QUERY_CACHE_SIZE, -1);
+        if (maxSize < 0)
+        {
+            maxSize = hasCachedNamedQuery() ? QueryResultCache.DEFAULT_MAX_SIZE : 0;
+        }
+        return maxSize > 0 ? new QueryResultCache(maxSize) : null;
+    }
+
+    /**
+     * Returns true, if a named query of persistence units carries
+     * {@link PersistenceProperties#KUNDERA_QUERY_CACHE} hint.
+     */
+    private boolean hasCachedNamedQuery()
+    {
+        ApplicationMetadata appMetadata = KunderaMetadata.INSTANCE.getApplicationMetadata();
+        List<String> pus = Arrays.asList(persistenceUnits);
+        for (String queryName : appMetadata.getQueryNames())
+        {
+            Class<?> mappedClass = appMetadata.getMappedClass(queryName);
+            List<String> mappedPus = mappedClass != null ? appMetadata.getMappedPersistenceUnit(mappedClass) : null;
+            Object hint = appMetadata.getQueryHints(queryName).get(PersistenceProperties.KUNDERA_QUERY_CACHE);
+            if (hint != null && Boolean.parseBoolean(hint.toString().trim()) && mappedPus != null
+                    && !Collections.disjoint(pus, mappedPus))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns cache of parsed queries, shared by all entity managers of this
+     * factory.
+     * 
+     * @return the query plan cache
+     */
+    public QueryPlanCache getQueryPlanCache()
+    {
+        return queryPlanCache;
+    }
+
+    /**
+     * Returns cache of query results, shared by all entity managers of this
+     * factory.
+     * 
+     * @return the query result cache, null if no query is cached.
+     */
+    public QueryResultCache getQueryResultCache()
+    {
+        return queryResultCache;
+    }
+
+    /**
+     * Reads write behind settings and starts background flusher, if write
+     * behind is enabled.
+     */
+    private void initWriteBehind()
+    {
+        Object enabled = getProperty(PersistenceProperties.KUNDERA_WRITE_BEHIND);
+        if (enabled == null || !Boolean.parseBoolean(enabled.toString().trim()))
+        {
+            return;
+        }
+
+        writeBehindQueueSize = getIntProperty(PersistenceProperties.KUNDERA_WRITE_BEHIND_QUEUE_SIZE, 10000);
+        writeBehindBatchSize = getIntProperty(PersistenceProperties.KUNDERA_WRITE_BEHIND_BATCH_SIZE, 100);
+        writeBehindMaxLatency = getIntProperty(PersistenceProperties.KUNDERA_WRITE_BEHIND_MAX_LATENCY, 50);
+
+        Object listenerClassName = getProperty(PersistenceProperties.KUNDERA_WRITE_BEHIND_LISTENER_CLASS);
+        if (listenerClassName != null)
+        {
+            try
+            {
+                writeBehindListener = (WriteBehindListener) Class.forName(listenerClassName.toString().trim())
+                        .newInstance();
+            }
+            catch (ClassNotFoundException e)
+            {
+                throw new KunderaException("Could not find class " + listenerClassName
+                        + ". Check whether you spelled it correctly in persistence.xml", e);
+            }
+            catch (InstantiationException e)
+            {
+                throw new KunderaException("Could not instantiate " + listenerClassName, e);
+            }
+            catch (IllegalAccessException e)
+            {
+                throw new KunderaException(e);
+            }
+        }
+
+        writeBehindStatistics = new WriteBehindStatistics();
+        writeBehindExecutor = Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors(),
+                new ThreadFactory()
+                {
+                    @Override
+                    public Thread newThread(Runnable r)
+                    {
+                        Thread t = new Thread(r, "kundera-write-behind");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+    }
+
+    /**
+     * Returns a new write behind queue for an entity manager of this factory.
+     * 
+     * @return write behind queue, or null if write behind is not enabled.
+     */
+    WriteBehindQueue createWriteBehindQueue()
+    {
+        if (writeBehindExecutor == null)
+        {
+            return null;
+        }
+        return new WriteBehindQueue(writeBehindQueueSize, writeBehindBatchSize, writeBehindMaxLatency,
+                writeBehindExecutor, writeBehindListener, writeBehindStatistics, queryResultCache, getCache());
+    }
+
+    /**
+     * Creates bounded executor for parallel flushes, if parallelism is
+     * configured.
+     */
+    private void initFlushExecutor()
+    {
+        int parallelism = getIntProperty(PersistenceProperties.KUNDERA_FLUSH_PARALLELISM, 1);
+        if (parallelism < 2)
+        {
+            return;
+        }
+
+        flushExecutor = Executors.newFixedThreadPool(parallelism, new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "kundera-flush");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * @return executor of parallel flushes, null if not enabled.
+     */
+    ExecutorService getFlushExecutor()
+    {
+        return flushExecutor;
+    }
+
+    /**
+     * Sets serializer and compression of fields without a dedicated accessor,
+     * if configured. Serializers are shared by all factories, so factory fails
+     * if another one configured them differently.
+     */
+    private void initObjectSerializer()
+    {
+        Object serializerClassName = getProperty(PersistenceProperties.KUNDERA_OBJECT_SERIALIZER);
+        if (serializerClassName != null)
+        {
+            try
+            {
+                ObjectSerializerFactory.setDefault(getPersistenceUnit(), (ObjectSerializer) Class.forName(
+                        serializerClassName.toString().trim()).newInstance());
+            }
+            catch (ClassNotFoundException e)
+            {
+                throw new KunderaException("Could not find class " + serializerClassName
+                        + ". Check whether you spelled it correctly in persistence.xml", e);
+            }
+            catch (InstantiationException e)
+            {
+                throw new KunderaException("Could not instantiate " + serializerClassName, e);
+            }
+            catch (IllegalAccessException e)
+            {
+                throw new KunderaException(e);
+            }
+        }
+
+        if (getProperty(PersistenceProperties.KUNDERA_OBJECT_SERIALIZER_COMPRESSION_THRESHOLD) != null)
+        {
+            ObjectSerializerFactory.setCompressionThreshold(getPersistenceUnit(), getIntProperty(
+                    PersistenceProperties.KUNDERA_OBJECT_SERIALIZER_COMPRESSION_THRESHOLD, 0));
+        }
+    }
+
+    /**
+     * Returns a new persistence context for an entity manager of this
+     * factory, bounded if configured.
+     * 
+     * @return persistence cache
+     */
+    PersistenceCache createPersistenceCache()
+    {
+        return new PersistenceCache(persistenceContextMaxSize, persistenceContextMaxBytes);
+    }
+
+    /**
+     * Returns write behind counters of all entity managers of this factory.
+     * 
+     * @return write behind statistics, or null if write behind is not
+     *         enabled.
+     */
+    public WriteBehindStatistics getWriteBehindStatistics()
+    {
+        return writeBehindStatistics;
+    }
+
+    /**
+     * @return persistence unit(s) of this factory, as named on creation.
+     */
+    private String getPersistenceUnit()
+    {
+        return (String) properties.get(Constants.PERSISTENCE_UNIT_NAME);
+    }
+
+    /**
+     * Returns factory property, falling back to property of (first)
+     * persistence unit.
+     */
+    private Object getProperty(String name)
+    {
+        Object value = getProperties().get(name);
+        if (value == null)
+        {
+            value = KunderaMetadataManager.getPersistenceUnitMetadata(persistenceUnits[0]).getProperty(name);
+        }
+        return value;
+    }
+
+    private int getIntProperty(String name, int defaultValue)
+    {
+        Object value = getProperty(name);
+        if (value != null)
+        {
+            try
+            {
+                return Integer.parseInt(value.toString().trim());
+            }
+            catch (NumberFormatException e)
+            {
+                logger.warn("Invalid value " + value + " for " + name + ", using default " + defaultValue);
+            }
+        }
+        return defaultValue;
+    }
+
+    private long getLongProperty(String name, long defaultValue)
+    {
+        Object value = getProperty(name);
+        if (value != null)
+        {
+            try
+            {
+                return Long.parseLong(value.toString().trim());
+            }
+            catch (NumberFormatException e)
+            {
+                logger.warn("Invalid value " + value + " for " + name + ", using default " + defaultValue);
+            }
+        }
+        return defaultValue;
+    }
+
     /**
      * Gets the persistence units.
      * 
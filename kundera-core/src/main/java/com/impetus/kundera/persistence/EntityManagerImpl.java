@@ -107,10 +107,14 @@ public class EntityManagerImpl implements EntityManager, EntityTransaction, Reso
         this.factory = factory;
         logger.debug("Creating EntityManager for persistence unit : " + getPersistenceUnit());
         session = new EntityManagerSession((Cache) factory.getCache());
-        persistenceCache = new PersistenceCache();
+        persistenceCache = ((EntityManagerFactoryImpl) this.factory).createPersistenceCache();
         persistenceCache.setPersistenceContextType(persistenceContextType);
 
         persistenceDelegator = new PersistenceDelegator(session, persistenceCache);
+        persistenceDelegator.setQueryPlanCache(((EntityManagerFactoryImpl) this.factory).getQueryPlanCache());
+        persistenceDelegator.setQueryResultCache(((EntityManagerFactoryImpl) this.factory).getQueryResultCache());
+        persistenceDelegator.setWriteBehindQueue(((EntityManagerFactoryImpl) this.factory).createWriteBehindQueue());
+        persistenceDelegator.setFlushExecutor(((EntityManagerFactoryImpl) this.factory).getFlushExecutor());
 
         for (String pu : ((EntityManagerFactoryImpl) this.factory).getPersistenceUnits())
         {
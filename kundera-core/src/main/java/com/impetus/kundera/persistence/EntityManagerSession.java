@@ -15,6 +15,7 @@
  ******************************************************************************/
 package com.impetus.kundera.persistence;
 
+import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -22,6 +23,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.impetus.kundera.cache.Cache;
+import com.impetus.kundera.graph.NodeKey;
 
 /**
  * The Class EntityManagerSession.
@@ -64,18 +66,24 @@ public class EntityManagerSession
     @SuppressWarnings("unchecked")
     protected <T> T lookup(Class<T> entityClass, Object id)
     {
-        String key = cacheKey(entityClass, id);
-        LOG.debug("Reading from L1 >> " + key);
+        NodeKey key = cacheKey(entityClass, id);
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Reading from L1 >> " + key);
+        }
         T o = (T) sessionCache.get(key);
 
         // go to second-level cache
         if (o == null)
         {
-            LOG.debug("Reading from L2 >> " + key);
+            if (LOG.isDebugEnabled())
+            {
+                LOG.debug("Reading from L2 >> " + key);
+            }
             Cache c = (Cache) getL2Cache();
             if (c != null)
             {
-                o = (T) c.get(key);
+                o = (T) c.get(entityClass, id);
                 if (o != null)
                 {
                     LOG.debug("Found item in second level cache!");
@@ -110,18 +118,24 @@ public class EntityManagerSession
      */
     protected void store(Object id, Object entity, boolean spillOverToL2)
     {
-        String key = cacheKey(entity.getClass(), id);
-        LOG.debug("Writing to L1 >> " + key);
+        NodeKey key = cacheKey(entity.getClass(), id);
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Writing to L1 >> " + key);
+        }
         sessionCache.put(key, entity);
 
         if (spillOverToL2)
         {
-            LOG.debug("Writing to L2 >>" + key);
+            if (LOG.isDebugEnabled())
+            {
+                LOG.debug("Writing to L2 >>" + key);
+            }
             // save to second level cache
             Cache c = (Cache) getL2Cache();
             if (c != null)
             {
-                c.put(key, entity);
+                c.put(entity.getClass(), id, entity);
             }
         }
     }
@@ -155,17 +169,106 @@ public class EntityManagerSession
      */
     protected <T> void remove(Class<T> entityClass, Object id, boolean spillOverToL2)
     {
-        String key = cacheKey(entityClass, id);
-        LOG.debug("Removing from L1 >> " + key);
+        NodeKey key = cacheKey(entityClass, id);
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Removing from L1 >> " + key);
+        }
         Object o = sessionCache.remove(key);
 
         if (spillOverToL2)
         {
-            LOG.debug("Removing from L2 >> " + key);
+            if (LOG.isDebugEnabled())
+            {
+                LOG.debug("Removing from L2 >> " + key);
+            }
             Cache c = (Cache) getL2Cache();
             if (c != null)
             {
-                c.evict(entityClass, key);
+                c.evict(entityClass, id);
+            }
+        }
+    }
+
+    /**
+     * Reads given entity from second level cache only. Returned object is
+     * shared by all entity managers and must not be handed out as is.
+     * 
+     * @param entityClass
+     *            the entity class
+     * @param id
+     *            the id
+     * @return cached entity, or null
+     */
+    protected Object lookupInL2(Class<?> entityClass, Object id)
+    {
+        Cache c = getL2Cache();
+        if (c == null)
+        {
+            return null;
+        }
+        if (LOG.isDebugEnabled())
+        {
+            LOG.debug("Reading from L2 >> " + cacheKey(entityClass, id));
+        }
+        return c.get(entityClass, id);
+    }
+
+    /**
+     * Writes given entity to second level cache only.
+     * 
+     * @param entityClass
+     *            the entity class
+     * @param id
+     *            the id
+     * @param entity
+     *            entity, not referenced by any entity manager
+     */
+    protected void storeInL2(Class<?> entityClass, Object id, Object entity)
+    {
+        Cache c = getL2Cache();
+        if (c != null)
+        {
+            if (LOG.isDebugEnabled())
+            {
+                LOG.debug("Writing to L2 >> " + cacheKey(entityClass, id));
+            }
+            c.put(entityClass, id, entity);
+        }
+    }
+
+    /**
+     * Removes all instances of given entity class.
+     * 
+     * @param entityClass
+     *            the entity class
+     */
+    protected void removeAll(Class<?> entityClass)
+    {
+        LOG.debug("Removing from L1 >> " + entityClass.getName() + "*");
+        Iterator<Object> keys = sessionCache.keySet().iterator();
+        while (keys.hasNext())
+        {
+            if (((NodeKey) keys.next()).getEntityClass() == entityClass)
+            {
+                keys.remove();
+            }
+        }
+
+        LOG.debug("Removing from L2 >> " + entityClass.getName() + "*");
+        Cache c = (Cache) getL2Cache();
+        if (c != null)
+        {
+            try
+            {
+                c.evict(entityClass);
+            }
+            catch (UnsupportedOperationException e)
+            {
+                // provider can not evict by class, stale entries must not
+                // be read.
+                LOG.debug("L2 cache can not evict " + entityClass.getName() + ", evicting all");
+                c.evictAll();
             }
         }
     }
@@ -178,25 +281,20 @@ public class EntityManagerSession
      * @param id
      *            the id
      * 
-     * @return the string
+     * @return the node key
      */
-    private String cacheKey(Class<?> clazz, Object id)
+    private NodeKey cacheKey(Class<?> clazz, Object id)
     {
-        return clazz.getName() + "_" + id;
+        return new NodeKey(clazz, id);
     }
 
     /**
-     * Clear.
+     * Clears L1 only. L2 cache is shared by all entity managers of factory
+     * and is evicted per region or key through {@link javax.persistence.Cache}.
      */
     public final void clear()
     {
         sessionCache = new ConcurrentHashMap<Object, Object>();
-
-        // Clear L2 Cahce
-        if (getL2Cache() != null)
-        {
-            getL2Cache().evictAll();
-        }
     }
 
     /**
@@ -72,6 +72,21 @@ public interface EntityReader
     Object recursivelyFindEntities(Object entity, Map<String, Object> relationsMap, EntityMetadata m,
             PersistenceDelegator pd);
 
+    /**
+     * Returns populated entities along with all relational values. Relations
+     * are fetched set wise for all entities instead of entity by entity.
+     * 
+     * @param enhanceEntities
+     *            enhance entities
+     * @param m
+     *            entity meta data
+     * @param pd
+     *            persistence delegator.
+     * @return populated entities, in same order as enhance entities.
+     */
+    List<Object> recursivelyFindEntities(List<EnhanceEntity> enhanceEntities, EntityMetadata m,
+            PersistenceDelegator pd);
+
     /**
      * Find by id.
      * 
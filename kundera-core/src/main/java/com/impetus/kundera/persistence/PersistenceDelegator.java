@@ -17,12 +17,17 @@
 package com.impetus.kundera.persistence;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.persistence.FlushModeType;
@@ -38,33 +43,42 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.impetus.kundera.KunderaException;
+import com.impetus.kundera.cache.CacheStatistics;
 import com.impetus.kundera.client.Client;
 import com.impetus.kundera.client.ClientPropertiesSetter;
 import com.impetus.kundera.client.ClientResolver;
 import com.impetus.kundera.client.ClientResolverException;
+import com.impetus.kundera.client.EnhanceEntity;
 import com.impetus.kundera.graph.Node;
+import com.impetus.kundera.graph.NodeKey;
 import com.impetus.kundera.graph.NodeLink;
 import com.impetus.kundera.graph.NodeLink.LinkProperty;
 import com.impetus.kundera.graph.ObjectGraph;
 import com.impetus.kundera.graph.ObjectGraphBuilder;
 import com.impetus.kundera.graph.ObjectGraphUtils;
+import com.impetus.kundera.index.IndexManager;
 import com.impetus.kundera.lifecycle.states.ManagedState;
 import com.impetus.kundera.lifecycle.states.RemovedState;
 import com.impetus.kundera.lifecycle.states.TransientState;
 import com.impetus.kundera.metadata.KunderaMetadataManager;
 import com.impetus.kundera.metadata.model.EntityMetadata;
 import com.impetus.kundera.persistence.api.Batcher;
+import com.impetus.kundera.persistence.api.DirtyTrackable;
 import com.impetus.kundera.persistence.context.EventLog.EventType;
 import com.impetus.kundera.persistence.context.CacheBase;
+import com.impetus.kundera.persistence.context.FlushGraph;
 import com.impetus.kundera.persistence.context.FlushManager;
 import com.impetus.kundera.persistence.context.FlushStack;
 import com.impetus.kundera.persistence.context.MainCache;
 import com.impetus.kundera.persistence.context.PersistenceCache;
+import com.impetus.kundera.persistence.context.WriteBehindQueue;
 import com.impetus.kundera.persistence.context.jointable.JoinTableData;
 import com.impetus.kundera.persistence.context.jointable.JoinTableData.OPERATION;
 import com.impetus.kundera.persistence.event.EntityEventDispatcher;
 import com.impetus.kundera.property.PropertyAccessException;
 import com.impetus.kundera.property.PropertyAccessorHelper;
+import com.impetus.kundera.query.QueryPlanCache;
+import com.impetus.kundera.query.QueryResultCache;
 import com.impetus.kundera.query.QueryResolver;
 import com.impetus.kundera.utils.ObjectUtils;
 
@@ -105,10 +119,28 @@ public class PersistenceDelegator
 
     private PersistenceCache persistenceCache;
 
+    /** Parsed query plans, shared per entity manager factory. */
+    private QueryPlanCache queryPlanCache;
+
+    /** Query results, shared per entity manager factory. */
+    private QueryResultCache queryResultCache;
+
+    /** Tables of batched writes, cached query results of which are stale. */
+    private final Set<String> batchedTables = Collections.synchronizedSet(new HashSet<String>());
+
+    /** Changed batched nodes, to evict from L2 once batches are executed. */
+    private final List<Node> batchedNodes = new ArrayList<Node>();
+
     FlushManager flushManager = new FlushManager();
 
     private boolean enableFlush;
 
+    /** Write behind queue, null unless enabled for entity manager factory. */
+    private WriteBehindQueue writeBehindQueue;
+
+    /** Executor of parallel flushes, null unless enabled for factory. */
+    private ExecutorService flushExecutor;
+
     /**
      * Instantiates a new persistence delegator.
      * 
@@ -187,7 +219,7 @@ public class PersistenceDelegator
             return null;
 
         // Set this returned entity as head node if applicable
-        String nodeId = ObjectGraphUtils.getNodeId(primaryKey, entityClass);
+        NodeKey nodeId = ObjectGraphUtils.getNodeId(primaryKey, entityClass);
         CacheBase mainCache = getPersistenceCache().getMainCache();
         Node node = mainCache.getNodeFromCache(nodeId);
         if (node != null && node.getParents() == null && !mainCache.getHeadNodes().contains(node))
@@ -195,7 +227,12 @@ public class PersistenceDelegator
             mainCache.addHeadNode(node);
         }
 
-        // Return a deep copy of this entity
+        // Entities tracking their own changes are returned as managed
+        // instance, others as a deep copy of this entity
+        if (e instanceof DirtyTrackable)
+        {
+            return e;
+        }
         return (E) ObjectUtils.deepCopy((Object) e);
     }
     
@@ -225,12 +262,26 @@ public class PersistenceDelegator
         {
             throw new KunderaException("Unable to load entity metadata for :" + entityClass);
         }
-        String nodeId = ObjectGraphUtils.getNodeId(primaryKey, entityClass);
+        NodeKey nodeId = ObjectGraphUtils.getNodeId(primaryKey, entityClass);
+
+        // Entity queued for write behind is newer than in database.
+        Node pendingNode = getPendingNode(nodeId);
+        if (pendingNode != null)
+        {
+            lock.readLock().unlock();
+            return pendingNode.isInState(RemovedState.class) ? null : (E) pendingNode.getData();
+        }
 
         MainCache mainCache = (MainCache) getPersistenceCache().getMainCache();
         Node node = mainCache.getNodeFromCache(nodeId);
 
-        // if node is not in persistence cache or is dirty, fetch from database
+        // if node is not in persistence cache, try second level cache
+        if (node == null && isL2Cacheable(entityMetadata))
+        {
+            node = findInL2(entityMetadata, nodeId, primaryKey);
+        }
+
+        // if node is not in any cache or is dirty, fetch from database
         if (node == null || node.isDirty())
         {
 
@@ -238,7 +289,13 @@ public class PersistenceDelegator
             node.setClient(getClient(entityMetadata));
             node.setPersistenceDelegator(this);
 
+            long start = System.nanoTime();
             node.find();
+            if (isL2Cacheable(entityMetadata))
+            {
+                getCacheRegion(entityMetadata).loaded((System.nanoTime() - start) / 1000);
+                storeInL2(entityMetadata, node);
+            }
         }
 
         lock.readLock().unlock();
@@ -255,8 +312,12 @@ public class PersistenceDelegator
     }
 
     /**
-     * Retrieves a {@link List} of Entities for given Primary Keys
-     * 
+     * Retrieves a {@link List} of Entities for given Primary Keys. Keys
+     * already held in persistence cache are served from there, all remaining
+     * keys are fetched from database in a single {@link Client#findAll} call.
+     * Found entities are returned in order of given primary keys, duplicate
+     * and not found keys are skipped.
+     *
      * @param entityClass
      *            Entity Class
      * @param primaryKeys
@@ -267,14 +328,271 @@ public class PersistenceDelegator
     public <E> List<E> find(Class<E> entityClass, Object... primaryKeys)
     {
         List<E> entities = new ArrayList<E>();
-        Set pKeys = new HashSet(Arrays.asList(primaryKeys));
-        for (Object primaryKey : pKeys)
+        if (primaryKeys == null || primaryKeys.length == 0)
         {
-            entities.add(find(entityClass, primaryKey));
+            return entities;
+        }
+
+        EntityMetadata entityMetadata = getMetadata(entityClass);
+
+        if (entityMetadata == null)
+        {
+            throw new KunderaException("Unable to load entity metadata for :" + entityClass);
+        }
+
+        // Locking as it might read from persistence context.
+        lock.readLock().lock();
+        try
+        {
+            MainCache mainCache = (MainCache) getPersistenceCache().getMainCache();
+
+            // Node id -> entity, in order of given primary keys.
+            Map<NodeKey, Object> results = new LinkedHashMap<NodeKey, Object>();
+            List<Object> missingKeys = new ArrayList<Object>();
+
+            for (Object primaryKey : primaryKeys)
+            {
+                if (primaryKey == null)
+                {
+                    continue;
+                }
+                NodeKey nodeId = ObjectGraphUtils.getNodeId(primaryKey, entityClass);
+                if (!results.containsKey(nodeId))
+                {
+                    Node node = getPendingNode(nodeId);
+                    if (node != null)
+                    {
+                        results.put(nodeId, node.isInState(RemovedState.class) ? null : node.getData());
+                        continue;
+                    }
+
+                    node = mainCache.getNodeFromCache(nodeId);
+                    if (node == null && isL2Cacheable(entityMetadata))
+                    {
+                        node = findInL2(entityMetadata, nodeId, primaryKey);
+                    }
+                    if (node != null && !node.isDirty() && node.getData() != null)
+                    {
+                        results.put(nodeId, node.getData());
+                    }
+                    else
+                    {
+                        results.put(nodeId, null);
+                        missingKeys.add(primaryKey);
+                    }
+                }
+            }
+
+            if (!missingKeys.isEmpty())
+            {
+                Client client = getClient(entityMetadata);
+                long start = System.nanoTime();
+                List<?> fetched = client.findAll(entityClass, missingKeys.toArray());
+                if (isL2Cacheable(entityMetadata))
+                {
+                    getCacheRegion(entityMetadata).loaded((System.nanoTime() - start) / 1000);
+                }
+                if (fetched != null)
+                {
+                    for (Node node : onFetchedEntities(fetched, entityMetadata, client))
+                    {
+                        results.put(node.getNodeId(), node.getData());
+                        if (isL2Cacheable(entityMetadata))
+                        {
+                            storeInL2(entityMetadata, node);
+                        }
+                    }
+                }
+            }
+
+            for (Object entity : results.values())
+            {
+                if (entity != null)
+                {
+                    entities.add((E) entity);
+                }
+            }
+        }
+        finally
+        {
+            lock.readLock().unlock();
         }
         return entities;
     }
 
+    /**
+     * Wraps entities fetched from database (either as plain entities or as
+     * {@link EnhanceEntity}) into managed {@link Node}s, populates their
+     * relations for all of them at once and adds them to persistence cache,
+     * just like {@link Node#find()} does for a single entity.
+     * 
+     * @param fetched
+     *            fetched entities or enhance entities
+     * @param entityMetadata
+     *            entity metadata
+     * @param client
+     *            client entities were fetched from
+     * @return nodes added to persistence cache.
+     */
+    private List<Node> onFetchedEntities(List<?> fetched, EntityMetadata entityMetadata, Client client)
+    {
+        List<EnhanceEntity> enhanceEntities = new ArrayList<EnhanceEntity>(fetched.size());
+        for (Object o : fetched)
+        {
+            if (o != null)
+            {
+                EnhanceEntity ee = o instanceof EnhanceEntity ? (EnhanceEntity) o : new EnhanceEntity(o, getId(o,
+                        entityMetadata), null);
+                if (ee.getEntity() != null)
+                {
+                    enhanceEntities.add(ee);
+                }
+            }
+        }
+
+        List<Object> entities = new ArrayList<Object>(enhanceEntities.size());
+        if ((entityMetadata.getRelationNames() != null && !entityMetadata.getRelationNames().isEmpty())
+                || entityMetadata.isRelationViaJoinTable())
+        {
+            // These entities have associated entities, find them recursively.
+            if (!enhanceEntities.isEmpty())
+            {
+                entities = getReader(client).recursivelyFindEntities(enhanceEntities, entityMetadata, this);
+            }
+        }
+        else
+        {
+            for (EnhanceEntity ee : enhanceEntities)
+            {
+                entities.add(ee.getEntity());
+            }
+        }
+
+        List<Node> nodes = new ArrayList<Node>(entities.size());
+        for (int i = 0; i < entities.size(); i++)
+        {
+            Object entity = entities.get(i);
+            Object entityId = enhanceEntities.get(i).getEntityId() != null ? enhanceEntities.get(i).getEntityId()
+                    : getId(entity, entityMetadata);
+
+            NodeKey nodeId = ObjectGraphUtils.getNodeId(entityId, entityMetadata.getEntityClazz());
+            Node node = new Node(nodeId, entityMetadata.getEntityClazz(), new ManagedState(), getPersistenceCache(),
+                    entityId);
+            node.setClient(client);
+            node.setPersistenceDelegator(this);
+            node.setData(entity);
+            getPersistenceCache().getMainCache().addNodeToCache(node);
+
+            // This node is fresh and hence NOT dirty
+            node.setDirty(false);
+
+            // One time set as required for rollback.
+            node.setOriginalNode(node.clone());
+            nodes.add(node);
+        }
+        return nodes;
+    }
+
+    /**
+     * Returns true, if entities of given metadata are read through second
+     * level cache, i.e. they are {@link javax.persistence.Cacheable} and have
+     * no relations. Associated entities of a cached copy would not be managed
+     * by this persistence context, so entities with relations are always read
+     * from database.
+     * 
+     * @param entityMetadata
+     *            entity metadata
+     * @return true, if entity is read through second level cache
+     */
+    private boolean isL2Cacheable(EntityMetadata entityMetadata)
+    {
+        return entityMetadata.isCacheable()
+                && (entityMetadata.getRelationNames() == null || entityMetadata.getRelationNames().isEmpty())
+                && !entityMetadata.isRelationViaJoinTable();
+    }
+
+    /**
+     * Looks up given entity in second level cache. If found, a copy of it is
+     * added to persistence cache as a managed, non dirty node.
+     * 
+     * @param entityMetadata
+     *            entity metadata
+     * @param nodeId
+     *            node id
+     * @param primaryKey
+     *            primary key
+     * @return managed node, or null if not cached
+     */
+    private Node findInL2(EntityMetadata entityMetadata, NodeKey nodeId, Object primaryKey)
+    {
+        CacheStatistics.Region region = getCacheRegion(entityMetadata);
+        Object cached = session.lookupInL2(entityMetadata.getEntityClazz(), primaryKey);
+        if (cached == null)
+        {
+            region.miss();
+            return null;
+        }
+        region.hit();
+
+        Node node = new Node(nodeId, entityMetadata.getEntityClazz(), new ManagedState(), getPersistenceCache(),
+                primaryKey);
+        node.setClient(getClient(entityMetadata));
+        node.setPersistenceDelegator(this);
+        node.setData(ObjectUtils.deepCopy(cached));
+        getPersistenceCache().getMainCache().addNodeToCache(node);
+
+        // This node is fresh and hence NOT dirty
+        node.setDirty(false);
+
+        // One time set as required for rollback.
+        node.setOriginalNode(node.clone());
+        return node;
+    }
+
+    /**
+     * Puts a copy of given node's entity into second level cache, so that
+     * cached entity is never changed by this entity manager.
+     * 
+     * @param entityMetadata
+     *            entity metadata
+     * @param node
+     *            node found from database
+     */
+    private void storeInL2(EntityMetadata entityMetadata, Node node)
+    {
+        if (node.getData() != null)
+        {
+            session.storeInL2(entityMetadata.getEntityClazz(), node.getEntityId(),
+                    ObjectUtils.deepCopy(node.getData()));
+        }
+    }
+
+    /**
+     * Removes entity of given node from second level cache, as it has been
+     * written or deleted.
+     * 
+     * @param node
+     *            flushed node
+     */
+    private void evictFromL2(Node node)
+    {
+        EntityMetadata entityMetadata = getMetadata(node.getDataClass());
+        if (entityMetadata != null && entityMetadata.isCacheable())
+        {
+            session.remove(node.getDataClass(), node.getEntityId());
+            getCacheRegion(entityMetadata).evicted();
+        }
+    }
+
+    /**
+     * Returns second level cache statistics of given entity's region.
+     */
+    private CacheStatistics.Region getCacheRegion(EntityMetadata entityMetadata)
+    {
+        return CacheStatistics.getStatistics(entityMetadata.getPersistenceUnit()).getRegion(
+                entityMetadata.getEntityClazz().getName());
+    }
+
     /**
      * Retrieves {@link List} of entities for a given {@link Map} of embedded
      * column values. Purpose of this method is to provide functionality of
@@ -388,51 +706,48 @@ public class PersistenceDelegator
             if (fs != null)
             {
                 boolean isBatch = false;
-                while (!fs.isEmpty())
+                // index changes of whole flush stack are applied at once.
+                Map<IndexManager, IndexManager.Batch> indexBatches =
+                        new HashMap<IndexManager, IndexManager.Batch>();
+                boolean flushed = false;
+                try
                 {
-                    Node node = fs.pop();
-
-                    // Only nodes in Managed and Removed state are flushed, rest
-                    // are
-                    // ignored
-                    if (node.isInState(ManagedState.class) || node.isInState(RemovedState.class))
+                    if (flushExecutor != null && fs.size() > 1)
                     {
-                        EntityMetadata metadata = getMetadata(node.getDataClass());
-                        node.setClient(getClient(metadata));
+                        isBatch = flushInParallel(fs, indexBatches);
+                    }
+                    while (!fs.isEmpty())
+                    {
+                        Node node = fs.pop();
 
-                        // if batch size is defined.
-                        if ((node.getClient() instanceof Batcher)
-                                && ((Batcher) (node.getClient())).getBatchSize() > 0)
-                        {
-                            isBatch = true;
-                            ((Batcher) (node.getClient())).addBatch(node);
-                        }
-                        else if (flushMode.equals(FlushModeType.AUTO) || enableFlush)
+                        // Only nodes in Managed and Removed state are flushed,
+                        // rest are ignored
+                        if (node.isInState(ManagedState.class) || node.isInState(RemovedState.class))
                         {
-                            node.flush();
-                        }
+                            EntityMetadata metadata = getMetadata(node.getDataClass());
+                            node.setClient(getClient(metadata));
+                            beginIndexBatch(node.getClient(), indexBatches);
 
-                        // Update Link value for all nodes attached to this one
-                        Map<NodeLink, Node> parents = node.getParents();
-                        Map<NodeLink, Node> children = node.getChildren();
+                            isBatch |= flushNode(node);
+                        }
 
-                        if (parents != null && !parents.isEmpty())
+                    }
+                    flushed = true;
+                }
+                finally
+                {
+                    // index is not updated past a failed flush.
+                    for (IndexManager indexManager : indexBatches.keySet())
+                    {
+                        if (flushed)
                         {
-                            for (NodeLink parentNodeLink : parents.keySet())
-                            {
-                                parentNodeLink.addLinkProperty(LinkProperty.LINK_VALUE, node.getEntityId());
-                            }
+                            indexManager.endBatch();
                         }
-
-                        if (children != null && !children.isEmpty())
+                        else
                         {
-                            for (NodeLink childNodeLink : children.keySet())
-                            {
-                                childNodeLink.addLinkProperty(LinkProperty.LINK_VALUE, node.getEntityId());
-                            }
+                            indexManager.discardBatch();
                         }
                     }
-
                 }
 
                 if (!isBatch)
@@ -451,6 +766,267 @@ public class PersistenceDelegator
         }
     }
 
+    /**
+     * Flushes given node, or adds it to batch or write behind queue, and
+     * updates link value for all nodes attached to it. Node's client must be
+     * set.
+     * 
+     * @param node
+     *            node in Managed or Removed state.
+     * @return true, if node is added to batch.
+     */
+    private boolean flushNode(Node node)
+    {
+        boolean isBatch = false;
+
+        // Cached copy is stale once written, it is evicted after write so
+        // that a concurrent read can not cache former state again.
+        boolean isChanged = node.isDirty() || node.isInState(RemovedState.class);
+
+        // if batch size is defined.
+        if (isBatched(node))
+        {
+            isBatch = true;
+            ((Batcher) (node.getClient())).addBatch(node);
+            if (isChanged)
+            {
+                batchedNodes.add(node);
+                if (queryResultCache != null)
+                {
+                    batchedTables.add(QueryResultCache.getTable(getMetadata(node.getDataClass())));
+                }
+            }
+        }
+        else if (isWrittenBehind(node))
+        {
+            // AUTO flush outside transaction, write behind. Queue evicts
+            // entity again once written.
+            if (isChanged)
+            {
+                evictFromL2(node);
+            }
+            writeBehindQueue.add(node);
+            if (node.isInState(RemovedState.class))
+            {
+                getPersistenceCache().getMainCache().removeNodeFromCache(node);
+            }
+        }
+        else if (flushMode.equals(FlushModeType.AUTO) || enableFlush)
+        {
+            try
+            {
+                node.flush();
+            }
+            finally
+            {
+                if (isChanged)
+                {
+                    evictFromL2(node);
+                }
+            }
+            if (isChanged && queryResultCache != null)
+            {
+                queryResultCache.invalidate(QueryResultCache.getTable(getMetadata(node.getDataClass())));
+            }
+        }
+
+        updateLinkValues(node);
+        return isBatch;
+    }
+
+    /**
+     * Returns true, if given node is added to batch of its client on flush.
+     */
+    private boolean isBatched(Node node)
+    {
+        return (node.getClient() instanceof Batcher) && ((Batcher) (node.getClient())).getBatchSize() > 0;
+    }
+
+    /**
+     * Returns true, if given node is queued for write behind on flush.
+     * Entities tracking their own changes are written at once, as their node
+     * holds managed instance, which application may change while background
+     * flusher reads it.
+     */
+    private boolean isWrittenBehind(Node node)
+    {
+        return writeBehindQueue != null && !enableFlush && !(node.getData() instanceof DirtyTrackable);
+    }
+
+    /**
+     * Returns true, if given node is written by its client on flush, i.e.
+     * neither batched nor written behind.
+     */
+    private boolean isWrittenOnFlush(Node node)
+    {
+        return !isBatched(node) && !isWrittenBehind(node) && (flushMode.equals(FlushModeType.AUTO) || enableFlush);
+    }
+
+    /**
+     * Updates link value for all nodes attached to given one.
+     * 
+     * @param node
+     *            flushed node
+     */
+    private void updateLinkValues(Node node)
+    {
+        Map<NodeLink, Node> parents = node.getParents();
+        Map<NodeLink, Node> children = node.getChildren();
+
+        if (parents != null && !parents.isEmpty())
+        {
+            for (NodeLink parentNodeLink : parents.keySet())
+            {
+                parentNodeLink.addLinkProperty(LinkProperty.LINK_VALUE, node.getEntityId());
+            }
+        }
+
+        if (children != null && !children.isEmpty())
+        {
+            for (NodeLink childNodeLink : children.keySet())
+            {
+                childNodeLink.addLinkProperty(LinkProperty.LINK_VALUE, node.getEntityId());
+            }
+        }
+    }
+
+    /**
+     * Flushes all nodes of flush stack, with writes of nodes of different
+     * clients which are not linked to each other in parallel. Flush threads
+     * only write nodes through their clients and update link values, nodes
+     * to batch or write behind, cache eviction and query result invalidation
+     * are handled in caller thread.
+     * 
+     * @param fs
+     *            flush stack, emptied.
+     * @param indexBatches
+     *            index batches of clients flushing, to which those of nodes
+     *            are added.
+     * @return true, if any node is added to batch.
+     */
+    private boolean flushInParallel(FlushStack fs, final Map<IndexManager, IndexManager.Batch> indexBatches)
+    {
+        List<Node> nodes = new ArrayList<Node>(fs.size());
+        while (!fs.isEmpty())
+        {
+            Node node = fs.pop();
+            if (node.isInState(ManagedState.class) || node.isInState(RemovedState.class))
+            {
+                // clients are looked up in caller thread.
+                EntityMetadata metadata = getMetadata(node.getDataClass());
+                node.setClient(getClient(metadata));
+                beginIndexBatch(node.getClient(), indexBatches);
+                nodes.add(node);
+            }
+        }
+
+        // batched and written behind nodes are only handed over.
+        boolean isBatch = false;
+        List<Node> writes = new ArrayList<Node>(nodes.size());
+        List<Node> changes = new ArrayList<Node>(nodes.size());
+        for (Node node : nodes)
+        {
+            if (!isWrittenOnFlush(node))
+            {
+                isBatch |= flushNode(node);
+                continue;
+            }
+
+            writes.add(node);
+            if (node.isDirty() || node.isInState(RemovedState.class))
+            {
+                changes.add(node);
+            }
+        }
+
+        try
+        {
+            FlushGraph graph = flushManager.buildFlushGraph(writes);
+            if (graph.getRoots() < 2)
+            {
+                // nothing to parallelize.
+                for (Node node : writes)
+                {
+                    writeNode(node, indexBatches);
+                }
+            }
+            else
+            {
+                graph.flush(new FlushGraph.NodeFlusher()
+                {
+                    @Override
+                    public void flush(Node node)
+                    {
+                        writeNode(node, indexBatches);
+                    }
+                }, flushExecutor);
+            }
+        }
+        finally
+        {
+            for (Node node : changes)
+            {
+                evictFromL2(node);
+            }
+        }
+
+        if (queryResultCache != null)
+        {
+            for (Node node : changes)
+            {
+                queryResultCache.invalidate(QueryResultCache.getTable(getMetadata(node.getDataClass())));
+            }
+        }
+        return isBatch;
+    }
+
+    /**
+     * Writes given node through its client and updates link values of nodes
+     * attached to it. Runs in flush threads: linked nodes are never written
+     * concurrently, and removed nodes leave main cache, whose removal is
+     * synchronized, while caller waits.
+     * 
+     * @param node
+     *            node in Managed or Removed state.
+     * @param indexBatches
+     *            index batches of flush, joined by flush threads.
+     */
+    private void writeNode(Node node, Map<IndexManager, IndexManager.Batch> indexBatches)
+    {
+        IndexManager indexManager = node.getClient().getIndexManager();
+        IndexManager.Batch batch = indexManager != null ? indexBatches.get(indexManager) : null;
+        IndexManager.Batch previous = batch != null ? indexManager.joinBatch(batch) : null;
+        try
+        {
+            node.flush();
+        }
+        finally
+        {
+            if (batch != null)
+            {
+                indexManager.joinBatch(previous);
+            }
+        }
+        updateLinkValues(node);
+    }
+
+    /**
+     * Begins batch of index changes of given client, unless begun already.
+     * 
+     * @param client
+     *            the client
+     * @param indexBatches
+     *            index batches begun, by index manager
+     */
+    private void beginIndexBatch(Client client, Map<IndexManager, IndexManager.Batch> indexBatches)
+    {
+        IndexManager indexManager = client.getIndexManager();
+        if (indexManager != null && !indexBatches.containsKey(indexManager))
+        {
+            indexBatches.put(indexManager, indexManager.beginBatch());
+        }
+    }
+
     public <E> E merge(E e)
     {
 
@@ -509,7 +1085,7 @@ public class PersistenceDelegator
         EntityMetadata metadata = getMetadata(entity.getClass());
         Object primaryKey = getId(entity, metadata);
 
-        String nodeId = ObjectGraphUtils.getNodeId(primaryKey, entity.getClass());
+        NodeKey nodeId = ObjectGraphUtils.getNodeId(primaryKey, entity.getClass());
 
         Node node = getPersistenceCache().getMainCache().getNodeFromCache(nodeId);
         node.detach();
@@ -556,7 +1132,7 @@ public class PersistenceDelegator
      */
     public Query createQuery(String jpaQuery)
     {
-        Query query = new QueryResolver().getQueryImplementation(jpaQuery, this);
+        Query query = new QueryResolver(queryPlanCache).getQueryImplementation(jpaQuery, this);
         return query;
     }
 
@@ -578,6 +1154,11 @@ public class PersistenceDelegator
         doFlush();
         eventDispatcher = null;
 
+        if (writeBehindQueue != null)
+        {
+            writeBehindQueue.close();
+        }
+
         // Close all clients created in this session
         if (clientMap != null && !clientMap.isEmpty())
         {
@@ -620,7 +1201,7 @@ public class PersistenceDelegator
             throw new IllegalArgumentException("Primary key not set into entity");
         }
 
-        String nodeId = ObjectGraphUtils.getNodeId(primaryKey, entity.getClass());
+        NodeKey nodeId = ObjectGraphUtils.getNodeId(primaryKey, entity.getClass());
 
         Node node = getPersistenceCache().getMainCache().getNodeFromCache(nodeId);
         if (node != null && node.isInState(ManagedState.class))
@@ -653,7 +1234,7 @@ public class PersistenceDelegator
             throw new IllegalArgumentException("Primary key not set into entity");
         }
         
-        String nodeId = ObjectGraphUtils.getNodeId(primaryKey, entity.getClass());
+        NodeKey nodeId = ObjectGraphUtils.getNodeId(primaryKey, entity.getClass());
 
         MainCache mainCache = (MainCache) getPersistenceCache().getMainCache();
         Node node = mainCache.getNodeFromCache(nodeId);
@@ -710,7 +1291,13 @@ public class PersistenceDelegator
      */
     public void store(Object id, Object entity)
     {
-        session.store(id, entity);
+        EntityMetadata entityMetadata = getMetadata(entity.getClass());
+        session.store(id, entity, false);
+        if (entityMetadata != null && entityMetadata.isCacheable())
+        {
+            // L2 is shared, it never holds instances handed out.
+            session.storeInL2(entityMetadata.getEntityClazz(), id, ObjectUtils.deepCopy(entity));
+        }
     }
 
     /**
@@ -724,7 +1311,52 @@ public class PersistenceDelegator
     public void store(List entities, EntityMetadata entityMetadata)
     {
         for (Object o : entities)
-            session.store(getId(o, entityMetadata), o);
+        {
+            Object id = getId(o, entityMetadata);
+            session.store(id, o, false);
+            if (entityMetadata.isCacheable())
+            {
+                // L2 is shared, it never holds instances handed out.
+                session.storeInL2(entityMetadata.getEntityClazz(), id, ObjectUtils.deepCopy(o));
+            }
+        }
+    }
+
+    /**
+     * Evicts all clean instances of given entity class from persistence
+     * context and session cache. Used after bulk delete/update, where affected
+     * records are not known individually. New, changed and removed instances
+     * not flushed yet stay, so that they are still written.
+     * 
+     * @param entityClass
+     *            the entity class
+     */
+    public void evict(Class<?> entityClass)
+    {
+        lock.writeLock().lock();
+        try
+        {
+            CacheBase mainCache = getPersistenceCache().getMainCache();
+            List<Node> evictedNodes = new ArrayList<Node>();
+            for (Node node : mainCache.getAllNodes())
+            {
+                if (entityClass.equals(node.getDataClass()) && !node.isDirty()
+                        && node.isInState(ManagedState.class))
+                {
+                    evictedNodes.add(node);
+                }
+            }
+
+            for (Node node : evictedNodes)
+            {
+                mainCache.removeNodeFromCache(node);
+            }
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+        session.removeAll(entityClass);
     }
 
     /**
@@ -772,6 +1404,77 @@ public class PersistenceDelegator
         return persistenceCache;
     }
 
+    /**
+     * @param queryPlanCache
+     *            the queryPlanCache to set
+     */
+    void setQueryPlanCache(QueryPlanCache queryPlanCache)
+    {
+        this.queryPlanCache = queryPlanCache;
+    }
+
+    /**
+     * @param queryResultCache
+     *            the queryResultCache to set
+     */
+    void setQueryResultCache(QueryResultCache queryResultCache)
+    {
+        this.queryResultCache = queryResultCache;
+    }
+
+    /**
+     * Returns cache of query results, shared by all entity managers of
+     * factory.
+     * 
+     * @return the query result cache, may be null.
+     */
+    public QueryResultCache getQueryResultCache()
+    {
+        return queryResultCache;
+    }
+
+    /**
+     * @param writeBehindQueue
+     *            the writeBehindQueue to set
+     */
+    void setWriteBehindQueue(WriteBehindQueue writeBehindQueue)
+    {
+        this.writeBehindQueue = writeBehindQueue;
+    }
+
+    /**
+     * @param flushExecutor
+     *            the flushExecutor to set
+     */
+    void setFlushExecutor(ExecutorService flushExecutor)
+    {
+        this.flushExecutor = flushExecutor;
+    }
+
+    /**
+     * Writes all entities queued for write behind. Invoked before database is
+     * read by a query, and on flush/commit/close.
+     */
+    public void flushWriteBehind()
+    {
+        if (writeBehindQueue != null)
+        {
+            writeBehindQueue.flush();
+        }
+    }
+
+    /**
+     * Returns node queued for write behind, if any.
+     * 
+     * @param nodeId
+     *            node id
+     * @return queued node, or null
+     */
+    private Node getPendingNode(NodeKey nodeId)
+    {
+        return writeBehindQueue != null ? writeBehindQueue.getNode(nodeId) : null;
+    }
+
     /******************************* Transaction related methods ***********************************************/
 
     public void begin()
@@ -791,6 +1494,7 @@ public class PersistenceDelegator
      */
     public void doFlush()
     {
+            flushWriteBehind();
             enableFlush = true;
             flush();
             execute();
@@ -887,16 +1591,121 @@ public class PersistenceDelegator
      */
     private void execute()
     {
+        List<Batcher> batchers = new ArrayList<Batcher>(clientMap.size());
         for (Client client : clientMap.values())
         {
             if (client instanceof Batcher)
             {
-                if (((Batcher) client).executeBatch() > 0)
+                batchers.add((Batcher) client);
+            }
+        }
+
+        try
+        {
+            if (flushExecutor != null && batchers.size() > 1)
+            {
+                executeInParallel(batchers);
+                return;
+            }
+
+            for (Batcher batcher : batchers)
+            {
+                if (batcher.executeBatch() > 0)
                 {
                     flushJoinTableData();
                 }
             }
         }
+        finally
+        {
+            invalidateBatchedTables();
+            evictBatchedNodes();
+        }
+    }
+
+    /**
+     * Evicts changed nodes of executed batches from second level cache.
+     */
+    private void evictBatchedNodes()
+    {
+        for (Node node : batchedNodes)
+        {
+            evictFromL2(node);
+        }
+        batchedNodes.clear();
+    }
+
+    /**
+     * Invalidates cached query results read from tables written by executed
+     * batches.
+     */
+    private void invalidateBatchedTables()
+    {
+        if (queryResultCache != null)
+        {
+            synchronized (batchedTables)
+            {
+                for (String table : batchedTables)
+                {
+                    queryResultCache.invalidate(table);
+                }
+                batchedTables.clear();
+            }
+        }
+    }
+
+    /**
+     * Executes batches of all clients in parallel.
+     */
+    private void executeInParallel(List<Batcher> batchers)
+    {
+        List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>(batchers.size());
+        for (final Batcher batcher : batchers)
+        {
+            tasks.add(new Callable<Integer>()
+            {
+                @Override
+                public Integer call()
+                {
+                    return batcher.executeBatch();
+                }
+            });
+        }
+
+        int executed = 0;
+        RuntimeException failure = null;
+        try
+        {
+            for (Future<Integer> result : flushExecutor.invokeAll(tasks))
+            {
+                try
+                {
+                    executed += result.get();
+                }
+                catch (ExecutionException e)
+                {
+                    if (failure == null)
+                    {
+                        failure = e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+                                : new KunderaException(e.getCause());
+                    }
+                }
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new KunderaException("Interrupted while executing batches", e);
+        }
+
+        if (failure != null)
+        {
+            throw failure;
+        }
+        if (executed > 0)
+        {
+            flushJoinTableData();
+        }
     }
 
     /**
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.persistence.api;
+
+import com.impetus.kundera.graph.Node;
+
+/**
+ * Datastore specific part of batching. A client implementing {@link Batcher}
+ * hands its nodes to a {@link com.impetus.kundera.persistence.batch.NodeBatcher},
+ * which decides when a batch is written, and implements only how a node is
+ * added to a batch and how a batch is written.
+ * 
+ * @param <B>
+ *            batch, e.g. mutation map or list of documents.
+ */
+public interface BatchWriter<B>
+{
+
+    /**
+     * Creates an empty batch.
+     * 
+     * @return new batch.
+     */
+    B newBatch();
+
+    /**
+     * Adds given node to batch, as insert, update or delete as per node state.
+     * 
+     * @param batch
+     *            batch to add to.
+     * @param node
+     *            dirty node.
+     * @return estimated encoded size of node in bytes, 0 if not known.
+     */
+    long encode(B batch, Node node);
+
+    /**
+     * Writes given batch to database.
+     * 
+     * @param batch
+     *            batch holding at least one node.
+     */
+    void execute(B batch);
+}
@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.persistence.api;
+
+import java.util.Set;
+
+/**
+ * Optional contract for entities which record their own attribute writes,
+ * e.g. from setters or by build time enhancement. For such entities no
+ * snapshot copy is kept in persistence context and dirty check does not
+ * compare object graphs, changed attributes are taken from entity instead and
+ * passed on to client with node.
+ * 
+ * Holder of recorded attribute names must not be a persistent attribute
+ * (i.e. should be transient).
+ */
+public interface DirtyTrackable
+{
+
+    /**
+     * Returns names of attributes written since entity was loaded, persisted
+     * or last cleared.
+     * 
+     * @return attribute names, may be empty.
+     */
+    Set<String> getDirtyAttributes();
+
+    /**
+     * Clears recorded attribute names. Invoked once changes are handed over
+     * to persistence context.
+     */
+    void clearDirtyAttributes();
+}
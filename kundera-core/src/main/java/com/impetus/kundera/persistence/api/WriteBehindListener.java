@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.persistence.api;
+
+/**
+ * Callback for failed write behind flushes. As writes are done by background
+ * flusher, long after persist/merge/remove returned, failures can not be
+ * thrown to caller and are reported here instead.
+ *
+ * Implementation must have a public no-arg constructor and is invoked from
+ * flusher thread.
+ */
+public interface WriteBehindListener
+{
+
+    /**
+     * Invoked when an entity could not be written to or removed from
+     * database.
+     *
+     * @param entity
+     *            entity object.
+     * @param id
+     *            entity id.
+     * @param cause
+     *            failure cause.
+     */
+    void onFailure(Object entity, Object id, Exception cause);
+}
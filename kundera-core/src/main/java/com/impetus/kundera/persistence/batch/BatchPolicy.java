@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.persistence.batch;
+
+import com.impetus.kundera.PersistenceProperties;
+import com.impetus.kundera.metadata.model.PersistenceUnitMetadata;
+
+/**
+ * Thresholds of a batch: number of entities, estimated bytes and linger time.
+ * Whichever is reached first triggers a write. A value of 0 disables bytes and
+ * linger thresholds.
+ */
+public final class BatchPolicy
+{
+    private final int maxSize;
+
+    private final long maxBytes;
+
+    private final long lingerTime;
+
+    /**
+     * Instantiates a new batch policy.
+     * 
+     * @param maxSize
+     *            number of entities which triggers a write.
+     * @param maxBytes
+     *            estimated number of bytes which triggers a write.
+     * @param lingerTime
+     *            maximum time in milliseconds an entity waits in batch.
+     */
+    public BatchPolicy(int maxSize, long maxBytes, long lingerTime)
+    {
+        if (maxSize <= 0 || maxBytes < 0 || lingerTime < 0)
+        {
+            throw new IllegalArgumentException("Batch size must be > 0, batch bytes and linger must be >= 0");
+        }
+        this.maxSize = maxSize;
+        this.maxBytes = maxBytes;
+        this.lingerTime = lingerTime;
+    }
+
+    /**
+     * Reads batch policy of persistence unit, or of an entity of it if entity
+     * class is given. Entity specific values default to persistence unit's.
+     * 
+     * @param puMetadata
+     *            persistence unit metadata, batch size must be defined.
+     * @param entityClass
+     *            entity class, may be null.
+     * @return batch policy.
+     */
+    public static BatchPolicy getPolicy(PersistenceUnitMetadata puMetadata, Class<?> entityClass)
+    {
+        int maxSize = puMetadata.getBatchSize();
+        long maxBytes = getLongProperty(puMetadata, PersistenceProperties.KUNDERA_BATCH_BYTES, null, 0);
+        long lingerTime = getLongProperty(puMetadata, PersistenceProperties.KUNDERA_BATCH_LINGER, null, 0);
+        if (entityClass == null)
+        {
+            return new BatchPolicy(maxSize, maxBytes, lingerTime);
+        }
+
+        String entityName = entityClass.getSimpleName();
+        return new BatchPolicy((int) getLongProperty(puMetadata, PersistenceProperties.KUNDERA_BATCH_SIZE, entityName,
+                maxSize), getLongProperty(puMetadata, PersistenceProperties.KUNDERA_BATCH_BYTES, entityName, maxBytes),
+                getLongProperty(puMetadata, PersistenceProperties.KUNDERA_BATCH_LINGER, entityName, lingerTime));
+    }
+
+    private static long getLongProperty(PersistenceUnitMetadata puMetadata, String name, String entityName,
+            long defaultValue)
+    {
+        String value = puMetadata.getProperty(entityName != null ? name + "." + entityName : name);
+        if (value == null)
+        {
+            return defaultValue;
+        }
+        try
+        {
+            return Long.parseLong(value.trim());
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IllegalArgumentException(name + " property must be numeric");
+        }
+    }
+
+    /**
+     * @return number of entities which triggers a write.
+     */
+    public int getMaxSize()
+    {
+        return maxSize;
+    }
+
+    /**
+     * @return estimated number of bytes which triggers a write, 0 if none.
+     */
+    public long getMaxBytes()
+    {
+        return maxBytes;
+    }
+
+    /**
+     * @return maximum time in milliseconds an entity waits in batch, 0 if
+     *         none.
+     */
+    public long getLingerTime()
+    {
+        return lingerTime;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append("BatchPolicy [maxSize=");
+        builder.append(maxSize);
+        builder.append(", maxBytes=");
+        builder.append(maxBytes);
+        builder.append(", lingerTime=");
+        builder.append(lingerTime);
+        builder.append("]");
+        return builder.toString();
+    }
+}
@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.persistence.batch;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Batch write statistics of a persistence unit, shared by all its clients:
+ * histograms of batch size, bytes and latency, and what triggered writes.
+ */
+public class BatchStatistics
+{
+    /** What triggered a batch write. */
+    public enum Trigger
+    {
+        SIZE, BYTES, LINGER, FLUSH
+    }
+
+    private static final ConcurrentMap<String, BatchStatistics> statistics = new ConcurrentHashMap<String, BatchStatistics>();
+
+    private final Histogram batchSizes = new Histogram();
+
+    private final Histogram batchBytes = new Histogram();
+
+    private final Histogram latencies = new Histogram();
+
+    private final AtomicLongArray triggers = new AtomicLongArray(Trigger.values().length);
+
+    private final AtomicLong failedCount = new AtomicLong();
+
+    /**
+     * Returns statistics of given persistence unit.
+     * 
+     * @param persistenceUnit
+     *            persistence unit.
+     * @return batch statistics.
+     */
+    public static BatchStatistics getStatistics(String persistenceUnit)
+    {
+        BatchStatistics puStatistics = statistics.get(persistenceUnit);
+        if (puStatistics == null)
+        {
+            BatchStatistics newStatistics = new BatchStatistics();
+            puStatistics = statistics.putIfAbsent(persistenceUnit, newStatistics);
+            if (puStatistics == null)
+            {
+                puStatistics = newStatistics;
+            }
+        }
+        return puStatistics;
+    }
+
+    void written(Trigger trigger, int size, long bytes, long latency)
+    {
+        triggers.incrementAndGet(trigger.ordinal());
+        batchSizes.record(size);
+        batchBytes.record(bytes);
+        latencies.record(latency);
+    }
+
+    void failed()
+    {
+        failedCount.incrementAndGet();
+    }
+
+    /**
+     * @return histogram of number of entities per written batch.
+     */
+    public Histogram getBatchSizes()
+    {
+        return batchSizes;
+    }
+
+    /**
+     * @return histogram of estimated bytes per written batch.
+     */
+    public Histogram getBatchBytes()
+    {
+        return batchBytes;
+    }
+
+    /**
+     * @return histogram of batch write latency in microseconds.
+     */
+    public Histogram getLatencies()
+    {
+        return latencies;
+    }
+
+    /**
+     * @param trigger
+     *            trigger.
+     * @return number of batch writes triggered by given threshold.
+     */
+    public long getTriggerCount(Trigger trigger)
+    {
+        return triggers.get(trigger.ordinal());
+    }
+
+    /**
+     * @return number of batches which failed to be written.
+     */
+    public long getFailedCount()
+    {
+        return failedCount.get();
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append("BatchStatistics [sizes=");
+        builder.append(batchSizes);
+        builder.append(", bytes=");
+        builder.append(batchBytes);
+        builder.append(", latencies=");
+        builder.append(latencies);
+        for (Trigger trigger : Trigger.values())
+        {
+            builder.append(", ");
+            builder.append(trigger.name().toLowerCase());
+            builder.append("=");
+            builder.append(getTriggerCount(trigger));
+        }
+        builder.append(", failed=");
+        builder.append(getFailedCount());
+        builder.append("]");
+        return builder.toString();
+    }
+}
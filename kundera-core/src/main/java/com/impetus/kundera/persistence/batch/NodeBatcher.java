@@ -0,0 +1,267 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.persistence.batch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.impetus.kundera.graph.Node;
+import com.impetus.kundera.metadata.KunderaMetadataManager;
+import com.impetus.kundera.metadata.model.PersistenceUnitMetadata;
+import com.impetus.kundera.persistence.api.BatchWriter;
+import com.impetus.kundera.persistence.batch.BatchStatistics.Trigger;
+
+/**
+ * Batching engine shared by clients implementing
+ * {@link com.impetus.kundera.persistence.api.Batcher}. Nodes are encoded into
+ * an open batch as they are added, in flush order, and batch is written as
+ * soon as number of entities, estimated bytes or linger time reaches its
+ * threshold, for persistence unit as a whole or for any entity in batch.
+ * 
+ * There is no timer, linger time is checked when a node is added and on
+ * {@link #flush()}. Batches are written in caller's thread, so that a slow
+ * datastore slows down flushing instead of letting batches pile up in memory.
+ * Like clients, not thread safe.
+ * 
+ * @param <B>
+ *            batch type of client.
+ */
+public class NodeBatcher<B>
+{
+    private final BatchWriter<B> writer;
+
+    /** Persistence unit metadata, to look up entity policies. */
+    private final PersistenceUnitMetadata puMetadata;
+
+    /** Policy of persistence unit, applies to batch as a whole. */
+    private final BatchPolicy policy;
+
+    private final Map<Class<?>, BatchPolicy> entityPolicies;
+
+    private final BatchStatistics statistics;
+
+    /** Open batch, null if none. */
+    private B batch;
+
+    /** Nodes in open batch. */
+    private List<Node> nodes = new ArrayList<Node>();
+
+    private long bytes;
+
+    /** Number of nodes and bytes in open batch, by entity class. */
+    private final Map<Class<?>, long[]> entityCounts = new HashMap<Class<?>, long[]>();
+
+    /** System nano time by which open batch must be written, 0 if none. */
+    private long deadline;
+
+    /**
+     * Instantiates batcher for given persistence unit, batch size must be
+     * defined.
+     * 
+     * @param persistenceUnit
+     *            persistence unit.
+     * @param writer
+     *            client's batch writer.
+     */
+    public NodeBatcher(String persistenceUnit, BatchWriter<B> writer)
+    {
+        this.writer = writer;
+        this.puMetadata = KunderaMetadataManager.getPersistenceUnitMetadata(persistenceUnit);
+        this.policy = BatchPolicy.getPolicy(puMetadata, null);
+        this.entityPolicies = new HashMap<Class<?>, BatchPolicy>();
+        this.statistics = BatchStatistics.getStatistics(persistenceUnit);
+    }
+
+    /**
+     * Instantiates batcher with given policies.
+     */
+    NodeBatcher(BatchPolicy policy, Map<Class<?>, BatchPolicy> entityPolicies, BatchStatistics statistics,
+            BatchWriter<B> writer)
+    {
+        this.writer = writer;
+        this.puMetadata = null;
+        this.policy = policy;
+        this.entityPolicies = entityPolicies;
+        this.statistics = statistics;
+    }
+
+    /**
+     * @return number of entities which triggers a write.
+     */
+    public int getBatchSize()
+    {
+        return policy.getMaxSize();
+    }
+
+    /**
+     * @return number of nodes in open batch.
+     */
+    public int size()
+    {
+        return nodes.size();
+    }
+
+    /**
+     * Adds given node to open batch, writing batch if a threshold is reached.
+     * Nodes which are not dirty are ignored.
+     * 
+     * @param node
+     *            node to insert, update or delete.
+     */
+    public void add(Node node)
+    {
+        if (node == null || !node.isDirty())
+        {
+            return;
+        }
+
+        if (batch == null)
+        {
+            batch = writer.newBatch();
+        }
+        long nodeBytes = writer.encode(batch, node);
+        nodes.add(node);
+        bytes += nodeBytes;
+
+        long now = System.nanoTime();
+        Class<?> entityClass = node.getDataClass();
+        BatchPolicy entityPolicy = getPolicy(entityClass);
+        long[] counts = entityCounts.get(entityClass);
+        if (counts == null)
+        {
+            counts = new long[2];
+            entityCounts.put(entityClass, counts);
+            setDeadline(now, entityPolicy);
+        }
+        counts[0]++;
+        counts[1] += nodeBytes;
+
+        if (nodes.size() >= policy.getMaxSize() || counts[0] >= entityPolicy.getMaxSize())
+        {
+            write(Trigger.SIZE);
+        }
+        else if (isFull(bytes, policy) || isFull(counts[1], entityPolicy))
+        {
+            write(Trigger.BYTES);
+        }
+        else if (deadline != 0 && now - deadline >= 0)
+        {
+            write(Trigger.LINGER);
+        }
+    }
+
+    /**
+     * Writes open batch, if any.
+     * 
+     * @return number of written nodes.
+     */
+    public int flush()
+    {
+        int size = nodes.size();
+        if (size > 0)
+        {
+            write(Trigger.FLUSH);
+        }
+        return size;
+    }
+
+    /**
+     * Discards open batch.
+     */
+    public void clear()
+    {
+        batch = null;
+        nodes = new ArrayList<Node>();
+        bytes = 0;
+        entityCounts.clear();
+        deadline = 0;
+    }
+
+    /**
+     * Writes open batch and marks its nodes as not dirty. Batch is discarded
+     * even if write fails, so that it is not written again with next one.
+     */
+    private void write(Trigger trigger)
+    {
+        B toWrite = batch;
+        List<Node> written = nodes;
+        long writtenBytes = bytes;
+        clear();
+
+        long start = System.nanoTime();
+        try
+        {
+            writer.execute(toWrite);
+        }
+        catch (RuntimeException e)
+        {
+            statistics.failed();
+            throw e;
+        }
+        statistics.written(trigger, written.size(), writtenBytes, (System.nanoTime() - start) / 1000);
+
+        for (Node node : written)
+        {
+            node.setDirty(false);
+        }
+    }
+
+    private void setDeadline(long now, BatchPolicy entityPolicy)
+    {
+        long lingerTime = Math.min(lingerNanos(policy), lingerNanos(entityPolicy));
+        if (lingerTime != Long.MAX_VALUE && (deadline == 0 || now + lingerTime - deadline < 0))
+        {
+            deadline = now + lingerTime;
+        }
+    }
+
+    private static long lingerNanos(BatchPolicy policy)
+    {
+        return policy.getLingerTime() > 0 ? policy.getLingerTime() * 1000000L : Long.MAX_VALUE;
+    }
+
+    private static boolean isFull(long bytes, BatchPolicy policy)
+    {
+        return policy.getMaxBytes() > 0 && bytes >= policy.getMaxBytes();
+    }
+
+    private BatchPolicy getPolicy(Class<?> entityClass)
+    {
+        BatchPolicy entityPolicy = entityPolicies.get(entityClass);
+        if (entityPolicy == null)
+        {
+            entityPolicy = puMetadata != null ? BatchPolicy.getPolicy(puMetadata, entityClass) : policy;
+            entityPolicies.put(entityClass, entityPolicy);
+        }
+        return entityPolicy;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append("NodeBatcher [size=");
+        builder.append(nodes.size());
+        builder.append(", bytes=");
+        builder.append(bytes);
+        builder.append(", ");
+        builder.append(policy);
+        builder.append("]");
+        return builder.toString();
+    }
+}
@@ -15,18 +15,27 @@
  */
 package com.impetus.kundera.persistence.context;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import com.impetus.kundera.cache.tinylfu.EntityWeigher;
+import com.impetus.kundera.cache.tinylfu.Weigher;
 import com.impetus.kundera.graph.Node;
+import com.impetus.kundera.graph.NodeKey;
 import com.impetus.kundera.graph.NodeLink;
 import com.impetus.kundera.graph.ObjectGraph;
+import com.impetus.kundera.lifecycle.states.ManagedState;
+import com.impetus.kundera.persistence.api.DirtyTrackable;
 import com.impetus.kundera.utils.ObjectUtils;
 
 /**
@@ -38,17 +47,67 @@ public class CacheBase
 {
     private static Log log = LogFactory.getLog(CacheBase.class);
 
-    private Map<String, Node> nodeMappings;
+    private Map<NodeKey, Node> nodeMappings;
 
     private Set<Node> headNodes;
 
+    /** Maximum number of nodes evicted from, per added node. */
+    private static final int MAX_EVICTION_SCAN = 64;
+
+    /** Maximum number of nodes, zero if unbounded. */
+    private final int maxSize;
+
+    /** Maximum estimated bytes of node data, zero if unbounded. */
+    private final long maxBytes;
+
+    /** Estimated bytes of node data by node id, tracked if bytes are bounded. */
+    private Map<NodeKey, Integer> nodeWeights;
+
+    private Weigher weigher;
+
+    private long estimatedBytes;
+
+    private long evictionCount;
+
     public CacheBase()
     {
+        this(0, 0);
+    }
+
+    /**
+     * Instantiates a bounded cache. Once either bound is exceeded, clean
+     * managed nodes are evicted in least recently used order. Dirty, new and
+     * removed nodes are never evicted, so cache may exceed its bounds while
+     * they are pending.
+     * 
+     * @param maxSize
+     *            maximum number of nodes, zero or negative if unbounded.
+     * @param maxBytes
+     *            maximum estimated bytes of node data, zero or negative if
+     *            unbounded.
+     */
+    public CacheBase(int maxSize, long maxBytes)
+    {
+        this.maxSize = maxSize;
+        this.maxBytes = maxBytes;
         headNodes = new HashSet<Node>();
-        nodeMappings = new HashMap<String, Node>();
+        if (isBounded())
+        {
+            // access ordered, least recently used first.
+            nodeMappings = new LinkedHashMap<NodeKey, Node>(16, 0.75f, true);
+        }
+        else
+        {
+            nodeMappings = new HashMap<NodeKey, Node>();
+        }
+        if (maxBytes > 0)
+        {
+            nodeWeights = new HashMap<NodeKey, Integer>();
+            weigher = new EntityWeigher();
+        }
     }
 
-    public Node getNodeFromCache(String nodeId)
+    public Node getNodeFromCache(NodeKey nodeId)
     {
 
         Node node = nodeMappings.get(nodeId);
@@ -64,9 +123,13 @@ public class CacheBase
     {
         // Make a deep copy of Node data and and set into node
         // Original data object is now detached from Node and is possibly
-        // referred by user code
-        Object nodeDataCopy = ObjectUtils.deepCopy(node.getData());
-        node.setData(nodeDataCopy);
+        // referred by user code. Entities tracking their own changes are kept
+        // as is.
+        if (!(node.getData() instanceof DirtyTrackable))
+        {
+            Object nodeDataCopy = ObjectUtils.deepCopy(node.getData());
+            node.setData(nodeDataCopy);
+        }
 
         /*
          * check if this node already exists in cache node mappings If yes,
@@ -74,9 +137,9 @@ public class CacheBase
          * to cache node mappings
          */
 
-        if (nodeMappings.containsKey(node.getNodeId()))
+        Node existingNode = nodeMappings.get(node.getNodeId());
+        if (existingNode != null)
         {
-            Node existingNode = nodeMappings.get(node.getNodeId());
 
             if (existingNode.getParents() != null)
             {
@@ -106,6 +169,13 @@ public class CacheBase
             nodeMappings.put(node.getNodeId(), node);
         }
 
+        if (nodeWeights != null)
+        {
+            int weight = weigher.weigh(node.getNodeId(), node.getData());
+            Integer previousWeight = nodeWeights.put(node.getNodeId(), weight);
+            estimatedBytes += previousWeight != null ? weight - previousWeight : weight;
+        }
+
         // If it's a head node, add this to the list of head nodes in
         // Persistence Cache
         if (node.isHeadNode())
@@ -113,9 +183,13 @@ public class CacheBase
             node.getPersistenceCache().getMainCache().addHeadNode(node);
         }
 
+        if (isBounded())
+        {
+            evict(node);
+        }
     }
 
-    public void removeNodeFromCache(Node node)
+    public synchronized void removeNodeFromCache(Node node)
     {
         if (getHeadNodes().contains(node))
         {
@@ -126,6 +200,7 @@ public class CacheBase
         {
             nodeMappings.remove(node.getNodeId());
         }
+        removeWeight(node.getNodeId());
 
         logCacheEvent("REMOVED FROM ", node.getNodeId());
         node = null; // Eligible for GC
@@ -135,9 +210,8 @@ public class CacheBase
     {
 
         // Add each node in the graph to cache
-        for (String key : graph.getNodeMapping().keySet())
+        for (Node thisNode : graph.getNodeMapping().values())
         {
-            Node thisNode = graph.getNodeMapping().get(key);
             addNodeToCache(thisNode);
 
             // Remove all those head nodes in persistence cache, that are there
@@ -153,16 +227,84 @@ public class CacheBase
 
     }
 
-    private void logCacheEvent(String eventType, String nodeId)
+    /**
+     * Evicts least recently used clean nodes, until cache is within its
+     * bounds or a limited number of nodes is scanned. Scanned nodes which
+     * could not be evicted are moved to most recently used end, so that next
+     * scan starts with others.
+     * 
+     * @param addedNode
+     *            node just added, never evicted.
+     */
+    private void evict(Node addedNode)
     {
-        log.debug("Node: " + nodeId + ":: " + eventType + " Persistence Context");
+        List<NodeKey> retainedNodeIds = null;
+        Iterator<Node> iter = nodeMappings.values().iterator();
+        for (int scanned = 0; isOverBounds() && scanned < MAX_EVICTION_SCAN && iter.hasNext(); scanned++)
+        {
+            Node node = iter.next();
+            if (node != addedNode && !node.isDirty() && node.isInState(ManagedState.class))
+            {
+                iter.remove();
+                headNodes.remove(node);
+                removeWeight(node.getNodeId());
+                evictionCount++;
+                logCacheEvent("EVICTED FROM ", node.getNodeId());
+            }
+            else
+            {
+                if (retainedNodeIds == null)
+                {
+                    retainedNodeIds = new ArrayList<NodeKey>();
+                }
+                retainedNodeIds.add(node.getNodeId());
+            }
+        }
+
+        if (retainedNodeIds != null)
+        {
+            for (NodeKey nodeId : retainedNodeIds)
+            {
+                nodeMappings.get(nodeId);
+            }
+        }
+    }
+
+    private boolean isBounded()
+    {
+        return maxSize > 0 || maxBytes > 0;
+    }
+
+    private boolean isOverBounds()
+    {
+        return (maxSize > 0 && nodeMappings.size() > maxSize) || (maxBytes > 0 && estimatedBytes > maxBytes);
+    }
+
+    private void removeWeight(NodeKey nodeId)
+    {
+        if (nodeWeights != null)
+        {
+            Integer weight = nodeWeights.remove(nodeId);
+            if (weight != null)
+            {
+                estimatedBytes -= weight;
+            }
+        }
+    }
+
+    private void logCacheEvent(String eventType, NodeKey nodeId)
+    {
+        if (log.isDebugEnabled())
+        {
+            log.debug("Node: " + nodeId + ":: " + eventType + " Persistence Context");
+        }
     }
 
     /**
      * @param nodeMappings
      *            the nodeMappings to set
      */
-    public void setNodeMappings(Map<String, Node> nodeMappings)
+    public void setNodeMappings(Map<NodeKey, Node> nodeMappings)
     {
         this.nodeMappings = nodeMappings;
     }
@@ -185,9 +327,27 @@ public class CacheBase
         return nodeMappings.size();
     }
 
+    /**
+     * @return estimated bytes of cached node data, zero unless bytes are
+     *         bounded.
+     */
+    public long getEstimatedBytes()
+    {
+        return estimatedBytes;
+    }
+
+    /**
+     * @return number of clean nodes evicted to keep cache within its bounds.
+     */
+    public long getEvictionCount()
+    {
+        return evictionCount;
+    }
+
     public Collection<Node> getAllNodes()
     {
-        return nodeMappings.values();
+        // lookups reorder a bounded cache, iterate over a copy.
+        return isBounded() ? new ArrayList<Node>(nodeMappings.values()) : nodeMappings.values();
     }
 
     /**
@@ -197,5 +357,10 @@ public class CacheBase
     {
         this.nodeMappings.clear();
         this.headNodes.clear();
+        if (nodeWeights != null)
+        {
+            nodeWeights.clear();
+            estimatedBytes = 0;
+        }
     }
 }
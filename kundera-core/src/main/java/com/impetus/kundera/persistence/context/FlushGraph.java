@@ -0,0 +1,218 @@
+/**
+ * Copyright 2012 Impetus Infotech.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.impetus.kundera.persistence.context;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import com.impetus.kundera.KunderaException;
+import com.impetus.kundera.graph.Node;
+
+/**
+ * Dependency graph of nodes to flush. A node depends on previous node of same
+ * client, as clients are not thread safe and a datastore may need flush order,
+ * and on previous nodes it is linked to, as their link values are set when
+ * they are flushed. Nodes without pending dependencies are flushed in
+ * parallel.
+ * 
+ * @see FlushManager#buildFlushGraph(List)
+ */
+public class FlushGraph
+{
+    /**
+     * Flushes a single node.
+     */
+    public interface NodeFlusher
+    {
+        /**
+         * Flushes given node, along with updating its link values.
+         * 
+         * @param node
+         *            node to flush.
+         */
+        void flush(Node node);
+    }
+
+    /** Nodes in flush order. */
+    private final List<Node> nodes;
+
+    /** Indexes of nodes depending on each node. */
+    private final List<List<Integer>> dependents;
+
+    /** Number of not yet flushed dependencies of each node. */
+    private final int[] dependencies;
+
+    /** Number of nodes flushing or queued for flush. */
+    private int running;
+
+    /** First failure, no more nodes are flushed after it. */
+    private RuntimeException failure;
+
+    FlushGraph(List<Node> nodes)
+    {
+        this.nodes = nodes;
+        this.dependencies = new int[nodes.size()];
+        this.dependents = new ArrayList<List<Integer>>(nodes.size());
+        for (int i = 0; i < nodes.size(); i++)
+        {
+            dependents.add(new ArrayList<Integer>(2));
+        }
+    }
+
+    /**
+     * Makes node at index to wait for node at index from.
+     */
+    void addDependency(int from, int to)
+    {
+        if (from != to && !dependents.get(from).contains(to))
+        {
+            dependents.get(from).add(to);
+            dependencies[to]++;
+        }
+    }
+
+    /**
+     * @return nodes in flush order.
+     */
+    public List<Node> getNodes()
+    {
+        return nodes;
+    }
+
+    /**
+     * @return number of nodes without dependencies, i.e. maximum degree of
+     *         parallelism at start.
+     */
+    public int getRoots()
+    {
+        int roots = 0;
+        for (int count : dependencies)
+        {
+            if (count == 0)
+            {
+                roots++;
+            }
+        }
+        return roots;
+    }
+
+    /**
+     * Flushes all nodes on given executor, and waits for them. After a
+     * failure, running nodes are waited for and no more are started.
+     * 
+     * @param flusher
+     *            flushes a node.
+     * @param executor
+     *            bounded executor.
+     * @throws RuntimeException
+     *             first failure of a node flush.
+     */
+    public void flush(NodeFlusher flusher, Executor executor)
+    {
+        synchronized (this)
+        {
+            for (int i = 0; i < nodes.size(); i++)
+            {
+                if (dependencies[i] == 0)
+                {
+                    schedule(i, flusher, executor);
+                }
+            }
+
+            boolean interrupted = false;
+            while (running > 0)
+            {
+                try
+                {
+                    wait();
+                }
+                catch (InterruptedException e)
+                {
+                    // running flushes can not be cancelled, wait for them.
+                    interrupted = true;
+                }
+            }
+            if (interrupted)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        if (failure != null)
+        {
+            throw failure;
+        }
+    }
+
+    private void schedule(final int index, final NodeFlusher flusher, final Executor executor)
+    {
+        running++;
+        try
+        {
+            executor.execute(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    RuntimeException cause = null;
+                    try
+                    {
+                        flusher.flush(nodes.get(index));
+                    }
+                    catch (RuntimeException e)
+                    {
+                        cause = e;
+                    }
+                    catch (Error e)
+                    {
+                        cause = new KunderaException(e);
+                    }
+                    flushed(index, cause, flusher, executor);
+                }
+            });
+        }
+        catch (RejectedExecutionException e)
+        {
+            running--;
+            if (failure == null)
+            {
+                failure = new KunderaException("Flush executor is shut down", e);
+            }
+        }
+    }
+
+    private synchronized void flushed(int index, RuntimeException cause, NodeFlusher flusher, Executor executor)
+    {
+        running--;
+        if (cause != null && failure == null)
+        {
+            failure = cause;
+        }
+        if (failure == null)
+        {
+            for (int dependent : dependents.get(index))
+            {
+                if (--dependencies[dependent] == 0)
+                {
+                    schedule(dependent, flusher, executor);
+                }
+            }
+        }
+        notifyAll();
+    }
+}
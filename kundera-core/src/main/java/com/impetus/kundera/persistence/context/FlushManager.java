@@ -19,6 +19,7 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -27,6 +28,7 @@ import org.apache.commons.logging.LogFactory;
 
 import com.impetus.kundera.client.Client;
 import com.impetus.kundera.graph.Node;
+import com.impetus.kundera.graph.NodeKey;
 import com.impetus.kundera.graph.NodeLink;
 import com.impetus.kundera.graph.NodeLink.LinkProperty;
 import com.impetus.kundera.lifecycle.states.ManagedState;
@@ -280,6 +282,58 @@ public class FlushManager
 
     }
 
+    /**
+     * Builds dependency graph of given nodes, so that nodes of different
+     * clients, which are not linked to each other, can be flushed in
+     * parallel.
+     * 
+     * @param nodes
+     *            nodes popped out of flush stack, in flush order, with client
+     *            set.
+     * @return flush graph.
+     */
+    public FlushGraph buildFlushGraph(List<Node> nodes)
+    {
+        FlushGraph graph = new FlushGraph(nodes);
+        Map<NodeKey, Integer> indexes = new HashMap<NodeKey, Integer>();
+        Map<Client, Integer> lastIndexes = new HashMap<Client, Integer>();
+
+        for (int i = 0; i < nodes.size(); i++)
+        {
+            Node node = nodes.get(i);
+
+            // after previous node of same client.
+            Integer last = lastIndexes.put(node.getClient(), i);
+            if (last != null)
+            {
+                graph.addDependency(last, i);
+            }
+
+            // after linked nodes flushed before, which set link value.
+            addLinkDependencies(graph, indexes, node.getParents(), i);
+            addLinkDependencies(graph, indexes, node.getChildren(), i);
+
+            indexes.put(node.getNodeId(), i);
+        }
+        return graph;
+    }
+
+    private void addLinkDependencies(FlushGraph graph, Map<NodeKey, Integer> indexes, Map<NodeLink, Node> linkedNodes,
+            int index)
+    {
+        if (linkedNodes != null)
+        {
+            for (Node linkedNode : linkedNodes.values())
+            {
+                Integer linkedIndex = indexes.get(linkedNode.getNodeId());
+                if (linkedIndex != null)
+                {
+                    graph.addDependency(linkedIndex, index);
+                }
+            }
+        }
+    }
+
     /**
      * Gets the flush stack.
      * 
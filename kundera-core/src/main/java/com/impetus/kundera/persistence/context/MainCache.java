@@ -22,5 +22,23 @@ package com.impetus.kundera.persistence.context;
  */
 public class MainCache extends CacheBase
 {
+    public MainCache()
+    {
+        super();
+    }
 
+    /**
+     * Instantiates a bounded main cache.
+     * 
+     * @param maxSize
+     *            maximum number of nodes, zero or negative if unbounded.
+     * @param maxBytes
+     *            maximum estimated bytes of entities, zero or negative if
+     *            unbounded.
+     * @see CacheBase#CacheBase(int, long)
+     */
+    public MainCache(int maxSize, long maxBytes)
+    {
+        super(maxSize, maxBytes);
+    }
 }
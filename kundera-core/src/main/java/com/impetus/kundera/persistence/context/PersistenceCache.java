@@ -56,12 +56,29 @@ public class PersistenceCache
 
     public PersistenceCache()
     {
-        initialize();
+        this(0, 0);
     }
 
-    private void initialize()
+    /**
+     * Instantiates a persistence context, main cache of which evicts clean
+     * entities once it holds more than given number of entities or estimated
+     * bytes. Used by long running entity managers, which would otherwise
+     * keep every entity they ever read.
+     * 
+     * @param maxSize
+     *            maximum number of entities, zero or negative if unbounded.
+     * @param maxBytes
+     *            maximum estimated bytes of entities, zero or negative if
+     *            unbounded.
+     */
+    public PersistenceCache(int maxSize, long maxBytes)
+    {
+        initialize(maxSize, maxBytes);
+    }
+
+    private void initialize(int maxSize, long maxBytes)
     {
-        mainCache = new MainCache();
+        mainCache = new MainCache(maxSize, maxBytes);
         embeddedCache = new EmbeddedCache();
         elementCollectionCache = new ElementCollectionCache();
         transactionalCache = new TransactionalCache();
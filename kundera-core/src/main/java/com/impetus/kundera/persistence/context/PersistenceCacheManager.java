@@ -16,6 +16,7 @@
 package com.impetus.kundera.persistence.context;
 
 import com.impetus.kundera.graph.Node;
+import com.impetus.kundera.graph.NodeKey;
 import com.impetus.kundera.graph.ObjectGraphUtils;
 import com.impetus.kundera.lifecycle.states.ManagedState;
 import com.impetus.kundera.persistence.PersistenceDelegator;
@@ -81,7 +82,7 @@ public class PersistenceCacheManager
     public static void addEntityToPersistenceCache(Object entity, PersistenceDelegator pd, Object entityId)
     {
         MainCache mainCache = (MainCache) pd.getPersistenceCache().getMainCache();
-        String nodeId = ObjectGraphUtils.getNodeId(entityId, entity.getClass());
+        NodeKey nodeId = ObjectGraphUtils.getNodeId(entityId, entity.getClass());
         Node node = new Node(nodeId, entity.getClass(), new ManagedState(), pd.getPersistenceCache(),entityId);
         node.setData(entity);
         node.setPersistenceDelegator(pd);
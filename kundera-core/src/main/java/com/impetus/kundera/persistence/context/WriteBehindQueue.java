@@ -0,0 +1,462 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.persistence.context;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.persistence.Cache;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.impetus.kundera.KunderaException;
+import com.impetus.kundera.client.Client;
+import com.impetus.kundera.client.ClientResolver;
+import com.impetus.kundera.graph.Node;
+import com.impetus.kundera.graph.NodeKey;
+import com.impetus.kundera.lifecycle.states.RemovedState;
+import com.impetus.kundera.metadata.KunderaMetadataManager;
+import com.impetus.kundera.metadata.model.EntityMetadata;
+import com.impetus.kundera.persistence.api.WriteBehindListener;
+import com.impetus.kundera.query.QueryResultCache;
+
+/**
+ * Write behind queue of an entity manager, used for AUTO flush mode outside
+ * transaction. Flushed nodes are queued by node id, so repeated writes of an
+ * entity collapse into one, and written by a background flusher once batch
+ * size is reached or oldest queued node waited for max latency. If queue is
+ * full, caller writes it out itself.
+ *
+ * Queued nodes are read by background flusher while entity manager goes on,
+ * so they must hold a private copy of their entity: entities tracking their
+ * own changes, whose nodes hold the managed instance itself, are never
+ * queued.
+ *
+ * Nodes are written through writer clients of the queue's own, one per
+ * persistence unit, as clients of entity manager are not meant to be used
+ * by several threads. Writers are only used while holding drain lock.
+ *
+ * {@link #flush()} is a barrier, on return all queued nodes are written, and
+ * it throws first failure of a write since last barrier, be it written in
+ * background or not.
+ */
+public class WriteBehindQueue
+{
+    /** the log used by this class. */
+    private static Log log = LogFactory.getLog(WriteBehindQueue.class);
+
+    /** Nodes to write, by node id, in order of first enqueue. */
+    private final Map<NodeKey, Node> pendingNodes = new LinkedHashMap<NodeKey, Node>();
+
+    /** Nodes taken out of queue and being written. */
+    private final Map<NodeKey, Node> writingNodes = new HashMap<NodeKey, Node>();
+
+    /** Held while writing, so that a barrier waits for running flusher. */
+    private final ReentrantLock drainLock = new ReentrantLock();
+
+    /** Writer clients, by persistence unit. Guarded by drain lock. */
+    private final Map<String, Client> writers = new HashMap<String, Client>();
+
+    /** First failed write since last barrier. Guarded by drain lock. */
+    private RuntimeException failure;
+
+    private final int maxSize;
+
+    private final int batchSize;
+
+    private final long maxLatency;
+
+    private final ScheduledExecutorService executor;
+
+    private final WriteBehindListener listener;
+
+    private final WriteBehindStatistics statistics;
+
+    /** Query results to invalidate on write, may be null. */
+    private final QueryResultCache queryResultCache;
+
+    /** Second level cache to evict written entities from, may be null. */
+    private final Cache l2Cache;
+
+    /** Whether a drain is scheduled and not yet started. */
+    private boolean drainScheduled;
+
+    private final Runnable drainTask = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            synchronized (pendingNodes)
+            {
+                drainScheduled = false;
+            }
+            drain();
+        }
+    };
+
+    /**
+     * Instantiates a new write behind queue.
+     *
+     * @param maxSize
+     *            maximum number of queued nodes.
+     * @param batchSize
+     *            number of queued nodes which triggers a drain.
+     * @param maxLatency
+     *            maximum time in milliseconds a node waits in queue, unless
+     *            flusher is busy.
+     * @param executor
+     *            executor running background flushes.
+     * @param listener
+     *            listener for failed writes, may be null.
+     * @param statistics
+     *            counters to update.
+     */
+    public WriteBehindQueue(int maxSize, int batchSize, long maxLatency, ScheduledExecutorService executor,
+            WriteBehindListener listener, WriteBehindStatistics statistics)
+    {
+        this(maxSize, batchSize, maxLatency, executor, listener, statistics, null, null);
+    }
+
+    /**
+     * Instantiates a new write behind queue, which invalidates cached query
+     * results read from tables it writes and evicts written entities from
+     * second level cache.
+     *
+     * @param maxSize
+     *            maximum number of queued nodes.
+     * @param batchSize
+     *            number of queued nodes which triggers a drain.
+     * @param maxLatency
+     *            maximum time in milliseconds a node waits in queue, unless
+     *            flusher is busy.
+     * @param executor
+     *            executor running background flushes.
+     * @param listener
+     *            listener for failed writes, may be null.
+     * @param statistics
+     *            counters to update.
+     * @param queryResultCache
+     *            query result cache, may be null.
+     * @param l2Cache
+     *            second level cache, may be null.
+     */
+    public WriteBehindQueue(int maxSize, int batchSize, long maxLatency, ScheduledExecutorService executor,
+            WriteBehindListener listener, WriteBehindStatistics statistics, QueryResultCache queryResultCache,
+            Cache l2Cache)
+    {
+        this.maxSize = maxSize;
+        this.batchSize = batchSize;
+        this.maxLatency = maxLatency;
+        this.executor = executor;
+        this.listener = listener;
+        this.statistics = statistics;
+        this.queryResultCache = queryResultCache;
+        this.l2Cache = l2Cache;
+    }
+
+    /**
+     * Queues given node for write, replacing already queued node of same
+     * entity. A node queued again moves to the end of queue, so that it is
+     * still written after nodes it refers to. Node's client must be set.
+     *
+     * @param node
+     *            node to write or delete, as per its state.
+     */
+    public void add(Node node)
+    {
+        int size;
+        boolean schedule = false;
+        synchronized (pendingNodes)
+        {
+            boolean replaced = pendingNodes.remove(node.getNodeId()) != null;
+            pendingNodes.put(node.getNodeId(), node);
+            statistics.enqueued(replaced);
+            size = pendingNodes.size();
+            if (!drainScheduled && size < batchSize)
+            {
+                drainScheduled = true;
+                schedule = true;
+            }
+        }
+
+        try
+        {
+            if (size >= maxSize)
+            {
+                // Queue is full, write in caller.
+                drain();
+            }
+            else if (size == batchSize)
+            {
+                executor.execute(drainTask);
+            }
+            else if (schedule)
+            {
+                executor.schedule(drainTask, maxLatency, TimeUnit.MILLISECONDS);
+            }
+        }
+        catch (RejectedExecutionException e)
+        {
+            // Factory is closing.
+            drain();
+        }
+    }
+
+    /**
+     * Returns queued or being written node of given id, if any. Such node
+     * holds newer state of entity than database does.
+     *
+     * @param nodeId
+     *            node id.
+     * @return queued node, or null.
+     */
+    public Node getNode(NodeKey nodeId)
+    {
+        synchronized (pendingNodes)
+        {
+            Node node = pendingNodes.get(nodeId);
+            return node != null ? node : writingNodes.get(nodeId);
+        }
+    }
+
+    /**
+     * @return number of queued nodes.
+     */
+    public int size()
+    {
+        synchronized (pendingNodes)
+        {
+            return pendingNodes.size();
+        }
+    }
+
+    /**
+     * Writes all queued nodes, waiting for running flusher first.
+     *
+     * @throws KunderaException
+     *             if any of queued nodes could not be written.
+     */
+    public void flush()
+    {
+        RuntimeException e;
+        drainLock.lock();
+        try
+        {
+            drain();
+            e = failure;
+            failure = null;
+        }
+        finally
+        {
+            drainLock.unlock();
+        }
+
+        if (e != null)
+        {
+            throw new KunderaException("Could not write queued entities, Caused by: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes all queued nodes and closes writer clients. Queue may still be
+     * used afterwards, writers are then created again.
+     *
+     * @throws KunderaException
+     *             if any of queued nodes could not be written.
+     */
+    public void close()
+    {
+        drainLock.lock();
+        try
+        {
+            flush();
+        }
+        finally
+        {
+            try
+            {
+                for (Client writer : writers.values())
+                {
+                    writer.close();
+                }
+            }
+            finally
+            {
+                writers.clear();
+                drainLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Returns a new client, to write nodes of given persistence unit with.
+     *
+     * @param persistenceUnit
+     *            persistence unit
+     * @return client
+     */
+    protected Client newClient(String persistenceUnit)
+    {
+        return ClientResolver.discoverClient(persistenceUnit);
+    }
+
+    /**
+     * Writes queued nodes in batches, until queue is empty. First failure is
+     * kept for next barrier.
+     */
+    private void drain()
+    {
+        drainLock.lock();
+        try
+        {
+            List<Node> batch = nextBatch();
+            while (!batch.isEmpty())
+            {
+                for (Node node : batch)
+                {
+                    RuntimeException e = write(node);
+                    if (failure == null)
+                    {
+                        failure = e;
+                    }
+                }
+                batch = nextBatch();
+            }
+        }
+        finally
+        {
+            drainLock.unlock();
+        }
+    }
+
+    /**
+     * Returns writer client for persistence unit of given node's client.
+     */
+    private Client getWriter(Node node)
+    {
+        String persistenceUnit = node.getClient().getPersistenceUnit();
+        Client writer = writers.get(persistenceUnit);
+        if (writer == null)
+        {
+            writer = newClient(persistenceUnit);
+            writers.put(persistenceUnit, writer);
+        }
+        return writer;
+    }
+
+    /**
+     * Takes oldest queued nodes, up to batch size, out of queue.
+     */
+    private List<Node> nextBatch()
+    {
+        synchronized (pendingNodes)
+        {
+            writingNodes.clear();
+            List<Node> batch = new ArrayList<Node>(Math.min(batchSize, pendingNodes.size()));
+            Iterator<Node> iter = pendingNodes.values().iterator();
+            while (iter.hasNext() && batch.size() < batchSize)
+            {
+                Node node = iter.next();
+                iter.remove();
+                writingNodes.put(node.getNodeId(), node);
+                batch.add(node);
+            }
+            return batch;
+        }
+    }
+
+    /**
+     * Writes or deletes given node.
+     *
+     * @return failure, if any.
+     */
+    private RuntimeException write(Node node)
+    {
+        try
+        {
+            Client client = getWriter(node);
+            if (node.isInState(RemovedState.class))
+            {
+                client.delete(node.getData(), node.getEntityId());
+            }
+            else
+            {
+                client.persist(node);
+            }
+            statistics.written();
+
+            EntityMetadata metadata = KunderaMetadataManager.getEntityMetadata(node.getDataClass());
+            if (queryResultCache != null && metadata != null)
+            {
+                queryResultCache.invalidate(QueryResultCache.getTable(metadata));
+            }
+            if (l2Cache != null && metadata != null && metadata.isCacheable())
+            {
+                // evicted once written, so that a read can not cache former
+                // state again.
+                l2Cache.evict(node.getDataClass(), node.getEntityId());
+            }
+
+            synchronized (pendingNodes)
+            {
+                // unless changed again meanwhile.
+                if (!pendingNodes.containsKey(node.getNodeId()))
+                {
+                    node.setDirty(false);
+                }
+            }
+            return null;
+        }
+        catch (RuntimeException e)
+        {
+            statistics.failed();
+            log.error("Error while writing " + node.getNodeId() + " behind, Caused by: " + e.getMessage());
+            if (listener != null)
+            {
+                try
+                {
+                    listener.onFailure(node.getData(), node.getEntityId(), e);
+                }
+                catch (RuntimeException le)
+                {
+                    log.warn("Write behind listener failed, Caused by: " + le.getMessage());
+                }
+            }
+            return e;
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append("WriteBehindQueue [size=");
+        builder.append(size());
+        builder.append(", ");
+        builder.append(statistics);
+        builder.append("]");
+        return builder.toString();
+    }
+}
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.persistence.context;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of write behind queues, shared by all entity managers of an entity
+ * manager factory.
+ */
+public class WriteBehindStatistics
+{
+    private final AtomicLong enqueuedCount = new AtomicLong();
+
+    private final AtomicLong coalescedCount = new AtomicLong();
+
+    private final AtomicLong writtenCount = new AtomicLong();
+
+    private final AtomicLong failedCount = new AtomicLong();
+
+    void enqueued(boolean coalesced)
+    {
+        enqueuedCount.incrementAndGet();
+        if (coalesced)
+        {
+            coalescedCount.incrementAndGet();
+        }
+    }
+
+    void written()
+    {
+        writtenCount.incrementAndGet();
+    }
+
+    void failed()
+    {
+        failedCount.incrementAndGet();
+    }
+
+    /**
+     * @return number of nodes handed over to write behind queues.
+     */
+    public long getEnqueuedCount()
+    {
+        return enqueuedCount.get();
+    }
+
+    /**
+     * @return number of nodes which replaced an already queued node of same
+     *         entity, i.e. writes saved.
+     */
+    public long getCoalescedCount()
+    {
+        return coalescedCount.get();
+    }
+
+    /**
+     * @return number of nodes written to database.
+     */
+    public long getWrittenCount()
+    {
+        return writtenCount.get();
+    }
+
+    /**
+     * @return number of nodes which failed to be written.
+     */
+    public long getFailedCount()
+    {
+        return failedCount.get();
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append("WriteBehindStatistics [enqueued=");
+        builder.append(getEnqueuedCount());
+        builder.append(", coalesced=");
+        builder.append(getCoalescedCount());
+        builder.append(", written=");
+        builder.append(getWrittenCount());
+        builder.append(", failed=");
+        builder.append(getFailedCount());
+        builder.append("]");
+        return builder.toString();
+    }
+}
@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.property;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@link PropertyAccessor} which encodes into and decodes from caller supplied
+ * buffers, without allocating a byte array per value. Encoded bytes are the
+ * same as those of {@link PropertyAccessor#toBytes(Object)}, so values written
+ * either way read back either way.
+ *
+ * Buffers must be in big endian order, which is the default.
+ *
+ * @param <T>
+ *            the generic type
+ * @see PropertyAccessorHelper#writeTo(PropertyAccessor, ByteBuffer, Object)
+ */
+public interface ByteBufferAccessor<T> extends PropertyAccessor<T>
+{
+
+    /**
+     * Returns number of bytes given object encodes to.
+     *
+     * @param object
+     *            the object
+     * @return encoded size, zero for null
+     */
+    int encodedSize(Object object);
+
+    /**
+     * Writes given object at buffer's position, and advances it by encoded
+     * size. Null writes nothing.
+     *
+     * @param buffer
+     *            the buffer, with encoded size remaining
+     * @param object
+     *            the object
+     *
+     * @throws PropertyAccessException
+     *             the property access exception
+     */
+    void writeTo(ByteBuffer buffer, Object object);
+
+    /**
+     * Reads object from given bytes of buffer. Buffer's position is left
+     * unchanged.
+     *
+     * @param targetClass
+     *            the target class
+     * @param buffer
+     *            the buffer
+     * @param offset
+     *            index of first byte
+     * @param length
+     *            number of bytes
+     * @return the T
+     *
+     * @throws PropertyAccessException
+     *             the property access exception
+     */
+    T readFrom(Class targetClass, ByteBuffer buffer, int offset, int length);
+}
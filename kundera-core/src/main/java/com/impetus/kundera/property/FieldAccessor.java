@@ -0,0 +1,344 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.property;
+
+import java.lang.reflect.Field;
+
+/**
+ * Reads and writes one field of an entity or embeddable. Created once per
+ * attribute, when metamodel is built, so that field is made accessible once
+ * rather than checked on every access. Primitive fields can be read and
+ * written through typed methods, which do not box, as
+ * {@link PropertyAccessorHelper} does for attribute values in bytes.
+ *
+ * @see com.impetus.kundera.metadata.model.attributes.AbstractAttribute#getAccessor()
+ */
+public final class FieldAccessor
+{
+    /** The field. */
+    private final Field field;
+
+    /**
+     * Instantiates a new field accessor.
+     *
+     * @param field
+     *            the field
+     */
+    public FieldAccessor(Field field)
+    {
+        if (!field.isAccessible())
+        {
+            field.setAccessible(true);
+        }
+        this.field = field;
+    }
+
+    /**
+     * @return the field
+     */
+    public Field getField()
+    {
+        return field;
+    }
+
+    /**
+     * Gets field value, primitives boxed.
+     *
+     * @param target
+     *            the target
+     * @return the value
+     */
+    public Object get(Object target)
+    {
+        try
+        {
+            return field.get(target);
+        }
+        catch (IllegalArgumentException iarg)
+        {
+            throw new PropertyAccessException(iarg);
+        }
+        catch (IllegalAccessException iacc)
+        {
+            throw new PropertyAccessException(iacc);
+        }
+    }
+
+    /**
+     * Sets field value, primitives unboxed.
+     *
+     * @param target
+     *            the target
+     * @param value
+     *            the value
+     */
+    public void set(Object target, Object value)
+    {
+        try
+        {
+            field.set(target, value);
+        }
+        catch (IllegalArgumentException iarg)
+        {
+            throw new PropertyAccessException(iarg);
+        }
+        catch (IllegalAccessException iacc)
+        {
+            throw new PropertyAccessException(iacc);
+        }
+    }
+
+    /**
+     * Gets value of an int field, or of a narrower one.
+     *
+     * @param target
+     *            the target
+     * @return the value
+     */
+    public int getInt(Object target)
+    {
+        try
+        {
+            return field.getInt(target);
+        }
+        catch (IllegalArgumentException iarg)
+        {
+            throw new PropertyAccessException(iarg);
+        }
+        catch (IllegalAccessException iacc)
+        {
+            throw new PropertyAccessException(iacc);
+        }
+    }
+
+    /**
+     * Sets value of an int field, or of a wider one.
+     *
+     * @param target
+     *            the target
+     * @param value
+     *            the value
+     */
+    public void setInt(Object target, int value)
+    {
+        try
+        {
+            field.setInt(target, value);
+        }
+        catch (IllegalArgumentException iarg)
+        {
+            throw new PropertyAccessException(iarg);
+        }
+        catch (IllegalAccessException iacc)
+        {
+            throw new PropertyAccessException(iacc);
+        }
+    }
+
+    /**
+     * Gets value of a long field, or of a narrower one.
+     *
+     * @param target
+     *            the target
+     * @return the value
+     */
+    public long getLong(Object target)
+    {
+        try
+        {
+            return field.getLong(target);
+        }
+        catch (IllegalArgumentException iarg)
+        {
+            throw new PropertyAccessException(iarg);
+        }
+        catch (IllegalAccessException iacc)
+        {
+            throw new PropertyAccessException(iacc);
+        }
+    }
+
+    /**
+     * Sets value of a long field, or of a wider one.
+     *
+     * @param target
+     *            the target
+     * @param value
+     *            the value
+     */
+    public void setLong(Object target, long value)
+    {
+        try
+        {
+            field.setLong(target, value);
+        }
+        catch (IllegalArgumentException iarg)
+        {
+            throw new PropertyAccessException(iarg);
+        }
+        catch (IllegalAccessException iacc)
+        {
+            throw new PropertyAccessException(iacc);
+        }
+    }
+
+    /**
+     * Gets value of a double field, or of a narrower one.
+     *
+     * @param target
+     *            the target
+     * @return the value
+     */
+    public double getDouble(Object target)
+    {
+        try
+        {
+            return field.getDouble(target);
+        }
+        catch (IllegalArgumentException iarg)
+        {
+            throw new PropertyAccessException(iarg);
+        }
+        catch (IllegalAccessException iacc)
+        {
+            throw new PropertyAccessException(iacc);
+        }
+    }
+
+    /**
+     * Sets value of a double field.
+     *
+     * @param target
+     *            the target
+     * @param value
+     *            the value
+     */
+    public void setDouble(Object target, double value)
+    {
+        try
+        {
+            field.setDouble(target, value);
+        }
+        catch (IllegalArgumentException iarg)
+        {
+            throw new PropertyAccessException(iarg);
+        }
+        catch (IllegalAccessException iacc)
+        {
+            throw new PropertyAccessException(iacc);
+        }
+    }
+
+    /**
+     * Gets value of a float field, or of a narrower one.
+     *
+     * @param target
+     *            the target
+     * @return the value
+     */
+    public float getFloat(Object target)
+    {
+        try
+        {
+            return field.getFloat(target);
+        }
+        catch (IllegalArgumentException iarg)
+        {
+            throw new PropertyAccessException(iarg);
+        }
+        catch (IllegalAccessException iacc)
+        {
+            throw new PropertyAccessException(iacc);
+        }
+    }
+
+    /**
+     * Sets value of a float field, or of a wider one.
+     *
+     * @param target
+     *            the target
+     * @param value
+     *            the value
+     */
+    public void setFloat(Object target, float value)
+    {
+        try
+        {
+            field.setFloat(target, value);
+        }
+        catch (IllegalArgumentException iarg)
+        {
+            throw new PropertyAccessException(iarg);
+        }
+        catch (IllegalAccessException iacc)
+        {
+            throw new PropertyAccessException(iacc);
+        }
+    }
+
+    /**
+     * Gets value of a boolean field.
+     *
+     * @param target
+     *            the target
+     * @return the value
+     */
+    public boolean getBoolean(Object target)
+    {
+        try
+        {
+            return field.getBoolean(target);
+        }
+        catch (IllegalArgumentException iarg)
+        {
+            throw new PropertyAccessException(iarg);
+        }
+        catch (IllegalAccessException iacc)
+        {
+            throw new PropertyAccessException(iacc);
+        }
+    }
+
+    /**
+     * Sets value of a boolean field.
+     *
+     * @param target
+     *            the target
+     * @param value
+     *            the value
+     */
+    public void setBoolean(Object target, boolean value)
+    {
+        try
+        {
+            field.setBoolean(target, value);
+        }
+        catch (IllegalArgumentException iarg)
+        {
+            throw new PropertyAccessException(iarg);
+        }
+        catch (IllegalAccessException iacc)
+        {
+            throw new PropertyAccessException(iacc);
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "FieldAccessor [" + field + "]";
+    }
+}
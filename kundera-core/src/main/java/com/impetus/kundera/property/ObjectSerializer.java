@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.property;
+
+/**
+ * Converts values of fields without a dedicated {@link PropertyAccessor},
+ * i.e. those handled by
+ * {@link com.impetus.kundera.property.accessor.ObjectAccessor}, to and from
+ * bytes.
+ *
+ * Every value is stored with id of serializer which wrote it, so it is read
+ * back by same serializer whichever one is configured at that time.
+ * Serializers are registered with {@link ObjectSerializerFactory}.
+ *
+ * @see com.impetus.kundera.property.serializer.CompactSerializer
+ * @see com.impetus.kundera.property.serializer.JavaSerializer
+ */
+public interface ObjectSerializer
+{
+
+    /**
+     * Returns id of this serializer, which must be unique among registered
+     * serializers. Ids below 16 are reserved for serializers of Kundera.
+     *
+     * @return the id
+     */
+    byte getId();
+
+    /**
+     * Serializes given object.
+     *
+     * @param object
+     *            the object, not null
+     * @return the bytes
+     *
+     * @throws PropertyAccessException
+     *             the property access exception
+     */
+    byte[] serialize(Object object);
+
+    /**
+     * Deserializes object from given bytes.
+     *
+     * @param targetClass
+     *            the target class, may be Object
+     * @param bytes
+     *            the bytes
+     * @param offset
+     *            index of first byte
+     * @param length
+     *            number of bytes
+     * @return the object
+     *
+     * @throws PropertyAccessException
+     *             the property access exception
+     */
+    Object deserialize(Class<?> targetClass, byte[] bytes, int offset, int length);
+}
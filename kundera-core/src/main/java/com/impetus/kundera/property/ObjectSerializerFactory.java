@@ -0,0 +1,245 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.property;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.impetus.kundera.KunderaException;
+import com.impetus.kundera.property.serializer.CompactSerializer;
+import com.impetus.kundera.property.serializer.JavaSerializer;
+
+/**
+ * Registry of {@link ObjectSerializer}s. Values are written by serializer
+ * registered for their class, or by default serializer, which is Java
+ * serialization unless configured otherwise through
+ * {@link com.impetus.kundera.PersistenceProperties#KUNDERA_OBJECT_SERIALIZER}.
+ * Values are read by serializer whose id they were written with, so all
+ * serializers which have ever written values must stay registered.
+ *
+ * Like property accessors, serializers are shared by all persistence units
+ * of a class loader. Persistence units configuring a different default
+ * serializer, or compression threshold, than another open one are rejected.
+ */
+public final class ObjectSerializerFactory
+{
+
+    /** Serializers by id. */
+    private static final Map<Byte, ObjectSerializer> serializers = new ConcurrentHashMap<Byte, ObjectSerializer>();
+
+    /** Serializers by class of values. */
+    private static final Map<Class<?>, ObjectSerializer> typeSerializers = new ConcurrentHashMap<Class<?>, ObjectSerializer>();
+
+    /** The default serializer. */
+    private static volatile ObjectSerializer defaultSerializer;
+
+    /** Serialized size from which values are compressed, 0 if never. */
+    private static volatile int compressionThreshold;
+
+    /** Default serializers configured, by persistence unit. */
+    private static final Map<String, ObjectSerializer> configuredSerializers = new HashMap<String, ObjectSerializer>();
+
+    /** Compression thresholds configured, by persistence unit. */
+    private static final Map<String, Integer> configuredThresholds = new HashMap<String, Integer>();
+
+    static
+    {
+        add(new JavaSerializer());
+        add(new CompactSerializer());
+        defaultSerializer = serializers.get(JavaSerializer.ID);
+    }
+
+    /**
+     * Instantiates a new object serializer factory.
+     */
+    private ObjectSerializerFactory()
+    {
+    }
+
+    /**
+     * Registers serializer, so that values written by it can be read.
+     *
+     * @param serializer
+     *            the serializer
+     * @throws IllegalArgumentException
+     *             if another serializer is registered with same id
+     */
+    public static synchronized void add(ObjectSerializer serializer)
+    {
+        ObjectSerializer registered = serializers.get(serializer.getId());
+        if (registered != null && !registered.getClass().equals(serializer.getClass()))
+        {
+            throw new IllegalArgumentException("Serializer " + registered.getClass().getName()
+                    + " is already registered with id " + serializer.getId());
+        }
+        if (registered == null)
+        {
+            serializers.put(serializer.getId(), serializer);
+        }
+    }
+
+    /**
+     * Registers serializer for values of given class. Only values of exactly
+     * that class are written by it, not of its subclasses.
+     *
+     * @param clazz
+     *            the class
+     * @param serializer
+     *            the serializer
+     */
+    public static void add(Class<?> clazz, ObjectSerializer serializer)
+    {
+        add(serializer);
+        typeSerializers.put(clazz, serializers.get(serializer.getId()));
+    }
+
+    /**
+     * Gets serializer registered with given id.
+     *
+     * @param id
+     *            the id
+     * @return the serializer, null if none
+     */
+    public static ObjectSerializer getObjectSerializer(byte id)
+    {
+        return serializers.get(id);
+    }
+
+    /**
+     * Gets serializer which writes values of given class.
+     *
+     * @param clazz
+     *            the class
+     * @return the serializer
+     */
+    public static ObjectSerializer getObjectSerializer(Class<?> clazz)
+    {
+        ObjectSerializer serializer = typeSerializers.get(clazz);
+        return serializer != null ? serializer : defaultSerializer;
+    }
+
+    /**
+     * Sets serializer of values without one registered for their class.
+     *
+     * @param serializer
+     *            the new default serializer
+     */
+    public static synchronized void setDefault(ObjectSerializer serializer)
+    {
+        add(serializer);
+        defaultSerializer = serializers.get(serializer.getId());
+    }
+
+    /**
+     * Sets default serializer as configured by given persistence unit.
+     *
+     * @param persistenceUnit
+     *            the persistence unit
+     * @param serializer
+     *            the new default serializer
+     * @throws KunderaException
+     *             if another persistence unit configured a different one
+     */
+    public static synchronized void setDefault(String persistenceUnit, ObjectSerializer serializer)
+    {
+        for (Map.Entry<String, ObjectSerializer> configured : configuredSerializers.entrySet())
+        {
+            if (!configured.getKey().equals(persistenceUnit)
+                    && !configured.getValue().getClass().equals(serializer.getClass()))
+            {
+                throw new KunderaException("Persistence unit " + persistenceUnit + " configures serializer "
+                        + serializer.getClass().getName() + ", while " + configured.getKey() + " configures "
+                        + configured.getValue().getClass().getName()
+                        + ". Serializer is shared by all persistence units");
+            }
+        }
+        setDefault(serializer);
+        configuredSerializers.put(persistenceUnit, defaultSerializer);
+    }
+
+    /**
+     * @return the default serializer
+     */
+    public static ObjectSerializer getDefault()
+    {
+        return defaultSerializer;
+    }
+
+    /**
+     * Sets serialized size in bytes from which values are compressed.
+     *
+     * @param threshold
+     *            the threshold, 0 or less to never compress
+     */
+    public static synchronized void setCompressionThreshold(int threshold)
+    {
+        compressionThreshold = threshold > 0 ? threshold : 0;
+    }
+
+    /**
+     * Sets compression threshold as configured by given persistence unit.
+     *
+     * @param persistenceUnit
+     *            the persistence unit
+     * @param threshold
+     *            the threshold, 0 or less to never compress
+     * @throws KunderaException
+     *             if another persistence unit configured a different one
+     */
+    public static synchronized void setCompressionThreshold(String persistenceUnit, int threshold)
+    {
+        int value = threshold > 0 ? threshold : 0;
+        for (Map.Entry<String, Integer> configured : configuredThresholds.entrySet())
+        {
+            if (!configured.getKey().equals(persistenceUnit) && configured.getValue() != value)
+            {
+                throw new KunderaException("Persistence unit " + persistenceUnit + " configures compression threshold "
+                        + value + ", while " + configured.getKey() + " configures " + configured.getValue()
+                        + ". Compression is shared by all persistence units");
+            }
+        }
+        setCompressionThreshold(value);
+        configuredThresholds.put(persistenceUnit, value);
+    }
+
+    /**
+     * Drops configuration of given persistence unit, once closed. Defaults
+     * are restored when no open persistence unit configures them.
+     *
+     * @param persistenceUnit
+     *            the persistence unit
+     */
+    public static synchronized void release(String persistenceUnit)
+    {
+        if (configuredSerializers.remove(persistenceUnit) != null && configuredSerializers.isEmpty())
+        {
+            defaultSerializer = serializers.get(JavaSerializer.ID);
+        }
+        if (configuredThresholds.remove(persistenceUnit) != null && configuredThresholds.isEmpty())
+        {
+            compressionThreshold = 0;
+        }
+    }
+
+    /**
+     * @return serialized size from which values are compressed, 0 if never
+     */
+    public static int getCompressionThreshold()
+    {
+        return compressionThreshold;
+    }
+}
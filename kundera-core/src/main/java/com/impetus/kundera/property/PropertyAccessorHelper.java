@@ -17,14 +17,18 @@ package com.impetus.kundera.property;
 
 import java.lang.reflect.Field;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import javax.persistence.metamodel.Attribute;
+
 import com.impetus.kundera.client.EnhanceEntity;
 import com.impetus.kundera.metadata.model.EntityMetadata;
+import com.impetus.kundera.metadata.model.attributes.AbstractAttribute;
 import com.impetus.kundera.utils.ReflectUtils;
 
 /**
@@ -111,6 +115,68 @@ public class PropertyAccessorHelper
         }
     }
 
+    /**
+     * Sets a byte-array onto an attribute.
+     * 
+     * @param target
+     *            the target
+     * @param attribute
+     *            the attribute
+     * @param bytes
+     *            the bytes
+     * 
+     * @throws PropertyAccessException
+     *             the property access exception
+     */
+    public static void set(Object target, Attribute attribute, byte[] bytes)
+    {
+        FieldAccessor fieldAccessor = getAccessor(attribute);
+        if (setPrimitive(target, fieldAccessor, bytes))
+        {
+            return;
+        }
+        PropertyAccessor<?> accessor = PropertyAccessorFactory.getPropertyAccessor(fieldAccessor.getField());
+        fieldAccessor.set(target, accessor.fromBytes(fieldAccessor.getField().getType(), bytes));
+    }
+
+    /**
+     * Sets a string value onto an attribute.
+     * 
+     * @param target
+     *            the target
+     * @param attribute
+     *            the attribute
+     * @param fieldVal
+     *            the field value
+     * 
+     * @throws PropertyAccessException
+     *             the property access exception
+     */
+    public static void set(Object target, Attribute attribute, String fieldVal)
+    {
+        FieldAccessor fieldAccessor = getAccessor(attribute);
+        PropertyAccessor<?> accessor = PropertyAccessorFactory.getPropertyAccessor(fieldAccessor.getField());
+        fieldAccessor.set(target, accessor.fromString(target.getClass(), fieldVal));
+    }
+
+    /**
+     * Sets an object onto an attribute.
+     * 
+     * @param target
+     *            the target
+     * @param attribute
+     *            the attribute
+     * @param value
+     *            the value
+     * 
+     * @throws PropertyAccessException
+     *             the property access exception
+     */
+    public static void set(Object target, Attribute attribute, Object value)
+    {
+        getAccessor(attribute).set(target, value);
+    }
+
     /**
      * Gets object from field.
      * 
@@ -146,6 +212,24 @@ public class PropertyAccessorHelper
         }
     }
 
+    /**
+     * Gets object from attribute.
+     * 
+     * @param from
+     *            the from
+     * @param attribute
+     *            the attribute
+     * 
+     * @return the object
+     * 
+     * @throws PropertyAccessException
+     *             the property access exception
+     */
+    public static Object getObject(Object from, Attribute attribute)
+    {
+        return getAccessor(attribute).get(from);
+    }
+
     /**
      * Gets the string.
      * 
@@ -187,6 +271,213 @@ public class PropertyAccessorHelper
         return accessor.toBytes(getObject(from, field));
     }
 
+    /**
+     * Returns number of bytes given value encodes to by given accessor.
+     * 
+     * @param accessor
+     *            the accessor
+     * @param value
+     *            the value
+     * @return encoded size, zero for null
+     */
+    public static int encodedSize(PropertyAccessor<?> accessor, Object value)
+    {
+        if (accessor instanceof ByteBufferAccessor)
+        {
+            return ((ByteBufferAccessor<?>) accessor).encodedSize(value);
+        }
+        byte[] bytes = value != null ? accessor.toBytes(value) : null;
+        return bytes != null ? bytes.length : 0;
+    }
+
+    /**
+     * Encodes given value into buffer, at its position. Accessors which can
+     * not encode into a buffer encode into a byte-array, which is copied.
+     * 
+     * @param accessor
+     *            the accessor
+     * @param buffer
+     *            the buffer
+     * @param value
+     *            the value
+     * 
+     * @throws PropertyAccessException
+     *             the property access exception
+     */
+    public static void writeTo(PropertyAccessor<?> accessor, ByteBuffer buffer, Object value)
+    {
+        if (accessor instanceof ByteBufferAccessor)
+        {
+            ((ByteBufferAccessor<?>) accessor).writeTo(buffer, value);
+        }
+        else if (value != null)
+        {
+            byte[] bytes = accessor.toBytes(value);
+            if (bytes != null)
+            {
+                buffer.put(bytes);
+            }
+        }
+    }
+
+    /**
+     * Decodes value from given bytes of buffer, leaving its position
+     * unchanged.
+     * 
+     * @param accessor
+     *            the accessor
+     * @param targetClass
+     *            the target class
+     * @param buffer
+     *            the buffer
+     * @param offset
+     *            index of first byte
+     * @param length
+     *            number of bytes
+     * @return the value
+     * 
+     * @throws PropertyAccessException
+     *             the property access exception
+     */
+    public static Object readFrom(PropertyAccessor<?> accessor, Class<?> targetClass, ByteBuffer buffer, int offset,
+            int length)
+    {
+        if (accessor instanceof ByteBufferAccessor)
+        {
+            return ((ByteBufferAccessor<?>) accessor).readFrom(targetClass, buffer, offset, length);
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer source = buffer.duplicate();
+        source.position(offset);
+        source.get(bytes);
+        return accessor.fromBytes(targetClass, bytes);
+    }
+
+    /**
+     * Gets attribute value as byte-array.
+     * 
+     * @param from
+     *            the from
+     * @param attribute
+     *            the attribute
+     * 
+     * @return the byte[]
+     * 
+     * @throws PropertyAccessException
+     *             the property access exception
+     */
+    public static byte[] get(Object from, Attribute attribute)
+    {
+        FieldAccessor fieldAccessor = getAccessor(attribute);
+        byte[] bytes = getPrimitive(from, fieldAccessor);
+        if (bytes != null)
+        {
+            return bytes;
+        }
+        PropertyAccessor<?> accessor = PropertyAccessorFactory.getPropertyAccessor(fieldAccessor.getField());
+        return accessor.toBytes(fieldAccessor.get(from));
+    }
+
+    /**
+     * Reads an int, long, double, float or boolean field through typed
+     * accessor, without boxing, into bytes as written by its
+     * {@link PropertyAccessor}.
+     * 
+     * @param from
+     *            the from
+     * @param fieldAccessor
+     *            the field accessor
+     * @return the bytes, null if field is of any other type
+     */
+    private static byte[] getPrimitive(Object from, FieldAccessor fieldAccessor)
+    {
+        Class<?> type = fieldAccessor.getField().getType();
+        if (type == int.class)
+        {
+            return ByteBuffer.allocate(4).putInt(fieldAccessor.getInt(from)).array();
+        }
+        else if (type == long.class)
+        {
+            return ByteBuffer.allocate(8).putLong(fieldAccessor.getLong(from)).array();
+        }
+        else if (type == double.class)
+        {
+            return ByteBuffer.allocate(8).putLong(Double.doubleToRawLongBits(fieldAccessor.getDouble(from))).array();
+        }
+        else if (type == float.class)
+        {
+            return ByteBuffer.allocate(4).putInt(Float.floatToRawIntBits(fieldAccessor.getFloat(from))).array();
+        }
+        else if (type == boolean.class)
+        {
+            return new byte[] { (byte) (fieldAccessor.getBoolean(from) ? 0x01 : 0x00) };
+        }
+        return null;
+    }
+
+    /**
+     * Writes bytes onto an int, long, double, float or boolean field through
+     * typed accessor, without boxing. Bytes not as written by field's
+     * {@link PropertyAccessor} are left to it.
+     * 
+     * @param target
+     *            the target
+     * @param fieldAccessor
+     *            the field accessor
+     * @param bytes
+     *            the bytes
+     * @return true, if field was set
+     */
+    private static boolean setPrimitive(Object target, FieldAccessor fieldAccessor, byte[] bytes)
+    {
+        if (bytes == null)
+        {
+            return false;
+        }
+        Class<?> type = fieldAccessor.getField().getType();
+        if (type == int.class && bytes.length >= 4)
+        {
+            fieldAccessor.setInt(target, ByteBuffer.wrap(bytes).getInt());
+        }
+        else if (type == long.class && bytes.length == 8)
+        {
+            fieldAccessor.setLong(target, ByteBuffer.wrap(bytes).getLong());
+        }
+        else if (type == double.class && bytes.length == 8)
+        {
+            fieldAccessor.setDouble(target, Double.longBitsToDouble(ByteBuffer.wrap(bytes).getLong()));
+        }
+        else if (type == float.class && bytes.length == 4)
+        {
+            fieldAccessor.setFloat(target, Float.intBitsToFloat(ByteBuffer.wrap(bytes).getInt()));
+        }
+        else if (type == boolean.class && bytes.length > 0)
+        {
+            fieldAccessor.setBoolean(target, bytes[0] != 0x00);
+        }
+        else
+        {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns accessor of given attribute, built along with metamodel.
+     * 
+     * @param attribute
+     *            the attribute
+     * @return the field accessor
+     */
+    private static FieldAccessor getAccessor(Attribute attribute)
+    {
+        if (attribute instanceof AbstractAttribute)
+        {
+            return ((AbstractAttribute) attribute).getAccessor();
+        }
+        return new FieldAccessor((Field) attribute.getJavaMember());
+    }
+
     /**
      * Get identifier of an entity object by invoking getXXX() method.
      * 
@@ -215,7 +506,7 @@ public class PropertyAccessorHelper
         // Otherwise, as Kundera currently supports only field access, access
         // the underlying Entity's id field
 
-        return getObject(entity, (Field) metadata.getIdAttribute().getJavaMember());
+        return getObject(entity, metadata.getIdAttribute());
     }
 
     /**
@@ -235,8 +526,7 @@ public class PropertyAccessorHelper
         try
         {
 
-             Field idField = (Field) metadata.getIdAttribute().getJavaMember();
-             set(entity, idField, rowKey);
+             set(entity, metadata.getIdAttribute(), rowKey);
         }
         catch (IllegalArgumentException iarg)
         {
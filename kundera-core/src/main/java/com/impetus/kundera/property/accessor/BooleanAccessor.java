@@ -15,15 +15,17 @@
  ******************************************************************************/
 package com.impetus.kundera.property.accessor;
 
+import java.nio.ByteBuffer;
+
+import com.impetus.kundera.property.ByteBufferAccessor;
 import com.impetus.kundera.property.PropertyAccessException;
-import com.impetus.kundera.property.PropertyAccessor;
 
 /**
  * The Class BooleanAccessor.
  * 
  * @author Amresh Singh
  */
-public class BooleanAccessor implements PropertyAccessor<Boolean>
+public class BooleanAccessor implements ByteBufferAccessor<Boolean>
 {
 
     /*
@@ -98,4 +100,76 @@ public class BooleanAccessor implements PropertyAccessor<Boolean>
     {
         return Boolean.TRUE;
     }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.property.ByteBufferAccessor#encodedSize(java.lang.Object)
+     */
+    @Override
+    public int encodedSize(Object object)
+    {
+        return object != null ? 1 : 0;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.property.ByteBufferAccessor#writeTo(java.nio.ByteBuffer,
+     * java.lang.Object)
+     */
+    @Override
+    public void writeTo(ByteBuffer buffer, Object object)
+    {
+        if (object != null)
+        {
+            writeBoolean(buffer, (Boolean) object);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.property.ByteBufferAccessor#readFrom(java.lang.Class,
+     * java.nio.ByteBuffer, int, int)
+     */
+    @Override
+    public Boolean readFrom(Class targetClass, ByteBuffer buffer, int offset, int length)
+    {
+        if (length == 0)
+        {
+            return false;
+        }
+        return readBoolean(buffer, offset);
+    }
+
+    /**
+     * Writes a boolean at buffer's position, without boxing.
+     * 
+     * @param buffer
+     *            the buffer
+     * @param value
+     *            the value
+     */
+    public void writeBoolean(ByteBuffer buffer, boolean value)
+    {
+        buffer.put((byte) (value ? 0x01 : 0x00));
+    }
+
+    /**
+     * Reads a boolean at given index of buffer, without boxing.
+     * 
+     * @param buffer
+     *            the buffer
+     * @param offset
+     *            the offset
+     * @return the value
+     */
+    public boolean readBoolean(ByteBuffer buffer, int offset)
+    {
+        return buffer.get(offset) != 0x00;
+    }
 }
@@ -20,15 +20,15 @@ import java.nio.ByteBuffer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.impetus.kundera.property.ByteBufferAccessor;
 import com.impetus.kundera.property.PropertyAccessException;
-import com.impetus.kundera.property.PropertyAccessor;
 
 /**
  * The Class ByteAccessor.
  * 
  * @author Amresh Singh
  */
-public class ByteAccessor implements PropertyAccessor<Byte>
+public class ByteAccessor implements ByteBufferAccessor<Byte>
 {
 
     /** The log. */
@@ -118,4 +118,77 @@ public class ByteAccessor implements PropertyAccessor<Byte>
     {
         return Byte.MAX_VALUE;
     }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.property.ByteBufferAccessor#encodedSize(java.lang.Object)
+     */
+    @Override
+    public int encodedSize(Object object)
+    {
+        // written as 8 bytes, as by toBytes.
+        return object != null ? 8 : 0;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.property.ByteBufferAccessor#writeTo(java.nio.ByteBuffer,
+     * java.lang.Object)
+     */
+    @Override
+    public void writeTo(ByteBuffer buffer, Object object)
+    {
+        if (object != null)
+        {
+            writeByte(buffer, (Byte) object);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.property.ByteBufferAccessor#readFrom(java.lang.Class,
+     * java.nio.ByteBuffer, int, int)
+     */
+    @Override
+    public Byte readFrom(Class targetClass, ByteBuffer buffer, int offset, int length)
+    {
+        if (length == 0)
+        {
+            return null;
+        }
+        return buffer.get(offset);
+    }
+
+    /**
+     * Writes a byte at buffer's position, padded to 8 bytes, without boxing.
+     * 
+     * @param buffer
+     *            the buffer
+     * @param value
+     *            the value
+     */
+    public void writeByte(ByteBuffer buffer, byte value)
+    {
+        buffer.put(value).put((byte) 0).putShort((short) 0).putInt(0);
+    }
+
+    /**
+     * Reads a byte at given index of buffer, without boxing.
+     * 
+     * @param buffer
+     *            the buffer
+     * @param offset
+     *            the offset
+     * @return the value
+     */
+    public byte readByte(ByteBuffer buffer, int offset)
+    {
+        return buffer.get(offset);
+    }
 }
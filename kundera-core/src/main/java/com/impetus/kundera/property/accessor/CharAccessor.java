@@ -15,15 +15,17 @@
  ******************************************************************************/
 package com.impetus.kundera.property.accessor;
 
+import java.nio.ByteBuffer;
+
+import com.impetus.kundera.property.ByteBufferAccessor;
 import com.impetus.kundera.property.PropertyAccessException;
-import com.impetus.kundera.property.PropertyAccessor;
 
 /**
  * The Class CharAccessor.
  * 
  * @author Amresh Singh
  */
-public class CharAccessor implements PropertyAccessor<Character>
+public class CharAccessor implements ByteBufferAccessor<Character>
 {
 
     /*
@@ -113,4 +115,76 @@ public class CharAccessor implements PropertyAccessor<Character>
     {
         return Character.MAX_VALUE;
     }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.property.ByteBufferAccessor#encodedSize(java.lang.Object)
+     */
+    @Override
+    public int encodedSize(Object object)
+    {
+        return object != null ? 2 : 0;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.property.ByteBufferAccessor#writeTo(java.nio.ByteBuffer,
+     * java.lang.Object)
+     */
+    @Override
+    public void writeTo(ByteBuffer buffer, Object object)
+    {
+        if (object != null)
+        {
+            writeChar(buffer, object.getClass().isAssignableFrom(String.class) ? ((String) object).charAt(0) : (Character) object);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.property.ByteBufferAccessor#readFrom(java.lang.Class,
+     * java.nio.ByteBuffer, int, int)
+     */
+    @Override
+    public Character readFrom(Class targetClass, ByteBuffer buffer, int offset, int length)
+    {
+        if (length != 2)
+        {
+            return 0x0;
+        }
+        return readChar(buffer, offset);
+    }
+
+    /**
+     * Writes a char at buffer's position, without boxing.
+     * 
+     * @param buffer
+     *            the buffer
+     * @param value
+     *            the value
+     */
+    public void writeChar(ByteBuffer buffer, char value)
+    {
+        buffer.putChar(value);
+    }
+
+    /**
+     * Reads a char at given index of buffer, without boxing.
+     * 
+     * @param buffer
+     *            the buffer
+     * @param offset
+     *            the offset
+     * @return the value
+     */
+    public char readChar(ByteBuffer buffer, int offset)
+    {
+        return buffer.getChar(offset);
+    }
 }
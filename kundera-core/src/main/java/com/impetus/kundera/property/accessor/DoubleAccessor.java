@@ -15,15 +15,17 @@
  ******************************************************************************/
 package com.impetus.kundera.property.accessor;
 
+import java.nio.ByteBuffer;
+
+import com.impetus.kundera.property.ByteBufferAccessor;
 import com.impetus.kundera.property.PropertyAccessException;
-import com.impetus.kundera.property.PropertyAccessor;
 
 /**
  * The Class DoubleAccessor.
  * 
  * @author Amresh Singh
  */
-public class DoubleAccessor implements PropertyAccessor<Double>
+public class DoubleAccessor implements ByteBufferAccessor<Double>
 {
 
     /*
@@ -127,4 +129,76 @@ public class DoubleAccessor implements PropertyAccessor<Double>
     {
         return Double.MAX_VALUE;
     }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.property.ByteBufferAccessor#encodedSize(java.lang.Object)
+     */
+    @Override
+    public int encodedSize(Object object)
+    {
+        return object != null ? 8 : 0;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.property.ByteBufferAccessor#writeTo(java.nio.ByteBuffer,
+     * java.lang.Object)
+     */
+    @Override
+    public void writeTo(ByteBuffer buffer, Object object)
+    {
+        if (object != null)
+        {
+            writeDouble(buffer, (Double) object);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.property.ByteBufferAccessor#readFrom(java.lang.Class,
+     * java.nio.ByteBuffer, int, int)
+     */
+    @Override
+    public Double readFrom(Class targetClass, ByteBuffer buffer, int offset, int length)
+    {
+        if (length != 8)
+        {
+            return (double) 0x0;
+        }
+        return readDouble(buffer, offset);
+    }
+
+    /**
+     * Writes a double at buffer's position, without boxing.
+     * 
+     * @param buffer
+     *            the buffer
+     * @param value
+     *            the value
+     */
+    public void writeDouble(ByteBuffer buffer, double value)
+    {
+        buffer.putLong(Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Reads a double at given index of buffer, without boxing.
+     * 
+     * @param buffer
+     *            the buffer
+     * @param offset
+     *            the offset
+     * @return the value
+     */
+    public double readDouble(ByteBuffer buffer, int offset)
+    {
+        return buffer.getDouble(offset);
+    }
 }
@@ -15,15 +15,17 @@
  ******************************************************************************/
 package com.impetus.kundera.property.accessor;
 
+import java.nio.ByteBuffer;
+
+import com.impetus.kundera.property.ByteBufferAccessor;
 import com.impetus.kundera.property.PropertyAccessException;
-import com.impetus.kundera.property.PropertyAccessor;
 
 /**
  * The Class FloatAccessor.
  * 
  * @author Amresh Singh
  */
-public class FloatAccessor implements PropertyAccessor<Float>
+public class FloatAccessor implements ByteBufferAccessor<Float>
 {
 
     /*
@@ -122,4 +124,76 @@ public class FloatAccessor implements PropertyAccessor<Float>
     {
         return Float.MAX_VALUE;
     }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.property.ByteBufferAccessor#encodedSize(java.lang.Object)
+     */
+    @Override
+    public int encodedSize(Object object)
+    {
+        return object != null ? 4 : 0;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.property.ByteBufferAccessor#writeTo(java.nio.ByteBuffer,
+     * java.lang.Object)
+     */
+    @Override
+    public void writeTo(ByteBuffer buffer, Object object)
+    {
+        if (object != null)
+        {
+            writeFloat(buffer, (Float) object);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.property.ByteBufferAccessor#readFrom(java.lang.Class,
+     * java.nio.ByteBuffer, int, int)
+     */
+    @Override
+    public Float readFrom(Class targetClass, ByteBuffer buffer, int offset, int length)
+    {
+        if (length != 4)
+        {
+            return (float) 0x0;
+        }
+        return readFloat(buffer, offset);
+    }
+
+    /**
+     * Writes a float at buffer's position, without boxing.
+     * 
+     * @param buffer
+     *            the buffer
+     * @param value
+     *            the value
+     */
+    public void writeFloat(ByteBuffer buffer, float value)
+    {
+        buffer.putInt(Float.floatToRawIntBits(value));
+    }
+
+    /**
+     * Reads a float at given index of buffer, without boxing.
+     * 
+     * @param buffer
+     *            the buffer
+     * @param offset
+     *            the offset
+     * @return the value
+     */
+    public float readFloat(ByteBuffer buffer, int offset)
+    {
+        return buffer.getFloat(offset);
+    }
 }
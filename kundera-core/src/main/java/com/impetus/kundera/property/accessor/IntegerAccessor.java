@@ -15,15 +15,17 @@
  ******************************************************************************/
 package com.impetus.kundera.property.accessor;
 
+import java.nio.ByteBuffer;
+
+import com.impetus.kundera.property.ByteBufferAccessor;
 import com.impetus.kundera.property.PropertyAccessException;
-import com.impetus.kundera.property.PropertyAccessor;
 
 /**
  * The Class IntegerAccessor.
  * 
  * @author animesh.kumar
  */
-public class IntegerAccessor implements PropertyAccessor<Integer>
+public class IntegerAccessor implements ByteBufferAccessor<Integer>
 {
 
     /* @see com.impetus.kundera.property.PropertyAccessor#fromBytes(byte[]) */
@@ -101,4 +103,76 @@ public class IntegerAccessor implements PropertyAccessor<Integer>
     {
         return Integer.MAX_VALUE;
     }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.property.ByteBufferAccessor#encodedSize(java.lang.Object)
+     */
+    @Override
+    public int encodedSize(Object object)
+    {
+        return object != null ? 4 : 0;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.property.ByteBufferAccessor#writeTo(java.nio.ByteBuffer,
+     * java.lang.Object)
+     */
+    @Override
+    public void writeTo(ByteBuffer buffer, Object object)
+    {
+        if (object != null)
+        {
+            writeInt(buffer, (Integer) object);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.property.ByteBufferAccessor#readFrom(java.lang.Class,
+     * java.nio.ByteBuffer, int, int)
+     */
+    @Override
+    public Integer readFrom(Class targetClass, ByteBuffer buffer, int offset, int length)
+    {
+        if (length < 4)
+        {
+            return null;
+        }
+        return readInt(buffer, offset);
+    }
+
+    /**
+     * Writes an int at buffer's position, without boxing.
+     * 
+     * @param buffer
+     *            the buffer
+     * @param value
+     *            the value
+     */
+    public void writeInt(ByteBuffer buffer, int value)
+    {
+        buffer.putInt(value);
+    }
+
+    /**
+     * Reads an int at given index of buffer, without boxing.
+     * 
+     * @param buffer
+     *            the buffer
+     * @param offset
+     *            the offset
+     * @return the value
+     */
+    public int readInt(ByteBuffer buffer, int offset)
+    {
+        return buffer.getInt(offset);
+    }
 }
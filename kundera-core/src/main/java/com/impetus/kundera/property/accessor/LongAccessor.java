@@ -17,15 +17,15 @@ package com.impetus.kundera.property.accessor;
 
 import java.nio.ByteBuffer;
 
+import com.impetus.kundera.property.ByteBufferAccessor;
 import com.impetus.kundera.property.PropertyAccessException;
-import com.impetus.kundera.property.PropertyAccessor;
 
 /**
  * The Class LongAccessor.
  * 
  * @author animesh.kumar
  */
-public class LongAccessor implements PropertyAccessor<Long>
+public class LongAccessor implements ByteBufferAccessor<Long>
 {
 
     /* @see com.impetus.kundera.property.PropertyAccessor#fromBytes(byte[]) */
@@ -108,4 +108,76 @@ public class LongAccessor implements PropertyAccessor<Long>
     {
         return Long.MAX_VALUE;
     }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.property.ByteBufferAccessor#encodedSize(java.lang.Object)
+     */
+    @Override
+    public int encodedSize(Object object)
+    {
+        return object != null ? 8 : 0;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.property.ByteBufferAccessor#writeTo(java.nio.ByteBuffer,
+     * java.lang.Object)
+     */
+    @Override
+    public void writeTo(ByteBuffer buffer, Object object)
+    {
+        if (object != null)
+        {
+            writeLong(buffer, (Long) object);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.property.ByteBufferAccessor#readFrom(java.lang.Class,
+     * java.nio.ByteBuffer, int, int)
+     */
+    @Override
+    public Long readFrom(Class targetClass, ByteBuffer buffer, int offset, int length)
+    {
+        if (length != 8)
+        {
+            return null;
+        }
+        return readLong(buffer, offset);
+    }
+
+    /**
+     * Writes a long at buffer's position, without boxing.
+     * 
+     * @param buffer
+     *            the buffer
+     * @param value
+     *            the value
+     */
+    public void writeLong(ByteBuffer buffer, long value)
+    {
+        buffer.putLong(value);
+    }
+
+    /**
+     * Reads a long at given index of buffer, without boxing.
+     * 
+     * @param buffer
+     *            the buffer
+     * @param offset
+     *            the offset
+     * @return the value
+     */
+    public long readLong(ByteBuffer buffer, int offset)
+    {
+        return buffer.getLong(offset);
+    }
 }
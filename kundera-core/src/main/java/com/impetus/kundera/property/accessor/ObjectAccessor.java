@@ -15,20 +15,27 @@
  ******************************************************************************/
 package com.impetus.kundera.property.accessor;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import com.impetus.kundera.property.ObjectSerializer;
+import com.impetus.kundera.property.ObjectSerializerFactory;
 import com.impetus.kundera.property.PropertyAccessException;
 import com.impetus.kundera.property.PropertyAccessor;
+import com.impetus.kundera.property.serializer.JavaSerializer;
 
 /**
- * The Class ObjectAccessor.
+ * The Class ObjectAccessor. Values are converted to bytes by
+ * {@link ObjectSerializer} of {@link ObjectSerializerFactory}. Except for Java
+ * serialized values, bytes begin with a header of {@link #MAGIC}, flags and
+ * serializer id; a Java serialization stream never begins with
+ * {@link #MAGIC}. Compressed values have uncompressed length after header.
  * 
  * @author animesh.kumar
  */
@@ -37,6 +44,18 @@ public class ObjectAccessor implements PropertyAccessor<Object>
 
     public static Log log = LogFactory.getLog(ObjectAccessor.class);
 
+    /** First byte of values written with a header. */
+    public static final byte MAGIC = 0x4B;
+
+    /** Flag of deflated values. */
+    private static final byte FLAG_COMPRESSED = 0x01;
+
+    /** Length of header. */
+    private static final int HEADER_LENGTH = 3;
+
+    /** Reads values written before serializers were pluggable. */
+    private final JavaSerializer javaSerializer = new JavaSerializer();
+
     /* @see com.impetus.kundera.property.PropertyAccessor#fromBytes(byte[]) */
     /*
      * (non-Javadoc)
@@ -46,31 +65,31 @@ public class ObjectAccessor implements PropertyAccessor<Object>
     @Override
     public final Object fromBytes(Class targetClass, byte[] bytes)
     {
-        try
+        if (bytes == null)
         {
-            if(bytes == null)
-            {
-                return null;
-            }
-            if (targetClass != null && targetClass.equals(byte[].class))
-            {
-                return bytes;
-            }
-            ObjectInputStream ois;
-            ois = new ObjectInputStream(new ByteArrayInputStream(bytes));
-            Object o = ois.readObject();
-            ois.close();
-            return o;
+            return null;
         }
-        catch (IOException e)
+        if (targetClass != null && targetClass.equals(byte[].class))
         {
-            throw new PropertyAccessException(e);
+            return bytes;
         }
-        catch (ClassNotFoundException e)
+        if (bytes.length < HEADER_LENGTH || bytes[0] != MAGIC)
         {
-            throw new PropertyAccessException(e);
+            // Java serialized, as all values were before serializers.
+            return javaSerializer.deserialize(targetClass, bytes, 0, bytes.length);
         }
 
+        ObjectSerializer serializer = ObjectSerializerFactory.getObjectSerializer(bytes[2]);
+        if (serializer == null)
+        {
+            throw new PropertyAccessException("No serializer registered with id " + bytes[2]);
+        }
+        if ((bytes[1] & FLAG_COMPRESSED) != 0)
+        {
+            byte[] uncompressed = uncompress(bytes);
+            return serializer.deserialize(targetClass, uncompressed, 0, uncompressed.length);
+        }
+        return serializer.deserialize(targetClass, bytes, HEADER_LENGTH, bytes.length - HEADER_LENGTH);
     }
 
     /*
@@ -86,28 +105,106 @@ public class ObjectAccessor implements PropertyAccessor<Object>
     @Override
     public final byte[] toBytes(Object o)
     {
+        if (o == null)
+        {
+            return null;
+        }
+        if (o instanceof byte[])
+        {
+            return (byte[]) o;
+        }
+
+        ObjectSerializer serializer = ObjectSerializerFactory.getObjectSerializer(o.getClass());
+        byte[] bytes = serializer.serialize(o);
+
+        int threshold = ObjectSerializerFactory.getCompressionThreshold();
+        if (threshold > 0 && bytes.length >= threshold)
+        {
+            byte[] compressed = compress(serializer.getId(), bytes);
+            if (compressed.length < bytes.length)
+            {
+                return compressed;
+            }
+        }
+
+        // Java serialized values are kept as they were, without header.
+        if (serializer.getId() == JavaSerializer.ID)
+        {
+            return bytes;
+        }
+        byte[] framed = new byte[HEADER_LENGTH + bytes.length];
+        writeHeader(framed, (byte) 0, serializer.getId());
+        System.arraycopy(bytes, 0, framed, HEADER_LENGTH, bytes.length);
+        return framed;
+    }
+
+    /**
+     * Deflates serialized bytes, behind header and uncompressed length.
+     */
+    private byte[] compress(byte serializerId, byte[] bytes)
+    {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(bytes.length / 2 + HEADER_LENGTH + 4);
+        byte[] header = new byte[HEADER_LENGTH + 4];
+        writeHeader(header, FLAG_COMPRESSED, serializerId);
+        ByteBuffer.wrap(header, HEADER_LENGTH, 4).putInt(bytes.length);
+        baos.write(header, 0, header.length);
 
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
         try
         {
-            if (o != null)
+            deflater.setInput(bytes);
+            deflater.finish();
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished())
             {
-                if (o instanceof byte[])
+                baos.write(buffer, 0, deflater.deflate(buffer));
+            }
+        }
+        finally
+        {
+            deflater.end();
+        }
+        return baos.toByteArray();
+    }
+
+    private byte[] uncompress(byte[] bytes)
+    {
+        byte[] uncompressed = new byte[ByteBuffer.wrap(bytes, HEADER_LENGTH, 4).getInt()];
+        Inflater inflater = new Inflater();
+        try
+        {
+            inflater.setInput(bytes, HEADER_LENGTH + 4, bytes.length - HEADER_LENGTH - 4);
+            int length = 0;
+            while (length < uncompressed.length && !inflater.finished())
+            {
+                int inflated = inflater.inflate(uncompressed, length, uncompressed.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary()))
                 {
-                    return (byte[]) o;
+                    break;
                 }
-
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                ObjectOutputStream oos = new ObjectOutputStream(baos);
-                oos.writeObject(o);
-                oos.close();
-                return baos.toByteArray();
+                length += inflated;
             }
+            if (length != uncompressed.length)
+            {
+                throw new PropertyAccessException("Compressed value is truncated");
+            }
+            return uncompressed;
         }
-        catch (IOException e)
+        catch (DataFormatException e)
         {
             throw new PropertyAccessException(e);
         }
-        return null;
+        finally
+        {
+            inflater.end();
+        }
+    }
+
+    private void writeHeader(byte[] bytes, byte flags, byte serializerId)
+    {
+        bytes[0] = MAGIC;
+        bytes[1] = flags;
+        bytes[2] = serializerId;
     }
 
     /*
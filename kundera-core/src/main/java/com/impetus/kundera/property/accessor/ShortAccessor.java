@@ -15,15 +15,17 @@
  ******************************************************************************/
 package com.impetus.kundera.property.accessor;
 
+import java.nio.ByteBuffer;
+
+import com.impetus.kundera.property.ByteBufferAccessor;
 import com.impetus.kundera.property.PropertyAccessException;
-import com.impetus.kundera.property.PropertyAccessor;
 
 /**
  * The Class ShortAccessor.
  * 
  * @author Amresh Singh
  */
-public class ShortAccessor implements PropertyAccessor<Short>
+public class ShortAccessor implements ByteBufferAccessor<Short>
 {
 
     /*
@@ -108,4 +110,76 @@ public class ShortAccessor implements PropertyAccessor<Short>
     {
         return Short.MAX_VALUE;
     }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.property.ByteBufferAccessor#encodedSize(java.lang.Object)
+     */
+    @Override
+    public int encodedSize(Object object)
+    {
+        return object != null ? 2 : 0;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.property.ByteBufferAccessor#writeTo(java.nio.ByteBuffer,
+     * java.lang.Object)
+     */
+    @Override
+    public void writeTo(ByteBuffer buffer, Object object)
+    {
+        if (object != null)
+        {
+            writeShort(buffer, object.getClass().isAssignableFrom(String.class) ? Short.valueOf(object.toString()) : (Short) object);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.property.ByteBufferAccessor#readFrom(java.lang.Class,
+     * java.nio.ByteBuffer, int, int)
+     */
+    @Override
+    public Short readFrom(Class targetClass, ByteBuffer buffer, int offset, int length)
+    {
+        if (length != 2)
+        {
+            return 0x0;
+        }
+        return readShort(buffer, offset);
+    }
+
+    /**
+     * Writes a short at buffer's position, without boxing.
+     * 
+     * @param buffer
+     *            the buffer
+     * @param value
+     *            the value
+     */
+    public void writeShort(ByteBuffer buffer, short value)
+    {
+        buffer.putShort(value);
+    }
+
+    /**
+     * Reads a short at given index of buffer, without boxing.
+     * 
+     * @param buffer
+     *            the buffer
+     * @param offset
+     *            the offset
+     * @return the value
+     */
+    public short readShort(ByteBuffer buffer, int offset)
+    {
+        return buffer.getShort(offset);
+    }
 }
@@ -0,0 +1,841 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.property.serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.impetus.kundera.Constants;
+import com.impetus.kundera.property.ObjectSerializer;
+import com.impetus.kundera.property.PropertyAccessException;
+
+/**
+ * {@link ObjectSerializer} writing a compact binary form. Every value is
+ * prefixed by a one byte type. Integers are variable length, and class names
+ * and field names are written once per value, when their class is first met.
+ * Fields are read back by name, so fields may be added to or removed from a
+ * class without making stored values unreadable.
+ *
+ * Objects are written field by field if they have a no-arg constructor and
+ * do not customize their serialization. Collections and maps of JDK are
+ * written element by element. Values of other classes, and cyclic values, are
+ * written with Java serialization. Unlike Java serialization, an object
+ * referred to twice within a value is read back as two objects.
+ */
+public class CompactSerializer implements ObjectSerializer
+{
+
+    /** The id. */
+    public static final byte ID = 1;
+
+    private static final byte TYPE_NULL = 0;
+
+    private static final byte TYPE_TRUE = 1;
+
+    private static final byte TYPE_FALSE = 2;
+
+    private static final byte TYPE_BYTE = 3;
+
+    private static final byte TYPE_SHORT = 4;
+
+    private static final byte TYPE_CHAR = 5;
+
+    private static final byte TYPE_INT = 6;
+
+    private static final byte TYPE_LONG = 7;
+
+    private static final byte TYPE_FLOAT = 8;
+
+    private static final byte TYPE_DOUBLE = 9;
+
+    private static final byte TYPE_STRING = 10;
+
+    private static final byte TYPE_BYTES = 11;
+
+    private static final byte TYPE_ENUM = 12;
+
+    private static final byte TYPE_DATE = 13;
+
+    private static final byte TYPE_BIG_INTEGER = 14;
+
+    private static final byte TYPE_BIG_DECIMAL = 15;
+
+    private static final byte TYPE_UUID = 16;
+
+    private static final byte TYPE_COLLECTION = 17;
+
+    private static final byte TYPE_MAP = 18;
+
+    private static final byte TYPE_ARRAY = 19;
+
+    private static final byte TYPE_OBJECT = 20;
+
+    private static final byte TYPE_JAVA = 21;
+
+    /** Primitive classes by name, as Class.forName does not load them. */
+    private static final Map<String, Class<?>> primitives = new HashMap<String, Class<?>>();
+
+    /** Schemas by class. */
+    private static final Map<Class<?>, Schema> schemas = new ConcurrentHashMap<Class<?>, Schema>();
+
+    static
+    {
+        Class<?>[] classes = { boolean.class, byte.class, short.class, char.class, int.class, long.class,
+                float.class, double.class };
+        for (Class<?> clazz : classes)
+        {
+            primitives.put(clazz.getName(), clazz);
+        }
+    }
+
+    /** Serializer of values which are not written field by field. */
+    private final JavaSerializer javaSerializer = new JavaSerializer();
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.impetus.kundera.property.ObjectSerializer#getId()
+     */
+    @Override
+    public byte getId()
+    {
+        return ID;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.impetus.kundera.property.ObjectSerializer#serialize(java.lang.Object)
+     */
+    @Override
+    public byte[] serialize(Object object)
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try
+        {
+            try
+            {
+                writeValue(new Output(bytes), object);
+            }
+            catch (CyclicValueException e)
+            {
+                // Java serialization keeps references, write it all by that.
+                bytes.reset();
+                writeJava(new Output(bytes), object);
+            }
+        }
+        catch (IOException e)
+        {
+            throw new PropertyAccessException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.impetus.kundera.property.ObjectSerializer#deserialize(java.lang.Class
+     * , byte[], int, int)
+     */
+    @Override
+    public Object deserialize(Class<?> targetClass, byte[] bytes, int offset, int length)
+    {
+        try
+        {
+            return readValue(new Input(new ByteArrayInputStream(bytes, offset, length)));
+        }
+        catch (IOException e)
+        {
+            throw new PropertyAccessException(e);
+        }
+    }
+
+    private void writeValue(Output out, Object value) throws IOException
+    {
+        DataOutputStream data = out.data;
+        if (value == null)
+        {
+            data.writeByte(TYPE_NULL);
+            return;
+        }
+
+        Class<?> clazz = value.getClass();
+        if (clazz == String.class)
+        {
+            data.writeByte(TYPE_STRING);
+            writeString(data, (String) value);
+        }
+        else if (clazz == Integer.class)
+        {
+            data.writeByte(TYPE_INT);
+            writeVarLong(data, zigzag((Integer) value));
+        }
+        else if (clazz == Long.class)
+        {
+            data.writeByte(TYPE_LONG);
+            writeVarLong(data, zigzag((Long) value));
+        }
+        else if (clazz == Boolean.class)
+        {
+            data.writeByte((Boolean) value ? TYPE_TRUE : TYPE_FALSE);
+        }
+        else if (clazz == Double.class)
+        {
+            data.writeByte(TYPE_DOUBLE);
+            data.writeDouble((Double) value);
+        }
+        else if (clazz == Float.class)
+        {
+            data.writeByte(TYPE_FLOAT);
+            data.writeFloat((Float) value);
+        }
+        else if (clazz == Short.class)
+        {
+            data.writeByte(TYPE_SHORT);
+            data.writeShort((Short) value);
+        }
+        else if (clazz == Byte.class)
+        {
+            data.writeByte(TYPE_BYTE);
+            data.writeByte((Byte) value);
+        }
+        else if (clazz == Character.class)
+        {
+            data.writeByte(TYPE_CHAR);
+            data.writeChar((Character) value);
+        }
+        else if (clazz == byte[].class)
+        {
+            byte[] bytes = (byte[]) value;
+            data.writeByte(TYPE_BYTES);
+            writeVarLong(data, bytes.length);
+            data.write(bytes);
+        }
+        else if (value instanceof Enum)
+        {
+            data.writeByte(TYPE_ENUM);
+            writeClass(out, ((Enum<?>) value).getDeclaringClass());
+            writeString(data, ((Enum<?>) value).name());
+        }
+        else if (clazz == Date.class)
+        {
+            data.writeByte(TYPE_DATE);
+            data.writeLong(((Date) value).getTime());
+        }
+        else if (clazz == BigInteger.class)
+        {
+            byte[] bytes = ((BigInteger) value).toByteArray();
+            data.writeByte(TYPE_BIG_INTEGER);
+            writeVarLong(data, bytes.length);
+            data.write(bytes);
+        }
+        else if (clazz == BigDecimal.class)
+        {
+            byte[] bytes = ((BigDecimal) value).unscaledValue().toByteArray();
+            data.writeByte(TYPE_BIG_DECIMAL);
+            writeVarLong(data, zigzag(((BigDecimal) value).scale()));
+            writeVarLong(data, bytes.length);
+            data.write(bytes);
+        }
+        else if (clazz == UUID.class)
+        {
+            data.writeByte(TYPE_UUID);
+            data.writeLong(((UUID) value).getMostSignificantBits());
+            data.writeLong(((UUID) value).getLeastSignificantBits());
+        }
+        else if (clazz.isArray())
+        {
+            writeArray(out, value);
+        }
+        else if (getSchema(clazz).constructor == null || isSorted(value))
+        {
+            writeJava(out, value);
+        }
+        else if (value instanceof Collection)
+        {
+            writeCollection(out, (Collection<?>) value);
+        }
+        else if (value instanceof Map)
+        {
+            writeMap(out, (Map<?, ?>) value);
+        }
+        else
+        {
+            writeObject(out, value);
+        }
+    }
+
+    private void writeArray(Output out, Object array) throws IOException
+    {
+        enter(out, array);
+        int length = Array.getLength(array);
+        out.data.writeByte(TYPE_ARRAY);
+        writeClass(out, array.getClass().getComponentType());
+        writeVarLong(out.data, length);
+        for (int i = 0; i < length; i++)
+        {
+            writeValue(out, Array.get(array, i));
+        }
+        out.path.remove(array);
+    }
+
+    private void writeCollection(Output out, Collection<?> collection) throws IOException
+    {
+        enter(out, collection);
+        out.data.writeByte(TYPE_COLLECTION);
+        writeClass(out, collection.getClass());
+        writeVarLong(out.data, collection.size());
+        for (Object element : collection)
+        {
+            writeValue(out, element);
+        }
+        out.path.remove(collection);
+    }
+
+    private void writeMap(Output out, Map<?, ?> map) throws IOException
+    {
+        enter(out, map);
+        out.data.writeByte(TYPE_MAP);
+        writeClass(out, map.getClass());
+        writeVarLong(out.data, map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet())
+        {
+            writeValue(out, entry.getKey());
+            writeValue(out, entry.getValue());
+        }
+        out.path.remove(map);
+    }
+
+    private void writeObject(Output out, Object object) throws IOException
+    {
+        enter(out, object);
+        Schema schema = getSchema(object.getClass());
+        out.data.writeByte(TYPE_OBJECT);
+        writeClass(out, object.getClass());
+        if (out.described.add(object.getClass()))
+        {
+            writeVarLong(out.data, schema.names.length);
+            for (String name : schema.names)
+            {
+                writeString(out.data, name);
+            }
+        }
+        try
+        {
+            for (Field field : schema.fields)
+            {
+                writeValue(out, field.get(object));
+            }
+        }
+        catch (IllegalAccessException e)
+        {
+            throw new PropertyAccessException(e);
+        }
+        out.path.remove(object);
+    }
+
+    private void writeJava(Output out, Object value) throws IOException
+    {
+        byte[] bytes = javaSerializer.serialize(value);
+        out.data.writeByte(TYPE_JAVA);
+        writeVarLong(out.data, bytes.length);
+        out.data.write(bytes);
+    }
+
+    private void writeClass(Output out, Class<?> clazz) throws IOException
+    {
+        Integer index = out.classes.get(clazz);
+        if (index != null)
+        {
+            writeVarLong(out.data, index + 1);
+        }
+        else
+        {
+            out.classes.put(clazz, out.classes.size());
+            writeVarLong(out.data, 0);
+            writeString(out.data, clazz.getName());
+        }
+    }
+
+    private void enter(Output out, Object value)
+    {
+        if (out.path.put(value, Boolean.TRUE) != null)
+        {
+            throw new CyclicValueException();
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Object readValue(Input in) throws IOException
+    {
+        DataInputStream data = in.data;
+        byte type = data.readByte();
+        switch (type)
+        {
+        case TYPE_NULL:
+            return null;
+        case TYPE_TRUE:
+            return Boolean.TRUE;
+        case TYPE_FALSE:
+            return Boolean.FALSE;
+        case TYPE_BYTE:
+            return data.readByte();
+        case TYPE_SHORT:
+            return data.readShort();
+        case TYPE_CHAR:
+            return data.readChar();
+        case TYPE_INT:
+            return (int) unzigzag(readVarLong(data));
+        case TYPE_LONG:
+            return unzigzag(readVarLong(data));
+        case TYPE_FLOAT:
+            return data.readFloat();
+        case TYPE_DOUBLE:
+            return data.readDouble();
+        case TYPE_STRING:
+            return readString(data);
+        case TYPE_BYTES:
+            return readBytes(data);
+        case TYPE_ENUM:
+            Class enumClass = readClass(in).clazz;
+            return Enum.valueOf(enumClass, readString(data));
+        case TYPE_DATE:
+            return new Date(data.readLong());
+        case TYPE_BIG_INTEGER:
+            return new BigInteger(readBytes(data));
+        case TYPE_BIG_DECIMAL:
+            int scale = (int) unzigzag(readVarLong(data));
+            return new BigDecimal(new BigInteger(readBytes(data)), scale);
+        case TYPE_UUID:
+            return new UUID(data.readLong(), data.readLong());
+        case TYPE_COLLECTION:
+            Collection collection = (Collection) newInstance(readClass(in).clazz);
+            for (int i = (int) readVarLong(data); i > 0; i--)
+            {
+                collection.add(readValue(in));
+            }
+            return collection;
+        case TYPE_MAP:
+            Map map = (Map) newInstance(readClass(in).clazz);
+            for (int i = (int) readVarLong(data); i > 0; i--)
+            {
+                map.put(readValue(in), readValue(in));
+            }
+            return map;
+        case TYPE_ARRAY:
+            Class<?> componentType = readClass(in).clazz;
+            Object array = Array.newInstance(componentType, (int) readVarLong(data));
+            for (int i = 0; i < Array.getLength(array); i++)
+            {
+                Array.set(array, i, readValue(in));
+            }
+            return array;
+        case TYPE_OBJECT:
+            return readObject(in);
+        case TYPE_JAVA:
+            byte[] bytes = readBytes(data);
+            return javaSerializer.deserialize(Object.class, bytes, 0, bytes.length);
+        default:
+            throw new PropertyAccessException("Unknown type " + type + " in compact serialized value");
+        }
+    }
+
+    private Object readObject(Input in) throws IOException
+    {
+        ClassRef ref = readClass(in);
+        Schema schema = getSchema(ref.clazz);
+        if (ref.fields == null)
+        {
+            // fields no longer in class are read and dropped.
+            ref.fields = new Field[(int) readVarLong(in.data)];
+            for (int i = 0; i < ref.fields.length; i++)
+            {
+                ref.fields[i] = schema.fieldsByName.get(readString(in.data));
+            }
+        }
+
+        Object object = newInstance(ref.clazz);
+        try
+        {
+            for (Field field : ref.fields)
+            {
+                Object value = readValue(in);
+                if (field != null && (value != null || !field.getType().isPrimitive()))
+                {
+                    field.set(object, value);
+                }
+            }
+        }
+        catch (IllegalArgumentException e)
+        {
+            throw new PropertyAccessException(e);
+        }
+        catch (IllegalAccessException e)
+        {
+            throw new PropertyAccessException(e);
+        }
+        return object;
+    }
+
+    private ClassRef readClass(Input in) throws IOException
+    {
+        int index = (int) readVarLong(in.data);
+        if (index > 0)
+        {
+            return in.classes.get(index - 1);
+        }
+
+        String name = readString(in.data);
+        Class<?> clazz = primitives.get(name);
+        if (clazz == null)
+        {
+            try
+            {
+                ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+                clazz = classLoader != null ? Class.forName(name, false, classLoader) : Class.forName(name);
+            }
+            catch (ClassNotFoundException e)
+            {
+                try
+                {
+                    clazz = Class.forName(name);
+                }
+                catch (ClassNotFoundException cnfe)
+                {
+                    throw new PropertyAccessException(cnfe);
+                }
+            }
+        }
+        ClassRef ref = new ClassRef(clazz);
+        in.classes.add(ref);
+        return ref;
+    }
+
+    private Object newInstance(Class<?> clazz)
+    {
+        Constructor<?> constructor = getSchema(clazz).constructor;
+        if (constructor == null)
+        {
+            throw new PropertyAccessException("Can not instantiate " + clazz.getName()
+                    + ", it has no no-arg constructor");
+        }
+        try
+        {
+            return constructor.newInstance();
+        }
+        catch (InstantiationException e)
+        {
+            throw new PropertyAccessException(e);
+        }
+        catch (IllegalAccessException e)
+        {
+            throw new PropertyAccessException(e);
+        }
+        catch (InvocationTargetException e)
+        {
+            throw new PropertyAccessException(e.getTargetException());
+        }
+    }
+
+    /**
+     * Sorted collections and maps with a comparator are written by Java
+     * serialization, which keeps the comparator.
+     */
+    private boolean isSorted(Object value)
+    {
+        return (value instanceof SortedSet && ((SortedSet<?>) value).comparator() != null)
+                || (value instanceof SortedMap && ((SortedMap<?, ?>) value).comparator() != null);
+    }
+
+    private static Schema getSchema(Class<?> clazz)
+    {
+        Schema schema = schemas.get(clazz);
+        if (schema == null)
+        {
+            schema = describe(clazz);
+            schemas.put(clazz, schema);
+        }
+        return schema;
+    }
+
+    /**
+     * Finds out how objects of given class are written. Classes of JDK are
+     * only written by elements, if they are public collections or maps with
+     * a public no-arg constructor. Other classes are written field by field,
+     * unless they or a super class belong to JDK or customize their
+     * serialization.
+     */
+    private static Schema describe(Class<?> clazz)
+    {
+        if (Modifier.isAbstract(clazz.getModifiers()))
+        {
+            return new Schema(null, new ArrayList<Field>());
+        }
+        if (isJdkClass(clazz))
+        {
+            if ((Collection.class.isAssignableFrom(clazz) || Map.class.isAssignableFrom(clazz))
+                    && Modifier.isPublic(clazz.getModifiers()))
+            {
+                try
+                {
+                    return new Schema(clazz.getConstructor(), new ArrayList<Field>());
+                }
+                catch (NoSuchMethodException e)
+                {
+                    // written by Java serialization.
+                }
+            }
+            return new Schema(null, new ArrayList<Field>());
+        }
+
+        List<Field> fields = new ArrayList<Field>();
+        if (Externalizable.class.isAssignableFrom(clazz))
+        {
+            return new Schema(null, fields);
+        }
+        for (Class<?> c = clazz; c != Object.class; c = c.getSuperclass())
+        {
+            if (isJdkClass(c) || declares(c, "writeObject", ObjectOutputStream.class)
+                    || declares(c, "readObject", ObjectInputStream.class) || declares(c, "writeReplace")
+                    || declares(c, "readResolve"))
+            {
+                return new Schema(null, new ArrayList<Field>());
+            }
+            for (Field field : c.getDeclaredFields())
+            {
+                int modifiers = field.getModifiers();
+                if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic())
+                {
+                    fields.add(field);
+                }
+            }
+        }
+
+        try
+        {
+            Constructor<?> constructor = clazz.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            for (Field field : fields)
+            {
+                field.setAccessible(true);
+            }
+            return new Schema(constructor, fields);
+        }
+        catch (NoSuchMethodException e)
+        {
+            return new Schema(null, new ArrayList<Field>());
+        }
+        catch (SecurityException e)
+        {
+            return new Schema(null, new ArrayList<Field>());
+        }
+    }
+
+    private static boolean isJdkClass(Class<?> clazz)
+    {
+        String name = clazz.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.");
+    }
+
+    private static boolean declares(Class<?> clazz, String name, Class<?>... parameterTypes)
+    {
+        try
+        {
+            clazz.getDeclaredMethod(name, parameterTypes);
+            return true;
+        }
+        catch (NoSuchMethodException e)
+        {
+            return false;
+        }
+    }
+
+    private static void writeString(DataOutputStream data, String s) throws IOException
+    {
+        byte[] bytes = s.getBytes(Constants.ENCODING);
+        writeVarLong(data, bytes.length);
+        data.write(bytes);
+    }
+
+    private static String readString(DataInputStream data) throws IOException
+    {
+        return new String(readBytes(data), Constants.ENCODING);
+    }
+
+    private static byte[] readBytes(DataInputStream data) throws IOException
+    {
+        byte[] bytes = new byte[(int) readVarLong(data)];
+        data.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Writes 7 bits per byte, high bit set on all but last byte.
+     */
+    private static void writeVarLong(DataOutputStream data, long value) throws IOException
+    {
+        while ((value & ~0x7FL) != 0)
+        {
+            data.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        data.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInputStream data) throws IOException
+    {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7)
+        {
+            byte b = data.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+            {
+                return value;
+            }
+        }
+        throw new PropertyAccessException("Malformed variable length integer in compact serialized value");
+    }
+
+    /**
+     * Maps signed to unsigned, so that small negative numbers stay short.
+     */
+    private static long zigzag(long value)
+    {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value)
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * How objects of a class are written.
+     */
+    private static final class Schema
+    {
+        /** No-arg constructor, null if written by Java serialization. */
+        private final Constructor<?> constructor;
+
+        private final Field[] fields;
+
+        private final String[] names;
+
+        private final Map<String, Field> fieldsByName = new HashMap<String, Field>();
+
+        private Schema(Constructor<?> constructor, List<Field> fields)
+        {
+            this.constructor = constructor;
+            this.fields = fields.toArray(new Field[fields.size()]);
+            this.names = new String[this.fields.length];
+            for (int i = 0; i < this.fields.length; i++)
+            {
+                Field field = this.fields[i];
+                // shadowed fields of super classes are qualified.
+                String name = fieldsByName.containsKey(field.getName()) ? field.getDeclaringClass().getName() + "."
+                        + field.getName() : field.getName();
+                names[i] = name;
+                fieldsByName.put(name, field);
+            }
+        }
+    }
+
+    /**
+     * Class met while reading a value, with fields of its written schema.
+     */
+    private static final class ClassRef
+    {
+        private final Class<?> clazz;
+
+        private Field[] fields;
+
+        private ClassRef(Class<?> clazz)
+        {
+            this.clazz = clazz;
+        }
+    }
+
+    /**
+     * State of writing one value.
+     */
+    private static final class Output
+    {
+        private final DataOutputStream data;
+
+        private final Map<Class<?>, Integer> classes = new HashMap<Class<?>, Integer>();
+
+        private final Set<Class<?>> described = new HashSet<Class<?>>();
+
+        private final Map<Object, Boolean> path = new IdentityHashMap<Object, Boolean>();
+
+        private Output(ByteArrayOutputStream bytes)
+        {
+            this.data = new DataOutputStream(bytes);
+        }
+    }
+
+    /**
+     * State of reading one value.
+     */
+    private static final class Input
+    {
+        private final DataInputStream data;
+
+        private final List<ClassRef> classes = new ArrayList<ClassRef>();
+
+        private Input(ByteArrayInputStream bytes)
+        {
+            this.data = new DataInputStream(bytes);
+        }
+    }
+
+    /**
+     * Thrown when a value refers to itself.
+     */
+    private static final class CyclicValueException extends RuntimeException
+    {
+        private static final long serialVersionUID = 1L;
+    }
+}
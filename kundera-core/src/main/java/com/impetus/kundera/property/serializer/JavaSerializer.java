@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.property.serializer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import com.impetus.kundera.property.ObjectSerializer;
+import com.impetus.kundera.property.PropertyAccessException;
+
+/**
+ * {@link ObjectSerializer} using Java serialization, the default. Its output
+ * is stored as is, without serializer id, as it always was.
+ */
+public class JavaSerializer implements ObjectSerializer
+{
+
+    /** The id. */
+    public static final byte ID = 0;
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.impetus.kundera.property.ObjectSerializer#getId()
+     */
+    @Override
+    public byte getId()
+    {
+        return ID;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.impetus.kundera.property.ObjectSerializer#serialize(java.lang.Object)
+     */
+    @Override
+    public byte[] serialize(Object object)
+    {
+        try
+        {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            ObjectOutputStream oos = new ObjectOutputStream(baos);
+            oos.writeObject(object);
+            oos.close();
+            return baos.toByteArray();
+        }
+        catch (IOException e)
+        {
+            throw new PropertyAccessException(e);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.impetus.kundera.property.ObjectSerializer#deserialize(java.lang.Class
+     * , byte[], int, int)
+     */
+    @Override
+    public Object deserialize(Class<?> targetClass, byte[] bytes, int offset, int length)
+    {
+        try
+        {
+            ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes, offset, length));
+            Object o = ois.readObject();
+            ois.close();
+            return o;
+        }
+        catch (IOException e)
+        {
+            throw new PropertyAccessException(e);
+        }
+        catch (ClassNotFoundException e)
+        {
+            throw new PropertyAccessException(e);
+        }
+    }
+}
@@ -19,12 +19,15 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -35,6 +38,7 @@ import javax.persistence.metamodel.Metamodel;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.builder.HashCodeBuilder;
+import org.apache.lucene.search.Query;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -112,6 +116,12 @@ public class KunderaQuery
 
     private TypedParameter typedParameter;
 
+    /**
+     * Lucene query translated from filter, shared with copies of this query.
+     * Holds nothing for queries with parameters, as it depends on their values.
+     */
+    private AtomicReference<Query> luceneQuery = new AtomicReference<Query>();
+
     /**
      * Instantiates a new kundera query.
      * 
@@ -240,6 +250,25 @@ public class KunderaQuery
         return typedParameter.jpaParameters;
     }
 
+    /**
+     * Returns values bound to parameters of this query, keyed and ordered by
+     * parameter, e.g. ":name" or "?1".
+     * 
+     * @return parameter values
+     */
+    Map<String, Object> getParameterValues()
+    {
+        Map<String, Object> values = new TreeMap<String, Object>();
+        if (typedParameter != null && typedParameter.getParameters() != null)
+        {
+            for (Map.Entry<String, FilterClause> entry : typedParameter.getParameters().entrySet())
+            {
+                values.put(entry.getKey(), entry.getValue().getValue());
+            }
+        }
+        return values;
+    }
+
     /**
      * Parameter is bound if it holds any value, else will return false
      * 
@@ -642,6 +671,26 @@ public class KunderaQuery
         return filtersQueue;
     }
 
+    /**
+     * Returns Lucene query of filter, translating it unless a copy of this
+     * query translated it already.
+     * 
+     * @return the lucene query
+     */
+    final Query getLuceneQuery()
+    {
+        Query query = luceneQuery.get();
+        if (query == null)
+        {
+            query = LuceneQueryTranslator.translate(this);
+            if (typedParameter == null)
+            {
+                luceneQuery.set(query);
+            }
+        }
+        return query;
+    }
+
     // class to keep hold of a where clause predicate
     /**
      * The Class FilterClause.
@@ -789,6 +838,66 @@ public class KunderaQuery
         return super.clone();
     }
 
+    /**
+     * Returns a per-execution copy of this parsed query. Parsed state(result,
+     * from, ordering, entity and parameter metadata) is shared, while filter
+     * clauses are copied so that parameter bindings set on the copy do not
+     * leak into this query.
+     *
+     * @return copy of parsed query.
+     */
+    final KunderaQuery copy()
+    {
+        KunderaQuery copy = new KunderaQuery();
+        copy.result = result;
+        copy.from = from;
+        copy.filter = filter;
+        copy.ordering = ordering;
+        copy.sortOrders = sortOrders;
+        copy.entityName = entityName;
+        copy.entityAlias = entityAlias;
+        copy.entityClass = entityClass;
+        copy.persistenceUnit = persistenceUnit;
+        copy.isDeleteUpdate = isDeleteUpdate;
+        copy.luceneQuery = luceneQuery;
+
+        Map<FilterClause, FilterClause> copiedClauses = new IdentityHashMap<FilterClause, FilterClause>();
+        for (Object o : filtersQueue)
+        {
+            if (o instanceof FilterClause)
+            {
+                FilterClause clause = (FilterClause) o;
+                FilterClause copiedClause = copy.new FilterClause(clause.property, clause.condition, clause.value);
+                copiedClauses.put(clause, copiedClause);
+                copy.filtersQueue.add(copiedClause);
+            }
+            else
+            {
+                copy.filtersQueue.add(o);
+            }
+        }
+
+        for (UpdateClause clause : updateClauseQueue)
+        {
+            copy.updateClauseQueue.add(copy.new UpdateClause(clause.property, clause.value));
+        }
+
+        if (typedParameter != null)
+        {
+            copy.typedParameter = copy.new TypedParameter(typedParameter.getType());
+            copy.typedParameter.jpaParameters = typedParameter.jpaParameters;
+            if (typedParameter.getParameters() != null)
+            {
+                for (Map.Entry<String, FilterClause> entry : typedParameter.getParameters().entrySet())
+                {
+                    copy.typedParameter.addParameters(entry.getKey(), copiedClauses.get(entry.getValue()));
+                }
+            }
+        }
+
+        return copy;
+    }
+
     /* @see java.lang.Object#toString() */
     /*
      * (non-Javadoc)
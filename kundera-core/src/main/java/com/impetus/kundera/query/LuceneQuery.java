@@ -87,18 +87,22 @@ public class LuceneQuery extends QueryImpl implements Query
     {
         log.debug("JPA Query: " + query);
 
+        EntityMetadata m = kunderaQuery.getEntityMetadata();
+        Client client = persistenceDelegeator.getClient(m);
+
         // get luence query
-        String q = luceneQuery;
-        if (null == q)
+        Map<String, String> searchFilter;
+        if (null == luceneQuery)
         {
-            q = getLuceneQueryFromJPAQuery();
+            org.apache.lucene.search.Query q = getLuceneQuery();
+            log.debug("Lucene Query: " + q);
+            searchFilter = client.getIndexManager().search(q, -1, maxResult);
+        }
+        else
+        {
+            log.debug("Lucene Query: " + luceneQuery);
+            searchFilter = client.getIndexManager().search(luceneQuery, -1, maxResult);
         }
-
-        log.debug("Lucene Query: " + q);
-
-        EntityMetadata m = kunderaQuery.getEntityMetadata();
-        Client client = persistenceDelegeator.getClient(m);
-        Map<String, String> searchFilter = client.getIndexManager().search(q, -1, maxResult);
 
         if (kunderaQuery.isAliasOnly())
         {
@@ -161,8 +165,7 @@ public class LuceneQuery extends QueryImpl implements Query
     {
         if (kunderaQuery.isDeleteUpdate())
         {
-            List result = getResultList();
-            return result != null ? result.size() : 0;
+            return executeDeleteOrUpdate();
         }
 
         return 0;
@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.query;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TermRangeQuery;
+import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.util.Version;
+
+import com.impetus.kundera.index.DocumentIndexer;
+import com.impetus.kundera.index.LuceneIndexingException;
+import com.impetus.kundera.index.LuceneQueryUtils;
+import com.impetus.kundera.metadata.model.EntityMetadata;
+import com.impetus.kundera.metadata.model.PropertyIndex;
+import com.impetus.kundera.query.KunderaQuery.FilterClause;
+
+/**
+ * Translates filter of a {@link KunderaQuery} to a Lucene {@link Query},
+ * without building query text to be parsed again. Values compared by equality
+ * are analyzed as documents are; ranges over numeric and date properties
+ * search their numeric fields, other ranges compare text.
+ */
+public final class LuceneQueryTranslator
+{
+
+    /** Analyzer of values, as used for indexing. Thread safe. */
+    private static final Analyzer ANALYZER = new StandardAnalyzer(Version.LUCENE_34);
+
+    private LuceneQueryTranslator()
+    {
+    }
+
+    /**
+     * Translates filter clauses of given query, AND binding tighter than OR,
+     * and restricts result to entity class of query.
+     *
+     * @param kunderaQuery
+     *            the kundera query
+     * @return the lucene query
+     */
+    public static Query translate(KunderaQuery kunderaQuery)
+    {
+        EntityMetadata metadata = kunderaQuery.getEntityMetadata();
+
+        // OR of ANDed clauses.
+        List<BooleanQuery> alternatives = new ArrayList<BooleanQuery>();
+        BooleanQuery conjunction = new BooleanQuery();
+        for (Object object : kunderaQuery.getFilterClauseQueue())
+        {
+            if (object instanceof FilterClause)
+            {
+                Query clauseQuery = translate(metadata, (FilterClause) object);
+                if (clauseQuery != null)
+                {
+                    conjunction.add(clauseQuery, BooleanClause.Occur.MUST);
+                }
+            }
+            else if ("OR".equalsIgnoreCase(object.toString().trim()))
+            {
+                alternatives.add(conjunction);
+                conjunction = new BooleanQuery();
+            }
+        }
+        alternatives.add(conjunction);
+
+        BooleanQuery query = new BooleanQuery();
+        if (alternatives.size() == 1)
+        {
+            for (BooleanClause clause : conjunction.getClauses())
+            {
+                query.add(clause);
+            }
+        }
+        else
+        {
+            BooleanQuery disjunction = new BooleanQuery();
+            for (BooleanQuery alternative : alternatives)
+            {
+                disjunction.add(alternative, BooleanClause.Occur.SHOULD);
+            }
+            query.add(disjunction, BooleanClause.Occur.MUST);
+        }
+
+        Query classQuery = getFieldQuery(DocumentIndexer.ENTITY_CLASS_FIELD, kunderaQuery.getEntityClass()
+                .getCanonicalName().toLowerCase());
+        query.add(classQuery, BooleanClause.Occur.MUST);
+        return query;
+    }
+
+    /**
+     * Translates a filter clause, null if its value is analyzed to no term.
+     */
+    private static Query translate(EntityMetadata metadata, FilterClause filter)
+    {
+        String field = filter.getProperty();
+        String condition = filter.getCondition();
+        Object value = filter.getValue();
+
+        if (condition.equals("="))
+        {
+            return getFieldQuery(field, String.valueOf(value));
+        }
+        else if (condition.equalsIgnoreCase("like"))
+        {
+            String prefix = LuceneQueryUtils.unquote(String.valueOf(value));
+            if (prefix.indexOf('*') >= 0 || prefix.indexOf('?') >= 0)
+            {
+                return new WildcardQuery(new Term(field, prefix + "*"));
+            }
+            return new PrefixQuery(new Term(field, prefix));
+        }
+
+        boolean isGreaterThan = condition.startsWith(">");
+        boolean inclusive = condition.endsWith("=");
+        Class<?> type = getPropertyType(metadata, field);
+        Number number = type != null ? LuceneQueryUtils.toNumber(value, type) : null;
+        if (number != null)
+        {
+            return LuceneQueryUtils.getNumericRangeQuery(field, isGreaterThan ? number : null, isGreaterThan ? null
+                    : number, inclusive, inclusive);
+        }
+
+        String text = LuceneQueryUtils.unquote(String.valueOf(value));
+        return new TermRangeQuery(field, isGreaterThan ? text : null, isGreaterThan ? null : text, inclusive,
+                inclusive);
+    }
+
+    /**
+     * Builds query matching documents whose field has given text, analyzed as
+     * documents are: a term query for a single term, a phrase query for
+     * several, null for none.
+     */
+    private static Query getFieldQuery(String field, String text)
+    {
+        List<Term> terms = new ArrayList<Term>();
+        List<Integer> positions = new ArrayList<Integer>();
+        try
+        {
+            TokenStream stream = ANALYZER.reusableTokenStream(field, new StringReader(text));
+            CharTermAttribute termAttribute = stream.addAttribute(CharTermAttribute.class);
+            PositionIncrementAttribute positionAttribute = stream.addAttribute(PositionIncrementAttribute.class);
+            stream.reset();
+            int position = -1;
+            while (stream.incrementToken())
+            {
+                position += positionAttribute.getPositionIncrement();
+                terms.add(new Term(field, termAttribute.toString()));
+                positions.add(position);
+            }
+            stream.end();
+            stream.close();
+        }
+        catch (IOException e)
+        {
+            throw new LuceneIndexingException("Error while analyzing value " + text + " of " + field, e);
+        }
+
+        if (terms.isEmpty())
+        {
+            return null;
+        }
+        else if (terms.size() == 1)
+        {
+            return new TermQuery(terms.get(0));
+        }
+
+        PhraseQuery phraseQuery = new PhraseQuery();
+        for (int i = 0; i < terms.size(); i++)
+        {
+            phraseQuery.add(terms.get(i), positions.get(i));
+        }
+        return phraseQuery;
+    }
+
+    /**
+     * Gets type of indexed property stored in given field, null if there is
+     * none.
+     */
+    private static Class<?> getPropertyType(EntityMetadata metadata, String field)
+    {
+        String indexName = metadata.getIndexName();
+        for (PropertyIndex index : metadata.getIndexProperties())
+        {
+            if (field.equals(indexName + "." + index.getName()))
+            {
+                return index.getProperty().getType();
+            }
+        }
+        return null;
+    }
+}
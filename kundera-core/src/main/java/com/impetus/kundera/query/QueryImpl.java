@@ -33,22 +33,29 @@ import javax.persistence.PersistenceException;
 import javax.persistence.Query;
 import javax.persistence.TemporalType;
 import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+import javax.persistence.metamodel.SingularAttribute;
 
 import org.apache.commons.lang.NotImplementedException;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.impetus.kundera.Constants;
+import com.impetus.kundera.PersistenceProperties;
 import com.impetus.kundera.client.Client;
 import com.impetus.kundera.client.EnhanceEntity;
 import com.impetus.kundera.index.DocumentIndexer;
 import com.impetus.kundera.metadata.KunderaMetadataManager;
+import com.impetus.kundera.metadata.MetadataUtils;
 import com.impetus.kundera.metadata.model.ApplicationMetadata;
 import com.impetus.kundera.metadata.model.EntityMetadata;
 import com.impetus.kundera.metadata.model.KunderaMetadata;
+import com.impetus.kundera.metadata.model.MetamodelImpl;
+import com.impetus.kundera.metadata.model.attributes.AbstractAttribute;
 import com.impetus.kundera.metadata.model.type.DefaultEntityType;
 import com.impetus.kundera.persistence.EntityReader;
 import com.impetus.kundera.persistence.PersistenceDelegator;
+import com.impetus.kundera.property.PropertyAccessorFactory;
 import com.impetus.kundera.property.PropertyAccessorHelper;
 import com.impetus.kundera.query.KunderaQuery.FilterClause;
 import com.impetus.kundera.query.KunderaQuery.UpdateClause;
@@ -75,6 +82,9 @@ public abstract class QueryImpl implements Query
 
     private Set<Parameter<?>> parameters;
 
+    /** Query hints, by hint name. */
+    private Map<String, Object> hints = new HashMap<String, Object>();
+
     /**
      * Default maximum result to fetch.
      */
@@ -131,16 +141,44 @@ public abstract class QueryImpl implements Query
     @Override
     public int executeUpdate()
     {
-        return onExecuteUpdate();
+        persistenceDelegeator.flushWriteBehind();
+        try
+        {
+            return onExecuteUpdate();
+        }
+        finally
+        {
+            QueryResultCache resultCache = persistenceDelegeator.getQueryResultCache();
+            if (resultCache != null)
+            {
+                resultCache.invalidate(QueryResultCache.getTable(getEntityMetadata()));
+            }
+        }
     }
 
     @Override
     public List<?> getResultList()
     {
         log.info("On getResultList() executing query: " + query);
+        persistenceDelegeator.flushWriteBehind();
         List results = null;
 
         EntityMetadata m = getEntityMetadata();
+
+        QueryResultCache resultCache = isResultCacheable() ? persistenceDelegeator.getQueryResultCache() : null;
+        QueryResultCache.Key key = null;
+        long timestamp = 0;
+        if (resultCache != null)
+        {
+            key = new QueryResultCache.Key(getNormalizedQuery(), kunderaQuery.getParameterValues(), maxResult);
+            results = getCachedResults(resultCache, key, m);
+            if (results != null)
+            {
+                return !results.isEmpty() ? results : null;
+            }
+            timestamp = resultCache.getTimestamp();
+        }
+
         Client client = persistenceDelegeator.getClient(m);
 
         if (!m.isRelationViaJoinTable() && (m.getRelationNames() == null || (m.getRelationNames().isEmpty())))
@@ -157,10 +195,85 @@ public abstract class QueryImpl implements Query
         {
             onDeleteOrUpdate(results);
         }
+
+        if (resultCache != null)
+        {
+            cacheResults(resultCache, key, m, results, timestamp);
+        }
         return results != null && !results.isEmpty() ? results : null;
 
     }
 
+    /**
+     * Returns true, if results of this query are to be cached, i.e. if it is
+     * a select of whole entities with {@link PersistenceProperties#KUNDERA_QUERY_CACHE}
+     * hint set.
+     * 
+     * @return true, if results are cacheable.
+     */
+    protected boolean isResultCacheable()
+    {
+        Object hint = hints.get(PersistenceProperties.KUNDERA_QUERY_CACHE);
+        return hint != null && Boolean.parseBoolean(hint.toString().trim()) && !kunderaQuery.isDeleteUpdate()
+                && !KunderaMetadata.INSTANCE.getApplicationMetadata().isNative(query) && kunderaQuery.isAliasOnly();
+    }
+
+    /**
+     * Returns cached results of this query, read through persistence context
+     * and second level cache.
+     * 
+     * @return cached results, or null if not cached or any entity of them is
+     *         gone.
+     */
+    private List<Object> getCachedResults(QueryResultCache resultCache, QueryResultCache.Key key, EntityMetadata m)
+    {
+        List<Object> primaryKeys = resultCache.get(key);
+        if (primaryKeys == null)
+        {
+            return null;
+        }
+
+        List<Object> results = (List<Object>) persistenceDelegeator.find(m.getEntityClazz(), primaryKeys.toArray());
+        if (results.size() != primaryKeys.size())
+        {
+            resultCache.remove(key);
+            return null;
+        }
+        return results;
+    }
+
+    /**
+     * Caches primary keys of given results, provided all of them are entities
+     * of queried class.
+     */
+    private void cacheResults(QueryResultCache resultCache, QueryResultCache.Key key, EntityMetadata m,
+            List results, long timestamp)
+    {
+        List<Object> primaryKeys = new ArrayList<Object>(results != null ? results.size() : 0);
+        if (results != null)
+        {
+            for (Object result : results)
+            {
+                if (!m.getEntityClazz().isInstance(result))
+                {
+                    return;
+                }
+                primaryKeys.add(PropertyAccessorHelper.getId(result, m));
+            }
+        }
+        resultCache.put(key, primaryKeys, QueryResultCache.getTables(m), timestamp);
+    }
+
+    /**
+     * Returns query string, resolved from named query if mapped, with
+     * whitespace normalized.
+     */
+    private String getNormalizedQuery()
+    {
+        String mappedQuery = KunderaMetadata.INSTANCE.getApplicationMetadata().getQuery(query);
+        return QueryResultCache.normalize(mappedQuery != null ? mappedQuery : query);
+    }
+
     /**
      * Gets the persistence delegeator.
      * 
@@ -190,22 +303,20 @@ public abstract class QueryImpl implements Query
         List<Object> result = null;
         if (enhanceEntities != null)
         {
+            List<EnhanceEntity> ls = new ArrayList<EnhanceEntity>(enhanceEntities.size());
             for (Object e : enhanceEntities)
             {
-                if (result == null)
-                {
-                    result = new ArrayList<Object>(enhanceEntities.size());
-                }
-
                 if (!(e instanceof EnhanceEntity))
                 {
                     e = new EnhanceEntity(e, PropertyAccessorHelper.getId(e, m), null);
                 }
+                ls.add((EnhanceEntity) e);
+            }
 
-                EnhanceEntity ee = (EnhanceEntity) e;
-
-                result.add(getReader().recursivelyFindEntities(ee.getEntity(), ee.getRelations(), m,
-                        persistenceDelegeator));
+            // Relations are fetched for whole result set at once.
+            if (!ls.isEmpty())
+            {
+                result = getReader().recursivelyFindEntities(ls, m, persistenceDelegeator);
             }
         }
 
@@ -225,8 +336,7 @@ public abstract class QueryImpl implements Query
      */
     protected List<Object> populateUsingLucene(EntityMetadata m, Client client, List<Object> result)
     {
-        String luceneQ = getLuceneQueryFromJPAQuery();
-        Map<String, String> searchFilter = client.getIndexManager().search(luceneQ, Constants.INVALID,
+        Map<String, String> searchFilter = client.getIndexManager().search(getLuceneQuery(), Constants.INVALID,
                 Constants.INVALID);
         if (kunderaQuery.isAliasOnly())
         {
@@ -265,7 +375,19 @@ public abstract class QueryImpl implements Query
     }
 
     /**
-     * Gets the lucene query from jpa query.
+     * Gets Lucene query of filter of this query, translated from its clauses
+     * directly. It is cached with query plan, unless it depends on parameters.
+     * 
+     * @return the lucene query
+     */
+    protected org.apache.lucene.search.Query getLuceneQuery()
+    {
+        return kunderaQuery.getLuceneQuery();
+    }
+
+    /**
+     * Gets the lucene query from jpa query, as text to be parsed. Searches of
+     * this query use {@link #getLuceneQuery()}, which is not parsed.
      * 
      * @return the lucene query from jpa query
      */
@@ -397,11 +519,11 @@ public abstract class QueryImpl implements Query
      */
     protected Set<String> fetchDataFromLucene(Client client)
     {
-        String luceneQuery = getLuceneQueryFromJPAQuery();
         // use lucene to query and get Pk's only.
         // go to client and get relation with values.!
         // populate EnhanceEntity
-        Map<String, String> results = client.getIndexManager().search(luceneQuery);
+        Map<String, String> results = client.getIndexManager().search(getLuceneQuery(), Constants.INVALID,
+                Constants.INVALID);
         Set<String> rSet = new HashSet<String>(results.values());
         return rSet;
     }
@@ -542,7 +664,7 @@ public abstract class QueryImpl implements Query
                         //
                         // if (column != null)
                         // {
-                        PropertyAccessorHelper.set(result, (Field) attribute.getJavaMember(), c.getValue());
+                        PropertyAccessorHelper.set(result, attribute, c.getValue());
                         // }
                         persistenceDelegeator.merge(result);
                     }
@@ -558,6 +680,149 @@ public abstract class QueryImpl implements Query
 
     }
 
+    /**
+     * Executes delete or update query. Query is pushed down to datastore as
+     * one bulk operation, if entity is eligible and datastore supports it. Else
+     * matching entities are loaded and removed/merged one by one.
+     * 
+     * @return number of deleted/updated records.
+     */
+    protected int executeDeleteOrUpdate()
+    {
+        EntityMetadata m = getEntityMetadata();
+        if (isBulkEligible(m))
+        {
+            // pending changes of persistence context, including those of
+            // current transaction, are written before as AUTO flush requires.
+            if (FlushModeType.AUTO.equals(persistenceDelegeator.getFlushMode()))
+            {
+                persistenceDelegeator.doFlush();
+            }
+
+            Client client = persistenceDelegeator.getClient(m);
+            int count = -1;
+            if (!kunderaQuery.isUpdateClause())
+            {
+                count = onBulkDelete(m, client);
+            }
+            else
+            {
+                Map<String, Object> updatedColumns = getUpdatedColumns(m);
+                if (updatedColumns != null)
+                {
+                    count = onBulkUpdate(m, client, updatedColumns);
+                }
+            }
+
+            if (count >= 0)
+            {
+                // affected rows are not known to persistence context.
+                persistenceDelegeator.evict(m.getEntityClazz());
+                return count;
+            }
+        }
+
+        List result = getResultList();
+        return result != null ? result.size() : 0;
+    }
+
+    /**
+     * Deletes all records matching query filter in one datastore operation.
+     * Datastores supporting it must override this method.
+     * 
+     * @param m
+     *            entity metadata
+     * @param client
+     *            client
+     * @return number of deleted records, or -1 if not supported.
+     */
+    protected int onBulkDelete(EntityMetadata m, Client client)
+    {
+        return -1;
+    }
+
+    /**
+     * Updates given columns of all records matching query filter in one
+     * datastore operation. Datastores supporting it must override this method.
+     * 
+     * @param m
+     *            entity metadata
+     * @param client
+     *            client
+     * @param updatedColumns
+     *            map of jpa column name and new value.
+     * @return number of updated records, or -1 if not supported.
+     */
+    protected int onBulkUpdate(EntityMetadata m, Client client, Map<String, Object> updatedColumns)
+    {
+        return -1;
+    }
+
+    /**
+     * Returns true, if delete/update can be executed without loading entities.
+     * Relations, lucene indexes and entity listeners are handled on per entity
+     * remove/merge only.
+     * 
+     * @param m
+     *            entity metadata
+     * @return true, if eligible for bulk delete/update.
+     */
+    private boolean isBulkEligible(EntityMetadata m)
+    {
+        ApplicationMetadata appMetadata = KunderaMetadata.INSTANCE.getApplicationMetadata();
+        if (appMetadata.isNative(getJPAQuery()) || !kunderaQuery.isDeleteUpdate())
+        {
+            return false;
+        }
+
+        return MetadataUtils.useSecondryIndex(m.getPersistenceUnit()) && !m.isRelationViaJoinTable()
+                && (m.getRelationNames() == null || m.getRelationNames().isEmpty())
+                && (m.getCallbackMethodsMap() == null || m.getCallbackMethodsMap().isEmpty());
+    }
+
+    /**
+     * Returns new column values for update clauses, converted to field type.
+     * 
+     * @param m
+     *            entity metadata
+     * @return map of jpa column name and new value, or null if any of the
+     *         updated attributes is not a plain column.
+     */
+    private Map<String, Object> getUpdatedColumns(EntityMetadata m)
+    {
+        MetamodelImpl metaModel = (MetamodelImpl) KunderaMetadata.INSTANCE.getApplicationMetadata().getMetamodel(
+                m.getPersistenceUnit());
+        EntityType entityType = metaModel.entity(m.getEntityClazz());
+
+        Map<String, Object> updatedColumns = new HashMap<String, Object>();
+        for (UpdateClause c : kunderaQuery.getUpdateClauseQueue())
+        {
+            Attribute attribute = null;
+            try
+            {
+                attribute = entityType.getAttribute(c.getProperty());
+            }
+            catch (IllegalArgumentException iax)
+            {
+                // leave it to merge, for error reporting.
+                return null;
+            }
+
+            if (attribute.isCollection() || attribute.isAssociation() || ((SingularAttribute) attribute).isId()
+                    || metaModel.isEmbeddable(attribute.getJavaType()))
+            {
+                return null;
+            }
+
+            Field field = (Field) attribute.getJavaMember();
+            String value = c.getValue();
+            updatedColumns.put(((AbstractAttribute) attribute).getJPAColumnName(),
+                    value == null || "null".equalsIgnoreCase(value) ? null : PropertyAccessorFactory
+                            .getPropertyAccessor(field).fromString(m.getEntityClazz(), value));
+        }
+        return updatedColumns;
+    }
+
     /************************* Methods from {@link Query} interface *******************************/
 
     /* @see javax.persistence.Query#getSingleResult() */
@@ -609,7 +874,8 @@ public abstract class QueryImpl implements Query
     @Override
     public Query setHint(String hintName, Object value)
     {
-        throw new NotImplementedException("TODO");
+        hints.put(hintName, value);
+        return this;
     }
 
     /* @see javax.persistence.Query#setMaxResults(int) */
@@ -750,7 +1016,7 @@ public abstract class QueryImpl implements Query
     @Override
     public Map<String, Object> getHints()
     {
-        throw new NotImplementedException("TODO");
+        return hints;
     }
 
     /*
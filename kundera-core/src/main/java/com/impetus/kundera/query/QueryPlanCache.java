@@ -0,0 +1,245 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.query;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of parsed {@link KunderaQuery} templates, keyed by JPA query
+ * string. One instance is shared by all entity managers of an entity manager
+ * factory. Cached templates are never handed out directly, callers always get
+ * a per-execution copy to bind parameters on.
+ * <p>
+ * Plans are striped over segments by hash of query string, each segment being
+ * a least recently used map with its own lock and share of the bound, so that
+ * entity managers looking up different queries do not contend.
+ */
+public class QueryPlanCache
+{
+    /** Default maximum number of cached query plans. */
+    public static final int DEFAULT_MAX_SIZE = 256;
+
+    /** Maximum number of segments. */
+    private static final int MAX_SEGMENTS = 16;
+
+    /** Minimum number of plans per segment, smaller caches use less segments. */
+    private static final int MIN_SEGMENT_SIZE = 16;
+
+    /** Least recently used query plans, by segment. */
+    private final Segment[] segments;
+
+    private final int maxSize;
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    /**
+     * Instantiates a new query plan cache.
+     *
+     * @param maxSize
+     *            maximum number of query plans to hold, rounded up to a
+     *            multiple of number of segments. Zero or negative value
+     *            disables caching.
+     */
+    public QueryPlanCache(int maxSize)
+    {
+        this.maxSize = maxSize;
+        int segmentCount = Math.max(1, Math.min(MAX_SEGMENTS, maxSize / MIN_SEGMENT_SIZE));
+        int segmentSize = (maxSize + segmentCount - 1) / segmentCount;
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++)
+        {
+            segments[i] = new Segment(segmentSize);
+        }
+    }
+
+    /**
+     * Gets segment holding plan of given query.
+     */
+    private Segment segmentFor(String jpaQuery)
+    {
+        int hash = jpaQuery.hashCode();
+        hash ^= (hash >>> 16);
+        return segments[(hash & 0x7fffffff) % segments.length];
+    }
+
+    /**
+     * Returns per-execution copy of cached query plan for given query, or null
+     * if not cached.
+     *
+     * @param jpaQuery
+     *            jpa query string.
+     * @return copy of parsed query.
+     */
+    KunderaQuery getQuery(String jpaQuery)
+    {
+        KunderaQuery plan;
+        Segment segment = segmentFor(jpaQuery);
+        synchronized (segment)
+        {
+            plan = segment.get(jpaQuery);
+        }
+
+        if (plan == null)
+        {
+            missCount.incrementAndGet();
+            return null;
+        }
+
+        hitCount.incrementAndGet();
+        return plan.copy();
+    }
+
+    /**
+     * Caches parsed query plan. Plan must not be executed afterwards, as it is
+     * used as template for subsequent copies.
+     *
+     * @param jpaQuery
+     *            jpa query string.
+     * @param kunderaQuery
+     *            parsed query.
+     */
+    void putQuery(String jpaQuery, KunderaQuery kunderaQuery)
+    {
+        if (maxSize > 0)
+        {
+            Segment segment = segmentFor(jpaQuery);
+            synchronized (segment)
+            {
+                segment.put(jpaQuery, kunderaQuery);
+            }
+        }
+    }
+
+    /**
+     * Parses and caches given query, if not already cached.
+     *
+     * @param jpaQuery
+     *            jpa query string.
+     */
+    public void compile(String jpaQuery)
+    {
+        Segment segment = segmentFor(jpaQuery);
+        synchronized (segment)
+        {
+            if (segment.containsKey(jpaQuery))
+            {
+                return;
+            }
+        }
+        putQuery(jpaQuery, QueryResolver.parse(jpaQuery));
+    }
+
+    /**
+     * Removes all cached query plans.
+     */
+    public void clear()
+    {
+        for (Segment segment : segments)
+        {
+            synchronized (segment)
+            {
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * @return number of cached query plans.
+     */
+    public int size()
+    {
+        int size = 0;
+        for (Segment segment : segments)
+        {
+            synchronized (segment)
+            {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return number of query lookups served from cache.
+     */
+    public long getHitCount()
+    {
+        return hitCount.get();
+    }
+
+    /**
+     * @return number of query lookups which required parsing.
+     */
+    public long getMissCount()
+    {
+        return missCount.get();
+    }
+
+    /**
+     * @return number of query plans evicted to keep cache within its bound.
+     */
+    public long getEvictionCount()
+    {
+        return evictionCount.get();
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append("QueryPlanCache [size=");
+        builder.append(size());
+        builder.append(", hits=");
+        builder.append(getHitCount());
+        builder.append(", misses=");
+        builder.append(getMissCount());
+        builder.append(", evictions=");
+        builder.append(getEvictionCount());
+        builder.append("]");
+        return builder.toString();
+    }
+
+    /**
+     * Least recently used query plans of one segment, guarded by itself.
+     */
+    private final class Segment extends LinkedHashMap<String, KunderaQuery>
+    {
+        private final int maxSize;
+
+        Segment(int maxSize)
+        {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, KunderaQuery> eldest)
+        {
+            if (size() > maxSize)
+            {
+                evictionCount.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+}
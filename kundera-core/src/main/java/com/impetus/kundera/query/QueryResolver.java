@@ -17,6 +17,7 @@ package com.impetus.kundera.query;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.Map;
 
 import javax.persistence.Query;
 
@@ -45,6 +46,27 @@ public class QueryResolver
     /** The kundera query. */
     KunderaQuery kunderaQuery;
 
+    /** Parsed query plans, shared per entity manager factory. */
+    private QueryPlanCache queryPlanCache;
+
+    /**
+     * Instantiates a new query resolver, which parses query on each call.
+     */
+    public QueryResolver()
+    {
+    }
+
+    /**
+     * Instantiates a new query resolver.
+     * 
+     * @param queryPlanCache
+     *            cache of parsed query plans, may be null.
+     */
+    public QueryResolver(QueryPlanCache queryPlanCache)
+    {
+        this.queryPlanCache = queryPlanCache;
+    }
+
     /**
      * Gets the query implementation.
      * 
@@ -67,12 +89,7 @@ public class QueryResolver
         // In case of named native query
         if (!isNative)
         {
-            KunderaQueryParser parser = new KunderaQueryParser(kunderaQuery, mappedQuery != null ? mappedQuery
-                    : jpaQuery);
-
-            parser.parse();
-
-            kunderaQuery.postParsingInit();
+            kunderaQuery = getParsedQuery(mappedQuery != null ? mappedQuery : jpaQuery);
             pu = kunderaQuery.getPersistenceUnit();
             m = kunderaQuery.getEntityMetadata();
         }
@@ -128,10 +145,59 @@ public class QueryResolver
             throw new QueryHandlerException(e);
         }
 
+        // Hints of named query.
+        for (Map.Entry<String, Object> hint : appMetadata.getQueryHints(jpaQuery).entrySet())
+        {
+            query.setHint(hint.getKey(), hint.getValue());
+        }
+
         return query;
 
     }
 
+    /**
+     * Returns parsed query for given jpa query, from query plan cache if
+     * available.
+     * 
+     * @param jpaQuery
+     *            the jpa query
+     * @return the parsed query
+     */
+    private KunderaQuery getParsedQuery(String jpaQuery)
+    {
+        if (queryPlanCache == null)
+        {
+            return parse(jpaQuery);
+        }
+
+        KunderaQuery parsedQuery = queryPlanCache.getQuery(jpaQuery);
+        if (parsedQuery == null)
+        {
+            KunderaQuery plan = parse(jpaQuery);
+            queryPlanCache.putQuery(jpaQuery, plan);
+            parsedQuery = plan.copy();
+        }
+        return parsedQuery;
+    }
+
+    /**
+     * Parses given jpa query.
+     * 
+     * @param jpaQuery
+     *            the jpa query
+     * @return the parsed query
+     */
+    static KunderaQuery parse(String jpaQuery)
+    {
+        KunderaQuery kunderaQuery = new KunderaQuery();
+        KunderaQueryParser parser = new KunderaQueryParser(kunderaQuery, jpaQuery);
+
+        parser.parse();
+
+        kunderaQuery.postParsingInit();
+        return kunderaQuery;
+    }
+
     /**
      * Gets the query instance.
      * 
@@ -0,0 +1,499 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.impetus.kundera.metadata.KunderaMetadataManager;
+import com.impetus.kundera.metadata.model.EntityMetadata;
+import com.impetus.kundera.metadata.model.Relation;
+
+/**
+ * Bounded cache of query results, shared by all entity managers of an entity
+ * manager factory. Only primary keys of result entities are held, keyed by
+ * normalized query, bound parameter values and max results. Entities are
+ * read through persistence context and second level cache on hit.
+ * 
+ * Each result remembers tables its query reads. Writing a table invalidates
+ * all results read from it: a table's version is moved past every timestamp
+ * taken before write completed, so neither results already cached nor
+ * results of queries still running while table was written are served.
+ */
+public class QueryResultCache
+{
+    /** Default maximum number of cached query results. */
+    public static final int DEFAULT_MAX_SIZE = 1024;
+
+    /** Least recently used query results. */
+    private final Map<Key, Result> results;
+
+    private final int maxSize;
+
+    /** Logical clock, ticked on each table write. */
+    private final AtomicLong clock = new AtomicLong();
+
+    /** Clock value of last write, by table. */
+    private final ConcurrentMap<String, Long> tableVersions = new ConcurrentHashMap<String, Long>();
+
+    /** Statistics, by normalized query. */
+    private final ConcurrentMap<String, Statistics> statistics = new ConcurrentHashMap<String, Statistics>();
+
+    /**
+     * Instantiates a new query result cache.
+     * 
+     * @param maxSize
+     *            maximum number of query results to hold. Zero or negative
+     *            value disables caching.
+     */
+    public QueryResultCache(int maxSize)
+    {
+        this.maxSize = maxSize;
+        this.results = new LinkedHashMap<Key, Result>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Result> eldest)
+            {
+                return size() > QueryResultCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns current timestamp, to be taken before a query is executed and
+     * passed to {@link #put(Key, List, Set, long)} along with its result.
+     * 
+     * @return timestamp
+     */
+    public long getTimestamp()
+    {
+        return clock.get();
+    }
+
+    /**
+     * Returns primary keys of cached result for given key, or null if not
+     * cached or invalidated since.
+     * 
+     * @param key
+     *            query key
+     * @return primary keys, in result order
+     */
+    public List<Object> get(Key key)
+    {
+        Statistics queryStatistics = getStatistics(key.query);
+        Result result;
+        synchronized (results)
+        {
+            result = results.get(key);
+            if (result != null && !isValid(result.tables, result.timestamp))
+            {
+                results.remove(key);
+                result = null;
+                queryStatistics.invalidated();
+            }
+        }
+
+        if (result == null)
+        {
+            queryStatistics.miss();
+            return null;
+        }
+        queryStatistics.hit();
+        return result.primaryKeys;
+    }
+
+    /**
+     * Caches result of a query, unless any table it reads was written since
+     * query started.
+     * 
+     * @param key
+     *            query key
+     * @param primaryKeys
+     *            primary keys of result entities, in result order
+     * @param tables
+     *            tables read by query, see {@link #getTables(EntityMetadata)}
+     * @param timestamp
+     *            timestamp taken before query was executed
+     */
+    public void put(Key key, List<Object> primaryKeys, Set<String> tables, long timestamp)
+    {
+        if (maxSize <= 0)
+        {
+            return;
+        }
+
+        Result result = new Result(Collections.unmodifiableList(new ArrayList<Object>(primaryKeys)), tables,
+                timestamp);
+        synchronized (results)
+        {
+            if (isValid(tables, timestamp))
+            {
+                results.put(key, result);
+            }
+        }
+    }
+
+    /**
+     * Removes cached result for given key, e.g. if an entity of it is gone.
+     * 
+     * @param key
+     *            query key
+     */
+    public void remove(Key key)
+    {
+        synchronized (results)
+        {
+            results.remove(key);
+        }
+    }
+
+    /**
+     * Invalidates all results read from given table. To be invoked once a
+     * write to table completed.
+     * 
+     * @param table
+     *            written table, see {@link #getTable(EntityMetadata)}
+     */
+    public void invalidate(String table)
+    {
+        tableVersions.put(table, clock.incrementAndGet());
+    }
+
+    /**
+     * Removes all cached results.
+     */
+    public void clear()
+    {
+        synchronized (results)
+        {
+            results.clear();
+        }
+    }
+
+    /**
+     * @return number of cached results.
+     */
+    public int size()
+    {
+        synchronized (results)
+        {
+            return results.size();
+        }
+    }
+
+    /**
+     * Returns statistics of given query, created if not there.
+     * 
+     * @param query
+     *            normalized query, see {@link #normalize(String)}
+     * @return query statistics
+     */
+    public Statistics getStatistics(String query)
+    {
+        Statistics queryStatistics = statistics.get(query);
+        if (queryStatistics == null)
+        {
+            Statistics newStatistics = new Statistics();
+            queryStatistics = statistics.putIfAbsent(query, newStatistics);
+            if (queryStatistics == null)
+            {
+                queryStatistics = newStatistics;
+            }
+        }
+        return queryStatistics;
+    }
+
+    /**
+     * @return statistics of all queries, by normalized query.
+     */
+    public Map<String, Statistics> getStatistics()
+    {
+        return Collections.unmodifiableMap(statistics);
+    }
+
+    private boolean isValid(Set<String> tables, long timestamp)
+    {
+        for (String table : tables)
+        {
+            Long version = tableVersions.get(table);
+            if (version != null && version > timestamp)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns given query with runs of whitespace collapsed, so that
+     * differently formatted copies of a query share results. Whitespace within
+     * quoted literals is kept, as it is part of values compared.
+     * 
+     * @param query
+     *            jpa query
+     * @return normalized query
+     */
+    public static String normalize(String query)
+    {
+        String trimmed = query.trim();
+        StringBuilder normalized = new StringBuilder(trimmed.length());
+        char quote = 0;
+        boolean whitespace = false;
+        for (int i = 0; i < trimmed.length(); i++)
+        {
+            char c = trimmed.charAt(i);
+            if (quote == 0 && Character.isWhitespace(c))
+            {
+                whitespace = true;
+                continue;
+            }
+            if (whitespace)
+            {
+                normalized.append(' ');
+                whitespace = false;
+            }
+
+            // an escaped quote within a literal ends and starts it again.
+            if (quote == 0 && (c == '\'' || c == '"'))
+            {
+                quote = c;
+            }
+            else if (c == quote)
+            {
+                quote = 0;
+            }
+            normalized.append(c);
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Returns table name of given entity, qualified by its schema.
+     * 
+     * @param metadata
+     *            entity metadata
+     * @return qualified table name
+     */
+    public static String getTable(EntityMetadata metadata)
+    {
+        return metadata.getSchema() + "." + metadata.getTableName();
+    }
+
+    /**
+     * Returns tables read by a query on given entity, i.e. its own table and
+     * tables of entities reachable through its relations.
+     * 
+     * @param metadata
+     *            entity metadata
+     * @return qualified table names
+     */
+    public static Set<String> getTables(EntityMetadata metadata)
+    {
+        Set<String> tables = new HashSet<String>();
+        addTables(metadata, tables);
+        return tables;
+    }
+
+    private static void addTables(EntityMetadata metadata, Set<String> tables)
+    {
+        if (metadata == null || !tables.add(getTable(metadata)))
+        {
+            return;
+        }
+        if (metadata.getRelations() != null)
+        {
+            for (Relation relation : metadata.getRelations())
+            {
+                addTables(KunderaMetadataManager.getEntityMetadata(relation.getTargetEntity()), tables);
+            }
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append("QueryResultCache [size=");
+        builder.append(size());
+        builder.append(", queries=");
+        builder.append(statistics.size());
+        builder.append("]");
+        return builder.toString();
+    }
+
+    /**
+     * Key of a query result.
+     */
+    public static final class Key
+    {
+        /** Normalized query. */
+        private final String query;
+
+        /** Bound parameter values, by parameter. */
+        private final Map<String, Object> parameters;
+
+        private final int maxResults;
+
+        /**
+         * Instantiates a new key.
+         * 
+         * @param query
+         *            normalized query
+         * @param parameters
+         *            bound parameter values, by parameter
+         * @param maxResults
+         *            maximum number of results
+         */
+        public Key(String query, Map<String, Object> parameters, int maxResults)
+        {
+            this.query = query;
+            this.parameters = parameters;
+            this.maxResults = maxResults;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj)
+            {
+                return true;
+            }
+            if (!(obj instanceof Key))
+            {
+                return false;
+            }
+            Key other = (Key) obj;
+            return maxResults == other.maxResults && query.equals(other.query)
+                    && parameters.equals(other.parameters);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * (31 * query.hashCode() + parameters.hashCode()) + maxResults;
+        }
+
+        @Override
+        public String toString()
+        {
+            return query + " " + parameters + " [max=" + maxResults + "]";
+        }
+    }
+
+    /**
+     * Cached query result.
+     */
+    private static final class Result
+    {
+        private final List<Object> primaryKeys;
+
+        private final Set<String> tables;
+
+        /** Timestamp taken before query was executed. */
+        private final long timestamp;
+
+        private Result(List<Object> primaryKeys, Set<String> tables, long timestamp)
+        {
+            this.primaryKeys = primaryKeys;
+            this.tables = tables;
+            this.timestamp = timestamp;
+        }
+    }
+
+    /**
+     * Counters of a query's result cache lookups.
+     */
+    public static class Statistics
+    {
+        private final AtomicLong hitCount = new AtomicLong();
+
+        private final AtomicLong missCount = new AtomicLong();
+
+        private final AtomicLong invalidationCount = new AtomicLong();
+
+        void hit()
+        {
+            hitCount.incrementAndGet();
+        }
+
+        void miss()
+        {
+            missCount.incrementAndGet();
+        }
+
+        void invalidated()
+        {
+            invalidationCount.incrementAndGet();
+        }
+
+        /**
+         * @return number of executions served from cache.
+         */
+        public long getHitCount()
+        {
+            return hitCount.get();
+        }
+
+        /**
+         * @return number of executions which went to database.
+         */
+        public long getMissCount()
+        {
+            return missCount.get();
+        }
+
+        /**
+         * @return number of cached results dropped as a table they were read
+         *         from was written.
+         */
+        public long getInvalidationCount()
+        {
+            return invalidationCount.get();
+        }
+
+        /**
+         * @return share of executions served from cache.
+         */
+        public double getHitRatio()
+        {
+            long hits = getHitCount();
+            long total = hits + getMissCount();
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        @Override
+        public String toString()
+        {
+            StringBuilder builder = new StringBuilder();
+            builder.append("Statistics [hits=");
+            builder.append(getHitCount());
+            builder.append(", misses=");
+            builder.append(getMissCount());
+            builder.append(", invalidations=");
+            builder.append(getInvalidationCount());
+            builder.append("]");
+            return builder.toString();
+        }
+    }
+}
@@ -0,0 +1,342 @@
+/**
+ * Copyright 2012 Impetus Infotech.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.impetus.kundera.utils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.Attribute.PersistentAttributeType;
+import javax.persistence.metamodel.EntityType;
+
+import org.hibernate.collection.AbstractPersistentCollection;
+
+import com.impetus.kundera.graph.NodeKey;
+import com.impetus.kundera.metadata.model.EntityMetadata;
+import com.impetus.kundera.metadata.model.MetamodelImpl;
+import com.impetus.kundera.metadata.model.Relation;
+import com.impetus.kundera.metadata.model.attributes.AbstractAttribute;
+import com.impetus.kundera.proxy.KunderaProxy;
+
+/**
+ * Deep copier specialised for one entity class. All fields to copy are
+ * resolved from metamodel once, when copier is built, so that a copy only
+ * reads and writes fields directly without walking metamodel or looking up
+ * annotations.
+ *
+ * @see ObjectUtils#deepCopy(Object)
+ */
+public final class EntityCopier
+{
+    /** The entity class. */
+    private final Class<?> entityClass;
+
+    /** The id field, null if entity has none. */
+    private final Field idField;
+
+    /** Fields copied by reference. */
+    private final Field[] columns;
+
+    /** Embedded and element collection fields. */
+    private final EmbeddedField[] embeddedFields;
+
+    /** Relation fields, copied recursively. */
+    private final Field[] relations;
+
+    /** Whether relation field is a collection. */
+    private final boolean[] collectionRelations;
+
+    private EntityCopier(Class<?> entityClass, Field idField, Field[] columns, EmbeddedField[] embeddedFields,
+            Field[] relations, boolean[] collectionRelations)
+    {
+        this.entityClass = entityClass;
+        this.idField = idField;
+        this.columns = columns;
+        this.embeddedFields = embeddedFields;
+        this.relations = relations;
+        this.collectionRelations = collectionRelations;
+    }
+
+    /**
+     * Builds copier for given entity.
+     *
+     * @param metadata
+     *            entity metadata
+     * @param metaModel
+     *            metamodel of entity's persistence unit
+     * @return entity copier
+     */
+    public static EntityCopier build(EntityMetadata metadata, MetamodelImpl metaModel)
+    {
+        Class<?> entityClass = metadata.getEntityClazz();
+        EntityType entityType = metaModel.entity(entityClass);
+
+        List<Relation> relationList = metadata.getRelations();
+        Field[] relations = new Field[relationList.size()];
+        boolean[] collectionRelations = new boolean[relationList.size()];
+        Set<Field> relationFields = new HashSet<Field>();
+        for (int i = 0; i < relations.length; i++)
+        {
+            relations[i] = accessible(relationList.get(i).getProperty());
+            collectionRelations[i] = Collection.class.isAssignableFrom(relations[i].getType());
+            relationFields.add(relations[i]);
+        }
+
+        List<Field> columns = new ArrayList<Field>();
+        List<EmbeddedField> embeddedFields = new ArrayList<EmbeddedField>();
+        for (Object o : entityType.getAttributes())
+        {
+            Attribute attribute = (Attribute) o;
+            Field field = accessible((Field) attribute.getJavaMember());
+            if (relationFields.contains(field))
+            {
+                // copied recursively, see copy().
+                continue;
+            }
+            PersistentAttributeType attributeType = attribute.getPersistentAttributeType();
+
+            if ((attributeType.equals(PersistentAttributeType.EMBEDDED) || attributeType
+                    .equals(PersistentAttributeType.ELEMENT_COLLECTION))
+                    && field.getAnnotation(javax.persistence.Column.class) == null)
+            {
+                Class<?> embeddableClass = ((AbstractAttribute) attribute).getBindableJavaType();
+                boolean isCollection = attribute.isCollection();
+                Field[] embeddedColumns = null;
+                if (metaModel.isEmbeddable(embeddableClass))
+                {
+                    embeddedColumns = getFields(metaModel.embeddable(embeddableClass).getAttributes());
+                }
+                else if (!isCollection)
+                {
+                    // nothing known about it, share it.
+                    columns.add(field);
+                    continue;
+                }
+                embeddedFields.add(new EmbeddedField(field, isCollection ? embeddableClass : field.getType(),
+                        embeddedColumns, isCollection));
+            }
+            else
+            {
+                columns.add(field);
+            }
+        }
+
+        Field idField = metadata.getIdAttribute() != null ? accessible((Field) metadata.getIdAttribute()
+                .getJavaMember()) : null;
+
+        return new EntityCopier(entityClass, idField, columns.toArray(new Field[columns.size()]),
+                embeddedFields.toArray(new EmbeddedField[embeddedFields.size()]), relations, collectionRelations);
+    }
+
+    /**
+     * Returns true, if copy of this entity needs to track already copied
+     * objects, i.e. if it has relations which may lead back to it.
+     *
+     * @return true, if entity can form a cycle.
+     */
+    public boolean canFormCycle()
+    {
+        return relations.length > 0;
+    }
+
+    /**
+     * Returns key of given entity in map of already copied objects. Entities of
+     * same class and id share a key, so that instances standing for one entity
+     * are copied once within a graph.
+     *
+     * @param source
+     *            entity of this copier's class
+     * @return node key of entity, or entity itself if it has no id.
+     * @throws IllegalAccessException
+     */
+    Object keyOf(Object source) throws IllegalAccessException
+    {
+        Object id = idField != null ? idField.get(source) : null;
+        return id != null ? new NodeKey(entityClass, id) : source;
+    }
+
+    /**
+     * Copies given entity along with its embedded objects, element collections
+     * and relations. Relations holding an uninitialized persistent collection
+     * are left null in copy.
+     *
+     * @param source
+     *            entity to copy
+     * @param copiedObjects
+     *            already copied objects, keyed by {@link #keyOf(Object)}. May
+     *            be null, it is created when required.
+     * @return copy of source
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     */
+    Object copy(Object source, Map<Object, Object> copiedObjects) throws InstantiationException,
+            IllegalAccessException
+    {
+        Object target = entityClass.newInstance();
+
+        for (Field column : columns)
+        {
+            column.set(target, column.get(source));
+        }
+
+        for (EmbeddedField embeddedField : embeddedFields)
+        {
+            Object sourceEmbeddedObj = embeddedField.field.get(source);
+            if (sourceEmbeddedObj != null)
+            {
+                embeddedField.field.set(target, embeddedField.copy(sourceEmbeddedObj));
+            }
+        }
+
+        if (copiedObjects != null)
+        {
+            // copied as part of a graph, related entities may refer to it.
+            copiedObjects.put(keyOf(source), target);
+        }
+
+        if (!canFormCycle())
+        {
+            return target;
+        }
+
+        if (copiedObjects == null)
+        {
+            copiedObjects = new HashMap<Object, Object>();
+            copiedObjects.put(keyOf(source), target);
+        }
+
+        for (int i = 0; i < relations.length; i++)
+        {
+            Field relationField = relations[i];
+            Object sourceRelationObject = relationField.get(source);
+
+            if (sourceRelationObject != null && !(sourceRelationObject instanceof AbstractPersistentCollection))
+            {
+                if (sourceRelationObject instanceof KunderaProxy)
+                {
+                    relationField.set(target, sourceRelationObject);
+                    continue;
+                }
+
+                Object targetRelationObject = null;
+                if (!collectionRelations[i])
+                {
+                    targetRelationObject = ObjectUtils.deepCopy(sourceRelationObject, copiedObjects);
+                }
+                else
+                {
+                    Collection targetCollection = (Collection) sourceRelationObject.getClass().newInstance();
+                    for (Object obj : (Collection) sourceRelationObject)
+                    {
+                        targetCollection.add(ObjectUtils.deepCopy(obj, copiedObjects));
+                    }
+                    targetRelationObject = targetCollection;
+                }
+                relationField.set(target, targetRelationObject);
+            }
+        }
+
+        return target;
+    }
+
+    /**
+     * Returns accessible fields of given attributes.
+     */
+    private static Field[] getFields(Set attributes)
+    {
+        List<Field> fields = new ArrayList<Field>(attributes.size());
+        for (Object attribute : attributes)
+        {
+            Field field = (Field) ((Attribute) attribute).getJavaMember();
+            if (!Modifier.isStatic(field.getModifiers()))
+            {
+                fields.add(accessible(field));
+            }
+        }
+        return fields.toArray(new Field[fields.size()]);
+    }
+
+    private static Field accessible(Field field)
+    {
+        if (!field.isAccessible())
+        {
+            field.setAccessible(true);
+        }
+        return field;
+    }
+
+    /**
+     * Embedded object or element collection field of an entity.
+     */
+    private static final class EmbeddedField
+    {
+        /** The field. */
+        private final Field field;
+
+        /** Embedded object class, or collection element class. */
+        private final Class<?> embeddableClass;
+
+        /** Columns of embeddable, null if elements are shared. */
+        private final Field[] columns;
+
+        private final boolean isCollection;
+
+        private EmbeddedField(Field field, Class<?> embeddableClass, Field[] columns, boolean isCollection)
+        {
+            this.field = field;
+            this.embeddableClass = embeddableClass;
+            this.columns = columns;
+            this.isCollection = isCollection;
+        }
+
+        private Object copy(Object source) throws InstantiationException, IllegalAccessException
+        {
+            if (!isCollection)
+            {
+                return copyEmbeddable(source);
+            }
+            else if (!(source instanceof Collection))
+            {
+                // element collection maps are shared.
+                return source;
+            }
+
+            Collection target = (Collection) source.getClass().newInstance();
+            for (Object sourceEcObj : (Collection) source)
+            {
+                target.add(columns != null && sourceEcObj != null ? copyEmbeddable(sourceEcObj) : sourceEcObj);
+            }
+            return target;
+        }
+
+        private Object copyEmbeddable(Object source) throws InstantiationException, IllegalAccessException
+        {
+            Object target = embeddableClass.newInstance();
+            for (Field column : columns)
+            {
+                column.set(target, column.get(source));
+            }
+            return target;
+        }
+    }
+}
@@ -16,25 +16,12 @@
 package com.impetus.kundera.utils;
 
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import javax.persistence.ElementCollection;
-import javax.persistence.Embedded;
-import javax.persistence.metamodel.Attribute;
-import javax.persistence.metamodel.Attribute.PersistentAttributeType;
-import javax.persistence.metamodel.EmbeddableType;
-import javax.persistence.metamodel.EntityType;
-
 import org.cloner.Cloner;
-import org.hibernate.collection.AbstractPersistentCollection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,10 +29,6 @@ import com.impetus.kundera.metadata.KunderaMetadataManager;
 import com.impetus.kundera.metadata.model.EntityMetadata;
 import com.impetus.kundera.metadata.model.KunderaMetadata;
 import com.impetus.kundera.metadata.model.MetamodelImpl;
-import com.impetus.kundera.metadata.model.Relation;
-import com.impetus.kundera.metadata.model.attributes.AbstractAttribute;
-import com.impetus.kundera.property.PropertyAccessorHelper;
-import com.impetus.kundera.proxy.KunderaProxy;
 
 /**
  * Provides utility methods for operation on objects
@@ -74,247 +57,42 @@ public class ObjectUtils
 
     public static final Object deepCopy(Object source)
     {
-        Map<Object, Object> copiedObjectMap = new HashMap<Object, Object>();
-
-        Object target = deepCopyUsingMetadata(source, copiedObjectMap);
-
-        copiedObjectMap.clear();
-        copiedObjectMap = null;
-
-        return target;
+        return deepCopy(source, null);
     }
 
     /**
+     * Deep copies given entity using copier of its class.
+     * 
      * @param source
-     * @return
+     *            entity to copy
+     * @param copiedObjects
+     *            already copied objects keyed by class and id, may be null
+     * @return copy of entity, or null if it could not be copied.
      */
-    private static Object deepCopyUsingMetadata(Object source, Map<Object, Object> copiedObjectMap)
+    static Object deepCopy(Object source, Map<Object, Object> copiedObjects)
     {
-        Object target = null;
-        try
+        if (source == null)
         {
-            if (source == null)
-                return null;
-
-            Class<?> sourceObjectClass = source.getClass();
-            EntityMetadata metadata = KunderaMetadataManager.getEntityMetadata(sourceObjectClass);
-            if (metadata == null)
-            {
-                return null;
-            }
-
-            MetamodelImpl metaModel = (MetamodelImpl) KunderaMetadata.INSTANCE.getApplicationMetadata().getMetamodel(
-                    metadata.getPersistenceUnit());
-            EntityType entityType = metaModel.entity(sourceObjectClass);
-
-            // May break for mapped super class.
-
-            Object id = PropertyAccessorHelper.getId(source, metadata);
-
-            Object copiedObjectInMap = copiedObjectMap.get(sourceObjectClass.getName() + "#" + id);
-            if (copiedObjectInMap != null)
-            {
-                return copiedObjectInMap;
-            }
-
-            // Copy Columns (in a table that doesn't have any embedded objects
-
-            target = sourceObjectClass.newInstance();
-
-            Iterator<Attribute> iter = entityType.getAttributes().iterator();
-            while (iter.hasNext())
-            {
-                Attribute attrib = iter.next();
-
-                Field columnField = (Field) attrib.getJavaMember();
-                if (attrib.getPersistentAttributeType().equals(PersistentAttributeType.EMBEDDED)
-                        || attrib.getPersistentAttributeType().equals(PersistentAttributeType.ELEMENT_COLLECTION))
-                {
-                    EmbeddableType embeddedColumn = metaModel.embeddable(((AbstractAttribute) attrib)
-                            .getBindableJavaType());
-                    // Field em/beddedColumnField = embeddedColumn.get();
-
-                    Object sourceEmbeddedObj = PropertyAccessorHelper.getObject(source, columnField);
-                    if (sourceEmbeddedObj != null)
-                    {
-                        if (columnField.getAnnotation(Embedded.class) != null)
-                        {
-                            // Copy embedded objects
-                            Class<?> embeddedColumnClass = columnField.getType();
-                            Object targetEmbeddedObj = embeddedColumnClass.newInstance();
-
-                            Set<Attribute> columns = embeddedColumn.getAttributes();
-                            for (Attribute column : columns)
-                            {
-                                PropertyAccessorHelper.set(
-                                        targetEmbeddedObj,
-                                        (Field) column.getJavaMember(),
-                                        PropertyAccessorHelper.getObject(sourceEmbeddedObj,
-                                                (Field) column.getJavaMember()));
-                            }
-
-                            PropertyAccessorHelper.set(target, columnField, targetEmbeddedObj);
-                        }
-                        else if (columnField.getAnnotation(ElementCollection.class) != null)
-                        {
-                            // Copy element collections
-                            if (sourceEmbeddedObj instanceof Collection)
-                            {
-                                Class<?> ecDeclaredClass = columnField.getType();
-                                Class<?> actualEcObjectClass = sourceEmbeddedObj.getClass();
-                                Class<?> genericClass = PropertyAccessorHelper.getGenericClass(columnField);
-
-                                Object targetCollectionObject = actualEcObjectClass.newInstance();
-
-                                for (Object sourceEcObj : (Collection) sourceEmbeddedObj)
-                                {
-                                    Object targetEcObj = genericClass.newInstance();
-                                    for (Field f : genericClass.getDeclaredFields())
-                                    {
-                                        PropertyAccessorHelper.set(targetEcObj, f,
-                                                PropertyAccessorHelper.getObject(sourceEcObj, f));
-
-                                    }
-
-                                    if (List.class.isAssignableFrom(ecDeclaredClass))
-                                    {
-                                        Method m = actualEcObjectClass.getMethod("add", Object.class);
-                                        m.invoke(targetCollectionObject, targetEcObj);
-
-                                    }
-                                    else if (Set.class.isAssignableFrom(ecDeclaredClass))
-                                    {
-                                        Method m = actualEcObjectClass.getMethod("add", Object.class);
-                                        m.invoke(targetCollectionObject, targetEcObj);
-                                    }
-
-                                }
-                                PropertyAccessorHelper.set(target, columnField, targetCollectionObject);
-                            }
-
-                        }
-                        else if (columnField.getAnnotation(javax.persistence.Column.class) != null)
-                        {
-                            // Copy columns
-                            PropertyAccessorHelper.set(target, columnField, sourceEmbeddedObj);
-                        }
-                    }
-
-                }
-                else
-                {
-                    PropertyAccessorHelper.set(target, columnField,
-                            PropertyAccessorHelper.getObject(source, columnField));
-                }
-            }
-
-            // Copy Embedded Columns, Element Collections are columns (in a
-            // table that only has embedded objects)
-
-            // TODO: Above written code should be able to handle embedded
-            // attributes.
-            /*
-             * for (EmbeddedColumn embeddedColumn :
-             * metadata.getEmbeddedColumnsAsList()) { Field embeddedColumnField
-             * = embeddedColumn.getField();
-             * 
-             * Object sourceEmbeddedObj =
-             * PropertyAccessorHelper.getObject(source, embeddedColumnField); if
-             * (sourceEmbeddedObj != null) { if
-             * (embeddedColumnField.getAnnotation(Embedded.class) != null) { //
-             * Copy embedded objects Class<?> embeddedColumnClass =
-             * embeddedColumnField.getType(); Object targetEmbeddedObj =
-             * embeddedColumnClass.newInstance();
-             * 
-             * for (Column column : embeddedColumn.getColumns()) {
-             * PropertyAccessorHelper.set(targetEmbeddedObj, column.getField(),
-             * PropertyAccessorHelper.getObject(sourceEmbeddedObj,
-             * column.getField())); }
-             * 
-             * PropertyAccessorHelper.set(target, embeddedColumnField,
-             * targetEmbeddedObj); } else if
-             * (embeddedColumnField.getAnnotation(ElementCollection.class) !=
-             * null) { // Copy element collections if (sourceEmbeddedObj
-             * instanceof Collection) { Class<?> ecDeclaredClass =
-             * embeddedColumnField.getType(); Class<?> actualEcObjectClass =
-             * sourceEmbeddedObj.getClass(); Class<?> genericClass =
-             * PropertyAccessorHelper.getGenericClass(embeddedColumnField);
-             * 
-             * Object targetCollectionObject =
-             * actualEcObjectClass.newInstance();
-             * 
-             * for (Object sourceEcObj : (Collection) sourceEmbeddedObj) {
-             * Object targetEcObj = genericClass.newInstance(); for (Field f :
-             * genericClass.getDeclaredFields()) {
-             * PropertyAccessorHelper.set(targetEcObj, f,
-             * PropertyAccessorHelper.getObject(sourceEcObj, f));
-             * 
-             * }
-             * 
-             * if (List.class.isAssignableFrom(ecDeclaredClass)) { Method m =
-             * actualEcObjectClass.getMethod("add", Object.class);
-             * m.invoke(targetCollectionObject, targetEcObj);
-             * 
-             * } else if (Set.class.isAssignableFrom(ecDeclaredClass)) { Method
-             * m = actualEcObjectClass.getMethod("add", Object.class);
-             * m.invoke(targetCollectionObject, targetEcObj); }
-             * 
-             * } PropertyAccessorHelper.set(target, embeddedColumnField,
-             * targetCollectionObject); }
-             * 
-             * } else if
-             * (embeddedColumnField.getAnnotation(javax.persistence.Column
-             * .class) != null) { // Copy columns
-             * PropertyAccessorHelper.set(target, embeddedColumnField,
-             * sourceEmbeddedObj); } } }
-             */
+            return null;
+        }
 
-            // Put this object into copied object map
-            copiedObjectMap.put(sourceObjectClass.getName() + "#" + id, target);
+        EntityCopier copier = getCopier(source.getClass());
+        if (copier == null)
+        {
+            return null;
+        }
 
-            // Copy Relationships recursively
-            for (Relation relation : metadata.getRelations())
+        try
+        {
+            if (copiedObjects != null)
             {
-                Field relationField = relation.getProperty();
-                Object sourceRelationObject = PropertyAccessorHelper.getObject(source, relationField);
-
-                if (sourceRelationObject != null && !(sourceRelationObject instanceof AbstractPersistentCollection))
+                Object copiedObjectInMap = copiedObjects.get(copier.keyOf(source));
+                if (copiedObjectInMap != null)
                 {
-                    if(sourceRelationObject instanceof KunderaProxy)
-                    {
-                        PropertyAccessorHelper.set(target, relationField, sourceRelationObject);
-                        continue;
-                    }
-                    
-                    Object targetRelationObject = null;
-
-                    Class<?> relationObjectClass = relation.getProperty().getType();
-                    Class<?> actualRelationObjectClass = sourceRelationObject.getClass();
-
-                    if (!Collection.class.isAssignableFrom(relationObjectClass))
-                    {
-                        targetRelationObject = deepCopyUsingMetadata(sourceRelationObject, copiedObjectMap);
-                    }
-                    else
-                    {
-                        targetRelationObject = actualRelationObjectClass.newInstance();
-                        Method m = actualRelationObjectClass.getMethod("add", Object.class);
-
-                        for (Object obj : (Collection) sourceRelationObject)
-                        {
-                            Object copyTargetRelObj = deepCopyUsingMetadata(obj, copiedObjectMap);
-
-                            m.invoke(targetRelationObject, copyTargetRelObj);
-                        }
-                    }
-                    // Put this object into copied object map
-                    // copiedObjectMap.put(sourceObjectClass.getName() + "#" +
-                    // id, target);
-                    PropertyAccessorHelper.set(target, relationField, targetRelationObject);
+                    return copiedObjectInMap;
                 }
-
             }
-
+            return copier.copy(source, copiedObjects);
         }
         catch (InstantiationException e)
         {
@@ -326,20 +104,33 @@ public class ObjectUtils
             log.warn("Returning null as error during clone, Caused by:" + e.getMessage());
             return null;
         }
+    }
 
-        catch (InvocationTargetException e)
+    /**
+     * Returns copier for given entity class, builds it if not built at
+     * metamodel load time.
+     * 
+     * @param entityClass
+     *            entity class
+     * @return entity copier, or null if class is not an entity.
+     */
+    private static EntityCopier getCopier(Class<?> entityClass)
+    {
+        EntityMetadata metadata = KunderaMetadataManager.getEntityMetadata(entityClass);
+        if (metadata == null)
         {
-            log.warn("Returning null as error during clone, Caused by:" + e.getMessage());
             return null;
         }
 
-        catch (NoSuchMethodException e)
+        EntityCopier copier = metadata.getEntityCopier();
+        if (copier == null)
         {
-            log.warn("Returning null as error during clone, Caused by:" + e.getMessage());
-            return null;
+            MetamodelImpl metaModel = (MetamodelImpl) KunderaMetadata.INSTANCE.getApplicationMetadata().getMetamodel(
+                    metadata.getPersistenceUnit());
+            copier = EntityCopier.build(metadata, metaModel);
+            metadata.setEntityCopier(copier);
         }
-
-        return target;
+        return copier;
     }
 
     /**
@@ -135,4 +135,38 @@ public class EhCacheProviderTest extends TestCase
         cacheProvider.clearAll();
         assertEquals(0, ehCache.size());
     }
+
+    /**
+     * Test per entity class regions.
+     */
+    public void testRegions()
+    {
+        cacheProvider.init(cacheResource);
+        EhCacheWrapper ehCache = (EhCacheWrapper) cacheProvider.createCache(cacheName);
+
+        ehCache.put(PersonnelDTO.class, person1.getPersonId(), person1);
+        ehCache.put(PersonnelDTO.class, person2.getPersonId(), person2);
+        ehCache.put(Object.class, person1.getPersonId(), person2);
+        assertEquals(3, ehCache.size());
+        assertNotNull(cacheProvider.getCacheManager().getCache(PersonnelDTO.class.getName()));
+
+        // Same key, different regions
+        assertSame(person1, ehCache.get(PersonnelDTO.class, person1.getPersonId()));
+        assertSame(person2, ehCache.get(Object.class, person1.getPersonId()));
+        assertTrue(ehCache.contains(PersonnelDTO.class, person2.getPersonId()));
+
+        // Evict by key
+        ehCache.evict(PersonnelDTO.class, person1.getPersonId());
+        assertNull(ehCache.get(PersonnelDTO.class, person1.getPersonId()));
+        assertNotNull(ehCache.get(Object.class, person1.getPersonId()));
+        assertEquals(2, ehCache.size());
+
+        // Evict by region
+        ehCache.evict(PersonnelDTO.class);
+        assertFalse(ehCache.contains(PersonnelDTO.class, person2.getPersonId()));
+        assertEquals(1, ehCache.size());
+
+        ehCache.evictAll();
+        assertEquals(0, ehCache.size());
+    }
 }
@@ -0,0 +1,198 @@
+/**
+ * Copyright 2012 Impetus Infotech.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.impetus.kundera.cache.offheap;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import com.impetus.kundera.cache.CacheException;
+import com.impetus.kundera.entity.PersonnelDTO;
+
+/**
+ * Test case for {@link OffHeapCacheProvider} and its {@link OffHeapRegion}s.
+ */
+public class OffHeapCacheTest extends TestCase
+{
+    /**
+     * Entries are copied off heap and decoded into new instances.
+     */
+    public void testPutGet()
+    {
+        OffHeapRegion region = new OffHeapRegion("test", 1024 * 1024, 64 * 1024, null);
+        try
+        {
+            region.put("1", new PersonnelDTO("1", "Amresh", "Singh"));
+            region.put(2, "two");
+
+            PersonnelDTO p = (PersonnelDTO) region.get("1", PersonnelDTO.class);
+            assertNotNull(p);
+            assertEquals("1", p.getPersonId());
+            assertEquals("Amresh", p.getFirstName());
+            assertEquals("Singh", p.getLastName());
+            assertNotSame(p, region.get("1", PersonnelDTO.class));
+
+            // resolved by stored schema.
+            assertEquals("two", region.get(2, null));
+            assertNull(region.get("3", null));
+            assertEquals(2, region.size());
+
+            // replaced in place.
+            region.put("1", new PersonnelDTO("1", "Vivek", null));
+            p = (PersonnelDTO) region.get("1", PersonnelDTO.class);
+            assertEquals("Vivek", p.getFirstName());
+            assertNull(p.getLastName());
+            assertEquals(2, region.size());
+
+            region.remove("1");
+            assertFalse(region.containsKey("1"));
+            assertEquals(1, region.size());
+            assertEquals(4, region.getHitCount());
+            assertEquals(1, region.getMissCount());
+        }
+        finally
+        {
+            region.close();
+        }
+    }
+
+    /**
+     * Closed region released its memory and may not be written any more.
+     */
+    public void testClose()
+    {
+        OffHeapRegion region = new OffHeapRegion("test", 1024 * 1024, 64 * 1024, null);
+        region.put("1", new PersonnelDTO("1", "Amresh", "Singh"));
+        region.close();
+        region.close();
+        try
+        {
+            region.put("2", new PersonnelDTO("2", "Vivek", "Mishra"));
+            fail("Region is closed");
+        }
+        catch (CacheException e)
+        {
+            // expected.
+        }
+    }
+
+    /**
+     * Full region evicts entries, entries larger than a page are rejected.
+     */
+    public void testEviction()
+    {
+        OffHeapRegion region = new OffHeapRegion("test", 256 * 1024, 16 * 1024, null);
+        try
+        {
+            for (int i = 0; i < 10000; i++)
+            {
+                region.put(i, new PersonnelDTO(String.valueOf(i), "first" + i, "last" + i));
+            }
+            assertTrue(region.size() < 10000);
+            assertTrue(region.getEvictionCount() > 0);
+            PersonnelDTO p = (PersonnelDTO) region.get(9999, PersonnelDTO.class);
+            assertNotNull(p);
+            assertEquals("first9999", p.getFirstName());
+
+            StringBuilder large = new StringBuilder();
+            for (int i = 0; i < 20 * 1024; i++)
+            {
+                large.append('x');
+            }
+            region.put("large", large.toString());
+            assertFalse(region.containsKey("large"));
+            assertEquals(1, region.getRejectionCount());
+        }
+        finally
+        {
+            region.close();
+        }
+    }
+
+    /**
+     * Region backed by a memory mapped file comes up warm.
+     */
+    public void testRecovery() throws Exception
+    {
+        File file = File.createTempFile("kundera", ".cache");
+        file.delete();
+        try
+        {
+            OffHeapRegion region = new OffHeapRegion("test", 1024 * 1024, 64 * 1024, file);
+            for (int i = 0; i < 100; i++)
+            {
+                region.put("p" + i, new PersonnelDTO("p" + i, "first" + i, "last" + i));
+            }
+            region.remove("p0");
+            region.close();
+
+            region = new OffHeapRegion("test", 1024 * 1024, 64 * 1024, file);
+            try
+            {
+                assertEquals(99, region.size());
+                assertNull(region.get("p0", PersonnelDTO.class));
+                PersonnelDTO p = (PersonnelDTO) region.get("p42", null);
+                assertNotNull(p);
+                assertEquals("last42", p.getLastName());
+            }
+            finally
+            {
+                region.close();
+            }
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    /**
+     * Provider creates a region per entity class, as configured.
+     */
+    public void testProvider()
+    {
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put(OffHeapCacheProvider.CAPACITY_BYTES, "1048576");
+        properties.put(OffHeapCacheProvider.PAGE_BYTES, "65536");
+
+        OffHeapCacheProvider provider = new OffHeapCacheProvider();
+        provider.init(properties);
+        try
+        {
+            OffHeapCache cache = (OffHeapCache) provider.createCache("Kundera");
+            assertSame(cache, provider.getCache("Kundera"));
+
+            cache.put(PersonnelDTO.class, "1", new PersonnelDTO("1", "Amresh", "Singh"));
+            cache.put("key", "value");
+            assertEquals(2, cache.size());
+            assertNotNull(cache.getRegion(PersonnelDTO.class));
+            assertTrue(cache.contains(PersonnelDTO.class, "1"));
+            assertEquals("Amresh", ((PersonnelDTO) cache.get(PersonnelDTO.class, "1")).getFirstName());
+            assertEquals("value", cache.get("key"));
+
+            cache.evict(PersonnelDTO.class);
+            assertEquals(1, cache.size());
+            cache.evictAll();
+            assertEquals(0, cache.size());
+        }
+        finally
+        {
+            provider.shutdown();
+        }
+    }
+}
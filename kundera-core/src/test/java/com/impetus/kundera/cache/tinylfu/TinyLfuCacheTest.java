@@ -0,0 +1,177 @@
+/**
+ * Copyright 2012 Impetus Infotech.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.impetus.kundera.cache.tinylfu;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import com.impetus.kundera.entity.PersonnelDTO;
+
+/**
+ * Test case for {@link TinyLfuCacheProvider} and its {@link Region}s.
+ */
+public class TinyLfuCacheTest extends TestCase
+{
+    /**
+     * Frequently read entries survive a scan of entries read once.
+     */
+    public void testAdmission()
+    {
+        Region region = new Region("test", 1000, 1000, 0, 0, new UnitWeigher());
+
+        // fill region.
+        for (int i = 0; i < 1000; i++)
+        {
+            region.put("warm" + i, i);
+        }
+        for (int i = 0; i < 100; i++)
+        {
+            region.put("hot" + i, i);
+        }
+        for (int round = 0; round < 5; round++)
+        {
+            for (int i = 0; i < 100; i++)
+            {
+                assertNotNull(region.get("hot" + i));
+            }
+        }
+
+        // scan, twenty times region's size
+        for (int i = 0; i < 2000; i++)
+        {
+            region.put("cold" + i, i);
+        }
+
+        assertEquals(1000, region.size());
+        int hot = 0;
+        for (int i = 0; i < 100; i++)
+        {
+            if (region.containsKey("hot" + i))
+            {
+                hot++;
+            }
+        }
+        assertTrue("Only " + hot + " frequent entries retained", hot >= 90);
+        assertTrue(region.getRejectionCount() > 0);
+        assertTrue(region.getWeight() <= region.getMaxWeight());
+    }
+
+    /**
+     * Frequency sketch is sized once, counts survive further increments.
+     */
+    public void testSketchKeepsCounts()
+    {
+        FrequencySketch sketch = new FrequencySketch(1000);
+        for (int i = 0; i < 5; i++)
+        {
+            sketch.increment("hot");
+        }
+        for (int i = 0; i < 900; i++)
+        {
+            sketch.increment("other" + i);
+        }
+        assertTrue(sketch.frequency("hot") >= 5);
+    }
+
+    /**
+     * Region is bounded by weight, not count.
+     */
+    public void testWeight()
+    {
+        Region region = new Region("test", 1000, 0, 0, new UnitWeigher());
+        region.put("heavy", new byte[1001]);
+        assertFalse(region.containsKey("heavy"));
+        assertEquals(1, region.getRejectionCount());
+
+        for (int i = 0; i < 9; i++)
+        {
+            region.put("k" + i, new byte[100]);
+        }
+        assertEquals(900, region.getWeight());
+
+        region.put("k9", new byte[500]);
+        assertTrue(region.getWeight() <= 1000);
+        assertTrue(region.getEvictionCount() > 0);
+
+        region.remove("k0");
+        region.clear();
+        assertEquals(0, region.size());
+        assertEquals(0, region.getWeight());
+    }
+
+    /**
+     * Expired entries are not returned.
+     */
+    public void testExpiry() throws InterruptedException
+    {
+        Region region = new Region("test", 1000, 50, 0, new UnitWeigher());
+        region.put("a", "a");
+        assertEquals("a", region.get("a"));
+        Thread.sleep(100);
+        assertNull(region.get("a"));
+        assertEquals(1, region.getExpirationCount());
+        assertEquals(1, region.getHitCount());
+        assertEquals(1, region.getMissCount());
+    }
+
+    /**
+     * Regions per entity class, configured through provider properties.
+     */
+    public void testProvider()
+    {
+        Map<String, String> properties = new HashMap<String, String>();
+        properties.put(TinyLfuCacheProvider.MAX_BYTES, "10000");
+        properties.put(TinyLfuCacheProvider.MAX_BYTES + "." + PersonnelDTO.class.getName(), "500");
+        properties.put(TinyLfuCacheProvider.WEIGHER, UnitWeigher.class.getName());
+
+        TinyLfuCacheProvider provider = new TinyLfuCacheProvider();
+        provider.init(properties);
+        TinyLfuCache cache = (TinyLfuCache) provider.createCache("Kundera");
+        assertSame(cache, provider.getCache("Kundera"));
+
+        PersonnelDTO person = new PersonnelDTO("1", "Amresh", "Singh");
+        cache.put(PersonnelDTO.class, "1", person);
+        cache.put(Object.class, "1", "other");
+        assertSame(person, cache.get(PersonnelDTO.class, "1"));
+        assertEquals("other", cache.get(Object.class, "1"));
+        assertEquals(500, cache.getRegion(PersonnelDTO.class).getMaxWeight());
+        assertEquals(10000, cache.getRegion(Object.class).getMaxWeight());
+        assertEquals(2, cache.size());
+
+        cache.evict(PersonnelDTO.class, "1");
+        assertFalse(cache.contains(PersonnelDTO.class, "1"));
+        assertTrue(cache.contains(Object.class, "1"));
+
+        cache.evict(Object.class);
+        assertEquals(0, cache.size());
+
+        provider.shutdown();
+    }
+
+    /**
+     * Weighs byte arrays by length, anything else as one byte.
+     */
+    public static class UnitWeigher implements Weigher
+    {
+        @Override
+        public int weigh(Object key, Object value)
+        {
+            return value instanceof byte[] ? ((byte[]) value).length : 1;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/**
+ * Copyright 2012 Impetus Infotech.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.impetus.kundera.graph;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test case for {@link NodeKey}
+ */
+public class NodeKeyTest
+{
+    @Test
+    public void testEquals()
+    {
+        NodeKey key = new NodeKey(Store.class, "1");
+        Assert.assertEquals(key, new NodeKey(Store.class, "1"));
+        Assert.assertEquals(key.hashCode(), new NodeKey(Store.class, "1").hashCode());
+        Assert.assertFalse(key.equals(new NodeKey(Store.class, "2")));
+        Assert.assertFalse(key.equals(new NodeKey(BillingCounter.class, "1")));
+        Assert.assertEquals(Store.class.getName() + "$1", key.toString());
+    }
+
+    /**
+     * Keys of different primary key types match if their string forms do,
+     * as node ids did.
+     */
+    @Test
+    public void testMixedIdTypes()
+    {
+        long[] ids = { 0, 7, -7, 10, 12345, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE };
+        for (long id : ids)
+        {
+            NodeKey stringKey = new NodeKey(Store.class, String.valueOf(id));
+            NodeKey longKey = new NodeKey(Store.class, id);
+            Assert.assertEquals(stringKey, longKey);
+            Assert.assertEquals(longKey, stringKey);
+            Assert.assertEquals(stringKey.hashCode(), longKey.hashCode());
+        }
+
+        NodeKey intKey = new NodeKey(Store.class, 42);
+        Assert.assertEquals(intKey, new NodeKey(Store.class, 42L));
+        Assert.assertEquals(intKey.hashCode(), new NodeKey(Store.class, "42").hashCode());
+        Assert.assertFalse(intKey.equals(new NodeKey(Store.class, "042")));
+    }
+}
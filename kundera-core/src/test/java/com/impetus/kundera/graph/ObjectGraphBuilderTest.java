@@ -26,6 +26,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import com.impetus.kundera.configure.PersistenceUnitConfiguration;
+import com.impetus.kundera.lifecycle.states.ManagedState;
 import com.impetus.kundera.metadata.model.ApplicationMetadata;
 import com.impetus.kundera.metadata.model.EntityMetadata;
 import com.impetus.kundera.metadata.model.KunderaMetadata;
@@ -43,6 +44,8 @@ public class ObjectGraphBuilderTest
 {
     ObjectGraphBuilder graphBuilder;
 
+    PersistenceCache persistenceCache;
+
     private String _persistenceUnit = "kunderatest";
 
     // Configurator configurator = new Configurator("kunderatest");
@@ -59,7 +62,7 @@ public class ObjectGraphBuilderTest
         new PersistenceUnitConfiguration("kunderatest").configure();
         // new MetamodelConfiguration("kunderatest").configure();
 
-        PersistenceCache persistenceCache = new PersistenceCache();
+        persistenceCache = new PersistenceCache();
 
         graphBuilder = new ObjectGraphBuilder(persistenceCache);
     }
@@ -101,6 +104,41 @@ public class ObjectGraphBuilderTest
         Assert.assertEquals(3, headNode.getChildren().size());
     }
 
+    /**
+     * Test dirty check for entity tracking its own attribute writes.
+     */
+    @Test
+    public void testGetObjectGraphForDirtyTrackable()
+    {
+        TrackedCounter counter = new TrackedCounter(1, "A");
+
+        Node node = graphBuilder.getObjectGraph(counter, new ManagedState()).getHeadNode();
+
+        // No snapshot copy is made.
+        Assert.assertSame(counter, node.getData());
+        Assert.assertTrue(counter.getDirtyAttributes().isEmpty());
+
+        node.setDirty(false);
+        persistenceCache.getMainCache().addNodeToCache(node);
+        Assert.assertSame(counter, node.getData());
+
+        // Unchanged entity is not dirty.
+        node = graphBuilder.getObjectGraph(counter, new ManagedState()).getHeadNode();
+        Assert.assertFalse(node.isDirty());
+        Assert.assertNull(node.getDirtyAttributes());
+
+        counter.setCounterCode("B");
+        node = graphBuilder.getObjectGraph(counter, new ManagedState()).getHeadNode();
+        Assert.assertTrue(node.isDirty());
+        Assert.assertEquals(1, node.getDirtyAttributes().size());
+        Assert.assertTrue(node.getDirtyAttributes().contains("counterCode"));
+        Assert.assertTrue(counter.getDirtyAttributes().isEmpty());
+
+        // Flushed node is clean again.
+        node.setDirty(false);
+        Assert.assertNull(node.getDirtyAttributes());
+    }
+
     /**
      * Test method for
      * {@link com.impetus.kundera.graph.ObjectGraphBuilder#getNodeId(java.lang.Object, java.lang.Object)}
@@ -129,21 +167,25 @@ public class ObjectGraphBuilderTest
         pus.add(_persistenceUnit);
         clazzToPu.put(Store.class.getName(), pus);
         clazzToPu.put(BillingCounter.class.getName(), pus);
+        clazzToPu.put(TrackedCounter.class.getName(), pus);
 
         appMetadata.setClazzToPuMap(clazzToPu);
 
         EntityMetadata m = new EntityMetadata(Store.class);
         EntityMetadata m1 = new EntityMetadata(BillingCounter.class);
+        EntityMetadata m2 = new EntityMetadata(TrackedCounter.class);
 
         TableProcessor processor = new TableProcessor();
         processor.process(Store.class, m);
         processor.process(BillingCounter.class, m1);
+        processor.process(TrackedCounter.class, m2);
 
         m.setPersistenceUnit(_persistenceUnit);
 
         MetamodelImpl metaModel = new MetamodelImpl();
         metaModel.addEntityMetadata(Store.class, m);
         metaModel.addEntityMetadata(BillingCounter.class, m1);
+        metaModel.addEntityMetadata(TrackedCounter.class, m2);
 
         metaModel.assignManagedTypes(appMetadata.getMetaModelBuilder(_persistenceUnit).getManagedTypes());
         metaModel.assignEmbeddables(appMetadata.getMetaModelBuilder(_persistenceUnit).getEmbeddables());
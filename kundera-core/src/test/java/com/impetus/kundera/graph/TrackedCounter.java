@@ -0,0 +1,106 @@
+/**
+ * Copyright 2012 Impetus Infotech.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.impetus.kundera.graph;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+
+import com.impetus.kundera.persistence.api.DirtyTrackable;
+
+/**
+ * Dummy counter entity class, recording its own attribute writes.
+ */
+
+@Entity
+@Table(name = "TRACKED_COUNTER", schema = "KunderaTest@kunderatest")
+public class TrackedCounter implements DirtyTrackable
+{
+    @Id
+    @Column(name = "COUNTER_ID")
+    private int counterId;
+
+    @Column(name = "COUNTER_CODE")
+    private String counterCode;
+
+    @Transient
+    private Set<String> dirtyAttributes = new HashSet<String>();
+
+    public TrackedCounter()
+    {
+
+    }
+
+    public TrackedCounter(int id, String code)
+    {
+        setCounterId(id);
+        setCounterCode(code);
+    }
+
+    /**
+     * @return the counterId
+     */
+    public int getCounterId()
+    {
+        return counterId;
+    }
+
+    /**
+     * @param counterId
+     *            the counterId to set
+     */
+    public void setCounterId(int counterId)
+    {
+        this.counterId = counterId;
+        dirtyAttributes.add("counterId");
+    }
+
+    /**
+     * @return the counterCode
+     */
+    public String getCounterCode()
+    {
+        return counterCode;
+    }
+
+    /**
+     * @param counterCode
+     *            the counterCode to set
+     */
+    public void setCounterCode(String counterCode)
+    {
+        this.counterCode = counterCode;
+        dirtyAttributes.add("counterCode");
+    }
+
+    @Override
+    public Set<String> getDirtyAttributes()
+    {
+        return dirtyAttributes;
+    }
+
+    @Override
+    public void clearDirtyAttributes()
+    {
+        dirtyAttributes.clear();
+    }
+
+}
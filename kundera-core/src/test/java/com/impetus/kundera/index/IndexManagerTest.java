@@ -0,0 +1,299 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.impetus.kundera.entity.PersonnelDTO;
+import com.impetus.kundera.metadata.model.ApplicationMetadata;
+import com.impetus.kundera.metadata.model.EntityMetadata;
+import com.impetus.kundera.metadata.model.KunderaMetadata;
+import com.impetus.kundera.metadata.model.MetamodelImpl;
+import com.impetus.kundera.metadata.model.PersistenceUnitMetadata;
+import com.impetus.kundera.metadata.processor.IndexProcessor;
+import com.impetus.kundera.metadata.processor.TableProcessor;
+
+/**
+ * Test case for {@link IndexManager}, collecting index changes in batches.
+ */
+public class IndexManagerTest
+{
+
+    private final RecordingIndexer indexer = new RecordingIndexer();
+
+    private final IndexManager indexManager = new IndexManager(indexer);
+
+    private final EntityMetadata metadata = new EntityMetadata(PersonnelDTO.class);
+
+    @After
+    public void tearDown() throws Exception
+    {
+        KunderaMetadata.INSTANCE.setApplicationMetadata(null);
+    }
+
+    @Test
+    public void testEndBatch()
+    {
+        indexManager.beginBatch();
+        indexManager.remove(metadata, null, "1");
+        indexManager.remove(metadata, null, "2");
+        Assert.assertTrue(indexer.updates.isEmpty());
+
+        indexManager.endBatch();
+        Assert.assertEquals(1, indexer.updates.size());
+        Assert.assertEquals(2, indexer.updates.get(0).size());
+
+        // applied at once outside a batch.
+        indexManager.remove(metadata, null, "3");
+        Assert.assertEquals(2, indexer.updates.size());
+    }
+
+    @Test
+    public void testDiscardBatch()
+    {
+        indexManager.beginBatch();
+        indexManager.remove(metadata, null, "1");
+        indexManager.discardBatch();
+        Assert.assertTrue(indexer.updates.isEmpty());
+
+        // discarded nested batch discards outer one.
+        indexManager.beginBatch();
+        indexManager.remove(metadata, null, "1");
+        indexManager.beginBatch();
+        indexManager.remove(metadata, null, "2");
+        indexManager.discardBatch();
+        indexManager.endBatch();
+        Assert.assertTrue(indexer.updates.isEmpty());
+
+        // next batch is applied.
+        indexManager.beginBatch();
+        indexManager.remove(metadata, null, "3");
+        indexManager.endBatch();
+        Assert.assertEquals(1, indexer.updates.size());
+        Assert.assertEquals("3", indexer.updates.get(0).iterator().next().getId());
+    }
+
+    /**
+     * Later changes of an entity within a batch supersede earlier ones.
+     */
+    @Test
+    public void testBatchKeepsLastChangeOfEntity()
+    {
+        EntityMetadata m = newPersonnelMetadata();
+        PersonnelDTO vivek = new PersonnelDTO("1", "Vivek", "Mishra");
+
+        indexManager.beginBatch();
+        indexManager.write(m, new PersonnelDTO("1", "Amresh", "Singh"));
+        indexManager.write(m, new PersonnelDTO("2", "Kuldeep", "Mishra"));
+        indexManager.write(m, vivek);
+        indexManager.remove(m, null, "2");
+        indexManager.endBatch();
+
+        Assert.assertEquals(1, indexer.updates.size());
+        List<IndexUpdate> updates = new ArrayList<IndexUpdate>(indexer.updates.get(0));
+        Assert.assertEquals(2, updates.size());
+        Assert.assertEquals("1", updates.get(0).getId());
+        Assert.assertSame(vivek, updates.get(0).getEntity());
+        Assert.assertEquals("2", updates.get(1).getId());
+        Assert.assertTrue(updates.get(1).isRemove());
+    }
+
+    /**
+     * Concurrent flushes through one manager keep their own batches: one
+     * failing discards only its changes, and changes written outside any
+     * batch meanwhile are applied at once.
+     */
+    @Test
+    public void testConcurrentBatches() throws Exception
+    {
+        final CountDownLatch begun = new CountDownLatch(2);
+        final CountDownLatch done = new CountDownLatch(1);
+        final IndexManager.Batch[] flushed = new IndexManager.Batch[1];
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+
+        Thread flushing = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    flushed[0] = indexManager.beginBatch();
+                    indexManager.remove(metadata, null, "1");
+                    begun.countDown();
+                    done.await();
+                    indexManager.endBatch();
+                }
+                catch (Throwable t)
+                {
+                    errors.add(t);
+                }
+            }
+        });
+        Thread failing = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    indexManager.beginBatch();
+                    indexManager.remove(metadata, null, "2");
+                    begun.countDown();
+                    done.await();
+                    indexManager.discardBatch();
+                }
+                catch (Throwable t)
+                {
+                    errors.add(t);
+                }
+            }
+        });
+        flushing.start();
+        failing.start();
+        begun.await();
+
+        // written behind, outside both flushes.
+        indexManager.remove(metadata, null, "3");
+        Assert.assertEquals(1, indexer.updates.size());
+
+        // flush thread writing for first flush.
+        Thread writer = new Thread(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                IndexManager.Batch previous = indexManager.joinBatch(flushed[0]);
+                indexManager.remove(metadata, null, "4");
+                indexManager.joinBatch(previous);
+            }
+        });
+        writer.start();
+        writer.join();
+        Assert.assertEquals(1, indexer.updates.size());
+
+        done.countDown();
+        flushing.join();
+        failing.join();
+        Assert.assertTrue(errors.isEmpty());
+
+        Assert.assertEquals(2, indexer.updates.size());
+        Assert.assertEquals("3", indexer.updates.get(0).iterator().next().getId());
+        List<IndexUpdate> updates = new ArrayList<IndexUpdate>(indexer.updates.get(1));
+        Assert.assertEquals(2, updates.size());
+        Assert.assertEquals("1", updates.get(0).getId());
+        Assert.assertEquals("4", updates.get(1).getId());
+    }
+
+    /**
+     * Builds metadata of {@link PersonnelDTO} in its persistence unit, as
+     * indexers read it.
+     */
+    static EntityMetadata newPersonnelMetadata()
+    {
+        String pu = "kunderatest";
+        KunderaMetadata.INSTANCE.setApplicationMetadata(null);
+        ApplicationMetadata appMetadata = KunderaMetadata.INSTANCE.getApplicationMetadata();
+        PersistenceUnitMetadata puMetadata = new PersistenceUnitMetadata();
+        puMetadata.setPersistenceUnitName(pu);
+        puMetadata.setProperties(new Properties());
+        Map<String, PersistenceUnitMetadata> metadata = new HashMap<String, PersistenceUnitMetadata>();
+        metadata.put(pu, puMetadata);
+        appMetadata.addPersistenceUnitMetadata(metadata);
+
+        Map<String, List<String>> clazzToPu = new HashMap<String, List<String>>();
+        List<String> pus = new ArrayList<String>();
+        pus.add(pu);
+        clazzToPu.put(PersonnelDTO.class.getName(), pus);
+        appMetadata.setClazzToPuMap(clazzToPu);
+
+        EntityMetadata m = new EntityMetadata(PersonnelDTO.class);
+        new TableProcessor().process(PersonnelDTO.class, m);
+        new IndexProcessor().process(PersonnelDTO.class, m);
+        m.setPersistenceUnit(pu);
+
+        MetamodelImpl metaModel = new MetamodelImpl();
+        metaModel.addEntityMetadata(PersonnelDTO.class, m);
+        appMetadata.getMetamodelMap().put(pu, metaModel);
+        return m;
+    }
+
+    /**
+     * Indexer recording batches of changes applied.
+     */
+    static class RecordingIndexer implements BatchIndexer
+    {
+        final List<Collection<IndexUpdate>> updates = new ArrayList<Collection<IndexUpdate>>();
+
+        @Override
+        public synchronized void update(Collection<IndexUpdate> updates)
+        {
+            this.updates.add(new ArrayList<IndexUpdate>(updates));
+        }
+
+        @Override
+        public void unindex(EntityMetadata metadata, Object id)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void index(EntityMetadata metadata, Object object)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void index(EntityMetadata metadata, Object object, String parentId, Class<?> clazz)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Map<String, String> search(String luceneQuery, int start, int count, boolean fetchRelation)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean entityExistsInIndex(Class<?> entityClass)
+        {
+            return false;
+        }
+
+        @Override
+        public void close()
+        {
+        }
+
+        @Override
+        public void flush()
+        {
+        }
+    }
+}
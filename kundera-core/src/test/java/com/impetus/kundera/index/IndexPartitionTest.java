@@ -0,0 +1,319 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.index;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import junit.framework.Assert;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexCommit;
+import org.apache.lucene.index.IndexFileNameFilter;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.Version;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.impetus.kundera.PersistenceProperties;
+
+/**
+ * Test case for {@link IndexPartition}, held in memory and copied to disk, or
+ * written to disk directly.
+ */
+public class IndexPartitionTest
+{
+
+    private File indexDirectory;
+
+    private IndexPartition partition;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        indexDirectory = File.createTempFile("kundera-index", "");
+        indexDirectory.delete();
+        indexDirectory.mkdirs();
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        if (partition != null)
+        {
+            partition.close();
+        }
+        delete(indexDirectory);
+    }
+
+    /**
+     * Commit copies only files disk misses, files of segments copied before
+     * are left as they are.
+     */
+    @Test
+    public void testCopyToDiskIncrementally() throws Exception
+    {
+        partition = open(LuceneIndexer.DIRECTORY_RAM);
+        partition.addDocument(newDocument("1"));
+        partition.commit();
+
+        List<File> segmentFiles = new ArrayList<File>();
+        for (File file : indexDirectory.listFiles())
+        {
+            if (!file.getName().startsWith("segments"))
+            {
+                segmentFiles.add(file);
+                Assert.assertTrue(file.setLastModified(1000L));
+            }
+        }
+        Assert.assertFalse(segmentFiles.isEmpty());
+
+        partition.addDocument(newDocument("2"));
+        partition.commit();
+
+        for (File file : segmentFiles)
+        {
+            Assert.assertTrue(file.exists());
+            Assert.assertEquals(1000L, file.lastModified());
+        }
+        Assert.assertEquals(2, countDocuments());
+    }
+
+    /**
+     * Files of earlier commits are deleted from disk once a later commit is
+     * copied.
+     */
+    @Test
+    public void testCopyToDiskDeletesStaleFiles() throws Exception
+    {
+        partition = open(LuceneIndexer.DIRECTORY_RAM);
+        partition.addDocument(newDocument("1"));
+        partition.commit();
+        String firstSegmentsFile = lastCommit().getSegmentsFileName();
+
+        partition.deleteDocuments(new Term(DocumentIndexer.KUNDERA_ID_FIELD, "1"));
+        partition.addDocument(newDocument("2"));
+        partition.commit();
+
+        IndexCommit commit = lastCommit();
+        Assert.assertFalse(firstSegmentsFile.equals(commit.getSegmentsFileName()));
+        Assert.assertFalse(new File(indexDirectory, firstSegmentsFile).exists());
+        Collection<String> files = commit.getFileNames();
+        for (String file : indexDirectory.list())
+        {
+            Assert.assertTrue(file, files.contains(file) || "segments.gen".equals(file)
+                    || !IndexFileNameFilter.getFilter().accept(null, file));
+        }
+        Assert.assertEquals(1, countDocuments());
+    }
+
+    /**
+     * Index in memory is loaded from its copy on disk.
+     */
+    @Test
+    public void testReopenFromDisk() throws Exception
+    {
+        partition = open(LuceneIndexer.DIRECTORY_RAM);
+        partition.addDocument(newDocument("1"));
+        partition.close();
+
+        partition = open(LuceneIndexer.DIRECTORY_RAM);
+        Assert.assertEquals(1, partition.getStatistics().getDocumentCount());
+    }
+
+    /**
+     * Index on disk whose last commit can not be read reopens at commit
+     * before.
+     */
+    @Test
+    public void testReopenAtEarlierCommit() throws Exception
+    {
+        partition = open(LuceneIndexer.DIRECTORY_FS);
+        partition.addDocument(newDocument("1"));
+        partition.commit();
+        String firstSegmentsFile = lastCommit().getSegmentsFileName();
+        byte[] firstSegments = read(new File(indexDirectory, firstSegmentsFile));
+
+        partition.addDocument(newDocument("2"));
+        partition.close();
+        partition = null;
+
+        // earlier commit kept, last one cut short.
+        write(new File(indexDirectory, firstSegmentsFile), firstSegments);
+        File lastSegments = new File(indexDirectory, lastCommit().getSegmentsFileName());
+        byte[] truncated = new byte[4];
+        System.arraycopy(read(lastSegments), 0, truncated, 0, truncated.length);
+        write(lastSegments, truncated);
+
+        partition = open(LuceneIndexer.DIRECTORY_FS);
+        Assert.assertEquals(1, partition.getStatistics().getDocumentCount());
+    }
+
+    /**
+     * A search right after a write sees it, while another thread writes and
+     * reopens reader concurrently.
+     */
+    @Test
+    public void testSearchSeesOwnWriteWhileOtherThreadReopens() throws Exception
+    {
+        partition = open(LuceneIndexer.DIRECTORY_RAM);
+        final List<String> missed = Collections.synchronizedList(new ArrayList<String>());
+        Thread[] threads = new Thread[2];
+        for (int t = 0; t < threads.length; t++)
+        {
+            final String prefix = "t" + t + "-";
+            threads[t] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        for (int i = 0; i < 200; i++)
+                        {
+                            String id = prefix + i;
+                            partition.addDocument(newDocument(id));
+                            if (partition.search(new TermQuery(new Term(DocumentIndexer.KUNDERA_ID_FIELD, id)), 1,
+                                    DocumentIndexer.KUNDERA_ID_FIELD).isEmpty())
+                            {
+                                missed.add(id);
+                            }
+                        }
+                    }
+                    catch (IOException e)
+                    {
+                        missed.add(e.toString());
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads)
+        {
+            thread.start();
+        }
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+        Assert.assertEquals(Collections.emptyList(), missed);
+    }
+
+    private IndexPartition open(String directoryType) throws IOException
+    {
+        Properties properties = new Properties();
+        properties.setProperty(PersistenceProperties.KUNDERA_INDEX_DIRECTORY, directoryType);
+        return new IndexPartition("test", indexDirectory, new StandardAnalyzer(Version.LUCENE_34), properties);
+    }
+
+    private IndexCommit lastCommit() throws IOException
+    {
+        Directory disk = FSDirectory.open(indexDirectory);
+        try
+        {
+            List<IndexCommit> commits = new ArrayList<IndexCommit>(IndexReader.listCommits(disk));
+            Collections.sort(commits);
+            return commits.get(commits.size() - 1);
+        }
+        finally
+        {
+            disk.close();
+        }
+    }
+
+    /**
+     * Counts documents of index on disk.
+     */
+    private int countDocuments() throws IOException
+    {
+        IndexReader reader = IndexReader.open(FSDirectory.open(indexDirectory));
+        try
+        {
+            return reader.numDocs();
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    private Document newDocument(String id)
+    {
+        Document document = new Document();
+        document.add(new Field(DocumentIndexer.ENTITY_ID_FIELD, id, Field.Store.YES, Field.Index.ANALYZED));
+        document.add(new Field(DocumentIndexer.KUNDERA_ID_FIELD, id, Field.Store.YES,
+                Field.Index.NOT_ANALYZED_NO_NORMS));
+        return document;
+    }
+
+    private static byte[] read(File file) throws IOException
+    {
+        byte[] bytes = new byte[(int) file.length()];
+        FileInputStream in = new FileInputStream(file);
+        try
+        {
+            int offset = 0;
+            while (offset < bytes.length)
+            {
+                offset += in.read(bytes, offset, bytes.length - offset);
+            }
+        }
+        finally
+        {
+            in.close();
+        }
+        return bytes;
+    }
+
+    private static void write(File file, byte[] bytes) throws IOException
+    {
+        FileOutputStream out = new FileOutputStream(file);
+        try
+        {
+            out.write(bytes);
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    private static void delete(File file)
+    {
+        File[] files = file.listFiles();
+        if (files != null)
+        {
+            for (File f : files)
+            {
+                delete(f);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,121 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.index;
+
+import junit.framework.Assert;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Version;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test case for {@link IndexReaderManager}, sharing a near-real-time reader
+ * between searches.
+ */
+public class IndexReaderManagerTest
+{
+
+    private RAMDirectory index;
+
+    private IndexWriter writer;
+
+    private IndexReaderManager readerManager;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        index = new RAMDirectory();
+        writer = new IndexWriter(index, new IndexWriterConfig(Version.LUCENE_34, new StandardAnalyzer(
+                Version.LUCENE_34)));
+        readerManager = new IndexReaderManager(writer);
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        writer.close();
+        index.close();
+    }
+
+    /**
+     * Reopened reader sees writes not committed yet, reader replaced is
+     * closed once last search holding it releases it.
+     */
+    @Test
+    public void testReopen() throws Exception
+    {
+        IndexReader first = readerManager.acquire();
+        Assert.assertEquals(0, first.numDocs());
+        Assert.assertFalse(readerManager.maybeReopen());
+
+        writer.addDocument(newDocument("1"));
+        Assert.assertTrue(readerManager.maybeReopen());
+
+        IndexReader second = readerManager.acquire();
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals(1, second.numDocs());
+
+        // still open for search holding it.
+        Assert.assertEquals(0, first.numDocs());
+        Assert.assertEquals(1, first.getRefCount());
+        readerManager.release(first);
+        Assert.assertEquals(0, first.getRefCount());
+
+        Assert.assertFalse(readerManager.maybeReopen());
+        Assert.assertSame(second, readerManager.acquire());
+        readerManager.release(second);
+        readerManager.release(second);
+        Assert.assertEquals(1, second.getRefCount());
+    }
+
+    /**
+     * Closed manager closes its reader and hands out no more.
+     */
+    @Test
+    public void testClose() throws Exception
+    {
+        IndexReader reader = readerManager.acquire();
+        readerManager.close();
+        Assert.assertEquals(1, reader.getRefCount());
+        readerManager.release(reader);
+        Assert.assertEquals(0, reader.getRefCount());
+
+        try
+        {
+            readerManager.acquire();
+            Assert.fail("Should have thrown IllegalStateException");
+        }
+        catch (IllegalStateException e)
+        {
+            // expected.
+        }
+    }
+
+    private Document newDocument(String id)
+    {
+        Document document = new Document();
+        document.add(new Field(DocumentIndexer.ENTITY_ID_FIELD, id, Field.Store.YES, Field.Index.NOT_ANALYZED));
+        return document;
+    }
+}
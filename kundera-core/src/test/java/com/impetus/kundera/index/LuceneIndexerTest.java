@@ -0,0 +1,253 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.Version;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.impetus.kundera.PersistenceProperties;
+import com.impetus.kundera.entity.PersonnelDTO;
+import com.impetus.kundera.metadata.model.EntityMetadata;
+import com.impetus.kundera.metadata.model.KunderaMetadata;
+
+/**
+ * Test case for {@link LuceneIndexer}, on an index home dir of its own.
+ */
+public class LuceneIndexerTest
+{
+
+    private File indexHome;
+
+    private LuceneIndexer indexer;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        LuceneIndexer.shutdown();
+        indexHome = File.createTempFile("kundera-index", "");
+        indexHome.delete();
+        indexHome.mkdirs();
+
+        Properties properties = new Properties();
+        properties.setProperty(PersistenceProperties.KUNDERA_INDEX_PARTITION, LuceneIndexer.PARTITION_ENTITY);
+        properties.setProperty(PersistenceProperties.KUNDERA_INDEX_PARTITION_SHARDS, "2");
+        properties.setProperty(PersistenceProperties.KUNDERA_INDEX_COMMIT_INTERVAL, "0");
+        indexer = LuceneIndexer.getInstance(new StandardAnalyzer(Version.LUCENE_34), indexHome.getPath(),
+                properties);
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        LuceneIndexer.shutdown();
+        delete(indexHome);
+        KunderaMetadata.INSTANCE.setApplicationMetadata(null);
+    }
+
+    @Test
+    public void testSearchChildrenOfSeveralParents()
+    {
+        indexChild(Child.class, "c1", "p1");
+        indexChild(Child.class, "c2", "p1");
+        indexChild(Child.class, "c3", "p2");
+        indexChild(Child.class, "c4", "p3");
+        indexChild(OtherChild.class, "o1", "p1");
+
+        Map<String, Set<String>> children = indexer.searchChildren(Parent.class, Arrays.asList("p1", "p2", "p4"),
+                Child.class);
+
+        Assert.assertEquals(2, children.size());
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("c1", "c2")), children.get("p1"));
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("c3")), children.get("p2"));
+    }
+
+    @Test
+    public void testSearchChildrenOfMoreParentsThanClausesOfQuery()
+    {
+        for (int i = 0; i < 5; i++)
+        {
+            indexChild(Child.class, "c" + i, "p" + i);
+        }
+
+        int maxClauseCount = BooleanQuery.getMaxClauseCount();
+        BooleanQuery.setMaxClauseCount(2);
+        try
+        {
+            Map<String, Set<String>> children = indexer.searchChildren(Parent.class,
+                    Arrays.asList("p0", "p1", "p2", "p3", "p4"), Child.class);
+
+            Assert.assertEquals(5, children.size());
+            for (int i = 0; i < 5; i++)
+            {
+                Assert.assertEquals(new HashSet<String>(Arrays.asList("c" + i)), children.get("p" + i));
+            }
+        }
+        finally
+        {
+            BooleanQuery.setMaxClauseCount(maxClauseCount);
+        }
+    }
+
+    /**
+     * Documents go to partition of their entity class and shard of their id,
+     * searches of an entity class only search its partitions.
+     */
+    @Test
+    public void testPartitionRouting()
+    {
+        int[] expected = new int[2];
+        for (int i = 0; i < 10; i++)
+        {
+            indexChild(Child.class, "c" + i, "p1");
+            expected[(("c" + i).hashCode() & 0x7fffffff) % 2]++;
+        }
+        indexChild(OtherChild.class, "o1", "p1");
+
+        String child = Child.class.getCanonicalName().toLowerCase();
+        String otherChild = OtherChild.class.getCanonicalName().toLowerCase();
+        Map<String, IndexPartitionStatistics> statistics = indexer.getPartitionStatistics();
+        for (int shard = 0; shard < 2; shard++)
+        {
+            IndexPartitionStatistics partition = statistics.get(child + "-" + shard);
+            Assert.assertEquals(expected[shard], partition != null ? partition.getDocumentCount() : 0);
+        }
+        int otherChildren = 0;
+        for (int shard = 0; shard < 2; shard++)
+        {
+            IndexPartitionStatistics partition = statistics.get(otherChild + "-" + shard);
+            otherChildren += partition != null ? partition.getDocumentCount() : 0;
+        }
+        Assert.assertEquals(1, otherChildren);
+        Assert.assertEquals(3, statistics.size());
+
+        BooleanQuery query = new BooleanQuery();
+        query.add(new TermQuery(new Term(DocumentIndexer.ENTITY_CLASS_FIELD, child)), BooleanClause.Occur.MUST);
+        Assert.assertEquals(10, indexer.search(query, 0, 100, false).size());
+
+        for (IndexPartitionStatistics partition : indexer.getPartitionStatistics().values())
+        {
+            Assert.assertEquals(partition.getName(), partition.getName().startsWith(child + "-") ? 1 : 0,
+                    partition.getSearchCount());
+        }
+    }
+
+    /**
+     * An entity indexed again is replaced, in a batch or not, and removed
+     * ones are deleted.
+     */
+    @Test
+    public void testUpdateDocument()
+    {
+        EntityMetadata m = IndexManagerTest.newPersonnelMetadata();
+        IndexManager indexManager = new IndexManager(indexer);
+
+        indexManager.beginBatch();
+        indexManager.write(m, new PersonnelDTO("1", "Amresh", "Singh"));
+        indexManager.write(m, new PersonnelDTO("1", "Vivek", "Mishra"));
+        indexManager.write(m, new PersonnelDTO("2", "Kuldeep", "Mishra"));
+        indexManager.endBatch();
+        Assert.assertEquals(2, countDocuments(PersonnelDTO.class));
+
+        indexManager.beginBatch();
+        indexManager.write(m, new PersonnelDTO("1", "Amresh", "Singh"));
+        indexManager.remove(m, null, "2");
+        indexManager.endBatch();
+        Assert.assertEquals(1, countDocuments(PersonnelDTO.class));
+
+        indexManager.write(m, new PersonnelDTO("1", "Vivek", "Mishra"));
+        Assert.assertEquals(1, countDocuments(PersonnelDTO.class));
+    }
+
+    /**
+     * Counts documents in partitions of given entity class.
+     */
+    private int countDocuments(Class<?> entityClass)
+    {
+        int count = 0;
+        String prefix = entityClass.getCanonicalName().toLowerCase() + "-";
+        for (IndexPartitionStatistics partition : indexer.getPartitionStatistics().values())
+        {
+            if (partition.getName().startsWith(prefix))
+            {
+                count += partition.getDocumentCount();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Indexes document of child entity held by given parent, as
+     * {@link DocumentIndexer} does.
+     */
+    private void indexChild(Class<?> childClass, String id, String parentId)
+    {
+        Document document = new Document();
+        document.add(new Field(DocumentIndexer.ENTITY_ID_FIELD, id, Field.Store.YES, Field.Index.ANALYZED));
+        document.add(new Field(DocumentIndexer.KUNDERA_ID_FIELD, childClass.getName() + "~" + id, Field.Store.YES,
+                Field.Index.NOT_ANALYZED_NO_NORMS));
+        document.add(new Field(DocumentIndexer.ENTITY_CLASS_FIELD, childClass.getCanonicalName().toLowerCase(),
+                Field.Store.YES, Field.Index.ANALYZED));
+        document.add(new Field(DocumentIndexer.PARENT_ID_FIELD, parentId, Field.Store.YES,
+                Field.Index.ANALYZED_NO_NORMS));
+        document.add(new Field(DocumentIndexer.PARENT_ID_CLASS, Parent.class.getCanonicalName().toLowerCase(),
+                Field.Store.YES, Field.Index.ANALYZED));
+        indexer.indexDocument(new EntityMetadata(childClass), document);
+    }
+
+    private static void delete(File file) throws IOException
+    {
+        File[] files = file.listFiles();
+        if (files != null)
+        {
+            for (File f : files)
+            {
+                delete(f);
+            }
+        }
+        file.delete();
+    }
+
+    private static class Parent
+    {
+    }
+
+    private static class Child
+    {
+    }
+
+    private static class OtherChild
+    {
+    }
+}
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.index;
+
+import java.util.Calendar;
+import java.util.Date;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Test case for numeric conversions of {@link LuceneQueryUtils}.
+ */
+public class LuceneQueryUtilsTest
+{
+
+    @Test
+    public void testPropertyValuesIndexedAsNumbers()
+    {
+        Assert.assertEquals(Integer.valueOf(7), LuceneQueryUtils.toNumber(Integer.valueOf(7)));
+        Assert.assertEquals(Integer.valueOf(7), LuceneQueryUtils.toNumber(Short.valueOf((short) 7)));
+        Assert.assertEquals(Integer.valueOf(7), LuceneQueryUtils.toNumber(Byte.valueOf((byte) 7)));
+        Assert.assertEquals(Long.valueOf(7), LuceneQueryUtils.toNumber(Long.valueOf(7)));
+        Assert.assertEquals(Float.valueOf(1.5f), LuceneQueryUtils.toNumber(Float.valueOf(1.5f)));
+        Assert.assertEquals(Double.valueOf(1.5), LuceneQueryUtils.toNumber(Double.valueOf(1.5)));
+        Assert.assertEquals(Long.valueOf(1000), LuceneQueryUtils.toNumber(new Date(1000)));
+
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(2000);
+        Assert.assertEquals(Long.valueOf(2000), LuceneQueryUtils.toNumber(calendar));
+
+        Assert.assertNull(LuceneQueryUtils.toNumber("7"));
+        Assert.assertNull(LuceneQueryUtils.toNumber(null));
+    }
+
+    @Test
+    public void testQueryValuesConvertedToTypeOfProperty()
+    {
+        Assert.assertEquals(Integer.valueOf(25), LuceneQueryUtils.toNumber("25", int.class));
+        Assert.assertEquals(Integer.valueOf(25), LuceneQueryUtils.toNumber("'25'", Short.class));
+        Assert.assertEquals(Long.valueOf(25), LuceneQueryUtils.toNumber(" 25 ", long.class));
+        Assert.assertEquals(Long.valueOf(25), LuceneQueryUtils.toNumber(Integer.valueOf(25), Long.class));
+        Assert.assertEquals(Long.valueOf(1000), LuceneQueryUtils.toNumber(new Date(1000), java.sql.Date.class));
+        Assert.assertEquals(Float.valueOf(2.5f), LuceneQueryUtils.toNumber("2.5", float.class));
+        Assert.assertEquals(Double.valueOf(2.5), LuceneQueryUtils.toNumber(Float.valueOf(2.5f), double.class));
+    }
+
+    @Test
+    public void testQueryValuesNotConvertible()
+    {
+        Assert.assertNull(LuceneQueryUtils.toNumber("2.5", int.class));
+        Assert.assertNull(LuceneQueryUtils.toNumber("abc", long.class));
+        Assert.assertNull(LuceneQueryUtils.toNumber(Long.valueOf(25), int.class));
+        Assert.assertNull(LuceneQueryUtils.toNumber("25", String.class));
+        Assert.assertNull(LuceneQueryUtils.toNumber(Integer.valueOf(25), String.class));
+    }
+
+    @Test
+    public void testUnquote()
+    {
+        Assert.assertEquals("vivek", LuceneQueryUtils.unquote("'vivek'"));
+        Assert.assertEquals("vivek", LuceneQueryUtils.unquote("\"vivek\""));
+        Assert.assertEquals("vivek", LuceneQueryUtils.unquote(" vivek "));
+        Assert.assertEquals("'vivek", LuceneQueryUtils.unquote("'vivek"));
+        Assert.assertEquals("'", LuceneQueryUtils.unquote("'"));
+    }
+}
@@ -107,11 +107,35 @@ public class EntityManagerSessionTest extends TestCase
         assertNotNull(ems);
         assertEquals(1, ems.getL2Cache().size());
 
-        // Clear session
+        // Clear session, L2 is shared and left as is
         ems.clear();
         assertNotNull(ems);
+        assertEquals(1, ems.getL2Cache().size());
+
+        ems.getL2Cache().evictAll();
         assertEquals(0, ems.getL2Cache().size());
 
     }
 
+    /**
+     * Test second level cache only read and write, and eviction of an entity
+     * class.
+     */
+    public void testL2()
+    {
+        ems.storeInL2(PersonnelDTO.class, person1.getPersonId(), person1);
+        ems.storeInL2(PersonnelDTO.class, person2.getPersonId(), person2);
+        ems.getL2Cache().put(Object.class, "1", person1);
+        assertEquals(3, ems.getL2Cache().size());
+
+        // Not in L1
+        assertSame(person1, ems.lookupInL2(PersonnelDTO.class, person1.getPersonId()));
+        assertNull(ems.lookupInL2(PersonnelDTO.class, "3"));
+
+        ems.removeAll(PersonnelDTO.class);
+        assertNull(ems.lookupInL2(PersonnelDTO.class, person1.getPersonId()));
+        assertNull(ems.lookupInL2(PersonnelDTO.class, person2.getPersonId()));
+        assertEquals(1, ems.getL2Cache().size());
+    }
+
 }
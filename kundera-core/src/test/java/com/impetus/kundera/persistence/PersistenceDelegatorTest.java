@@ -0,0 +1,305 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.persistence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.impetus.kundera.PersistenceProperties;
+import com.impetus.kundera.cache.Cache;
+import com.impetus.kundera.cache.NonOperationalCache;
+import com.impetus.kundera.cache.ehcache.CoreTestClient;
+import com.impetus.kundera.cache.ehcache.CoreTestClientFactory;
+import com.impetus.kundera.client.Client;
+import com.impetus.kundera.client.ClientResolver;
+import com.impetus.kundera.entity.PersonnelDTO;
+import com.impetus.kundera.graph.BillingCounter;
+import com.impetus.kundera.graph.Node;
+import com.impetus.kundera.graph.Store;
+import com.impetus.kundera.graph.TrackedCounter;
+import com.impetus.kundera.metadata.KunderaMetadataManager;
+import com.impetus.kundera.metadata.model.ApplicationMetadata;
+import com.impetus.kundera.metadata.model.EntityMetadata;
+import com.impetus.kundera.metadata.model.KunderaMetadata;
+import com.impetus.kundera.metadata.model.MetamodelImpl;
+import com.impetus.kundera.metadata.model.PersistenceUnitMetadata;
+import com.impetus.kundera.metadata.processor.TableProcessor;
+import com.impetus.kundera.persistence.api.Batcher;
+import com.impetus.kundera.persistence.context.PersistenceCache;
+import com.impetus.kundera.persistence.context.WriteBehindQueue;
+import com.impetus.kundera.persistence.context.WriteBehindStatistics;
+
+/**
+ * Test case for {@link PersistenceDelegator}, flushing nodes of several
+ * clients.
+ */
+public class PersistenceDelegatorTest
+{
+    private static final String PU = "kunderatest";
+
+    private ExecutorService flushExecutor;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        flushExecutor = Executors.newFixedThreadPool(2);
+
+        KunderaMetadata.INSTANCE.setApplicationMetadata(null);
+        ApplicationMetadata appMetadata = KunderaMetadata.INSTANCE.getApplicationMetadata();
+        PersistenceUnitMetadata puMetadata = new PersistenceUnitMetadata();
+        puMetadata.setPersistenceUnitName(PU);
+        Properties p = new Properties();
+        p.put(PersistenceProperties.KUNDERA_CLIENT_FACTORY, CoreTestClientFactory.class.getName());
+        puMetadata.setProperties(p);
+        Map<String, PersistenceUnitMetadata> metadata = new HashMap<String, PersistenceUnitMetadata>();
+        metadata.put(PU, puMetadata);
+        appMetadata.addPersistenceUnitMetadata(metadata);
+
+        Map<String, List<String>> clazzToPu = new HashMap<String, List<String>>();
+        List<String> pus = new ArrayList<String>();
+        pus.add(PU);
+        clazzToPu.put(PersonnelDTO.class.getName(), pus);
+        clazzToPu.put(BillingCounter.class.getName(), pus);
+        clazzToPu.put(Store.class.getName(), pus);
+        clazzToPu.put(TrackedCounter.class.getName(), pus);
+        appMetadata.setClazzToPuMap(clazzToPu);
+
+        MetamodelImpl metaModel = new MetamodelImpl();
+        TableProcessor processor = new TableProcessor();
+        for (Class<?> clazz : new Class<?>[] { PersonnelDTO.class, BillingCounter.class, Store.class,
+                TrackedCounter.class })
+        {
+            EntityMetadata m = new EntityMetadata(clazz);
+            processor.process(clazz, m);
+            m.setPersistenceUnit(PU);
+            metaModel.addEntityMetadata(clazz, m);
+        }
+        metaModel.assignManagedTypes(appMetadata.getMetaModelBuilder(PU).getManagedTypes());
+        metaModel.assignEmbeddables(appMetadata.getMetaModelBuilder(PU).getEmbeddables());
+        metaModel.assignMappedSuperClass(appMetadata.getMetaModelBuilder(PU).getMappedSuperClassTypes());
+        appMetadata.getMetamodelMap().put(PU, metaModel);
+
+        ClientResolver.getClientFactory(PU);
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        flushExecutor.shutdownNow();
+        KunderaMetadata.INSTANCE.setApplicationMetadata(null);
+    }
+
+    /**
+     * Nodes of different clients are written in parallel by flush threads,
+     * nodes to batch are handed over in caller thread.
+     */
+    @Test
+    public void testFlushInParallel()
+    {
+        // each write waits for the other one.
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        final WaitingClient personClient = new WaitingClient(barrier);
+        final WaitingClient counterClient = new WaitingClient(barrier);
+        final BatchingClient storeClient = new BatchingClient();
+
+        PersistenceDelegator delegator = new PersistenceDelegator(new EntityManagerSession(null),
+                new PersistenceCache())
+        {
+            @Override
+            public Client getClient(EntityMetadata m)
+            {
+                if (m.getEntityClazz().equals(PersonnelDTO.class))
+                {
+                    return personClient;
+                }
+                return m.getEntityClazz().equals(BillingCounter.class) ? counterClient : storeClient;
+            }
+        };
+        delegator.loadClient(PU);
+        delegator.setFlushExecutor(flushExecutor);
+
+        delegator.begin();
+        delegator.persist(new PersonnelDTO("1", "Amresh", "Singh"));
+        delegator.persist(new BillingCounter(1, "A"));
+        delegator.persist(new Store(1, "Store 1"));
+        delegator.commit();
+
+        Assert.assertEquals(1, personClient.written.size());
+        Assert.assertEquals(1, counterClient.written.size());
+        Assert.assertNotSame(Thread.currentThread(), personClient.written.get(0));
+        Assert.assertNotSame(Thread.currentThread(), counterClient.written.get(0));
+        Assert.assertEquals(1, storeClient.batched.size());
+        Assert.assertSame(Thread.currentThread(), storeClient.batched.get(0));
+    }
+
+    /**
+     * Written entity is evicted from second level cache once written, not
+     * before.
+     */
+    @Test
+    public void testEvictFromL2AfterWrite()
+    {
+        KunderaMetadataManager.getEntityMetadata(PersonnelDTO.class).setCacheable(true);
+
+        final List<String> events = new ArrayList<String>();
+        final Client client = new CoreTestClient()
+        {
+            @Override
+            public void persist(Node node)
+            {
+                events.add("write " + node.getEntityId());
+            }
+        };
+        Cache l2Cache = new NonOperationalCache()
+        {
+            @Override
+            public void evict(Class paramClass, Object paramObject)
+            {
+                events.add("evict " + paramObject);
+            }
+        };
+
+        PersistenceDelegator delegator = new PersistenceDelegator(new EntityManagerSession(l2Cache),
+                new PersistenceCache())
+        {
+            @Override
+            public Client getClient(EntityMetadata m)
+            {
+                return client;
+            }
+        };
+        delegator.loadClient(PU);
+
+        delegator.persist(new PersonnelDTO("1", "Amresh", "Singh"));
+
+        Assert.assertEquals(Arrays.asList("write 1", "evict 1"), events);
+    }
+
+    /**
+     * Entities tracking their own changes are written at once instead of
+     * being queued for write behind, as their node holds managed instance.
+     */
+    @Test
+    public void testTrackedEntityNotWrittenBehind()
+    {
+        final List<Object> written = new ArrayList<Object>();
+        final Client client = new CoreTestClient()
+        {
+            @Override
+            public void persist(Node node)
+            {
+                written.add(node.getEntityId());
+            }
+        };
+        final List<Object> queued = new ArrayList<Object>();
+        WriteBehindQueue queue = new WriteBehindQueue(100, 100, 60000, null, null, new WriteBehindStatistics())
+        {
+            @Override
+            public void add(Node node)
+            {
+                queued.add(node.getEntityId());
+            }
+        };
+
+        PersistenceDelegator delegator = new PersistenceDelegator(new EntityManagerSession(null),
+                new PersistenceCache())
+        {
+            @Override
+            public Client getClient(EntityMetadata m)
+            {
+                return client;
+            }
+        };
+        delegator.loadClient(PU);
+        delegator.setWriteBehindQueue(queue);
+
+        delegator.persist(new PersonnelDTO("1", "Amresh", "Singh"));
+        delegator.persist(new TrackedCounter(2, "A"));
+
+        Assert.assertEquals(Arrays.<Object> asList("1"), queued);
+        Assert.assertEquals(Arrays.<Object> asList(2), written);
+    }
+
+    /**
+     * Client recording threads it writes in, once all clients sharing its
+     * barrier write.
+     */
+    private static class WaitingClient extends CoreTestClient
+    {
+        private final CyclicBarrier barrier;
+
+        private final List<Thread> written = Collections.synchronizedList(new ArrayList<Thread>());
+
+        private WaitingClient(CyclicBarrier barrier)
+        {
+            this.barrier = barrier;
+        }
+
+        @Override
+        public void persist(Node node)
+        {
+            try
+            {
+                barrier.await(10, TimeUnit.SECONDS);
+            }
+            catch (Exception e)
+            {
+                throw new IllegalStateException("Writes are not parallel", e);
+            }
+            written.add(Thread.currentThread());
+        }
+    }
+
+    /**
+     * Client recording threads nodes are added to its batch in.
+     */
+    private static class BatchingClient extends CoreTestClient implements Batcher
+    {
+        private final List<Thread> batched = Collections.synchronizedList(new ArrayList<Thread>());
+
+        @Override
+        public void addBatch(Node node)
+        {
+            batched.add(Thread.currentThread());
+        }
+
+        @Override
+        public int executeBatch()
+        {
+            return 0;
+        }
+
+        @Override
+        public int getBatchSize()
+        {
+            return 100;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/**
+ * Copyright 2012 Impetus Infotech.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.impetus.kundera.persistence.batch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.impetus.kundera.graph.Node;
+import com.impetus.kundera.graph.NodeKey;
+import com.impetus.kundera.lifecycle.states.ManagedState;
+import com.impetus.kundera.persistence.api.BatchWriter;
+import com.impetus.kundera.persistence.batch.BatchStatistics.Trigger;
+import com.impetus.kundera.persistence.context.PersistenceCache;
+
+/**
+ * Test case for {@link NodeBatcher}
+ */
+public class NodeBatcherTest
+{
+    private BatchStatistics statistics;
+
+    private RecordingWriter writer;
+
+    private PersistenceCache pc;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        statistics = new BatchStatistics();
+        writer = new RecordingWriter();
+        pc = new PersistenceCache();
+    }
+
+    /**
+     * Batch is written once batch size is reached, and on flush.
+     */
+    @Test
+    public void testSize()
+    {
+        NodeBatcher<List<Object>> batcher = getBatcher(new BatchPolicy(2, 0, 0), null);
+
+        Node a = getNode("A", new Object());
+        batcher.add(a);
+        Assert.assertTrue(writer.batches.isEmpty());
+        batcher.add(getNode("B", new Object()));
+        Assert.assertEquals(1, writer.batches.size());
+        Assert.assertEquals(2, writer.batches.get(0).size());
+        Assert.assertFalse(a.isDirty());
+
+        batcher.add(getNode("C", new Object()));
+        Assert.assertEquals(1, batcher.flush());
+        Assert.assertEquals(0, batcher.flush());
+        Assert.assertEquals(2, writer.batches.size());
+
+        Assert.assertEquals(1, statistics.getTriggerCount(Trigger.SIZE));
+        Assert.assertEquals(1, statistics.getTriggerCount(Trigger.FLUSH));
+        Assert.assertEquals(2, statistics.getBatchSizes().getCount());
+        Assert.assertEquals(2, statistics.getBatchSizes().getMax());
+    }
+
+    /**
+     * Entity thresholds apply to nodes of entity, bytes threshold included.
+     */
+    @Test
+    public void testEntityPolicy()
+    {
+        Map<Class<?>, BatchPolicy> entityPolicies = new HashMap<Class<?>, BatchPolicy>();
+        entityPolicies.put(String.class, new BatchPolicy(100, 10, 0));
+        NodeBatcher<List<Object>> batcher = getBatcher(new BatchPolicy(100, 0, 0), entityPolicies);
+
+        batcher.add(getNode("A", new Object()));
+        batcher.add(getNode("B", "12345"));
+        Assert.assertTrue(writer.batches.isEmpty());
+        batcher.add(getNode("C", "67890"));
+        Assert.assertEquals(1, writer.batches.size());
+        Assert.assertEquals(3, writer.batches.get(0).size());
+        Assert.assertEquals(1, statistics.getTriggerCount(Trigger.BYTES));
+        Assert.assertEquals(0, batcher.size());
+    }
+
+    /**
+     * Batch older than linger time is written when next node is added.
+     */
+    @Test
+    public void testLinger() throws Exception
+    {
+        NodeBatcher<List<Object>> batcher = getBatcher(new BatchPolicy(100, 0, 1), null);
+
+        batcher.add(getNode("A", new Object()));
+        Thread.sleep(5);
+        batcher.add(getNode("B", new Object()));
+        Assert.assertEquals(1, writer.batches.size());
+        Assert.assertEquals(1, statistics.getTriggerCount(Trigger.LINGER));
+    }
+
+    /**
+     * Failed batch is discarded and counted.
+     */
+    @Test
+    public void testFailure()
+    {
+        NodeBatcher<List<Object>> batcher = getBatcher(new BatchPolicy(100, 0, 0), null);
+        writer.fail = true;
+        batcher.add(getNode("A", new Object()));
+        try
+        {
+            batcher.flush();
+            Assert.fail("Should have thrown RuntimeException");
+        }
+        catch (RuntimeException e)
+        {
+            Assert.assertEquals(1, statistics.getFailedCount());
+        }
+        Assert.assertEquals(0, batcher.size());
+    }
+
+    @Test
+    public void testHistogram()
+    {
+        Histogram histogram = new Histogram();
+        Assert.assertEquals(0, histogram.getPercentile(99));
+        for (int i = 1; i <= 100; i++)
+        {
+            histogram.record(i);
+        }
+        Assert.assertEquals(100, histogram.getCount());
+        Assert.assertEquals(100, histogram.getMax());
+        Assert.assertEquals(50.5, histogram.getMean(), 0.001);
+        Assert.assertEquals(63, histogram.getPercentile(50));
+        Assert.assertEquals(100, histogram.getPercentile(99));
+        Assert.assertEquals(1, histogram.getBuckets()[1]);
+        Assert.assertEquals(2, histogram.getBuckets()[2]);
+    }
+
+    private NodeBatcher<List<Object>> getBatcher(BatchPolicy policy, Map<Class<?>, BatchPolicy> entityPolicies)
+    {
+        return new NodeBatcher<List<Object>>(policy, entityPolicies != null ? entityPolicies
+                : new HashMap<Class<?>, BatchPolicy>(), statistics, writer);
+    }
+
+    private Node getNode(String id, Object data)
+    {
+        Node node = new Node(new NodeKey(data.getClass(), id), data, new ManagedState(), pc, id);
+        node.setDirty(true);
+        return node;
+    }
+
+    /**
+     * Writer recording ids of batched entities, data strings count as their
+     * length in bytes.
+     */
+    private static class RecordingWriter implements BatchWriter<List<Object>>
+    {
+        private List<List<Object>> batches = new ArrayList<List<Object>>();
+
+        private boolean fail;
+
+        @Override
+        public List<Object> newBatch()
+        {
+            return new ArrayList<Object>();
+        }
+
+        @Override
+        public long encode(List<Object> batch, Node node)
+        {
+            batch.add(node.getEntityId());
+            return node.getData() instanceof String ? ((String) node.getData()).length() : 0;
+        }
+
+        @Override
+        public void execute(List<Object> batch)
+        {
+            if (fail)
+            {
+                throw new RuntimeException("Write failed");
+            }
+            batches.add(batch);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright 2012 Impetus Infotech.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.impetus.kundera.persistence.context;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.impetus.kundera.KunderaException;
+import com.impetus.kundera.cache.ehcache.CoreTestClient;
+import com.impetus.kundera.client.Client;
+import com.impetus.kundera.graph.Node;
+import com.impetus.kundera.graph.NodeKey;
+import com.impetus.kundera.graph.NodeLink;
+import com.impetus.kundera.lifecycle.states.ManagedState;
+
+/**
+ * Test case for {@link FlushGraph}
+ */
+public class FlushGraphTest
+{
+    private ExecutorService executor;
+
+    private PersistenceCache pc;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        executor = Executors.newFixedThreadPool(3);
+        pc = new PersistenceCache();
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Nodes of different clients run in parallel, nodes of same client and
+     * linked nodes in flush order.
+     */
+    @Test
+    public void testFlushOrder()
+    {
+        Client cassandra = new CoreTestClient();
+        Client mongo = new CoreTestClient();
+        Client rdbms = new CoreTestClient();
+
+        Node a1 = getNode("A1", cassandra);
+        Node a2 = getNode("A2", cassandra);
+        Node b1 = getNode("B1", mongo);
+        Node c1 = getNode("C1", rdbms);
+        Node c2 = getNode("C2", rdbms);
+
+        // C2 holds foreign key of B1.
+        NodeLink link = new NodeLink(c2.getNodeId(), b1.getNodeId());
+        c2.addChildNode(link, b1);
+        b1.addParentNode(link, c2);
+
+        FlushGraph graph = new FlushManager().buildFlushGraph(Arrays.asList(a1, b1, c1, a2, c2));
+        Assert.assertEquals(3, graph.getRoots());
+
+        final List<String> flushed = Collections.synchronizedList(new ArrayList<String>());
+        graph.flush(new FlushGraph.NodeFlusher()
+        {
+            @Override
+            public void flush(Node node)
+            {
+                flushed.add((String) node.getEntityId());
+            }
+        }, executor);
+
+        Assert.assertEquals(5, flushed.size());
+        Assert.assertTrue(flushed.indexOf("A1") < flushed.indexOf("A2"));
+        Assert.assertTrue(flushed.indexOf("C1") < flushed.indexOf("C2"));
+        Assert.assertTrue(flushed.indexOf("B1") < flushed.indexOf("C2"));
+    }
+
+    /**
+     * First failure is thrown, dependents of failed node are not flushed.
+     */
+    @Test
+    public void testFailure()
+    {
+        Client client = new CoreTestClient();
+        Node a1 = getNode("A1", client);
+        Node a2 = getNode("A2", client);
+
+        FlushGraph graph = new FlushManager().buildFlushGraph(Arrays.asList(a1, a2));
+        Assert.assertEquals(1, graph.getRoots());
+
+        final List<String> flushed = Collections.synchronizedList(new ArrayList<String>());
+        try
+        {
+            graph.flush(new FlushGraph.NodeFlusher()
+            {
+                @Override
+                public void flush(Node node)
+                {
+                    flushed.add((String) node.getEntityId());
+                    throw new KunderaException("Flush failed");
+                }
+            }, executor);
+            Assert.fail("Should have thrown KunderaException");
+        }
+        catch (KunderaException e)
+        {
+            Assert.assertEquals(1, flushed.size());
+            Assert.assertEquals("A1", flushed.get(0));
+        }
+    }
+
+    private Node getNode(String id, Client client)
+    {
+        Node node = new Node(new NodeKey(Object.class, id), new Object(), new ManagedState(), pc, id);
+        node.setClient(client);
+        node.setDirty(true);
+        return node;
+    }
+}
@@ -21,6 +21,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import com.impetus.kundera.graph.Node;
+import com.impetus.kundera.graph.NodeKey;
 
 /**
  * Test case for {@link FlushStack}
@@ -57,10 +58,10 @@ public class FlushStackTest
     public void testFlushStackPush()
     {
         PersistenceCache pc = new PersistenceCache();
-        fs.push(new Node("A", new Object(), pc, "A"));
-        fs.push(new Node("B", new Object(), pc, "B"));
-        fs.push(new Node("C", new Object(), pc, "C"));
-        fs.push(new Node("D", new Object(), pc, "D"));
+        fs.push(new Node(new NodeKey(Object.class, "A"), new Object(), pc, "A"));
+        fs.push(new Node(new NodeKey(Object.class, "B"), new Object(), pc, "B"));
+        fs.push(new Node(new NodeKey(Object.class, "C"), new Object(), pc, "C"));
+        fs.push(new Node(new NodeKey(Object.class, "D"), new Object(), pc, "D"));
 
         Assert.assertEquals(4, fs.size());
     }
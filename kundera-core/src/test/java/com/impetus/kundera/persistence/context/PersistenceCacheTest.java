@@ -29,10 +29,14 @@ import org.junit.Test;
 import com.impetus.kundera.configure.PersistenceUnitConfiguration;
 import com.impetus.kundera.graph.BillingCounter;
 import com.impetus.kundera.graph.Node;
+import com.impetus.kundera.graph.NodeKey;
 import com.impetus.kundera.graph.ObjectGraph;
 import com.impetus.kundera.graph.ObjectGraphBuilder;
 import com.impetus.kundera.graph.ObjectGraphUtils;
 import com.impetus.kundera.graph.Store;
+import com.impetus.kundera.lifecycle.states.ManagedState;
+import com.impetus.kundera.lifecycle.states.NodeState;
+import com.impetus.kundera.lifecycle.states.RemovedState;
 import com.impetus.kundera.metadata.model.ApplicationMetadata;
 import com.impetus.kundera.metadata.model.EntityMetadata;
 import com.impetus.kundera.metadata.model.KunderaMetadata;
@@ -103,6 +107,56 @@ public class PersistenceCacheTest
         Assert.assertEquals(4, pc.getMainCache().size());
     }
 
+    /**
+     * Test bounded main cache evicts least recently used clean nodes only.
+     */
+    @Test
+    public void testBoundedCache()
+    {
+        PersistenceCache boundedPc = new PersistenceCache(4, 0);
+        CacheBase mainCache = boundedPc.getMainCache();
+
+        Node dirtyNode = getNode(1, new ManagedState(), boundedPc);
+        dirtyNode.setDirty(true);
+        mainCache.addNodeToCache(dirtyNode);
+        mainCache.addNodeToCache(getNode(2, new RemovedState(), boundedPc));
+        mainCache.addNodeToCache(getNode(3, new ManagedState(), boundedPc));
+        mainCache.addNodeToCache(getNode(4, new ManagedState(), boundedPc));
+        Assert.assertEquals(0, mainCache.getEvictionCount());
+
+        // 4 is least recently used clean node now.
+        Assert.assertNotNull(mainCache.getNodeFromCache(getNodeId(3)));
+        mainCache.addNodeToCache(getNode(5, new ManagedState(), boundedPc));
+
+        Assert.assertEquals(4, mainCache.size());
+        Assert.assertEquals(1, mainCache.getEvictionCount());
+        Assert.assertNull(mainCache.getNodeFromCache(getNodeId(4)));
+        Assert.assertNotNull(mainCache.getNodeFromCache(getNodeId(1)));
+        Assert.assertNotNull(mainCache.getNodeFromCache(getNodeId(2)));
+        Assert.assertNotNull(mainCache.getNodeFromCache(getNodeId(3)));
+
+        // Pending nodes are kept, even beyond bound.
+        PersistenceCache smallPc = new PersistenceCache(1, 0);
+        Node pendingNode = getNode(1, new ManagedState(), smallPc);
+        pendingNode.setDirty(true);
+        smallPc.getMainCache().addNodeToCache(pendingNode);
+        smallPc.getMainCache().addNodeToCache(getNode(2, new ManagedState(), smallPc));
+        Assert.assertEquals(2, smallPc.getMainCache().size());
+        Assert.assertEquals(0, smallPc.getMainCache().getEvictionCount());
+    }
+
+    private Node getNode(int id, NodeState state, PersistenceCache persistenceCache)
+    {
+        Node node = new Node(getNodeId(id), new BillingCounter(id, "A"), state, persistenceCache, id);
+        node.setDirty(false);
+        return node;
+    }
+
+    private NodeKey getNodeId(int id)
+    {
+        return ObjectGraphUtils.getNodeId(id, BillingCounter.class);
+    }
+
     /**
      * Gets the entity manager factory.
      * 
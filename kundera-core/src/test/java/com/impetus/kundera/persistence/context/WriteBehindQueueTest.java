@@ -0,0 +1,296 @@
+/**
+ * Copyright 2012 Impetus Infotech.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.impetus.kundera.persistence.context;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.impetus.kundera.KunderaException;
+import com.impetus.kundera.cache.ehcache.CoreTestClient;
+import com.impetus.kundera.client.Client;
+import com.impetus.kundera.graph.Node;
+import com.impetus.kundera.graph.NodeKey;
+import com.impetus.kundera.lifecycle.states.ManagedState;
+import com.impetus.kundera.lifecycle.states.NodeState;
+import com.impetus.kundera.lifecycle.states.RemovedState;
+import com.impetus.kundera.persistence.api.WriteBehindListener;
+
+/**
+ * Test case for {@link WriteBehindQueue}
+ */
+public class WriteBehindQueueTest
+{
+    /** Makes a client fail on any write. */
+    private static final Object ANY = new Object();
+
+    private ScheduledExecutorService executor;
+
+    private WriteBehindStatistics statistics;
+
+    /** Writer client of queue. */
+    private RecordingClient client;
+
+    /** Client of entity manager, set on nodes. */
+    private RecordingClient ownClient;
+
+    private PersistenceCache pc;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        statistics = new WriteBehindStatistics();
+        client = new RecordingClient();
+        ownClient = new RecordingClient();
+        ownClient.failOn = ANY;
+        pc = new PersistenceCache();
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Repeated writes of same entity are written once, on barrier.
+     */
+    @Test
+    public void testCoalesce()
+    {
+        // neither size nor latency threshold is reached within test.
+        WriteBehindQueue queue = newQueue(100, 100, null);
+
+        Node a = getNode("A", new ManagedState());
+        queue.add(a);
+        queue.add(a);
+        queue.add(getNode("B", new ManagedState()));
+        queue.add(getNode("C", new RemovedState()));
+
+        Assert.assertEquals(3, queue.size());
+        Assert.assertSame(a, queue.getNode(new NodeKey(Object.class, "A")));
+        Assert.assertTrue(client.written.isEmpty());
+
+        queue.flush();
+
+        Assert.assertEquals(0, queue.size());
+        Assert.assertNull(queue.getNode(new NodeKey(Object.class, "A")));
+        Assert.assertEquals(2, client.written.size());
+        Assert.assertEquals("A", client.written.get(0));
+        Assert.assertEquals("B", client.written.get(1));
+        Assert.assertEquals(1, client.deleted.size());
+        Assert.assertFalse(a.isDirty());
+
+        Assert.assertEquals(4, statistics.getEnqueuedCount());
+        Assert.assertEquals(1, statistics.getCoalescedCount());
+        Assert.assertEquals(3, statistics.getWrittenCount());
+        Assert.assertEquals(0, statistics.getFailedCount());
+    }
+
+    /**
+     * A node queued again is written after nodes queued meanwhile, which it
+     * may refer to.
+     */
+    @Test
+    public void testRequeueMovesToEnd()
+    {
+        WriteBehindQueue queue = newQueue(100, 100, null);
+
+        Node a = getNode("A", new ManagedState());
+        queue.add(a);
+        queue.add(getNode("B", new ManagedState()));
+        queue.add(a);
+
+        queue.flush();
+
+        Assert.assertEquals(2, client.written.size());
+        Assert.assertEquals("B", client.written.get(0));
+        Assert.assertEquals("A", client.written.get(1));
+        Assert.assertEquals(1, statistics.getCoalescedCount());
+    }
+
+    /**
+     * Caller writes queue out, once it is full.
+     */
+    @Test
+    public void testFullQueue()
+    {
+        WriteBehindQueue queue = newQueue(2, 100, null);
+        queue.add(getNode("A", new ManagedState()));
+        Assert.assertTrue(client.written.isEmpty());
+
+        queue.add(getNode("B", new ManagedState()));
+        Assert.assertEquals(0, queue.size());
+        Assert.assertEquals(2, client.written.size());
+    }
+
+    /**
+     * Failed writes are reported to listener and counted, barrier throws.
+     */
+    @Test
+    public void testFailure()
+    {
+        final List<Object> failedIds = new ArrayList<Object>();
+        WriteBehindListener listener = new WriteBehindListener()
+        {
+            @Override
+            public void onFailure(Object entity, Object id, Exception cause)
+            {
+                failedIds.add(id);
+            }
+        };
+        WriteBehindQueue queue = newQueue(100, 100, listener);
+
+        client.failOn = "B";
+        queue.add(getNode("A", new ManagedState()));
+        queue.add(getNode("B", new ManagedState()));
+
+        try
+        {
+            queue.flush();
+            Assert.fail("Should have thrown KunderaException");
+        }
+        catch (KunderaException e)
+        {
+            Assert.assertNotNull(e.getCause());
+        }
+
+        Assert.assertEquals(1, failedIds.size());
+        Assert.assertEquals("B", failedIds.get(0));
+        Assert.assertEquals(1, statistics.getWrittenCount());
+        Assert.assertEquals(1, statistics.getFailedCount());
+        Assert.assertEquals(0, queue.size());
+    }
+
+    /**
+     * Failure of a write in background is thrown by next barrier, and only
+     * once.
+     */
+    @Test
+    public void testBackgroundFailure() throws Exception
+    {
+        WriteBehindQueue queue = newQueue(100, 1, null);
+
+        client.failOn = "A";
+        queue.add(getNode("A", new ManagedState()));
+
+        for (int i = 0; i < 100 && statistics.getFailedCount() == 0; i++)
+        {
+            Thread.sleep(50);
+        }
+        Assert.assertEquals(1, statistics.getFailedCount());
+        Assert.assertEquals(0, queue.size());
+
+        try
+        {
+            queue.flush();
+            Assert.fail("Should have thrown KunderaException");
+        }
+        catch (KunderaException e)
+        {
+            Assert.assertNotNull(e.getCause());
+        }
+
+        queue.flush();
+    }
+
+    /**
+     * Writer clients are closed with queue.
+     */
+    @Test
+    public void testClose()
+    {
+        WriteBehindQueue queue = newQueue(100, 100, null);
+        queue.add(getNode("A", new ManagedState()));
+
+        queue.close();
+
+        Assert.assertEquals(1, client.written.size());
+        Assert.assertTrue(client.closed);
+        Assert.assertFalse(ownClient.closed);
+    }
+
+    /**
+     * Returns queue writing with {@link #client}, whereas nodes hold
+     * {@link #ownClient}, which fails on any write.
+     */
+    private WriteBehindQueue newQueue(int maxSize, int batchSize, WriteBehindListener listener)
+    {
+        return new WriteBehindQueue(maxSize, batchSize, 60000, executor, listener, statistics)
+        {
+            @Override
+            protected Client newClient(String persistenceUnit)
+            {
+                return client;
+            }
+        };
+    }
+
+    private Node getNode(String id, NodeState state)
+    {
+        Node node = new Node(new NodeKey(Object.class, id), new Object(), state, pc, id);
+        node.setClient(ownClient);
+        node.setDirty(true);
+        return node;
+    }
+
+    /**
+     * Client recording ids of written and deleted entities.
+     */
+    private static class RecordingClient extends CoreTestClient
+    {
+        private List<Object> written = new ArrayList<Object>();
+
+        private List<Object> deleted = new ArrayList<Object>();
+
+        private Object failOn;
+
+        private boolean closed;
+
+        @Override
+        public void persist(Node node)
+        {
+            if (failOn == ANY || node.getEntityId().equals(failOn))
+            {
+                throw new KunderaException("Write failed");
+            }
+            written.add(node.getEntityId());
+        }
+
+        @Override
+        public void delete(Object entity, Object pKey)
+        {
+            if (failOn == ANY)
+            {
+                throw new KunderaException("Delete failed");
+            }
+            deleted.add(pKey);
+        }
+
+        @Override
+        public void close()
+        {
+            closed = true;
+        }
+    }
+}
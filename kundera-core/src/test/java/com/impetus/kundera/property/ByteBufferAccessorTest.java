@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.property;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Date;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.impetus.kundera.property.accessor.BooleanAccessor;
+import com.impetus.kundera.property.accessor.ByteAccessor;
+import com.impetus.kundera.property.accessor.CharAccessor;
+import com.impetus.kundera.property.accessor.DoubleAccessor;
+import com.impetus.kundera.property.accessor.FloatAccessor;
+import com.impetus.kundera.property.accessor.IntegerAccessor;
+import com.impetus.kundera.property.accessor.LongAccessor;
+import com.impetus.kundera.property.accessor.ShortAccessor;
+import com.impetus.kundera.property.accessor.StringAccessor;
+
+/**
+ * Test case for {@link ByteBufferAccessor}s, which must encode as toBytes
+ * does.
+ */
+public class ByteBufferAccessorTest
+{
+
+    @Test
+    public void testSameBytes()
+    {
+        assertSameBytes(new LongAccessor(), Long.class, -1234567890123L);
+        assertSameBytes(new IntegerAccessor(), Integer.class, -123456);
+        assertSameBytes(new ShortAccessor(), Short.class, (short) 1234);
+        assertSameBytes(new DoubleAccessor(), Double.class, 3.25d);
+        assertSameBytes(new FloatAccessor(), Float.class, -1.5f);
+        assertSameBytes(new BooleanAccessor(), Boolean.class, true);
+        assertSameBytes(new CharAccessor(), Character.class, 'k');
+        assertSameBytes(new ByteAccessor(), Byte.class, (byte) 7);
+        assertSameBytes(new StringAccessor(), String.class, "kundera");
+        assertSameBytes(new StringAccessor(), String.class, "\u00e9t\u00e9 \u20ac \ud83d\ude00");
+        assertSameBytes(new StringAccessor(), String.class, "broken \ud83d surrogate");
+        assertSameBytes(new StringAccessor(), String.class, "");
+    }
+
+    @Test
+    public void testPrimitives()
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        LongAccessor longAccessor = new LongAccessor();
+        IntegerAccessor intAccessor = new IntegerAccessor();
+
+        longAccessor.writeLong(buffer, 42L);
+        intAccessor.writeInt(buffer, 7);
+        Assert.assertEquals(12, buffer.position());
+        Assert.assertEquals(42L, longAccessor.readLong(buffer, 0));
+        Assert.assertEquals(7, intAccessor.readInt(buffer, 8));
+        Assert.assertEquals(12, buffer.position());
+    }
+
+    /**
+     * Accessors without buffer support are copied through byte-arrays.
+     */
+    @Test
+    public void testFallback()
+    {
+        PropertyAccessor<?> accessor = PropertyAccessorFactory.getPropertyAccessor(Date.class);
+        Date date = new Date();
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        buffer.put((byte) 1);
+
+        int size = PropertyAccessorHelper.encodedSize(accessor, date);
+        PropertyAccessorHelper.writeTo(accessor, buffer, date);
+        Assert.assertEquals(1 + size, buffer.position());
+        Assert.assertEquals(date, PropertyAccessorHelper.readFrom(accessor, Date.class, buffer, 1, size));
+        Assert.assertEquals(0, PropertyAccessorHelper.encodedSize(accessor, null));
+    }
+
+    private void assertSameBytes(ByteBufferAccessor<?> accessor, Class<?> clazz, Object value)
+    {
+        byte[] expected = accessor.toBytes(value);
+        Assert.assertEquals(expected.length, accessor.encodedSize(value));
+
+        // written after a byte of other column.
+        ByteBuffer buffer = ByteBuffer.allocate(expected.length + 1);
+        buffer.put((byte) 1);
+        accessor.writeTo(buffer, value);
+        Assert.assertFalse(buffer.hasRemaining());
+        Assert.assertTrue(Arrays.equals(expected, Arrays.copyOfRange(buffer.array(), 1, buffer.capacity())));
+
+        Assert.assertEquals(accessor.fromBytes(clazz, expected), accessor.readFrom(clazz, buffer, 1, expected.length));
+        Assert.assertEquals(expected.length + 1, buffer.position());
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(expected.length);
+        accessor.writeTo(direct, value);
+        Assert.assertEquals(accessor.fromBytes(clazz, expected), accessor.readFrom(clazz, direct, 0, expected.length));
+
+        Assert.assertEquals(0, accessor.encodedSize(null));
+    }
+}
@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.property;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Test case for {@link FieldAccessor}
+ */
+public class FieldAccessorTest
+{
+
+    @Test
+    public void testObjectField() throws Exception
+    {
+        FieldAccessor accessor = new FieldAccessor(Sample.class.getDeclaredField("name"));
+        Sample sample = new Sample();
+
+        accessor.set(sample, "kundera");
+        Assert.assertEquals("kundera", sample.name);
+        Assert.assertEquals("kundera", accessor.get(sample));
+
+        try
+        {
+            accessor.set(sample, 1);
+            Assert.fail("Should have thrown PropertyAccessException");
+        }
+        catch (PropertyAccessException e)
+        {
+            Assert.assertEquals("kundera", sample.name);
+        }
+    }
+
+    @Test
+    public void testPrimitiveFields() throws Exception
+    {
+        FieldAccessor count = new FieldAccessor(Sample.class.getDeclaredField("count"));
+        FieldAccessor total = new FieldAccessor(Sample.class.getDeclaredField("total"));
+        FieldAccessor active = new FieldAccessor(Sample.class.getDeclaredField("active"));
+        Sample sample = new Sample();
+
+        count.setInt(sample, 7);
+        total.setLong(sample, 1L << 40);
+        active.setBoolean(sample, true);
+        Assert.assertEquals(7, count.getInt(sample));
+        Assert.assertEquals(1L << 40, total.getLong(sample));
+        Assert.assertTrue(active.getBoolean(sample));
+
+        // widening, as for reflection.
+        Assert.assertEquals(7L, count.getLong(sample));
+        total.setInt(sample, 3);
+        Assert.assertEquals(3L, sample.total);
+
+        // boxed access still works.
+        count.set(sample, 9);
+        Assert.assertEquals(9, count.get(sample));
+
+        try
+        {
+            count.setLong(sample, 1L);
+            Assert.fail("Should have thrown PropertyAccessException");
+        }
+        catch (PropertyAccessException e)
+        {
+            Assert.assertEquals(9, sample.count);
+        }
+    }
+
+    private static class Sample
+    {
+        private String name;
+
+        private int count;
+
+        private long total;
+
+        private boolean active;
+    }
+}
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.property;
+
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.Attribute.PersistentAttributeType;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.impetus.kundera.metadata.model.attributes.DefaultSingularAttribute;
+
+/**
+ * Test case for {@link PropertyAccessorHelper}, reading and writing attribute
+ * values as bytes.
+ */
+public class PropertyAccessorHelperTest
+{
+
+    /**
+     * Primitive attributes, read and written without boxing, hold same bytes
+     * as written by their property accessors.
+     */
+    @Test
+    public void testPrimitiveAttributes() throws Exception
+    {
+        Sample sample = new Sample();
+        sample.count = 7;
+        sample.total = 1L << 40;
+        sample.ratio = 0.25;
+        sample.weight = 1.5f;
+        sample.active = true;
+
+        assertBytes(sample, "count", new Integer(7));
+        assertBytes(sample, "total", new Long(1L << 40));
+        assertBytes(sample, "ratio", new Double(0.25));
+        assertBytes(sample, "weight", new Float(1.5f));
+        assertBytes(sample, "active", Boolean.TRUE);
+
+        Sample copy = new Sample();
+        for (String name : new String[] { "count", "total", "ratio", "weight", "active" })
+        {
+            PropertyAccessorHelper.set(copy, attribute(name), PropertyAccessorHelper.get(sample, attribute(name)));
+        }
+        Assert.assertEquals(7, copy.count);
+        Assert.assertEquals(1L << 40, copy.total);
+        Assert.assertEquals(0.25, copy.ratio);
+        Assert.assertEquals(1.5f, copy.weight);
+        Assert.assertTrue(copy.active);
+    }
+
+    private void assertBytes(Sample sample, String name, Object value) throws Exception
+    {
+        Attribute attribute = attribute(name);
+        PropertyAccessor<?> accessor = PropertyAccessorFactory.getPropertyAccessor(Sample.class
+                .getDeclaredField(name));
+        byte[] expected = accessor.toBytes(value);
+        byte[] actual = PropertyAccessorHelper.get(sample, attribute);
+        Assert.assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++)
+        {
+            Assert.assertEquals(expected[i], actual[i]);
+        }
+    }
+
+    private Attribute attribute(String name) throws Exception
+    {
+        return new DefaultSingularAttribute(name, PersistentAttributeType.BASIC, Sample.class.getDeclaredField(name),
+                null, null, false);
+    }
+
+    private static class Sample
+    {
+        private int count;
+
+        private long total;
+
+        private double ratio;
+
+        private float weight;
+
+        private boolean active;
+    }
+}
@@ -0,0 +1,314 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.property.accessor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.impetus.kundera.KunderaException;
+import com.impetus.kundera.property.ObjectSerializerFactory;
+import com.impetus.kundera.property.serializer.CompactSerializer;
+import com.impetus.kundera.property.serializer.JavaSerializer;
+
+/**
+ * Test case for {@link ObjectAccessor} with pluggable serializers.
+ */
+public class ObjectAccessorTest
+{
+    private ObjectAccessor accessor = new ObjectAccessor();
+
+    @After
+    public void tearDown()
+    {
+        ObjectSerializerFactory.release("pu1");
+        ObjectSerializerFactory.release("pu2");
+        ObjectSerializerFactory.setDefault(new JavaSerializer());
+        ObjectSerializerFactory.setCompressionThreshold(0);
+    }
+
+    @Test
+    public void testJavaSerializedByDefault()
+    {
+        Address address = newAddress();
+        byte[] bytes = accessor.toBytes(address);
+
+        Assert.assertEquals((byte) 0xAC, bytes[0]);
+        Assert.assertEquals(address, new JavaSerializer().deserialize(Object.class, bytes, 0, bytes.length));
+        Assert.assertEquals(address, accessor.fromBytes(Address.class, bytes));
+    }
+
+    @Test
+    public void testCompact()
+    {
+        Address address = newAddress();
+        byte[] javaBytes = accessor.toBytes(address);
+
+        ObjectSerializerFactory.setDefault(new CompactSerializer());
+        byte[] bytes = accessor.toBytes(address);
+        Assert.assertEquals(ObjectAccessor.MAGIC, bytes[0]);
+        Assert.assertEquals(CompactSerializer.ID, bytes[2]);
+        Assert.assertTrue(bytes.length < javaBytes.length);
+        Address read = (Address) accessor.fromBytes(Address.class, bytes);
+        Assert.assertEquals(address, read);
+        Assert.assertEquals("cached", read.cached);
+
+        // values written before are still read.
+        Assert.assertEquals(address, accessor.fromBytes(Address.class, javaBytes));
+
+        Assert.assertNull(accessor.toBytes(null));
+        Assert.assertNull(accessor.fromBytes(Address.class, null));
+    }
+
+    @Test
+    public void testCompactFallsBackToJava()
+    {
+        ObjectSerializerFactory.setDefault(new CompactSerializer());
+
+        // no no-arg constructor, unmodifiable, sorted with comparator, cyclic.
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("point", new Point(1, 2));
+        map.put("list", Collections.unmodifiableList(Arrays.asList("a", "b")));
+        TreeSet<String> sorted = new TreeSet<String>(Collections.reverseOrder());
+        sorted.addAll(Arrays.asList("a", "b", "c"));
+        map.put("sorted", sorted);
+
+        Map<?, ?> read = (Map<?, ?>) accessor.fromBytes(Map.class, accessor.toBytes(map));
+        Assert.assertEquals(map, read);
+        Assert.assertEquals("c", ((TreeSet<?>) read.get("sorted")).first());
+
+        List<Object> cyclic = new ArrayList<Object>();
+        cyclic.add("a");
+        cyclic.add(cyclic);
+        List<?> readCyclic = (List<?>) accessor.fromBytes(List.class, accessor.toBytes(cyclic));
+        Assert.assertSame(readCyclic, readCyclic.get(1));
+    }
+
+    @Test
+    public void testCompression()
+    {
+        List<String> lines = new ArrayList<String>();
+        for (int i = 0; i < 1000; i++)
+        {
+            lines.add("line " + (i % 10));
+        }
+        byte[] uncompressed = accessor.toBytes(lines);
+
+        ObjectSerializerFactory.setCompressionThreshold(256);
+        byte[] bytes = accessor.toBytes(lines);
+        Assert.assertEquals(ObjectAccessor.MAGIC, bytes[0]);
+        Assert.assertTrue(bytes.length < uncompressed.length / 2);
+        Assert.assertEquals(lines, accessor.fromBytes(List.class, bytes));
+
+        ObjectSerializerFactory.setDefault(new CompactSerializer());
+        bytes = accessor.toBytes(lines);
+        Assert.assertEquals(CompactSerializer.ID, bytes[2]);
+        Assert.assertEquals(lines, accessor.fromBytes(List.class, bytes));
+
+        // small values are not.
+        List<String> few = new ArrayList<String>(lines.subList(0, 10));
+        bytes = accessor.toBytes(few);
+        Assert.assertEquals(0, bytes[1]);
+        Assert.assertEquals(few, accessor.fromBytes(List.class, bytes));
+    }
+
+    @Test
+    public void testSerializerPerType()
+    {
+        ObjectSerializerFactory.add(Address.class, new CompactSerializer());
+        try
+        {
+            Assert.assertEquals(ObjectAccessor.MAGIC, accessor.toBytes(newAddress())[0]);
+            Assert.assertEquals((byte) 0xAC, accessor.toBytes(new Point(1, 2))[0]);
+        }
+        finally
+        {
+            ObjectSerializerFactory.add(Address.class, new JavaSerializer());
+        }
+    }
+
+    @Test
+    public void testConflictingPersistenceUnits()
+    {
+        ObjectSerializerFactory.setDefault("pu1", new CompactSerializer());
+        ObjectSerializerFactory.setDefault("pu2", new CompactSerializer());
+        ObjectSerializerFactory.setCompressionThreshold("pu1", 256);
+        try
+        {
+            ObjectSerializerFactory.setDefault("pu2", new JavaSerializer());
+            Assert.fail("Should have thrown KunderaException");
+        }
+        catch (KunderaException e)
+        {
+            Assert.assertEquals(CompactSerializer.ID, ObjectSerializerFactory.getDefault().getId());
+        }
+        try
+        {
+            ObjectSerializerFactory.setCompressionThreshold("pu2", 0);
+            Assert.fail("Should have thrown KunderaException");
+        }
+        catch (KunderaException e)
+        {
+            Assert.assertEquals(256, ObjectSerializerFactory.getCompressionThreshold());
+        }
+
+        // reconfigured once others are closed, defaults restored once all are.
+        ObjectSerializerFactory.release("pu1");
+        ObjectSerializerFactory.setDefault("pu2", new JavaSerializer());
+        ObjectSerializerFactory.setCompressionThreshold("pu2", 512);
+        Assert.assertEquals(JavaSerializer.ID, ObjectSerializerFactory.getDefault().getId());
+        ObjectSerializerFactory.release("pu2");
+        Assert.assertEquals(0, ObjectSerializerFactory.getCompressionThreshold());
+    }
+
+    private Address newAddress()
+    {
+        Address address = new Address();
+        address.street = "MG Road";
+        address.zip = 122001;
+        address.tags = new ArrayList<String>(Arrays.asList("home", null));
+        address.type = Type.HOME;
+        address.since = new Date();
+        address.price = new BigDecimal("-12.50");
+        address.id = UUID.randomUUID();
+        address.scores = new int[] { 1, -2, Integer.MAX_VALUE };
+        address.location = new Point(3, 4);
+        address.parent = new Address();
+        address.parent.street = "\u00e9t\u00e9";
+        address.parent.shadowed = 7;
+        address.parent.type = Type.OFFICE;
+        ((Place) address.parent).shadowed = "place";
+        return address;
+    }
+
+    private static enum Type
+    {
+        HOME, OFFICE
+        {
+            @Override
+            public String toString()
+            {
+                return "office";
+            }
+        }
+    }
+
+    private static class Place implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        String shadowed;
+    }
+
+    private static class Address extends Place
+    {
+        private static final long serialVersionUID = 1L;
+
+        private String street;
+
+        private int zip;
+
+        private long shadowed;
+
+        private transient String cached = "cached";
+
+        private List<String> tags;
+
+        private Type type;
+
+        private Date since;
+
+        private BigDecimal price;
+
+        private UUID id;
+
+        private int[] scores;
+
+        private Point location;
+
+        private Address parent;
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof Address))
+            {
+                return false;
+            }
+            Address other = (Address) obj;
+            return toString().equals(other.toString());
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return toString().hashCode();
+        }
+
+        @Override
+        public String toString()
+        {
+            return street + zip + shadowed + super.shadowed + tags + type + since + price + id
+                    + Arrays.toString(scores) + location + parent;
+        }
+    }
+
+    private static class Point implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int x;
+
+        private final int y;
+
+        Point(int x, int y)
+        {
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            return obj instanceof Point && ((Point) obj).x == x && ((Point) obj).y == y;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * x + y;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "(" + x + "," + y + ")";
+        }
+    }
+}
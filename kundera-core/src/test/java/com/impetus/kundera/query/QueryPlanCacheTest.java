@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.query;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.impetus.kundera.configure.PersistenceUnitConfiguration;
+import com.impetus.kundera.entity.PersonnelDTO;
+import com.impetus.kundera.metadata.model.ApplicationMetadata;
+import com.impetus.kundera.metadata.model.EntityMetadata;
+import com.impetus.kundera.metadata.model.KunderaMetadata;
+import com.impetus.kundera.metadata.model.MetamodelImpl;
+import com.impetus.kundera.metadata.processor.TableProcessor;
+import com.impetus.kundera.query.KunderaQuery.FilterClause;
+
+/**
+ * Unit test case for {@link QueryPlanCache}.
+ */
+public class QueryPlanCacheTest
+{
+    private static final String QUERY_1 = "Select p from Person p";
+
+    private static final String QUERY_2 = "Select p from Person p where p.age = :age";
+
+    private static final String QUERY_3 = "Select p from Person p where p.name = :name";
+
+    private static final String PERSONNEL_QUERY = "Select p from PersonnelDTO p where p.firstName = :firstName";
+
+    private static final String PERSISTENCE_UNIT = "kunderatest";
+
+    /**
+     * Sets up metadata of entity queried by parsed queries.
+     */
+    @Before
+    public void setUp() throws Exception
+    {
+        ApplicationMetadata appMetadata = KunderaMetadata.INSTANCE.getApplicationMetadata();
+
+        Map<String, List<String>> clazzToPu = new HashMap<String, List<String>>();
+        List<String> pus = new ArrayList<String>();
+        pus.add(PERSISTENCE_UNIT);
+        clazzToPu.put(PersonnelDTO.class.getName(), pus);
+        appMetadata.setClazzToPuMap(clazzToPu);
+
+        EntityMetadata m = new EntityMetadata(PersonnelDTO.class);
+        new TableProcessor().process(PersonnelDTO.class, m);
+        m.setPersistenceUnit(PERSISTENCE_UNIT);
+
+        MetamodelImpl metaModel = new MetamodelImpl();
+        metaModel.addEntityMetadata(PersonnelDTO.class, m);
+        metaModel.addEntityNameToClassMapping(PersonnelDTO.class.getSimpleName(), PersonnelDTO.class);
+        metaModel.assignManagedTypes(appMetadata.getMetaModelBuilder(PERSISTENCE_UNIT).getManagedTypes());
+        metaModel.assignEmbeddables(appMetadata.getMetaModelBuilder(PERSISTENCE_UNIT).getEmbeddables());
+        metaModel.assignMappedSuperClass(appMetadata.getMetaModelBuilder(PERSISTENCE_UNIT)
+                .getMappedSuperClassTypes());
+        appMetadata.getMetamodelMap().put(PERSISTENCE_UNIT, metaModel);
+
+        new PersistenceUnitConfiguration(PERSISTENCE_UNIT).configure();
+    }
+
+    /**
+     * Test hit and miss counts and that cached plan is never handed out.
+     */
+    @Test
+    public void testHitAndMiss()
+    {
+        QueryPlanCache cache = new QueryPlanCache(2);
+        Assert.assertNull(cache.getQuery(QUERY_1));
+
+        KunderaQuery plan = new KunderaQuery();
+        cache.putQuery(QUERY_1, plan);
+
+        KunderaQuery copy = cache.getQuery(QUERY_1);
+        Assert.assertNotNull(copy);
+        Assert.assertNotSame(plan, copy);
+        Assert.assertNotSame(copy, cache.getQuery(QUERY_1));
+
+        Assert.assertEquals(2, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+        Assert.assertEquals(1, cache.size());
+    }
+
+    /**
+     * Test least recently used plan is evicted once bound is reached.
+     */
+    @Test
+    public void testEviction()
+    {
+        QueryPlanCache cache = new QueryPlanCache(2);
+        cache.putQuery(QUERY_1, new KunderaQuery());
+        cache.putQuery(QUERY_2, new KunderaQuery());
+
+        // touch first one, so that second becomes eldest.
+        Assert.assertNotNull(cache.getQuery(QUERY_1));
+        cache.putQuery(QUERY_3, new KunderaQuery());
+
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(1, cache.getEvictionCount());
+        Assert.assertNotNull(cache.getQuery(QUERY_1));
+        Assert.assertNull(cache.getQuery(QUERY_2));
+        Assert.assertNotNull(cache.getQuery(QUERY_3));
+
+        cache.clear();
+        Assert.assertEquals(0, cache.size());
+    }
+
+    /**
+     * Test caching is disabled for non positive size.
+     */
+    @Test
+    public void testDisabled()
+    {
+        QueryPlanCache cache = new QueryPlanCache(0);
+        cache.putQuery(QUERY_1, new KunderaQuery());
+        Assert.assertEquals(0, cache.size());
+        Assert.assertNull(cache.getQuery(QUERY_1));
+    }
+
+    /**
+     * Test copies of a cached plan bind parameters each on its own filter
+     * clauses, leaving other copies and the template unbound.
+     */
+    @Test
+    public void testCopiesKeepParameterBindingsApart()
+    {
+        QueryPlanCache cache = new QueryPlanCache(2);
+        cache.putQuery(PERSONNEL_QUERY, QueryResolver.parse(PERSONNEL_QUERY));
+
+        KunderaQuery first = cache.getQuery(PERSONNEL_QUERY);
+        KunderaQuery second = cache.getQuery(PERSONNEL_QUERY);
+        first.setParameter("firstName", "vivek");
+        second.setParameter("firstName", "amresh");
+
+        Assert.assertEquals("vivek", first.getClauseValue(":firstName"));
+        Assert.assertEquals("amresh", second.getClauseValue(":firstName"));
+        Assert.assertEquals("vivek", ((FilterClause) first.getFilterClauseQueue().peek()).getValue());
+        Assert.assertEquals("amresh", ((FilterClause) second.getFilterClauseQueue().peek()).getValue());
+
+        Object unbound = cache.getQuery(PERSONNEL_QUERY).getClauseValue(":firstName");
+        Assert.assertFalse("vivek".equals(unbound));
+        Assert.assertFalse("amresh".equals(unbound));
+    }
+
+    /**
+     * Test compiled query is served from cache, and compiled once.
+     */
+    @Test
+    public void testCompile()
+    {
+        QueryPlanCache cache = new QueryPlanCache(2);
+        cache.compile(PERSONNEL_QUERY);
+        Assert.assertEquals(1, cache.size());
+
+        KunderaQuery copy = cache.getQuery(PERSONNEL_QUERY);
+        Assert.assertNotNull(copy);
+        Assert.assertEquals(PersonnelDTO.class, copy.getEntityClass());
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(0, cache.getMissCount());
+
+        cache.compile(PERSONNEL_QUERY);
+        Assert.assertEquals(1, cache.size());
+        Assert.assertEquals(0, cache.getEvictionCount());
+    }
+
+    /**
+     * Test cache split into segments stays within its bound.
+     */
+    @Test
+    public void testBoundOverSegments()
+    {
+        QueryPlanCache cache = new QueryPlanCache(QueryPlanCache.DEFAULT_MAX_SIZE);
+        int count = 4 * QueryPlanCache.DEFAULT_MAX_SIZE;
+        for (int i = 0; i < count; i++)
+        {
+            cache.putQuery(QUERY_1 + " where p.id = " + i, new KunderaQuery());
+        }
+
+        Assert.assertTrue(cache.size() <= QueryPlanCache.DEFAULT_MAX_SIZE);
+        Assert.assertEquals(count, cache.size() + cache.getEvictionCount());
+        Assert.assertNotNull(cache.getQuery(QUERY_1 + " where p.id = " + (count - 1)));
+    }
+}
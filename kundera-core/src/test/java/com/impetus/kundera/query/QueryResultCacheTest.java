@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.query;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Unit test case for {@link QueryResultCache}.
+ */
+public class QueryResultCacheTest
+{
+    private static final String QUERY = "Select p from Person p where p.age = :age";
+
+    private static final Set<String> TABLES = new HashSet<String>(Arrays.asList("KunderaExamples.PERSON",
+            "KunderaExamples.ADDRESS"));
+
+    /**
+     * Test whitespace is collapsed outside quoted literals only.
+     */
+    @Test
+    public void testNormalize()
+    {
+        Assert.assertEquals("Select p from Person p where p.name = 'a  b' and p.city = \"x\ty\"",
+                QueryResultCache.normalize(" Select p\n from Person p  where p.name = 'a  b'   and p.city = \"x\ty\" "));
+        Assert.assertEquals("Select p from Person p where p.name = 'it''s  a' and p.age = 1",
+                QueryResultCache.normalize("Select p from Person p where p.name = 'it''s  a'  and p.age = 1"));
+        Assert.assertFalse(QueryResultCache.normalize("Select p from Person p where p.name = 'a b'").equals(
+                QueryResultCache.normalize("Select p from Person p where p.name = 'a  b'")));
+    }
+
+    /**
+     * Test cached primary keys are returned for equal keys only.
+     */
+    @Test
+    public void testHitAndMiss()
+    {
+        QueryResultCache cache = new QueryResultCache(10);
+        String query = QueryResultCache.normalize(" Select p  from Person p\n where p.age = :age ");
+        QueryResultCache.Key key = getKey(query, 32);
+        Assert.assertNull(cache.get(key));
+
+        cache.put(key, Arrays.<Object> asList("1", "2"), TABLES, cache.getTimestamp());
+        List<Object> primaryKeys = cache.get(getKey(QUERY, 32));
+        Assert.assertEquals(Arrays.<Object> asList("1", "2"), primaryKeys);
+        Assert.assertNull(cache.get(getKey(QUERY, 33)));
+
+        QueryResultCache.Statistics statistics = cache.getStatistics(QUERY);
+        Assert.assertEquals(1, statistics.getHitCount());
+        Assert.assertEquals(2, statistics.getMissCount());
+        Assert.assertEquals(1, cache.size());
+    }
+
+    /**
+     * Test writing a table the query reads invalidates its results.
+     */
+    @Test
+    public void testInvalidation()
+    {
+        QueryResultCache cache = new QueryResultCache(10);
+        QueryResultCache.Key key = getKey(QUERY, 32);
+        cache.put(key, Arrays.<Object> asList("1"), TABLES, cache.getTimestamp());
+
+        cache.invalidate("KunderaExamples.OTHER");
+        Assert.assertNotNull(cache.get(key));
+
+        cache.invalidate("KunderaExamples.ADDRESS");
+        Assert.assertNull(cache.get(key));
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(1, cache.getStatistics(QUERY).getInvalidationCount());
+
+        // results of later queries are cached again.
+        cache.put(key, Arrays.<Object> asList("1"), TABLES, cache.getTimestamp());
+        Assert.assertNotNull(cache.get(key));
+    }
+
+    /**
+     * Test results of a query running while a table it reads was written are
+     * not cached.
+     */
+    @Test
+    public void testConcurrentWrite()
+    {
+        QueryResultCache cache = new QueryResultCache(10);
+        QueryResultCache.Key key = getKey(QUERY, 32);
+
+        long timestamp = cache.getTimestamp();
+        cache.invalidate("KunderaExamples.PERSON");
+        cache.put(key, Collections.emptyList(), TABLES, timestamp);
+        Assert.assertNull(cache.get(key));
+        Assert.assertEquals(0, cache.size());
+    }
+
+    /**
+     * Test least recently used result is evicted once bound is reached.
+     */
+    @Test
+    public void testEviction()
+    {
+        QueryResultCache cache = new QueryResultCache(2);
+        cache.put(getKey(QUERY, 1), Arrays.<Object> asList("1"), TABLES, cache.getTimestamp());
+        cache.put(getKey(QUERY, 2), Arrays.<Object> asList("2"), TABLES, cache.getTimestamp());
+        Assert.assertNotNull(cache.get(getKey(QUERY, 1)));
+
+        cache.put(getKey(QUERY, 3), Arrays.<Object> asList("3"), TABLES, cache.getTimestamp());
+        Assert.assertEquals(2, cache.size());
+        Assert.assertNotNull(cache.get(getKey(QUERY, 1)));
+        Assert.assertNull(cache.get(getKey(QUERY, 2)));
+
+        // disabled cache holds nothing.
+        QueryResultCache disabled = new QueryResultCache(0);
+        disabled.put(getKey(QUERY, 1), Arrays.<Object> asList("1"), TABLES, disabled.getTimestamp());
+        Assert.assertEquals(0, disabled.size());
+    }
+
+    private QueryResultCache.Key getKey(String query, int age)
+    {
+        Map<String, Object> parameters = Collections.<String, Object> singletonMap(":age", age);
+        return new QueryResultCache.Key(query, parameters, 100);
+    }
+}
@@ -23,6 +23,7 @@ import java.util.Properties;
 
 import junit.framework.Assert;
 
+import org.hibernate.collection.PersistentBag;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -119,6 +120,41 @@ public class ObjectUtilsCloneUnidirectionalTest
 
     }
 
+    @Test
+    public void testCopySharesRelatedEntitiesOfSameId()
+    {
+        PhotographerUni_1_M_1_M a1 = constructPhotographer(1);
+
+        // Same photo held by both albums, as one instance and as another
+        // instance of same id.
+        PhotoUni_1_M_1_M c11 = a1.getAlbums().get(0).getPhotos().get(0);
+        a1.getAlbums().get(1).addPhoto(c11);
+        a1.getAlbums().get(1).addPhoto(new PhotoUni_1_M_1_M("c1", "Photo 1", "This is Photo 1"));
+
+        PhotographerUni_1_M_1_M a2 = (PhotographerUni_1_M_1_M) ObjectUtils.deepCopy(a1);
+
+        PhotoUni_1_M_1_M copy = a2.getAlbums().get(0).getPhotos().get(0);
+        Assert.assertFalse(c11 == copy);
+        Assert.assertEquals("c1", copy.getPhotoId());
+        Assert.assertEquals(4, a2.getAlbums().get(1).getPhotos().size());
+        Assert.assertTrue(copy == a2.getAlbums().get(1).getPhotos().get(2));
+        Assert.assertTrue(copy == a2.getAlbums().get(1).getPhotos().get(3));
+    }
+
+    @Test
+    public void testCopyLeavesPersistentCollectionRelationNull()
+    {
+        PhotographerUni_1_M_1_M a1 = constructPhotographer(1);
+        a1.setAlbums(new PersistentBag());
+
+        PhotographerUni_1_M_1_M a2 = (PhotographerUni_1_M_1_M) ObjectUtils.deepCopy(a1);
+
+        Assert.assertNotNull(a2);
+        Assert.assertNull(a2.getAlbums());
+        Assert.assertEquals("Amresh", a2.getPhotographerName());
+        Assert.assertEquals(3, a2.getTweets().size());
+    }
+
     // @Test
     public void testBulkCopyUsingDeepCloner()
     {
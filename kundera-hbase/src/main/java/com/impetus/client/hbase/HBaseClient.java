@@ -20,6 +20,7 @@ import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -62,7 +63,9 @@ import com.impetus.kundera.metadata.model.MetamodelImpl;
 import com.impetus.kundera.metadata.model.PersistenceUnitMetadata;
 import com.impetus.kundera.metadata.model.attributes.AbstractAttribute;
 import com.impetus.kundera.persistence.EntityReader;
+import com.impetus.kundera.persistence.api.BatchWriter;
 import com.impetus.kundera.persistence.api.Batcher;
+import com.impetus.kundera.persistence.batch.NodeBatcher;
 import com.impetus.kundera.persistence.context.jointable.JoinTableData;
 import com.impetus.kundera.property.PropertyAccessorHelper;
 
@@ -82,9 +85,8 @@ public class HBaseClient extends ClientBase implements Client<HBaseQuery>, Batch
     /** The reader. */
     private EntityReader reader;
 
-    private List<Node> nodes = new ArrayList<Node>();
-
-    private int batchSize;
+    /** batches nodes into puts and deletes, null if batch size is not defined. */
+    private NodeBatcher<HBaseBatch> batcher;
 
     /**
      * Instantiates a new h base client.
@@ -109,8 +111,10 @@ public class HBaseClient extends ClientBase implements Client<HBaseQuery>, Batch
         this.persistenceUnit = persistenceUnit;
 
         PersistenceUnitMetadata puMetadata = KunderaMetadataManager.getPersistenceUnitMetadata(persistenceUnit);
-        batchSize = puMetadata.getBatchSize();
-
+        if (puMetadata.getBatchSize() > 0)
+        {
+            batcher = new NodeBatcher<HBaseBatch>(persistenceUnit, new HBaseBatchWriter());
+        }
     }
 
     /*
@@ -317,6 +321,63 @@ public class HBaseClient extends ClientBase implements Client<HBaseQuery>, Batch
 
     }
 
+    /**
+     * Deletes all rows matching given filter and row key range, without
+     * loading them.
+     * 
+     * @param metadata
+     *            entity metadata
+     * @param filter
+     *            filter, may be null
+     * @param startRow
+     *            start row, may be null
+     * @param endRow
+     *            end row, may be null
+     * @return number of deleted rows
+     */
+    public int deleteByQuery(EntityMetadata metadata, Filter filter, byte[] startRow, byte[] endRow)
+    {
+        try
+        {
+            return handler.deleteByQuery(metadata.getTableName(), filter, startRow, endRow);
+        }
+        catch (IOException ioex)
+        {
+            log.error("Error during delete by query, Caused by:" + ioex.getMessage());
+            throw new KunderaException(ioex);
+        }
+    }
+
+    /**
+     * Writes given column values on all rows matching given filter and row
+     * key range, without loading them.
+     * 
+     * @param metadata
+     *            entity metadata
+     * @param filter
+     *            filter, may be null
+     * @param startRow
+     *            start row, may be null
+     * @param endRow
+     *            end row, may be null
+     * @param columns
+     *            map of column name and new value
+     * @return number of updated rows
+     */
+    public int updateByQuery(EntityMetadata metadata, Filter filter, byte[] startRow, byte[] endRow,
+            Map<String, Object> columns)
+    {
+        try
+        {
+            return handler.updateByQuery(metadata.getTableName(), filter, startRow, endRow, columns);
+        }
+        catch (IOException ioex)
+        {
+            log.error("Error during update by query, Caused by:" + ioex.getMessage());
+            throw new KunderaException(ioex);
+        }
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -369,6 +430,25 @@ public class HBaseClient extends ClientBase implements Client<HBaseQuery>, Batch
         }
     }
 
+    /**
+     * Writes Puts for changed qualifiers only.
+     */
+    @Override
+    protected boolean onUpdate(EntityMetadata entityMetadata, Object entity, Object id,
+            List<Attribute> changedAttributes)
+    {
+        try
+        {
+            handler.updateData(entityMetadata.getTableName(), entityMetadata, entity, id, new HashSet<Attribute>(
+                    changedAttributes));
+        }
+        catch (IOException e)
+        {
+            throw new PersistenceException(e);
+        }
+        return true;
+    }
+
     @Override
     public void persistJoinTable(JoinTableData joinTableData)
     {
@@ -548,13 +628,10 @@ public class HBaseClient extends ClientBase implements Client<HBaseQuery>, Batch
      */
     public void addBatch(Node node)
     {
-
-        if (node != null)
+        if (batcher != null)
         {
-            nodes.add(node);
+            batcher.add(node);
         }
-
-        onBatchLimit();
     }
 
     /*
@@ -565,7 +642,7 @@ public class HBaseClient extends ClientBase implements Client<HBaseQuery>, Batch
     @Override
     public int getBatchSize()
     {
-        return batchSize;
+        return batcher != null ? batcher.getBatchSize() : 0;
     }
 
     /*
@@ -576,71 +653,7 @@ public class HBaseClient extends ClientBase implements Client<HBaseQuery>, Batch
     @Override
     public int executeBatch()
     {
-
-        Map<HTable, List<HBaseDataWrapper>> data = new HashMap<HTable, List<HBaseDataWrapper>>();
-
-        try
-        {
-            for (Node node : nodes)
-            {
-                if (node.isDirty())
-                {
-                    HTable hTable = null;
-                    Object rowKey = node.getEntityId();
-                    Object entity = node.getData();
-                    if (node.isInState(RemovedState.class))
-                    {
-                        delete(entity, rowKey);
-                    }
-                    else
-                    {
-                        EntityMetadata metadata = KunderaMetadataManager.getEntityMetadata(node.getDataClass());
-
-                        HBaseDataWrapper columnWrapper = new HBaseDataHandler.HBaseDataWrapper(rowKey,
-                                new java.util.HashSet<Attribute>(), entity, null);
-
-                        MetamodelImpl metaModel = (MetamodelImpl) KunderaMetadata.INSTANCE.getApplicationMetadata()
-                                .getMetamodel(metadata.getPersistenceUnit());
-
-                        EntityType entityType = metaModel.entity(node.getDataClass());
-
-                        List<HBaseDataWrapper> embeddableData = new ArrayList<HBaseDataHandler.HBaseDataWrapper>();
-                        // List<HBaseDataWrapper> columnWrapper = new
-                        // ArrayList<HBaseDataHandler.HBaseDataWrapper>();
-
-                        hTable = ((HBaseDataHandler) handler).gethTable(metadata.getTableName());
-                        ((HBaseDataHandler) handler).preparePersistentData(metadata.getTableName(), entity, rowKey,
-                                metaModel, entityType.getAttributes(), columnWrapper, embeddableData);
-
-                        List<HBaseDataWrapper> dataSet = null;
-                        if (data.containsKey(hTable))
-                        {
-                            dataSet = data.get(metadata.getTableName());
-                            addRecords(columnWrapper, embeddableData, dataSet);
-
-                        }
-                        else
-                        {
-                            dataSet = new ArrayList<HBaseDataHandler.HBaseDataWrapper>();
-                            addRecords(columnWrapper, embeddableData, dataSet);
-                            data.put(hTable, dataSet);
-                        }
-                    }
-                }
-            }
-
-            if (!data.isEmpty())
-            {
-                ((HBaseDataHandler) handler).batch_insert(data);
-            }
-            return data.size();
-        }
-        catch (IOException e)
-        {
-            log.error("Error while executing batch insert/update, Caused by: " + e.getMessage());
-            throw new KunderaException(e);
-        }
-
+        return batcher != null ? batcher.flush() : 0;
     }
 
     /**
@@ -665,14 +678,122 @@ public class HBaseClient extends ClientBase implements Client<HBaseQuery>, Batch
     }
 
     /**
-     * Check on batch limit.
+     * Rows to write and row keys to delete, by table name.
      */
-    private void onBatchLimit()
+    private static class HBaseBatch
     {
-        if (batchSize > 0 && batchSize == nodes.size())
+        private final Map<String, List<HBaseDataWrapper>> rows = new HashMap<String, List<HBaseDataWrapper>>();
+
+        private final Map<String, List<Object>> deletes = new HashMap<String, List<Object>>();
+    }
+
+    /**
+     * Prepares puts of batched nodes, and collects keys of deleted ones, so
+     * that each table is written with one put and one delete call.
+     */
+    private class HBaseBatchWriter implements BatchWriter<HBaseBatch>
+    {
+        @Override
+        public HBaseBatch newBatch()
+        {
+            return new HBaseBatch();
+        }
+
+        @Override
+        public long encode(HBaseBatch batch, Node node)
         {
-            executeBatch();
-            nodes.clear();
+            Object rowKey = node.getEntityId();
+            Object entity = node.getData();
+            EntityMetadata metadata = KunderaMetadataManager.getEntityMetadata(node.getDataClass());
+            String tableName = metadata.getTableName();
+
+            if (node.isInState(RemovedState.class))
+            {
+                List<Object> rowKeys = batch.deletes.get(tableName);
+                if (rowKeys == null)
+                {
+                    rowKeys = new ArrayList<Object>();
+                    batch.deletes.put(tableName, rowKeys);
+                }
+                rowKeys.add(rowKey);
+                return HBaseUtils.getBytes(rowKey).length;
+            }
+
+            HBaseDataWrapper columnWrapper = new HBaseDataHandler.HBaseDataWrapper(rowKey,
+                    new java.util.HashSet<Attribute>(), entity, null);
+
+            MetamodelImpl metaModel = (MetamodelImpl) KunderaMetadata.INSTANCE.getApplicationMetadata()
+                    .getMetamodel(metadata.getPersistenceUnit());
+
+            EntityType entityType = metaModel.entity(node.getDataClass());
+
+            List<HBaseDataWrapper> embeddableData = new ArrayList<HBaseDataHandler.HBaseDataWrapper>();
+            try
+            {
+                ((HBaseDataHandler) handler).preparePersistentData(tableName, entity, rowKey, metaModel,
+                        entityType.getAttributes(), columnWrapper, embeddableData);
+            }
+            catch (IOException e)
+            {
+                log.error("Error while preparing batch insert/update, Caused by: " + e.getMessage());
+                throw new KunderaException(e);
+            }
+
+            List<HBaseDataWrapper> dataSet = batch.rows.get(tableName);
+            if (dataSet == null)
+            {
+                dataSet = new ArrayList<HBaseDataHandler.HBaseDataWrapper>();
+                batch.rows.put(tableName, dataSet);
+            }
+            addRecords(columnWrapper, embeddableData, dataSet);
+
+            long size = estimateSize(columnWrapper);
+            for (HBaseDataWrapper embeddedWrapper : embeddableData)
+            {
+                size += estimateSize(embeddedWrapper);
+            }
+            return size;
+        }
+
+        @Override
+        public void execute(HBaseBatch batch)
+        {
+            try
+            {
+                ((HBaseDataHandler) handler).batchWrite(batch.rows, batch.deletes);
+            }
+            catch (IOException e)
+            {
+                log.error("Error while executing batch insert/update, Caused by: " + e.getMessage());
+                throw new KunderaException(e);
+            }
+        }
+
+        /**
+         * Estimates size of row key, column names and values of given row.
+         * Values other than strings and byte arrays count as 8 bytes.
+         */
+        private long estimateSize(HBaseDataWrapper wrapper)
+        {
+            long size = HBaseUtils.getBytes(wrapper.getRowKey()).length;
+            for (Attribute column : wrapper.getColumns())
+            {
+                size += column.getName().length();
+                Object value = PropertyAccessorHelper.getObject(wrapper.getEntity(), (Field) column.getJavaMember());
+                if (value instanceof String)
+                {
+                    size += ((String) value).length();
+                }
+                else if (value instanceof byte[])
+                {
+                    size += ((byte[]) value).length;
+                }
+                else if (value != null)
+                {
+                    size += 8;
+                }
+            }
+            return size;
         }
     }
 
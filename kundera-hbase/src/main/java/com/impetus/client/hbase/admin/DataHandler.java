@@ -18,7 +18,11 @@ package com.impetus.client.hbase.admin;
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import javax.persistence.metamodel.Attribute;
+
+import org.apache.hadoop.hbase.filter.Filter;
 import org.apache.hadoop.hbase.filter.FilterList;
 
 import com.impetus.kundera.db.RelationHolder;
@@ -97,6 +101,26 @@ public interface DataHandler
     void writeData(String tableName, EntityMetadata m, Object entity, Object rowId, List<RelationHolder> relations)
             throws IOException;
 
+    /**
+     * Writes given columns of an already persisted entity only. Relations are
+     * left as they are.
+     * 
+     * @param tableName
+     *            the table name
+     * @param m
+     *            the m
+     * @param entity
+     *            the entity
+     * @param rowId
+     *            the row id
+     * @param changedAttributes
+     *            attributes to write
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    void updateData(String tableName, EntityMetadata m, Object entity, Object rowId, Set<Attribute> changedAttributes)
+            throws IOException;
+
     /**
      * Writes data into Join Table.
      * 
@@ -159,4 +183,40 @@ public interface DataHandler
 
     Object[] scanRowyKeys(FilterList filterList, String tableName, String columnFamilyName, String columnName)
             throws IOException;
+
+    /**
+     * Deletes all rows matching given filter and row key range.
+     * 
+     * @param tableName
+     *            table name
+     * @param filter
+     *            filter, may be null
+     * @param startRow
+     *            start row, may be null
+     * @param endRow
+     *            end row, may be null
+     * @return number of deleted rows
+     * @throws IOException
+     */
+    int deleteByQuery(String tableName, Filter filter, byte[] startRow, byte[] endRow) throws IOException;
+
+    /**
+     * Writes given column values on all rows matching given filter and row
+     * key range.
+     * 
+     * @param tableName
+     *            table name
+     * @param filter
+     *            filter, may be null
+     * @param startRow
+     *            start row, may be null
+     * @param endRow
+     *            end row, may be null
+     * @param columns
+     *            map of column name and new value
+     * @return number of updated rows
+     * @throws IOException
+     */
+    int updateByQuery(String tableName, Filter filter, byte[] startRow, byte[] endRow, Map<String, Object> columns)
+            throws IOException;
 }
@@ -40,11 +40,18 @@ import org.apache.hadoop.hbase.HColumnDescriptor;
 import org.apache.hadoop.hbase.HTableDescriptor;
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.MasterNotRunningException;
+import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.HBaseAdmin;
 import org.apache.hadoop.hbase.client.HTable;
 import org.apache.hadoop.hbase.client.HTablePool;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.filter.Filter;
 import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.filter.KeyOnlyFilter;
 import org.apache.hadoop.hbase.util.Bytes;
 
 import com.impetus.client.hbase.HBaseData;
@@ -306,6 +313,40 @@ public class HBaseDataHandler implements DataHandler
         puthTable(hTable);
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.client.hbase.admin.DataHandler#updateData(java.lang.String,
+     * com.impetus.kundera.metadata.model.EntityMetadata, java.lang.Object,
+     * java.lang.Object, java.util.Set)
+     */
+    @Override
+    public void updateData(String tableName, EntityMetadata m, Object entity, Object rowId,
+            Set<Attribute> changedAttributes) throws IOException
+    {
+        HTable hTable = gethTable(tableName);
+
+        MetamodelImpl metaModel = (MetamodelImpl) KunderaMetadata.INSTANCE.getApplicationMetadata().getMetamodel(
+                m.getPersistenceUnit());
+
+        HBaseDataWrapper columnWrapper = new HBaseDataWrapper(rowId, new java.util.HashSet<Attribute>(), entity, null);
+        List<HBaseDataWrapper> persistentData = new ArrayList<HBaseDataHandler.HBaseDataWrapper>(
+                changedAttributes.size());
+
+        preparePersistentData(tableName, entity, rowId, metaModel, changedAttributes, columnWrapper, persistentData);
+
+        hbaseWriter.writeColumns(hTable, columnWrapper.getRowKey(), columnWrapper.getColumns(), entity);
+
+        for (HBaseDataWrapper wrapper : persistentData)
+        {
+            hbaseWriter.writeColumns(hTable, wrapper.getColumnFamily(), wrapper.getRowKey(), wrapper.getColumns(),
+                    wrapper.getEntity());
+        }
+
+        puthTable(hTable);
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -883,6 +924,155 @@ public class HBaseDataHandler implements DataHandler
         return hbaseReader.scanRowKeys(hTable, filterList, columnFamilyName, columnName);
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.client.hbase.admin.DataHandler#deleteByQuery(java.lang.String
+     * , org.apache.hadoop.hbase.filter.Filter, byte[], byte[])
+     */
+    @Override
+    public int deleteByQuery(String tableName, Filter filter, byte[] startRow, byte[] endRow) throws IOException
+    {
+        HTable hTable = gethTable(tableName);
+        try
+        {
+            List<byte[]> rowKeys = scanRowKeys(hTable, filter, startRow, endRow);
+            List<Delete> deletes = new ArrayList<Delete>(rowKeys.size());
+            for (byte[] rowKey : rowKeys)
+            {
+                deletes.add(new Delete(rowKey));
+            }
+            if (!deletes.isEmpty())
+            {
+                hTable.delete(deletes);
+            }
+            return rowKeys.size();
+        }
+        finally
+        {
+            puthTable(hTable);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.client.hbase.admin.DataHandler#updateByQuery(java.lang.String
+     * , org.apache.hadoop.hbase.filter.Filter, byte[], byte[], java.util.Map)
+     */
+    @Override
+    public int updateByQuery(String tableName, Filter filter, byte[] startRow, byte[] endRow,
+            Map<String, Object> columns) throws IOException
+    {
+        HTable hTable = gethTable(tableName);
+        try
+        {
+            List<byte[]> rowKeys = scanRowKeys(hTable, filter, startRow, endRow);
+            List<Put> puts = new ArrayList<Put>(rowKeys.size());
+            List<Delete> deletes = new ArrayList<Delete>();
+            long timestamp = System.currentTimeMillis();
+            for (byte[] rowKey : rowKeys)
+            {
+                Put p = new Put(rowKey);
+                Delete d = new Delete(rowKey);
+                boolean hasValues = false;
+                boolean hasNulls = false;
+                for (Map.Entry<String, Object> column : columns.entrySet())
+                {
+                    byte[] qualifier = Bytes.toBytes(column.getKey());
+                    if (column.getValue() != null)
+                    {
+                        p.add(qualifier, qualifier, timestamp, HBaseUtils.getBytes(column.getValue()));
+                        hasValues = true;
+                    }
+                    else
+                    {
+                        // column updated to null is deleted, a Delete without
+                        // columns would delete whole row.
+                        d.deleteColumns(qualifier, qualifier, timestamp);
+                        hasNulls = true;
+                    }
+                }
+                if (hasValues)
+                {
+                    puts.add(p);
+                }
+                if (hasNulls)
+                {
+                    deletes.add(d);
+                }
+            }
+            if (!puts.isEmpty())
+            {
+                hTable.put(puts);
+            }
+            if (!deletes.isEmpty())
+            {
+                hTable.delete(deletes);
+            }
+            return rowKeys.size();
+        }
+        finally
+        {
+            puthTable(hTable);
+        }
+    }
+
+    /**
+     * Scans row keys of all rows matching given filter and row key range.
+     * Values are stripped by a {@link KeyOnlyFilter} on region server, and
+     * only first column of each row is returned if there is no filter to
+     * evaluate other columns.
+     * 
+     * @param hTable
+     *            the h table
+     * @param filter
+     *            filter, may be null
+     * @param startRow
+     *            start row, may be null
+     * @param endRow
+     *            end row, may be null
+     * @return list of row keys
+     * @throws IOException
+     */
+    private List<byte[]> scanRowKeys(HTable hTable, Filter filter, byte[] startRow, byte[] endRow) throws IOException
+    {
+        Scan s = new Scan();
+        if (startRow != null)
+        {
+            s.setStartRow(startRow);
+        }
+        if (endRow != null)
+        {
+            s.setStopRow(endRow);
+        }
+        if (filter != null)
+        {
+            s.setFilter(new FilterList(filter, new KeyOnlyFilter()));
+        }
+        else
+        {
+            s.setFilter(new FilterList(new FirstKeyOnlyFilter(), new KeyOnlyFilter()));
+        }
+
+        List<byte[]> rowKeys = new ArrayList<byte[]>();
+        ResultScanner scanner = hTable.getScanner(s);
+        try
+        {
+            for (Result result : scanner)
+            {
+                rowKeys.add(result.getRow());
+            }
+        }
+        finally
+        {
+            scanner.close();
+        }
+        return rowKeys;
+    }
+
     private Object getObjectFromByteArray(EntityType entityType, byte[] value, String jpaColumnName, EntityMetadata m)
     {
         if (jpaColumnName != null)
@@ -1030,4 +1220,50 @@ public class HBaseDataHandler implements DataHandler
 
     }
 
+    /**
+     * Writes rows and deletes rows by key, table by table, with one call per
+     * table for each.
+     * 
+     * @param rows
+     *            rows to write, by table name.
+     * @param deletes
+     *            keys of rows to delete, by table name.
+     * @throws IOException
+     */
+    public void batchWrite(Map<String, List<HBaseDataWrapper>> rows, Map<String, List<Object>> deletes)
+            throws IOException
+    {
+        for (String tableName : rows.keySet())
+        {
+            HTable hTable = gethTable(tableName);
+            try
+            {
+                hbaseWriter.persistRows(Collections.singletonMap(hTable, rows.get(tableName)));
+            }
+            finally
+            {
+                puthTable(hTable);
+            }
+        }
+
+        for (String tableName : deletes.keySet())
+        {
+            List<Object> rowKeys = deletes.get(tableName);
+            List<Delete> deleteList = new ArrayList<Delete>(rowKeys.size());
+            for (Object rowKey : rowKeys)
+            {
+                deleteList.add(new Delete(HBaseUtils.getBytes(rowKey)));
+            }
+            HTable hTable = gethTable(tableName);
+            try
+            {
+                hTable.delete(deleteList);
+            }
+            finally
+            {
+                puthTable(hTable);
+            }
+        }
+    }
+
 }
@@ -136,13 +136,68 @@ public class HBaseQuery extends QueryImpl implements Query
     {
         if (kunderaQuery.isDeleteUpdate())
         {
-            List result = getResultList();
-            return result != null ? result.size() : 0;
+            return executeDeleteOrUpdate();
         }
 
         return 0;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.query.QueryImpl#onBulkDelete(com.impetus.kundera
+     * .metadata.model.EntityMetadata, com.impetus.kundera.client.Client)
+     */
+    @Override
+    protected int onBulkDelete(EntityMetadata m, Client client)
+    {
+        QueryTranslator translator = new QueryTranslator();
+        translator.translate(getKunderaQuery(), m);
+        if (translator.isFindById)
+        {
+            // row key lookup, nothing to gain over remove.
+            return -1;
+        }
+        return ((HBaseClient) client).deleteByQuery(m, getFilter(translator), translator.getStartRow(),
+                translator.getEndRow());
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.query.QueryImpl#onBulkUpdate(com.impetus.kundera
+     * .metadata.model.EntityMetadata, com.impetus.kundera.client.Client,
+     * java.util.Map)
+     */
+    @Override
+    protected int onBulkUpdate(EntityMetadata m, Client client, Map<String, Object> updatedColumns)
+    {
+        QueryTranslator translator = new QueryTranslator();
+        translator.translate(getKunderaQuery(), m);
+        if (translator.isFindById)
+        {
+            return -1;
+        }
+        return ((HBaseClient) client).updateByQuery(m, getFilter(translator), translator.getStartRow(),
+                translator.getEndRow(), updatedColumns);
+    }
+
+    /**
+     * Returns translated filter, if any.
+     * 
+     * @param translator
+     *            query translator
+     * @return filter or null.
+     */
+    private Filter getFilter(QueryTranslator translator)
+    {
+        Map<Boolean, Filter> filter = translator.getFilter();
+        return filter != null && filter.values() != null && !filter.values().isEmpty() ? filter.values().iterator()
+                .next() : null;
+    }
+
     /**
      * Parses and translates query into HBase filter and invokes client's method
      * to return list of entities.
@@ -16,7 +16,6 @@
 package com.impetus.client.hbase.service;
 
 import java.io.IOException;
-import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -99,7 +98,7 @@ public class HBaseWriter implements Writer
                 {
                     byte[] qualValInBytes = Bytes.toBytes(qualifier);
                     p.add(qualValInBytes, qualValInBytes, System.currentTimeMillis(), HBaseUtils
-                            .getBytes(PropertyAccessorHelper.getObject(entity, (Field) column.getJavaMember())));
+                            .getBytes(PropertyAccessorHelper.getObject(entity, column)));
                     present = true;
                 }
                 catch (PropertyAccessException e1)
@@ -301,7 +300,7 @@ public class HBaseWriter implements Writer
                 String qualifier = ((AbstractAttribute) column).getJPAColumnName();
                 try
                 {
-                    Object o = PropertyAccessorHelper.getObject(columnFamilyObj, (Field) column.getJavaMember());
+                    Object o = PropertyAccessorHelper.getObject(columnFamilyObj, column);
                     byte[] value = HBaseUtils.getBytes(o);
                     if (value != null)
                     {
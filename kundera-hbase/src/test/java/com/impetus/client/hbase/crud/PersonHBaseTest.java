@@ -125,6 +125,33 @@ public class PersonHBaseTest extends BaseTest
         Assert.assertEquals(3, results.size());
     }
 
+    /**
+     * On bulk update and delete, executed as one datastore operation.
+     */
+    @Test
+    public void onBulkUpdateAndDeleteHBase() throws Exception
+    {
+        init();
+
+        Query q = em.createQuery("Update PersonHBase p SET p.personName = newvivek where p.age = 10");
+        Assert.assertEquals(1, q.executeUpdate());
+
+        // managed instances are evicted, updated record is read back.
+        PersonHBase p = em.find(PersonHBase.class, "1");
+        Assert.assertNotNull(p);
+        Assert.assertEquals("newvivek", p.getPersonName());
+        Assert.assertEquals("vivek", em.find(PersonHBase.class, "2").getPersonName());
+
+        q = em.createQuery("Delete from PersonHBase p where p.personName = vivek");
+        Assert.assertEquals(2, q.executeUpdate());
+        Assert.assertNull(em.find(PersonHBase.class, "2"));
+        Assert.assertNull(em.find(PersonHBase.class, "3"));
+        Assert.assertNotNull(em.find(PersonHBase.class, "1"));
+        col.remove("2");
+        col.remove("3");
+        col.put("1", em.find(PersonHBase.class, "1"));
+    }
+
     // @Test
     // public void onMergeHbase() {
     // em.persist(prepareHbaseInstance("1", 10));
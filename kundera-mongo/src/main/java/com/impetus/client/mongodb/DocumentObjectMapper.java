@@ -132,7 +132,7 @@ public class DocumentObjectMapper
             for(Attribute column : columns)
             {
                 Object val = documentObj.get(((AbstractAttribute)column).getJPAColumnName());
-                PropertyAccessorHelper.set(obj, (Field) column.getJavaMember(), val);
+                PropertyAccessorHelper.set(obj, column, val);
             }
             return obj;
 
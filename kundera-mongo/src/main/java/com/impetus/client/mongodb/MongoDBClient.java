@@ -17,12 +17,15 @@ package com.impetus.client.mongodb;
 
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import javax.persistence.metamodel.Attribute;
+
 import org.apache.commons.lang.NotImplementedException;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -39,7 +42,9 @@ import com.impetus.kundera.metadata.model.EntityMetadata;
 import com.impetus.kundera.metadata.model.PersistenceUnitMetadata;
 import com.impetus.kundera.metadata.model.attributes.AbstractAttribute;
 import com.impetus.kundera.persistence.EntityReader;
+import com.impetus.kundera.persistence.api.BatchWriter;
 import com.impetus.kundera.persistence.api.Batcher;
+import com.impetus.kundera.persistence.batch.NodeBatcher;
 import com.impetus.kundera.persistence.context.jointable.JoinTableData;
 import com.mongodb.BasicDBObject;
 import com.mongodb.DB;
@@ -72,9 +77,9 @@ public class MongoDBClient extends ClientBase implements Client<MongoDBQuery>, B
     /** The log. */
     private static Log log = LogFactory.getLog(MongoDBClient.class);
 
-    private List<Node> nodes = new ArrayList<Node>();
+    /** batches nodes into documents, null if batch size is not defined. */
+    private NodeBatcher<MongoBatch> batcher;
 
-    private int batchSize;
     /**
      * Instantiates a new mongo db client.
      * 
@@ -96,7 +101,10 @@ public class MongoDBClient extends ClientBase implements Client<MongoDBQuery>, B
         handler = new MongoDBDataHandler();
         
         PersistenceUnitMetadata puMetadata = KunderaMetadataManager.getPersistenceUnitMetadata(persistenceUnit);
-        batchSize = puMetadata.getBatchSize();
+        if (puMetadata.getBatchSize() > 0)
+        {
+            batcher = new NodeBatcher<MongoBatch>(persistenceUnit, new MongoBatchWriter());
+        }
     }
 
     @Override
@@ -320,6 +328,50 @@ public class MongoDBClient extends ClientBase implements Client<MongoDBQuery>, B
         return entities;
     }
 
+    /**
+     * Removes all documents matching given query, in one remove call.
+     * 
+     * @param entityMetadata
+     *            the entity metadata
+     * @param mongoQuery
+     *            the mongo query
+     * @return number of removed documents
+     */
+    public int deleteByQuery(EntityMetadata entityMetadata, BasicDBObject mongoQuery)
+    {
+        DBCollection dbCollection = mongoDb.getCollection(entityMetadata.getTableName());
+        log.debug("Removing data from " + entityMetadata.getTableName() + " for Filter " + mongoQuery.toString());
+        return dbCollection.remove(mongoQuery).getN();
+    }
+
+    /**
+     * Sets given columns on all documents matching given query, in one multi
+     * update call.
+     * 
+     * @param entityMetadata
+     *            the entity metadata
+     * @param mongoQuery
+     *            the mongo query
+     * @param updatedColumns
+     *            map of column name and new value
+     * @return number of updated documents
+     */
+    public int updateByQuery(EntityMetadata entityMetadata, BasicDBObject mongoQuery,
+            Map<String, Object> updatedColumns)
+    {
+        DBCollection dbCollection = mongoDb.getCollection(entityMetadata.getTableName());
+
+        BasicDBObject values = new BasicDBObject();
+        for (Map.Entry<String, Object> column : updatedColumns.entrySet())
+        {
+            Object value = column.getValue();
+            values.put(column.getKey(), value != null ? handler.populateValue(value, value.getClass()) : null);
+        }
+
+        log.debug("Updating data of " + entityMetadata.getTableName() + " for Filter " + mongoQuery.toString());
+        return dbCollection.update(mongoQuery, new BasicDBObject("$set", values), false, true).getN();
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -484,17 +536,59 @@ public class MongoDBClient extends ClientBase implements Client<MongoDBQuery>, B
         onFlushCollection(collections);
     }
 
+    /**
+     * Writes changed columns only, as a single $set/$unset update on document.
+     * Columns set to null are unset.
+     */
+    @Override
+    protected boolean onUpdate(EntityMetadata entityMetadata, Object entity, Object id,
+            List<Attribute> changedAttributes)
+    {
+        DBObject document = handler.getDocumentFromEntity(new BasicDBObject(), entityMetadata, entity,
+                new ArrayList<RelationHolder>(0));
+
+        BasicDBObject setColumns = new BasicDBObject();
+        BasicDBObject unsetColumns = new BasicDBObject();
+        for (Attribute attribute : changedAttributes)
+        {
+            String columnName = ((AbstractAttribute) attribute).getJPAColumnName();
+            if (document.containsField(columnName))
+            {
+                setColumns.put(columnName, document.get(columnName));
+            }
+            else
+            {
+                unsetColumns.put(columnName, 1);
+            }
+        }
+
+        BasicDBObject update = new BasicDBObject();
+        if (!setColumns.isEmpty())
+        {
+            update.put("$set", setColumns);
+        }
+        if (!unsetColumns.isEmpty())
+        {
+            update.put("$unset", unsetColumns);
+        }
+
+        if (!update.isEmpty())
+        {
+            DBCollection dbCollection = mongoDb.getCollection(entityMetadata.getTableName());
+            dbCollection.update(new BasicDBObject("_id", document.get("_id")), update);
+        }
+        return true;
+    }
+
     /* (non-Javadoc)
      * @see com.impetus.kundera.persistence.api.Batcher#addBatch(com.impetus.kundera.graph.Node)
      */
     public void addBatch(Node node)
     {
-        if (node != null)
+        if (batcher != null)
         {
-            nodes.add(node);
+            batcher.add(node);
         }
-
-        onBatchLimit();
     }
 
     /* (non-Javadoc)
@@ -503,7 +597,7 @@ public class MongoDBClient extends ClientBase implements Client<MongoDBQuery>, B
     @Override
     public int getBatchSize()
     {
-        return batchSize;
+        return batcher != null ? batcher.getBatchSize() : 0;
     }
 
     
@@ -515,33 +609,7 @@ public class MongoDBClient extends ClientBase implements Client<MongoDBQuery>, B
     @Override
     public int executeBatch()
     {
-        Map<String, List<DBObject>> collections = new HashMap<String, List<DBObject>>();
-        for (Node node : nodes)
-        {
-            if (node.isDirty())
-            {
-                // delete can not be executed in batch
-                if (node.isInState(RemovedState.class))
-                {
-                    delete(node.getData(), node.getEntityId());
-                }
-                else
-                {
-
-                    List<RelationHolder> relationHolders = getRelationHolders(node);
-                    EntityMetadata metadata = KunderaMetadataManager.getEntityMetadata(node.getDataClass());
-                    collections = onPersist(collections,node.getData(), node.getEntityId(), metadata, relationHolders,
-                            node.isUpdate());
-                    indexNode(node, metadata);
-                }
-            }
-        }
-
-        if(!collections.isEmpty())
-        {
-            onFlushCollection(collections);
-        }
-        return collections.size();
+        return batcher != null ? batcher.flush() : 0;
     }
 
     /**
@@ -580,15 +648,8 @@ public class MongoDBClient extends ClientBase implements Client<MongoDBQuery>, B
         document = handler.getDocumentFromEntity(document, metadata, entity, relationHolders);
         if (isUpdate)
         {
-            BasicDBObject query = new BasicDBObject();
-
-            // Why can't we put "_id" here?
-            query.put(
-                    "_id",
-                    id instanceof Calendar ? ((Calendar) id).getTime().toString() : handler.populateValue(id,
-                            id.getClass()));
             DBCollection dbCollection = mongoDb.getCollection(documentName);
-            dbCollection.findAndModify(query, document);
+            dbCollection.findAndModify(getIdQuery(id), document);
         }
         else
         {
@@ -613,14 +674,205 @@ public class MongoDBClient extends ClientBase implements Client<MongoDBQuery>, B
     }    
 
     /**
-     * Check on batch limit.
+     * Returns query matching document of given id.
+     * 
+     * @param id
+     *            entity id.
+     * @return query on _id.
+     */
+    private BasicDBObject getIdQuery(Object id)
+    {
+        BasicDBObject query = new BasicDBObject();
+
+        // Why can't we put "_id" here?
+        query.put("_id",
+                id instanceof Calendar ? ((Calendar) id).getTime().toString() : handler.populateValue(id, id.getClass()));
+        return query;
+    }
+
+    /** Kind of batched operation. */
+    private enum MongoOperationType
+    {
+        INSERT, UPDATE, DELETE
+    }
+
+    /**
+     * Consecutive batched operations of one kind on one collection.
      */
-    private void onBatchLimit()
+    private static class MongoOperation
     {
-        if(batchSize > 0 && batchSize == nodes.size())
+        private final MongoOperationType type;
+
+        private final String collection;
+
+        /**
+         * documents to insert, query and document pairs to update, or ids of
+         * documents to remove.
+         */
+        private final List<Object> values = new ArrayList<Object>();
+
+        /** id column of collection, for removes. */
+        private String idColumn;
+
+        private MongoOperation(MongoOperationType type, String collection)
         {
-            executeBatch();
-            nodes.clear();
+            this.type = type;
+            this.collection = collection;
+        }
+    }
+
+    /**
+     * Batched operations in order of nodes added, those of one kind on one
+     * collection added one after another merged.
+     */
+    private static class MongoBatch
+    {
+        private final List<MongoOperation> operations = new ArrayList<MongoOperation>();
+
+        /** batched nodes, indexed once batch is written. */
+        private final List<Node> nodes = new ArrayList<Node>();
+
+        private MongoOperation get(MongoOperationType type, String collection)
+        {
+            MongoOperation last = operations.isEmpty() ? null : operations.get(operations.size() - 1);
+            if (last != null && last.type == type && last.collection.equals(collection))
+            {
+                return last;
+            }
+            MongoOperation operation = new MongoOperation(type, collection);
+            operations.add(operation);
+            return operation;
+        }
+    }
+
+    /**
+     * Converts batched nodes to documents as they are added. Operations are
+     * written in order of nodes, so that e.g. an entity removed and persisted
+     * again ends persisted; consecutive inserts into a collection are written
+     * in one call, consecutive removes in one call with $in on id column,
+     * updates one by one. Index is updated once all of them are written.
+     */
+    private class MongoBatchWriter implements BatchWriter<MongoBatch>
+    {
+        @Override
+        public MongoBatch newBatch()
+        {
+            return new MongoBatch();
+        }
+
+        @Override
+        public long encode(MongoBatch batch, Node node)
+        {
+            Object entity = node.getData();
+            Object id = node.getEntityId();
+            EntityMetadata metadata = KunderaMetadataManager.getEntityMetadata(node.getDataClass());
+            String documentName = metadata.getTableName();
+
+            if (node.isInState(RemovedState.class))
+            {
+                Object idValue = handler.populateValue(id, id.getClass());
+                MongoOperation delete = batch.get(MongoOperationType.DELETE, documentName);
+                delete.values.add(idValue);
+                delete.idColumn = ((AbstractAttribute) metadata.getIdAttribute()).getJPAColumnName();
+                batch.nodes.add(node);
+                return estimateSize(idValue);
+            }
+
+            persistenceUnit = metadata.getPersistenceUnit();
+            DBObject document = handler.getDocumentFromEntity(new BasicDBObject(), metadata, entity,
+                    getRelationHolders(node));
+            if (node.isUpdate())
+            {
+                batch.get(MongoOperationType.UPDATE, documentName).values.add(
+                        new DBObject[] { getIdQuery(id), document });
+            }
+            else
+            {
+                batch.get(MongoOperationType.INSERT, documentName).values.add(document);
+            }
+            batch.nodes.add(node);
+            return estimateSize(document);
+        }
+
+        @Override
+        public void execute(MongoBatch batch)
+        {
+            for (MongoOperation operation : batch.operations)
+            {
+                DBCollection dbCollection = mongoDb.getCollection(operation.collection);
+                switch (operation.type)
+                {
+                case INSERT:
+                    List<DBObject> documents = new ArrayList<DBObject>(operation.values.size());
+                    for (Object document : operation.values)
+                    {
+                        documents.add((DBObject) document);
+                    }
+                    dbCollection.insert(documents);
+                    break;
+                case UPDATE:
+                    for (Object value : operation.values)
+                    {
+                        DBObject[] update = (DBObject[]) value;
+                        dbCollection.update(update[0], update[1]);
+                    }
+                    break;
+                default:
+                    dbCollection.remove(new BasicDBObject(operation.idColumn, new BasicDBObject("$in",
+                            operation.values)));
+                }
+            }
+
+            // index only what has been written.
+            for (Node node : batch.nodes)
+            {
+                EntityMetadata metadata = KunderaMetadataManager.getEntityMetadata(node.getDataClass());
+                if (node.isInState(RemovedState.class))
+                {
+                    getIndexManager().remove(metadata, node.getData(), node.getEntityId().toString());
+                }
+                else
+                {
+                    indexNode(node, metadata);
+                }
+            }
+        }
+
+        /**
+         * Estimates size of given value, keys and values of documents
+         * included. Values other than strings and byte arrays count as 8
+         * bytes.
+         */
+        private long estimateSize(Object value)
+        {
+            if (value instanceof String)
+            {
+                return ((String) value).length();
+            }
+            else if (value instanceof byte[])
+            {
+                return ((byte[]) value).length;
+            }
+            else if (value instanceof DBObject)
+            {
+                long size = 0;
+                DBObject document = (DBObject) value;
+                for (String key : document.keySet())
+                {
+                    size += key.length() + estimateSize(document.get(key));
+                }
+                return size;
+            }
+            else if (value instanceof Collection)
+            {
+                long size = 0;
+                for (Object element : (Collection) value)
+                {
+                    size += estimateSize(element);
+                }
+                return size;
+            }
+            return value != null ? 8 : 0;
         }
     }
 }
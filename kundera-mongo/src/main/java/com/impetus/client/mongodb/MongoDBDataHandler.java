@@ -216,13 +216,13 @@ final class MongoDBDataHandler
         {
             if (column.getJavaType().isAssignableFrom(Map.class))
             {
-                PropertyAccessorHelper.set(entity, (Field) column.getJavaMember(), ((BasicDBObject) value).toMap());
+                PropertyAccessorHelper.set(entity, column, ((BasicDBObject) value).toMap());
             }
             else
             {
                 value = populateValue(value, value.getClass());
                 value = getTranslatedObject(value, value.getClass(), column.getJavaType());
-                PropertyAccessorHelper.set(entity, (Field) column.getJavaMember(), value);
+                PropertyAccessorHelper.set(entity, column, value);
             }
         }
     }
@@ -308,8 +308,7 @@ final class MongoDBDataHandler
         // relationship)
         if (column.getJavaType().isAssignableFrom(List.class) || column.getJavaType().isAssignableFrom(Set.class))
         {
-            Collection collection = (Collection) PropertyAccessorHelper.getObject(entity,
-                    (Field) column.getJavaMember());
+            Collection collection = (Collection) PropertyAccessorHelper.getObject(entity, column);
             BasicDBList basicDBList = new BasicDBList();
             for (Object o : collection)
             {
@@ -320,14 +319,14 @@ final class MongoDBDataHandler
         }
         else if (column.getJavaType().isAssignableFrom(Map.class))
         {
-            Map mapObj = (Map) PropertyAccessorHelper.getObject(entity, (Field) column.getJavaMember());
+            Map mapObj = (Map) PropertyAccessorHelper.getObject(entity, column);
             BasicDBObjectBuilder builder = BasicDBObjectBuilder.start(mapObj);
             dbObj.put(((AbstractAttribute) column).getJPAColumnName(), builder.get());
         }
         else
         {
             // TODO : this should have been handled by DocumentObjectMapper.
-            Object valObj = PropertyAccessorHelper.getObject(entity, (Field) column.getJavaMember());
+            Object valObj = PropertyAccessorHelper.getObject(entity, column);
             if (valObj != null)
             {
 
@@ -513,7 +512,7 @@ final class MongoDBDataHandler
             EmbeddableType embeddableType, DBObject dbObj)
     {
 
-        Object embeddedObject = PropertyAccessorHelper.getObject(entity, (Field) column.getJavaMember());
+        Object embeddedObject = PropertyAccessorHelper.getObject(entity, column);
 
         if (column.isCollection())
         {
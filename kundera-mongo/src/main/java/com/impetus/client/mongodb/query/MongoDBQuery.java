@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 
 import javax.persistence.Query;
@@ -147,6 +148,35 @@ public class MongoDBQuery extends QueryImpl
         return setRelationEntities(ls, client, m);
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.query.QueryImpl#onBulkDelete(com.impetus.kundera
+     * .metadata.model.EntityMetadata, com.impetus.kundera.client.Client)
+     */
+    @Override
+    protected int onBulkDelete(EntityMetadata m, Client client)
+    {
+        return ((MongoDBClient) client).deleteByQuery(m,
+                createMongoQuery(m, getKunderaQuery().getFilterClauseQueue()));
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.query.QueryImpl#onBulkUpdate(com.impetus.kundera
+     * .metadata.model.EntityMetadata, com.impetus.kundera.client.Client,
+     * java.util.Map)
+     */
+    @Override
+    protected int onBulkUpdate(EntityMetadata m, Client client, Map<String, Object> updatedColumns)
+    {
+        return ((MongoDBClient) client).updateByQuery(m,
+                createMongoQuery(m, getKunderaQuery().getFilterClauseQueue()), updatedColumns);
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -321,8 +351,7 @@ public class MongoDBQuery extends QueryImpl
     {
         if (kunderaQuery.isDeleteUpdate())
         {
-            List result = getResultList();
-            return result != null ? result.size() : 0;
+            return executeDeleteOrUpdate();
         }
 
         return 0;
@@ -109,8 +109,34 @@ public class MongoBatchProcessorTest
         Assert.assertNotNull(results);
         Assert.assertEquals(10, results.size());
     }
-    
-    
+
+    /**
+     * Entity removed and persisted again within one batch ends persisted, as
+     * batch is written in order.
+     */
+    @Test
+    public void onRemoveAndPersistAgainInBatch()
+    {
+        rows = prepareData(2);
+        for (PersonBatchMongoEntity entity : rows)
+        {
+            em.persist(entity);
+        }
+        em.flush();
+
+        em.remove(rows.get(0));
+        PersonBatchMongoEntity persistedAgain = prepareData(1).get(0);
+        persistedAgain.setPersonName("vivek");
+        em.persist(persistedAgain);
+        rows.set(0, persistedAgain);
+        em.flush();
+        em.clear();
+
+        PersonBatchMongoEntity found = em.find(PersonBatchMongoEntity.class, persistedAgain.getPersonId());
+        Assert.assertNotNull(found);
+        Assert.assertEquals("vivek", found.getPersonName());
+    }
+
     /**
      * @throws java.lang.Exception
      */
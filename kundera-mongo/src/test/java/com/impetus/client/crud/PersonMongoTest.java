@@ -182,6 +182,61 @@ public class PersonMongoTest extends BaseTest
         assertOnMerge(em, "PersonMongo", PersonMongo.class, "vivek", "newvivek", "personName");
     }
 
+    /**
+     * On bulk update and delete, executed as one datastore operation.
+     */
+    @Test
+    public void onBulkUpdateAndDeleteMongo() throws Exception
+    {
+        Object p1 = prepareMongoInstance("1", 10);
+        Object p2 = prepareMongoInstance("2", 20);
+        Object p3 = prepareMongoInstance("3", 15);
+        em.persist(p1);
+        em.persist(p2);
+        em.persist(p3);
+
+        Query q = em.createQuery("Update PersonMongo p SET p.personName = newvivek where p.age = 10");
+        Assert.assertEquals(1, q.executeUpdate());
+
+        // managed instances are evicted, updated record is read back.
+        PersonMongo p = em.find(PersonMongo.class, "1");
+        Assert.assertNotNull(p);
+        Assert.assertEquals("newvivek", p.getPersonName());
+        Assert.assertEquals("vivek", em.find(PersonMongo.class, "2").getPersonName());
+
+        q = em.createQuery("Delete from PersonMongo p where p.personName = vivek");
+        Assert.assertEquals(2, q.executeUpdate());
+        Assert.assertNull(em.find(PersonMongo.class, "2"));
+        Assert.assertNull(em.find(PersonMongo.class, "3"));
+        Assert.assertNotNull(em.find(PersonMongo.class, "1"));
+        col.put("1", em.find(PersonMongo.class, "1"));
+    }
+
+    /**
+     * On bulk update of entities persisted in same transaction, which are
+     * flushed before.
+     */
+    @Test
+    public void onBulkUpdateInTransactionMongo() throws Exception
+    {
+        em.getTransaction().begin();
+        Object p1 = prepareMongoInstance("1", 10);
+        Object p2 = prepareMongoInstance("2", 20);
+        em.persist(p1);
+        em.persist(p2);
+
+        Query q = em.createQuery("Update PersonMongo p SET p.personName = newvivek where p.age = 10");
+        Assert.assertEquals(1, q.executeUpdate());
+        em.getTransaction().commit();
+
+        PersonMongo p = em.find(PersonMongo.class, "1");
+        Assert.assertNotNull(p);
+        Assert.assertEquals("newvivek", p.getPersonName());
+        Assert.assertEquals("vivek", em.find(PersonMongo.class, "2").getPersonName());
+        col.put("1", p);
+        col.put("2", em.find(PersonMongo.class, "2"));
+    }
+
     /**
      * Tear down.
      * 
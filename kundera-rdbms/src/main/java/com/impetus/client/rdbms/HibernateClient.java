@@ -24,6 +24,8 @@ import java.util.Map;
 import java.util.Set;
 
 import javax.persistence.PersistenceException;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.Attribute.PersistentAttributeType;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -38,10 +40,13 @@ import org.hibernate.cfg.Configuration;
 import org.hibernate.criterion.Restrictions;
 
 import com.impetus.client.rdbms.query.RDBMSQuery;
+import com.impetus.kundera.KunderaException;
 import com.impetus.kundera.client.Client;
 import com.impetus.kundera.client.ClientBase;
 import com.impetus.kundera.db.RelationHolder;
+import com.impetus.kundera.graph.Node;
 import com.impetus.kundera.index.IndexManager;
+import com.impetus.kundera.lifecycle.states.RemovedState;
 import com.impetus.kundera.metadata.KunderaMetadataManager;
 import com.impetus.kundera.metadata.MetadataUtils;
 import com.impetus.kundera.metadata.model.EntityMetadata;
@@ -49,17 +54,21 @@ import com.impetus.kundera.metadata.model.KunderaMetadata;
 import com.impetus.kundera.metadata.model.MetamodelImpl;
 import com.impetus.kundera.metadata.model.attributes.AbstractAttribute;
 import com.impetus.kundera.persistence.EntityReader;
+import com.impetus.kundera.persistence.api.BatchWriter;
+import com.impetus.kundera.persistence.api.Batcher;
+import com.impetus.kundera.persistence.batch.NodeBatcher;
 import com.impetus.kundera.persistence.context.jointable.JoinTableData;
 import com.impetus.kundera.property.PropertyAccessException;
 import com.impetus.kundera.property.PropertyAccessor;
 import com.impetus.kundera.property.PropertyAccessorFactory;
+import com.impetus.kundera.property.PropertyAccessorHelper;
 
 /**
  * The Class HibernateClient.
  * 
  * @author vivek.mishra
  */
-public class HibernateClient extends ClientBase implements Client<RDBMSQuery>
+public class HibernateClient extends ClientBase implements Client<RDBMSQuery>, Batcher
 {
 
     /** The conf. */
@@ -77,6 +86,9 @@ public class HibernateClient extends ClientBase implements Client<RDBMSQuery>
     /** The Constant log. */
     private static final Log log = LogFactory.getLog(HibernateClient.class);
 
+    /** batches nodes, null if batch size is not defined. */
+    private NodeBatcher<List<Node>> batcher;
+
     /**
      * Instantiates a new hibernate client.
      * 
@@ -106,6 +118,11 @@ public class HibernateClient extends ClientBase implements Client<RDBMSQuery>
         this.persistenceUnit = persistenceUnit;
         this.indexManager = indexManager;
         this.reader = reader;
+
+        if (KunderaMetadataManager.getPersistenceUnitMetadata(persistenceUnit).getBatchSize() > 0)
+        {
+            batcher = new NodeBatcher<List<Node>>(persistenceUnit, new HibernateBatchWriter());
+        }
     }
 
     /*
@@ -186,20 +203,38 @@ public class HibernateClient extends ClientBase implements Client<RDBMSQuery>
     {
         // TODO: Vivek correct it. unfortunately i need to open a new session
         // for each finder to avoid lazy loading.
-        List<E> objs = new ArrayList<E>();
-        Session s = sf.openSession();
-        Transaction tx = s.beginTransaction();
-
         EntityMetadata entityMetadata = KunderaMetadataManager.getEntityMetadata(getPersistenceUnit(), arg0);
 
         Object[] pKeys = getDataType(entityMetadata, arg1);
         String id = ((AbstractAttribute)entityMetadata.getIdAttribute()).getJPAColumnName();
 
-        Criteria c = s.createCriteria(arg0);
+        Session s = sf.openSession();
+        Transaction tx = null;
+        try
+        {
+            tx = s.beginTransaction();
+            Criteria c = s.createCriteria(arg0);
 
-        c.add(Restrictions.in(id, pKeys));
+            c.add(Restrictions.in(id, pKeys));
 
-        return c.list();
+            List<E> objs = c.list();
+            tx.commit();
+            return objs;
+        }
+        catch (HibernateException e)
+        {
+            if (tx != null)
+            {
+                tx.rollback();
+            }
+            throw new KunderaException(e);
+        }
+        finally
+        {
+            // Results are fully loaded by the criteria, session is only needed
+            // for this call.
+            s.close();
+        }
     }
 
     @Override
@@ -219,19 +254,7 @@ public class HibernateClient extends ClientBase implements Client<RDBMSQuery>
             tx = s.beginTransaction();
             s.insert(entity);
 
-            // Update foreign Keys
-            for (RelationHolder rh : relationHolders)
-            {
-                String linkName = rh.getRelationName();
-                Object linkValue = rh.getRelationValue();
-                if (linkName != null && linkValue != null)
-                {
-
-                    String updateSql = "Update " + metadata.getTableName() + " SET " + linkName + "= '" + linkValue
-                            + "' WHERE " + ((AbstractAttribute)metadata.getIdAttribute()).getJPAColumnName() + " = '" + id + "'";
-                    s.createSQLQuery(updateSql).executeUpdate();
-                }
-            }
+            updateForeignKeys(metadata, id, relationHolders);
             tx.commit();
         }
         // TODO: Bad code, get rid of these exceptions, currently necessary for
@@ -249,6 +272,214 @@ public class HibernateClient extends ClientBase implements Client<RDBMSQuery>
 
     }
 
+    /**
+     * Update foreign Keys
+     */
+    private void updateForeignKeys(EntityMetadata metadata, Object id, List<RelationHolder> relationHolders)
+    {
+        for (RelationHolder rh : relationHolders)
+        {
+            String linkName = rh.getRelationName();
+            Object linkValue = rh.getRelationValue();
+            if (linkName != null && linkValue != null)
+            {
+
+                String updateSql = "Update " + metadata.getTableName() + " SET " + linkName + "= '" + linkValue
+                        + "' WHERE " + ((AbstractAttribute)metadata.getIdAttribute()).getJPAColumnName() + " = '" + id + "'";
+                s.createSQLQuery(updateSql).executeUpdate();
+            }
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.persistence.api.Batcher#addBatch(com.impetus.kundera
+     * .graph.Node)
+     */
+    @Override
+    public void addBatch(Node node)
+    {
+        if (batcher != null)
+        {
+            batcher.add(node);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.persistence.api.Batcher#getBatchSize()
+     */
+    @Override
+    public int getBatchSize()
+    {
+        return batcher != null ? batcher.getBatchSize() : 0;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.persistence.api.Batcher#executeBatch()
+     */
+    @Override
+    public int executeBatch()
+    {
+        return batcher != null ? batcher.flush() : 0;
+    }
+
+    /**
+     * Writes batched inserts, updates and deletes, in flush order, within one
+     * transaction.
+     */
+    private class HibernateBatchWriter implements BatchWriter<List<Node>>
+    {
+        @Override
+        public List<Node> newBatch()
+        {
+            return new ArrayList<Node>();
+        }
+
+        @Override
+        public long encode(List<Node> batch, Node node)
+        {
+            batch.add(node);
+            return 0;
+        }
+
+        @Override
+        public void execute(List<Node> batch)
+        {
+            s = getStatelessSession();
+            Transaction tx = s.beginTransaction();
+            try
+            {
+                for (Node node : batch)
+                {
+                    Object entity = node.getData();
+                    if (node.isInState(RemovedState.class))
+                    {
+                        s.delete(entity);
+                    }
+                    else
+                    {
+                        EntityMetadata metadata = KunderaMetadataManager.getEntityMetadata(node.getDataClass());
+                        write(node);
+                        updateForeignKeys(metadata, node.getEntityId(), getRelationHolders(node));
+                    }
+                }
+                tx.commit();
+            }
+            catch (HibernateException e)
+            {
+                log.error("Error while executing batch insert/update/delete, Caused by: " + e.getMessage());
+                tx.rollback();
+                throw new KunderaException(e);
+            }
+
+            for (Node node : batch)
+            {
+                EntityMetadata metadata = KunderaMetadataManager.getEntityMetadata(node.getDataClass());
+                if (node.isInState(RemovedState.class))
+                {
+                    if (!MetadataUtils.useSecondryIndex(getPersistenceUnit()))
+                    {
+                        getIndexManager().remove(metadata, node.getData(), node.getEntityId().toString());
+                    }
+                }
+                else
+                {
+                    indexNode(node, metadata);
+                }
+            }
+        }
+
+        private void write(Node node)
+        {
+            if (node.isUpdate())
+            {
+                s.update(node.getData());
+                return;
+            }
+
+            try
+            {
+                s.insert(node.getData());
+            }
+            // TODO: Bad code, get rid of these exceptions, currently
+            // necessary for handling many to one case
+            catch (org.hibernate.exception.ConstraintViolationException e)
+            {
+                log.info(e.getMessage());
+                s.update(node.getData());
+            }
+        }
+    }
+
+    /**
+     * Writes changed columns only, via a dynamic update on row. Embedded,
+     * collection and enum columns are left to hibernate, with a full update.
+     * A failed update is rolled back and rethrown.
+     */
+    @Override
+    protected boolean onUpdate(EntityMetadata metadata, Object entity, Object id, List<Attribute> changedAttributes)
+    {
+        if (changedAttributes.isEmpty())
+        {
+            return true;
+        }
+
+        StringBuilder updateSql = new StringBuilder("Update ");
+        updateSql.append(metadata.getTableName());
+        updateSql.append(" Set ");
+
+        List<Object> parameters = new ArrayList<Object>(changedAttributes.size() + 1);
+        for (Attribute attribute : changedAttributes)
+        {
+            Field field = (Field) attribute.getJavaMember();
+            if (!attribute.getPersistentAttributeType().equals(PersistentAttributeType.BASIC)
+                    || attribute.isCollection() || field.getType().isEnum())
+            {
+                return false;
+            }
+
+            if (!parameters.isEmpty())
+            {
+                updateSql.append(", ");
+            }
+            updateSql.append(((AbstractAttribute) attribute).getJPAColumnName());
+            updateSql.append(" = ?");
+            parameters.add(PropertyAccessorHelper.getObject(entity, field));
+        }
+
+        updateSql.append(" Where ");
+        updateSql.append(((AbstractAttribute) metadata.getIdAttribute()).getJPAColumnName());
+        updateSql.append(" = ?");
+        parameters.add(id);
+
+        s = getStatelessSession();
+        Transaction tx = s.beginTransaction();
+        try
+        {
+            SQLQuery q = s.createSQLQuery(updateSql.toString());
+            int position = 0;
+            for (Object parameter : parameters)
+            {
+                q.setParameter(position++, parameter);
+            }
+            q.executeUpdate();
+            tx.commit();
+        }
+        catch (HibernateException e)
+        {
+            log.error("Error while updating changed columns, Caused by: " + e.getMessage());
+            tx.rollback();
+            throw new KunderaException(e);
+        }
+        return true;
+    }
+
     /**
      * Inserts records into JoinTable
      */
@@ -454,6 +685,34 @@ public class HibernateClient extends ClientBase implements Client<RDBMSQuery>
         return q.list();
     }
 
+    /**
+     * Executes native delete/update query.
+     * 
+     * @param nativeQuery
+     *            the native query
+     * @param parameters
+     *            positional parameter values, may be null
+     * @return number of affected rows
+     */
+    public int executeNativeUpdate(String nativeQuery, List<Object> parameters)
+    {
+        s = getStatelessSession();
+
+        Transaction tx = s.beginTransaction();
+        SQLQuery q = s.createSQLQuery(nativeQuery);
+        if (parameters != null)
+        {
+            int position = 0;
+            for (Object parameter : parameters)
+            {
+                q.setParameter(position++, parameter);
+            }
+        }
+        int count = q.executeUpdate();
+        tx.commit();
+        return count;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -310,40 +310,7 @@ public class RDBMSEntityReader extends AbstractEntityReader implements EntityRea
 
         if (primaryKeys == null)
         {
-            for (Object o : conditions)
-            {
-
-                if (o instanceof FilterClause)
-                {
-                    FilterClause clause = ((FilterClause) o);
-                    // String fieldName = getColumnName(clause.getProperty());
-                    String fieldName = clause.getProperty();
-                    boolean isString = isStringProperty(entityType, fieldName, entityMetadata);
-
-                    // queryBuilder.append(StringUtils.replace(clause.getProperty(),
-                    // clause.getProperty().substring(0,
-                    // clause.getProperty().indexOf(".")), aliasName));
-                    queryBuilder.append(StringUtils.replace(clause.getProperty(), aliasName, aliasName));
-                    queryBuilder.append(" ");
-                    queryBuilder.append(clause.getCondition());
-
-                    if (clause.getCondition().equalsIgnoreCase("like"))
-                    {
-                        queryBuilder.append("%");
-                    }
-                    queryBuilder.append(" ");
-                    appendStringPrefix(queryBuilder, isString);
-                    queryBuilder.append(clause.getValue());
-                    appendStringPrefix(queryBuilder, isString);
-                }
-                else
-                {
-                    queryBuilder.append(" ");
-                    queryBuilder.append(o);
-                    queryBuilder.append(" ");
-                }
-
-            }
+            appendConditions(queryBuilder, entityType, entityMetadata, aliasName);
         }
         else
         {
@@ -375,6 +342,119 @@ public class RDBMSEntityReader extends AbstractEntityReader implements EntityRea
         return queryBuilder.toString();
     }
 
+    /**
+     * Gets the sql delete query for jpa delete query, having same conditions.
+     * 
+     * @param entityMetadata
+     *            the entity metadata
+     * @return the sql delete query
+     */
+    public String getSqlDeleteQueryFromJPA(EntityMetadata entityMetadata)
+    {
+        Metamodel metaModel = KunderaMetadata.INSTANCE.getApplicationMetadata().getMetamodel(
+                entityMetadata.getPersistenceUnit());
+        EntityType entityType = metaModel.entity(entityMetadata.getEntityClazz());
+
+        StringBuilder queryBuilder = new StringBuilder("Delete From ");
+        queryBuilder.append(entityMetadata.getTableName());
+        if (filter != null)
+        {
+            queryBuilder.append(" Where ");
+        }
+        appendConditions(queryBuilder, entityType, entityMetadata, null);
+        return queryBuilder.toString();
+    }
+
+    /**
+     * Gets the sql update query for jpa update query, having same conditions.
+     * New column values are bound as positional parameters, in iteration
+     * order of given columns.
+     * 
+     * @param entityMetadata
+     *            the entity metadata
+     * @param columns
+     *            updated column names
+     * @return the sql update query
+     */
+    public String getSqlUpdateQueryFromJPA(EntityMetadata entityMetadata, Set<String> columns)
+    {
+        Metamodel metaModel = KunderaMetadata.INSTANCE.getApplicationMetadata().getMetamodel(
+                entityMetadata.getPersistenceUnit());
+        EntityType entityType = metaModel.entity(entityMetadata.getEntityClazz());
+
+        StringBuilder queryBuilder = new StringBuilder("Update ");
+        queryBuilder.append(entityMetadata.getTableName());
+        queryBuilder.append(" Set ");
+        int count = 0;
+        for (String column : columns)
+        {
+            if (count++ > 0)
+            {
+                queryBuilder.append(", ");
+            }
+            queryBuilder.append(column);
+            queryBuilder.append(" = ?");
+        }
+
+        if (filter != null)
+        {
+            queryBuilder.append(" Where ");
+        }
+        appendConditions(queryBuilder, entityType, entityMetadata, null);
+        return queryBuilder.toString();
+    }
+
+    /**
+     * Appends filter conditions to query.
+     * 
+     * @param queryBuilder
+     *            the query builder
+     * @param entityType
+     *            the entity type
+     * @param entityMetadata
+     *            the entity metadata
+     * @param aliasName
+     *            the alias name
+     */
+    private void appendConditions(StringBuilder queryBuilder, EntityType entityType, EntityMetadata entityMetadata,
+            String aliasName)
+    {
+        for (Object o : conditions)
+        {
+
+            if (o instanceof FilterClause)
+            {
+                FilterClause clause = ((FilterClause) o);
+                // String fieldName = getColumnName(clause.getProperty());
+                String fieldName = clause.getProperty();
+                boolean isString = isStringProperty(entityType, fieldName, entityMetadata);
+
+                // queryBuilder.append(StringUtils.replace(clause.getProperty(),
+                // clause.getProperty().substring(0,
+                // clause.getProperty().indexOf(".")), aliasName));
+                queryBuilder.append(StringUtils.replace(clause.getProperty(), aliasName, aliasName));
+                queryBuilder.append(" ");
+                queryBuilder.append(clause.getCondition());
+
+                if (clause.getCondition().equalsIgnoreCase("like"))
+                {
+                    queryBuilder.append("%");
+                }
+                queryBuilder.append(" ");
+                appendStringPrefix(queryBuilder, isString);
+                queryBuilder.append(clause.getValue());
+                appendStringPrefix(queryBuilder, isString);
+            }
+            else
+            {
+                queryBuilder.append(" ");
+                queryBuilder.append(o);
+                queryBuilder.append(" ");
+            }
+
+        }
+    }
+
     /**
      * Append string prefix.
      * 
@@ -17,6 +17,7 @@ package com.impetus.client.rdbms.query;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import javax.persistence.Query;
 
@@ -157,13 +158,44 @@ public class RDBMSQuery extends QueryImpl implements Query
     {
         if (kunderaQuery.isDeleteUpdate())
         {
-            List result = getResultList();
-            return result != null ? result.size() : 0;
+            return executeDeleteOrUpdate();
         }
 
         return 0;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.query.QueryImpl#onBulkDelete(com.impetus.kundera
+     * .metadata.model.EntityMetadata, com.impetus.kundera.client.Client)
+     */
+    @Override
+    protected int onBulkDelete(EntityMetadata m, Client client)
+    {
+        initializeReader();
+        return ((HibernateClient) client).executeNativeUpdate(
+                ((RDBMSEntityReader) getReader()).getSqlDeleteQueryFromJPA(m), null);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.query.QueryImpl#onBulkUpdate(com.impetus.kundera
+     * .metadata.model.EntityMetadata, com.impetus.kundera.client.Client,
+     * java.util.Map)
+     */
+    @Override
+    protected int onBulkUpdate(EntityMetadata m, Client client, Map<String, Object> updatedColumns)
+    {
+        initializeReader();
+        return ((HibernateClient) client).executeNativeUpdate(
+                ((RDBMSEntityReader) getReader()).getSqlUpdateQueryFromJPA(m, updatedColumns.keySet()),
+                new ArrayList<Object>(updatedColumns.values()));
+    }
+
     /**
      * Initializes reader with conditions and filter in case for JPA/Named query
      * only!
@@ -15,11 +15,14 @@
  ******************************************************************************/
 package com.impetus.client.crud;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
+import javax.persistence.Query;
 
 import junit.framework.Assert;
 
@@ -27,6 +30,9 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.impetus.client.rdbms.HibernateClient;
+import com.impetus.kundera.client.Client;
+
 public class PersonRdbmsTest extends BaseTest
 {
 
@@ -75,6 +81,106 @@ public class PersonRdbmsTest extends BaseTest
         assertFindWithoutWhereClause(em, "PersonRDBMS", PersonRDBMS.class);
     }
 
+    @Test
+    public void onFindAllRdbms()
+    {
+        Object p1 = prepareRDBMSInstance("1", 10);
+        Object p2 = prepareRDBMSInstance("2", 20);
+        Object p3 = prepareRDBMSInstance("3", 15);
+        em.persist(p1);
+        em.persist(p2);
+        em.persist(p3);
+        col.put("1", p1);
+        col.put("2", p2);
+        col.put("3", p3);
+
+        Map<String, Client> clients = (Map<String, Client>) em.getDelegate();
+        Client client = clients.get("testHibernate");
+        Assert.assertNotNull(client);
+
+        // Each call opens its own session, repeated calls must not run out of
+        // connections.
+        for (int i = 0; i < 50; i++)
+        {
+            List<PersonRDBMS> persons = client.findAll(PersonRDBMS.class, "1", "3", "4");
+            Assert.assertEquals(2, persons.size());
+            for (PersonRDBMS person : persons)
+            {
+                Assert.assertTrue("1".equals(person.getPersonId()) || "3".equals(person.getPersonId()));
+                Assert.assertEquals("vivek", person.getPersonName());
+            }
+        }
+    }
+
+    /**
+     * On update of entity tracking its changes, only changed columns are
+     * written.
+     */
+    @Test
+    public void onUpdateDirtyColumnsRdbms()
+    {
+        TrackedPersonRDBMS p = new TrackedPersonRDBMS();
+        p.setPersonId("1");
+        p.setPersonName("vivek");
+        p.setAge(10);
+        em.persist(p);
+
+        // change a column behind entity manager.
+        Map<String, Client> clients = (Map<String, Client>) em.getDelegate();
+        HibernateClient client = (HibernateClient) clients.get("testHibernate");
+        client.executeNativeUpdate("Update TRACKED_PERSON Set AGE = ? Where PERSON_ID = ?",
+                Arrays.asList(new Object[] { 32, "1" }));
+
+        p.setPersonName("newvivek");
+        em.merge(p);
+        em.clear();
+
+        TrackedPersonRDBMS found = em.find(TrackedPersonRDBMS.class, "1");
+        Assert.assertNotNull(found);
+        Assert.assertEquals("newvivek", found.getPersonName());
+        Assert.assertEquals(Integer.valueOf(32), found.getAge());
+
+        // nulled column is written too.
+        found.setPersonName(null);
+        em.merge(found);
+        em.clear();
+
+        found = em.find(TrackedPersonRDBMS.class, "1");
+        Assert.assertNull(found.getPersonName());
+        Assert.assertEquals(Integer.valueOf(32), found.getAge());
+        col.put("1", found);
+    }
+
+    /**
+     * On bulk update and delete, executed as one datastore operation.
+     */
+    @Test
+    public void onBulkUpdateAndDeleteRdbms() throws Exception
+    {
+        Object p1 = prepareRDBMSInstance("1", 10);
+        Object p2 = prepareRDBMSInstance("2", 20);
+        Object p3 = prepareRDBMSInstance("3", 15);
+        em.persist(p1);
+        em.persist(p2);
+        em.persist(p3);
+
+        Query q = em.createQuery("Update PersonRDBMS p SET p.personName = newvivek where p.age = 10");
+        Assert.assertEquals(1, q.executeUpdate());
+
+        // managed instances are evicted, updated record is read back.
+        PersonRDBMS p = em.find(PersonRDBMS.class, "1");
+        Assert.assertNotNull(p);
+        Assert.assertEquals("newvivek", p.getPersonName());
+        Assert.assertEquals("vivek", em.find(PersonRDBMS.class, "2").getPersonName());
+
+        q = em.createQuery("Delete from PersonRDBMS p where p.personName = vivek");
+        Assert.assertEquals(2, q.executeUpdate());
+        Assert.assertNull(em.find(PersonRDBMS.class, "2"));
+        Assert.assertNull(em.find(PersonRDBMS.class, "3"));
+        Assert.assertNotNull(em.find(PersonRDBMS.class, "1"));
+        col.put("1", em.find(PersonRDBMS.class, "1"));
+    }
+
     // @Test
     public void onMergeRdbms()
     {
@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.client.crud;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+
+import com.impetus.kundera.persistence.api.DirtyTrackable;
+
+/**
+ * Person entity recording its own attribute writes, so that updates only
+ * write changed columns.
+ */
+@Entity
+@Table(name = "TRACKED_PERSON")
+public class TrackedPersonRDBMS implements DirtyTrackable
+{
+
+    @Id
+    @Column(name = "PERSON_ID")
+    private String personId;
+
+    @Column(name = "PERSON_NAME")
+    private String personName;
+
+    @Column(name = "AGE")
+    private Integer age;
+
+    @Transient
+    private Set<String> dirtyAttributes = new HashSet<String>();
+
+    public String getPersonId()
+    {
+        return personId;
+    }
+
+    public void setPersonId(String personId)
+    {
+        this.personId = personId;
+        dirtyAttributes.add("personId");
+    }
+
+    public String getPersonName()
+    {
+        return personName;
+    }
+
+    public void setPersonName(String personName)
+    {
+        this.personName = personName;
+        dirtyAttributes.add("personName");
+    }
+
+    public Integer getAge()
+    {
+        return age;
+    }
+
+    public void setAge(Integer age)
+    {
+        this.age = age;
+        dirtyAttributes.add("age");
+    }
+
+    @Override
+    public Set<String> getDirtyAttributes()
+    {
+        return dirtyAttributes;
+    }
+
+    @Override
+    public void clearDirtyAttributes()
+    {
+        dirtyAttributes.clear();
+    }
+
+}